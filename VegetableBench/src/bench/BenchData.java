@@ -0,0 +1,51 @@
+package bench;
+
+import common.PriceMutation;
+import common.VegetablePrice;
+import server.VegetablePriceTable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BenchData - test data shared by the benchmarks.
+ * Vegetables are named B00001, B00002, ... and added to the shared
+ * in-memory price table next to the five sample vegetables.
+ */
+final class BenchData {
+
+    private BenchData() { }
+
+    /** IDs of the first n benchmark vegetables. */
+    static String[] ids(int n) {
+        String[] ids = new String[n];
+        for (int i = 0; i < n; i++) ids[i] = String.format("B%05d", i + 1);
+        return ids;
+    }
+
+    /**
+     * Make sure the first n benchmark vegetables are in the table.
+     * Added in one applyAll(), so a million rows copy the table once.
+     */
+    static String[] fillTable(VegetablePriceTable table, int n) {
+        String[] ids = ids(n);
+        List<PriceMutation> adds = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            adds.add(PriceMutation.add(new VegetablePrice(ids[i], "Bench veg " + (i + 1), price(i))));
+        }
+        table.applyAll(adds); // IDs already there are left as they are
+        return ids;
+    }
+
+    /** Basket of the first n benchmark vegetables with varying quantities. */
+    static Map<String, Double> basket(String[] ids, int lines) {
+        Map<String, Double> items = new LinkedHashMap<>();
+        for (int i = 0; i < lines; i++) items.put(ids[i], quantity(i));
+        return items;
+    }
+
+    static double price(int i)    { return 20.0 + (i % 80) * 1.25; }
+    static double quantity(int i) { return 0.25 + (i % 9) * 0.5; }
+}
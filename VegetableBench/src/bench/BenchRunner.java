@@ -0,0 +1,91 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * BenchRunner - runs the JMH benchmarks and writes one JSON result file
+ * per run, so two runs can be compared (e.g. with jmh.morethan.net).
+ *
+ * Every run uses the GC profiler, which adds allocation per operation
+ * (gc.alloc.rate.norm, bytes/op) and GC counts to the results.
+ *
+ * Usage: BenchRunner [benchmark class ...]   (default: all of them)
+ *   -Dbench.threads=1,2,4,8,16,32,64   thread counts for PriceTableBenchmark
+ *   -Dbench.out=bench-results          directory for the JSON files
+ *
+ * DIARY: Day 6 - Added so performance changes come with numbers.
+ */
+public class BenchRunner {
+
+    private static final List<String> ALL = Arrays.asList(
+            "PriceTableBenchmark", "TaskBenchmark", "ParallelPricingBenchmark", "RmiRoundTripBenchmark",
+            "SkuHandleBenchmark");
+
+    // Benchmarks measured once per thread count
+    private static final String THREAD_SWEEP = "PriceTableBenchmark";
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        List<String> selected = args.length == 0 ? ALL : Arrays.asList(args);
+        Path outDir = Paths.get(System.getProperty("bench.out", "bench-results"));
+        Files.createDirectories(outDir);
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+
+        List<String> others = new ArrayList<>();
+        for (String name : selected) {
+            if (!name.equals(THREAD_SWEEP)) {
+                others.add(name);
+                continue;
+            }
+            for (int threads : threadCounts()) {
+                run(options(name, outDir.resolve(stamp + "-" + name + "-t" + threads + ".json"))
+                        .threads(threads));
+            }
+        }
+        if (!others.isEmpty()) {
+            ChainedOptionsBuilder opts = options(null, outDir.resolve(stamp + "-benchmarks.json"));
+            for (String name : others) opts.include(pattern(name));
+            run(opts);
+        }
+        System.out.println("Results written to " + outDir.toAbsolutePath());
+    }
+
+    private static ChainedOptionsBuilder options(String include, Path result) {
+        ChainedOptionsBuilder opts = new OptionsBuilder()
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result.toString())
+                .shouldFailOnError(true);
+        if (include != null) opts.include(pattern(include));
+        return opts;
+    }
+
+    private static void run(ChainedOptionsBuilder opts) throws RunnerException {
+        new Runner(opts.build()).run();
+    }
+
+    private static String pattern(String className) {
+        return "bench\\." + className + "\\.";
+    }
+
+    private static int[] threadCounts() {
+        return Arrays.stream(System.getProperty("bench.threads", "1,2,4,8,16,32,64").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+    }
+}
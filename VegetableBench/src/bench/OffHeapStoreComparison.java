@@ -0,0 +1,171 @@
+package bench;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import common.PriceMutation;
+import common.VegetablePrice;
+import server.PriceStore;
+import server.PricingEngine;
+import server.VegetablePriceTable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * OffHeapStoreComparison - heap size and GC pauses of a large in-memory
+ * table with its rows on the heap (the default) and in an
+ * OffHeapPriceStore (-Dvegetable.store=offheap).
+ *
+ * Each store runs in its own JVM with the same -Xmx. It fills the table,
+ * lets an off-heap table fold its overlay into the store, then reports:
+ *   heap MB     heap in use after a full GC (the live set)
+ *   direct MB   direct memory in use (the off-heap store)
+ *   full GC ms  how long System.gc() takes, median of 5
+ *   GCs, GC ms  collections and their total time while looking up and
+ *               pricing random vegetables for the given time
+ *   max GC ms   the longest of those collections
+ *   lookups/s   lookups done meanwhile
+ *
+ * Run: java -cp <VegetableRMI classes>:<VegetableBench classes> bench.OffHeapStoreComparison [rows] [seconds]
+ *   -Dbench.xmx=2g   heap for each JVM (default 2g)
+ *
+ * DIARY: Day 6 - Written with OffHeapPriceStore to show what it saves.
+ */
+public class OffHeapStoreComparison {
+
+    private static volatile long sink; // keeps results alive so the JIT cannot drop the work
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        if (args.length > 2) {
+            measure(rows, seconds);
+            return;
+        }
+
+        System.out.printf("%-8s %10s %10s %10s %8s %8s %10s %12s%n",
+                "Store", "heap MB", "direct MB", "full GC ms", "GCs", "GC ms", "max GC ms", "lookups/s");
+        String xmx = System.getProperty("bench.xmx", "2g");
+        for (String store : new String[] {"heap", "offheap"}) {
+            List<String> cmd = new ArrayList<>(Arrays.asList(
+                    System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                    "-Xmx" + xmx, "-XX:MaxDirectMemorySize=" + xmx,
+                    "-D" + PriceStore.STORE_PROPERTY + "=" + store,
+                    "-cp", System.getProperty("java.class.path"),
+                    OffHeapStoreComparison.class.getName(), String.valueOf(rows), String.valueOf(seconds), store));
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                String line;
+                while ((line = out.readLine()) != null) System.out.println(line);
+            }
+            p.waitFor();
+        }
+    }
+
+    // ── One store, in this JVM ───────────────────────────────────────────────
+
+    private static void measure(int rows, int seconds) throws InterruptedException {
+        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        List<PriceMutation> adds = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            adds.add(PriceMutation.add(new VegetablePrice(id(i), "Bench veg " + (i + 1), BenchData.price(i))));
+        }
+        table.applyAll(adds);
+        adds = null; // only the table keeps the rows
+        while (table.getStoreStats() != null && (table.getOverlaySize() > 0 || folding())) {
+            Thread.sleep(100); // wait for the overlay to be folded into the off-heap store
+        }
+
+        long heap = liveHeap();
+        long[] fullGc = new long[5];
+        for (int i = 0; i < fullGc.length; i++) {
+            long start = System.nanoTime();
+            System.gc();
+            fullGc[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(fullGc);
+
+        // Lookups and line prices, like a busy engine; the garbage they make drives young GCs
+        AtomicLong maxPause = watchPauses();
+        long gcCount = gcCount(), gcMillis = gcMillis();
+        long lookups = 0, sum = 0;
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < end) {
+            VegetablePriceTable.Snapshot snap = table.snapshot();
+            for (int i = 0; i < 10_000; i++) {
+                String id = id(random.nextInt(rows)); // made per lookup, as if sent by a client
+                VegetablePrice vp = snap.find(id);
+                sum += vp.getName().length() + PricingEngine.priceLine(snap, id, 1.5);
+            }
+            lookups += 10_000;
+        }
+        sink = sum;
+
+        System.out.printf("%-8s %10.1f %10.1f %10.1f %8d %8d %10d %12.0f%n",
+                System.getProperty(PriceStore.STORE_PROPERTY), heap / 1048576.0, directBytes() / 1048576.0,
+                fullGc[fullGc.length / 2] / 1e6, gcCount() - gcCount, gcMillis() - gcMillis, maxPause.get(),
+                lookups / (double) seconds);
+    }
+
+    // Same IDs as BenchData.ids(), without holding them all
+    private static String id(int i) {
+        String n = Integer.toString(i + 1);
+        return n.length() >= 5 ? "B" + n : "B" + "00000".substring(n.length()) + n;
+    }
+
+    // True while the table's background fold (VegetablePriceTable.maybeFold) still runs
+    private static boolean folding() {
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().equals("price-store-fold")) return true;
+        }
+        return false;
+    }
+
+    // Longest collection (ms) from now on, from the collectors' notifications
+    private static AtomicLong watchPauses() {
+        AtomicLong max = new AtomicLong();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) gc).addNotificationListener((n, handback) -> {
+                if (!n.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) return;
+                long ms = GarbageCollectionNotificationInfo.from((CompositeData) n.getUserData()).getGcInfo().getDuration();
+                max.accumulateAndGet(ms, Math::max);
+            }, null, null);
+        }
+        return max;
+    }
+
+    private static long liveHeap() {
+        for (int i = 0; i < 3; i++) System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long directBytes() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("direct")) return pool.getMemoryUsed();
+        }
+        return 0L;
+    }
+
+    private static long gcCount() {
+        long n = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) n += gc.getCollectionCount();
+        return n;
+    }
+
+    private static long gcMillis() {
+        long ms = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) ms += gc.getCollectionTime();
+        return ms;
+    }
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import common.BasketQuote;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.PricingEngine;
+import server.VegetablePriceTable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ParallelPricingBenchmark - sequential vs fork-join basket pricing, to
+ * find the basket size where parallel starts to win (the default for
+ * -Dvegetable.pricing.parallelThreshold). Both methods price the same
+ * basket against the same snapshot; the crossover is the smallest
+ * 'lines' at which parallel is faster. It depends on the core count, so
+ * run it on the engine's hardware.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelPricingBenchmark {
+
+    /** Basket lines. */
+    @Param({"256", "1024", "4096", "16384", "65536"})
+    public int lines;
+
+    /** Lines per fork-join task. */
+    @Param({"1024"})
+    public int chunkLines;
+
+    private VegetablePriceTable.Snapshot snapshot;
+    private String[] ids;
+    private double[] quantities;
+    private final BasketQuote quote = new BasketQuote();
+
+    @Setup
+    public void setUp() {
+        ids = BenchData.fillTable(VegetablePriceTable.getInstance(), lines);
+        quantities = new double[lines];
+        for (int i = 0; i < lines; i++) quantities[i] = BenchData.quantity(i);
+        snapshot = VegetablePriceTable.getInstance().snapshot();
+    }
+
+    @Benchmark
+    public BasketQuote sequential() {
+        return PricingEngine.priceBasketSequential(snapshot, ids, quantities, quote);
+    }
+
+    @Benchmark
+    public BasketQuote parallel() {
+        return PricingEngine.priceBasketParallel(snapshot, ids, quantities, quote, chunkLines);
+    }
+}
@@ -0,0 +1,57 @@
+package bench;
+
+import common.VegetablePrice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.VegetablePriceTable;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PriceTableBenchmark - VegetablePriceTable.find and update.
+ * The thread count comes from the runner (BenchRunner runs this class
+ * once for each of 1, 2, 4 ... 64 threads), so contention shows up as
+ * throughput that stops scaling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceTableBenchmark {
+
+    /** Number of vegetables in the table besides the samples. */
+    @Param({"1000", "100000"})
+    public int tableSize;
+
+    private VegetablePriceTable table;
+    private String[] ids;
+
+    @Setup
+    public void setUp() {
+        table = VegetablePriceTable.getInstance();
+        ids = BenchData.fillTable(table, tableSize);
+    }
+
+    @Benchmark
+    public VegetablePrice find() {
+        return table.find(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public boolean update() {
+        int i = ThreadLocalRandom.current().nextInt(ids.length);
+        return table.update(new VegetablePrice(ids[i], "Bench veg " + (i + 1), BenchData.price(i + 1)));
+    }
+}
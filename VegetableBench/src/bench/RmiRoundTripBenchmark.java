@@ -0,0 +1,93 @@
+package bench;
+
+import client.CalVegetableCost;
+import client.CalculateCost;
+import client.ComputeEngineClient;
+import common.TaskResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import server.VegetableComputeEngine;
+import server.VegetablePriceTable;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RmiRoundTripBenchmark - a full client call through RMI to an engine
+ * running in the same JVM: serialization, loopback TCP, the worker pool
+ * and the task itself. Compare with TaskBenchmark to see the RMI share.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dvegetable.log.level=WARN")
+public class RmiRoundTripBenchmark {
+
+    private Registry registry;
+    private VegetableComputeEngine engine;
+    private ComputeEngineClient client;
+
+    private CalVegetableCost       costTask;
+    private CalculateCost          receiptTask;
+    private List<CalVegetableCost> batch;
+
+    @Setup
+    public void setUp() throws Exception {
+        String[] ids = BenchData.fillTable(VegetablePriceTable.getInstance(), 10);
+        int port = freePort();
+        registry = LocateRegistry.createRegistry(port);
+        engine = new VegetableComputeEngine();
+        registry.rebind(VegetableComputeEngine.REGISTRY_NAME, engine);
+        client = new ComputeEngineClient("localhost", port, VegetableComputeEngine.REGISTRY_NAME);
+
+        costTask    = new CalVegetableCost(ids[0], 2.5);
+        receiptTask = new CalculateCost(BenchData.basket(ids, 10), 10_000.0, "Bench");
+        batch = new ArrayList<>();
+        for (String id : ids) batch.add(new CalVegetableCost(id, 1.0));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        UnicastRemoteObject.unexportObject(engine, true);
+        UnicastRemoteObject.unexportObject(registry, true);
+    }
+
+    @Benchmark
+    public String calVegetableCost() throws Exception {
+        return client.execute(costTask);
+    }
+
+    @Benchmark
+    public String calculateCost10() throws Exception {
+        return client.execute(receiptTask);
+    }
+
+    /** Ten CalVegetableCost tasks in one executeBatch call. */
+    @Benchmark
+    public List<TaskResult<String>> batchOf10() throws Exception {
+        return client.executeBatch(batch, false);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package bench;
+
+import server.LatencyHistogram;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ServletLoadTest - how many concurrent requests the deployed servlets
+ * can keep answering.
+ *
+ * For each concurrency level, that many requests are kept in flight
+ * against POST /vegetable/cost for a fixed time. The test reports
+ * throughput, latency percentiles and failures (non-200 answers,
+ * refused connections, timeouts). While that runs, a single probe loop
+ * calls GET /vegetable/metrics. With blocking servlets the probe has to
+ * queue for a free container thread once the load uses them all.
+ *
+ * Before/after: deploy the WAR, start Tomcat once with
+ * -Dvegetable.servlet.async=false (blocking, the old behaviour) and
+ * once without it (async), and run this against each.
+ *
+ * Usage: ServletLoadTest [baseUrl] [levels] [seconds per level]
+ *   defaults: http://localhost:8080/VegetableRMI  50,100,200,400,800  10
+ */
+public class ServletLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        String base   = args.length > 0 ? args[0] : "http://localhost:8080/VegetableRMI";
+        String levels = args.length > 1 ? args[1] : "50,100,200,400,800";
+        int seconds   = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        HttpRequest cost = HttpRequest.newBuilder(URI.create(base + "/vegetable/cost"))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("id=V001&quantity=1.5"))
+                .build();
+        HttpRequest probe = HttpRequest.newBuilder(URI.create(base + "/vegetable/metrics"))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+
+        System.out.printf("%-8s %10s %10s %10s %10s %10s %12s%n",
+                "inFlight", "req/s", "p50 ms", "p99 ms", "failed", "probe p50", "probe p99 ms");
+        for (String level : levels.split(",")) {
+            run(http, cost, probe, Integer.parseInt(level.trim()), seconds);
+        }
+    }
+
+    private static void run(HttpClient http, HttpRequest request, HttpRequest probe,
+                            int concurrency, int seconds) throws InterruptedException {
+        LatencyHistogram latency      = new LatencyHistogram();
+        LatencyHistogram probeLatency = new LatencyHistogram();
+        LongAdder ok     = new LongAdder();
+        LongAdder failed = new LongAdder();
+        Semaphore slots  = new Semaphore(concurrency);
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        Thread prober = new Thread(() -> {
+            while (running.get()) {
+                long start = System.nanoTime();
+                try {
+                    http.send(probe, HttpResponse.BodyHandlers.discarding());
+                    probeLatency.record(System.nanoTime() - start);
+                } catch (Exception e) {
+                    probeLatency.record(System.nanoTime() - start);
+                }
+            }
+        }, "load-probe");
+        prober.start();
+
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        while (System.nanoTime() < end) {
+            slots.acquire();
+            long sent = System.nanoTime();
+            http.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((resp, error) -> {
+                        latency.record(System.nanoTime() - sent);
+                        if (error == null && resp.statusCode() == 200) ok.increment();
+                        else failed.increment();
+                        slots.release();
+                    });
+        }
+        slots.acquire(concurrency); // wait for stragglers
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        running.set(false);
+        prober.join();
+
+        System.out.printf("%-8d %10.0f %10.2f %10.2f %10d %10.2f %12.2f%n",
+                concurrency, ok.sum() / elapsed,
+                latency.getPercentileNanos(50) / 1e6, latency.getPercentileNanos(99) / 1e6,
+                failed.sum(),
+                probeLatency.getPercentileNanos(50) / 1e6, probeLatency.getPercentileNanos(99) / 1e6);
+    }
+}
@@ -0,0 +1,106 @@
+package bench;
+
+import common.BasketQuote;
+import common.VegetablePrice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import server.PricingEngine;
+import server.SkuDictionary;
+import server.VegetablePriceTable;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SkuHandleBenchmark - lookups by String ID vs by int SKU handle on a
+ * large table, one at a time and as a whole basket. Each pair reads the
+ * same vegetables from the same snapshot, so the difference is the
+ * hash-and-compare of the ID against two array reads.
+ * Needs a heap of about 1 GB for a million rows (-Xmx1g).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class SkuHandleBenchmark {
+
+    /** Number of vegetables in the table besides the samples. */
+    @Param({"1000000"})
+    public int tableSize;
+
+    /** Basket lines, random vegetables. */
+    @Param({"1024"})
+    public int lines;
+
+    private VegetablePriceTable.Snapshot snapshot;
+    private SkuDictionary skus;
+    private String[] ids;
+    private int[]    handles;
+    private String[] basketIds;
+    private int[]    basketHandles;
+    private double[] quantities;
+    private final BasketQuote quote = new BasketQuote();
+
+    @Setup
+    public void setUp() {
+        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        ids = BenchData.fillTable(table, tableSize);
+        skus = table.getSkuDictionary();
+        snapshot = table.handleSnapshot(skus.getEpoch());
+        handles = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) handles[i] = skus.handleOf(ids[i]);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        basketIds     = new String[lines];
+        basketHandles = new int[lines];
+        quantities    = new double[lines];
+        for (int i = 0; i < lines; i++) {
+            int r = random.nextInt(ids.length);
+            basketIds[i]     = ids[r];
+            basketHandles[i] = handles[r];
+            quantities[i]    = BenchData.quantity(i);
+        }
+    }
+
+    @Benchmark
+    public VegetablePrice findById() {
+        return snapshot.find(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public VegetablePrice findByHandle() {
+        return snapshot.findByHandle(handles[ThreadLocalRandom.current().nextInt(handles.length)]);
+    }
+
+    @Benchmark
+    public long priceCentsById() {
+        VegetablePrice vp = snapshot.find(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+        return vp == null ? PricingEngine.NOT_FOUND : vp.getPriceCents();
+    }
+
+    @Benchmark
+    public long priceCentsByHandle() {
+        return snapshot.priceCentsByHandle(handles[ThreadLocalRandom.current().nextInt(handles.length)]);
+    }
+
+    @Benchmark
+    public BasketQuote basketById() {
+        return PricingEngine.priceBasketSequential(snapshot, basketIds, quantities, quote);
+    }
+
+    @Benchmark
+    public BasketQuote basketByHandle() {
+        return PricingEngine.priceBasket(snapshot, skus, basketHandles, quantities, quote);
+    }
+}
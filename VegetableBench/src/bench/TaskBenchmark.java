@@ -0,0 +1,73 @@
+package bench;
+
+import client.CalVegetableCost;
+import client.CalculateCost;
+import client.PriceBasket;
+import common.BasketQuote;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import server.VegetablePriceTable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TaskBenchmark - server-side cost of the pricing tasks, without RMI.
+ *   calVegetableCost : one CalVegetableCost per basket line (what a
+ *                      client pricing items one by one costs the server)
+ *   calculateCost    : the full receipt for the basket
+ *   priceBasket      : the same basket priced without rendering text
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskBenchmark {
+
+    /** Basket lines. */
+    @Param({"1", "10", "100", "1000"})
+    public int lines;
+
+    private CalVegetableCost[] costTasks;
+    private CalculateCost      receiptTask;
+    private PriceBasket        basketTask;
+
+    @Setup
+    public void setUp() {
+        String[] ids = BenchData.fillTable(VegetablePriceTable.getInstance(), lines);
+        costTasks = new CalVegetableCost[lines];
+        double[] quantities = new double[lines];
+        for (int i = 0; i < lines; i++) {
+            quantities[i] = BenchData.quantity(i);
+            costTasks[i] = new CalVegetableCost(ids[i], quantities[i]);
+        }
+        receiptTask = new CalculateCost(BenchData.basket(ids, lines), 1_000_000.0, "Bench");
+        basketTask  = new PriceBasket(ids, quantities);
+    }
+
+    @Benchmark
+    public void calVegetableCost(Blackhole bh) {
+        for (CalVegetableCost task : costTasks) bh.consume(task.execute());
+    }
+
+    @Benchmark
+    public String calculateCost() {
+        return receiptTask.execute();
+    }
+
+    @Benchmark
+    public BasketQuote priceBasket() {
+        return basketTask.execute();
+    }
+}
@@ -0,0 +1,216 @@
+package bench;
+
+import client.AddVegetablePrice;
+import client.CalVegetableCost;
+import client.CalculateCost;
+import common.BasketQuote;
+import common.VegetablePrice;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * WireFormatBenchmark - bytes on the wire and serialize/deserialize cost
+ * of the Externalizable encodings versus default Java serialization.
+ *
+ * The "old" side uses private copies of the classes with the same fields
+ * and plain Serializable, i.e. what went over RMI before WireFormat.
+ * Each operation uses a fresh ObjectOutputStream/ObjectInputStream, as
+ * RMI does for every call, so class descriptors are paid every time.
+ *
+ * Run: java -cp <VegetableRMI classes>:<VegetableBench classes> bench.WireFormatBenchmark [seconds per case]
+ *
+ * DIARY: Day 6 - Written to check the Externalizable change pays off.
+ */
+public class WireFormatBenchmark {
+
+    private static volatile Object sink; // keeps results alive so the JIT cannot drop the work
+
+    public static void main(String[] args) throws Exception {
+        double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 1.0;
+
+        System.out.printf("%-26s %10s %10s %12s %12s %12s %12s%n",
+                "Case", "old bytes", "new bytes", "old ser ns", "new ser ns", "old deser ns", "new deser ns");
+
+        VegetablePrice vp = new VegetablePrice("V001", "Tomato", 60.00);
+        compare("VegetablePrice", new LegacyPrice("V001", "Tomato", 60.00), vp, seconds);
+        compare("AddVegetablePrice", new LegacyAdd(new LegacyPrice("V001", "Tomato", 60.00)),
+                new AddVegetablePrice(vp), seconds);
+        compare("CalVegetableCost", new LegacyCost("V001", 2.5), new CalVegetableCost("V001", 2.5), seconds);
+
+        for (int lines : new int[] {1, 10, 100, 1000}) {
+            Map<String, Double> items = basket(lines);
+            compare("CalculateCost x" + lines, new LegacyReceipt(items, 500.0, "Alice"),
+                    new CalculateCost(items, 500.0, "Alice"), seconds);
+        }
+        for (int lines : new int[] {10, 1000}) {
+            compare("BasketQuote x" + lines, legacyQuote(lines), quote(lines), seconds);
+        }
+    }
+
+    // ── Measurement ──────────────────────────────────────────────────────────
+
+    private static void compare(String name, Serializable old, Serializable next, double seconds) throws Exception {
+        byte[] oldBytes  = serialize(old);
+        byte[] nextBytes = serialize(next);
+        System.out.printf("%-26s %10d %10d %12.0f %12.0f %12.0f %12.0f%n", name,
+                oldBytes.length, nextBytes.length,
+                serializeNs(old, seconds), serializeNs(next, seconds),
+                deserializeNs(oldBytes, seconds), deserializeNs(nextBytes, seconds));
+    }
+
+    private static double serializeNs(Serializable value, double seconds) throws Exception {
+        return time(seconds, () -> sink = serialize(value));
+    }
+
+    private static double deserializeNs(byte[] bytes, double seconds) throws Exception {
+        return time(seconds, () -> sink = deserialize(bytes));
+    }
+
+    // Warm up for half the time, then report the average ns per operation
+    private static double time(double seconds, Op op) throws Exception {
+        long warmUntil = System.nanoTime() + (long) (seconds * 0.5e9);
+        while (System.nanoTime() < warmUntil) op.run();
+
+        long ops = 0;
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 1e9);
+        long now;
+        do {
+            for (int i = 0; i < 64; i++) op.run();
+            ops += 64;
+            now = System.nanoTime();
+        } while (now < end);
+        return (double) (now - start) / ops;
+    }
+
+    private interface Op {
+        void run() throws Exception;
+    }
+
+    private static byte[] serialize(Serializable value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    // ── Test data ────────────────────────────────────────────────────────────
+
+    private static Map<String, Double> basket(int lines) {
+        Map<String, Double> items = new LinkedHashMap<>();
+        for (int i = 0; i < lines; i++) items.put(String.format("V%03d", i + 1), 0.5 + (i % 7) * 0.25);
+        return items;
+    }
+
+    private static BasketQuote quote(int lines) {
+        String[] ids = new String[lines];
+        double[] qty = new double[lines];
+        for (int i = 0; i < lines; i++) {
+            ids[i] = String.format("V%03d", i + 1);
+            qty[i] = 0.5 + (i % 7) * 0.25;
+        }
+        BasketQuote q = new BasketQuote();
+        q.reset(ids, qty);
+        for (int i = 0; i < lines; i++) {
+            q.setLine(i, new VegetablePrice(ids[i], "Veg " + i, 40.0 + i % 30), 4000 + (i % 30) * 100, 2500);
+        }
+        return q;
+    }
+
+    private static LegacyQuote legacyQuote(int lines) {
+        LegacyQuote q = new LegacyQuote(lines);
+        for (int i = 0; i < lines; i++) {
+            q.ids[i]        = String.format("V%03d", i + 1);
+            q.quantities[i] = 0.5 + (i % 7) * 0.25;
+            q.entries[i]    = new LegacyPrice(q.ids[i], "Veg " + i, 40.0 + i % 30);
+            q.unitCents[i]  = 4000 + (i % 30) * 100;
+            q.lineCents[i]  = 2500;
+        }
+        q.size = lines;
+        q.totalCents = 2500L * lines;
+        return q;
+    }
+
+    // ── Default-serialization copies of the old classes ──────────────────────
+
+    private static final class LegacyPrice implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String id;
+        private final String name;
+        private final double pricePerKg;
+
+        LegacyPrice(String id, String name, double pricePerKg) {
+            this.id = id;
+            this.name = name;
+            this.pricePerKg = pricePerKg;
+        }
+    }
+
+    private static final class LegacyAdd implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final LegacyPrice vegetable;
+
+        LegacyAdd(LegacyPrice vegetable) {
+            this.vegetable = vegetable;
+        }
+    }
+
+    private static final class LegacyCost implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String vegetableId;
+        private final double quantityKg;
+
+        LegacyCost(String vegetableId, double quantityKg) {
+            this.vegetableId = vegetableId;
+            this.quantityKg = quantityKg;
+        }
+    }
+
+    // CalculateCost as it was on Day 3: a Map of boxed quantities
+    private static final class LegacyReceipt implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final Map<String, Double> items;
+        private final double amountGiven;
+        private final String cashierName;
+
+        LegacyReceipt(Map<String, Double> items, double amountGiven, String cashierName) {
+            this.items = new LinkedHashMap<>(items);
+            this.amountGiven = amountGiven;
+            this.cashierName = cashierName;
+        }
+    }
+
+    private static final class LegacyQuote implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String[]      ids;
+        private final double[]      quantities;
+        private final LegacyPrice[] entries;
+        private final long[]        unitCents;
+        private final long[]        lineCents;
+        private int  size;
+        private long totalCents;
+        private int  missingCount;
+
+        LegacyQuote(int n) {
+            ids        = new String[n];
+            quantities = new double[n];
+            entries    = new LegacyPrice[n];
+            unitCents  = new long[n];
+            lineCents  = new long[n];
+        }
+    }
+}
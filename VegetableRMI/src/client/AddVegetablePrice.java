@@ -1,9 +1,16 @@
 package client;
 
-import common.Task;
+import common.IdempotentTask;
 import common.VegetablePrice;
+import common.WireFormat;
+import server.TaskMetrics;
 import server.VegetablePriceTable;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
 /**
  * AddVegetablePrice - Task 1.
  * Adds a new vegetable-price entity to the price table.
@@ -12,20 +19,34 @@ import server.VegetablePriceTable;
  *        The task holds the new VegetablePrice object as a field.
  *        When execute() is called on the server, it delegates to
  *        VegetablePriceTable.add() and returns a status message.
+ *        Day 6 - Externalizable: the vegetable is written inline.
+ *        Day 6 - Carries a request ID, so a retry after a timeout
+ *        returns the first answer instead of "already exists".
  */
-public class AddVegetablePrice implements Task<String> {
+public class AddVegetablePrice implements IdempotentTask<String>, Externalizable {
 
     private static final long serialVersionUID = 1L;
 
-    private final VegetablePrice vegetable; // the new vegetable to add
+    private VegetablePrice vegetable; // the new vegetable to add
+    private String requestId; // same on every retry of this request (see RequestDedup)
 
     /**
      * @param vegetable the new VegetablePrice to insert into the table
+     * @param requestId same on every retry; null to not deduplicate
      */
-    public AddVegetablePrice(VegetablePrice vegetable) {
+    public AddVegetablePrice(VegetablePrice vegetable, String requestId) {
         this.vegetable = vegetable;
+        this.requestId = requestId;
+    }
+
+    /** With a new random request ID, so resending this same object is safe. */
+    public AddVegetablePrice(VegetablePrice vegetable) {
+        this(vegetable, IdempotentTask.newRequestId());
     }
 
+    /** For deserialization only. */
+    public AddVegetablePrice() { }
+
     /**
      * Execute: insert the vegetable into the shared price table.
      * @return success or failure message
@@ -42,4 +63,25 @@ public class AddVegetablePrice implements Task<String> {
                     + "' already exists. Use Update instead.";
         }
     }
+
+    @Override
+    public String getRequestId() {
+        return requestId;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        WireFormat.writePrice(out, vegetable);
+        WireFormat.writeString(out, requestId);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, AddVegetablePrice.class);
+        vegetable = WireFormat.readPrice(in);
+        requestId = WireFormat.readString(in);
+        TaskMetrics.deserialized(AddVegetablePrice.class, start);
+    }
 }
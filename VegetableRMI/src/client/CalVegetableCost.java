@@ -1,9 +1,18 @@
 package client;
 
-import common.Task;
+import common.ReadOnlyTask;
 import common.VegetablePrice;
+import common.WireFormat;
+import server.PricingEngine;
+import server.ReceiptRenderer;
+import server.TaskMetrics;
 import server.VegetablePriceTable;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
 /**
  * CalVegetableCost - Task 4.
  * Queries the vegetable price table for a given vegetable ID,
@@ -15,13 +24,16 @@ import server.VegetablePriceTable;
  *        The task carries the vegetable ID and quantity.
  *        execute() looks up the price per kg, multiplies by quantity,
  *        and returns the breakdown as a formatted string.
+ *        Day 5 - The arithmetic now goes through PricingEngine in cents;
+ *        formatting is a separate render step.
+ *        Day 6 - Externalizable: ID and quantity in a fixed layout.
  */
-public class CalVegetableCost implements Task<String> {
+public class CalVegetableCost implements ReadOnlyTask<String>, Externalizable {
 
     private static final long serialVersionUID = 1L;
 
-    private final String vegetableId; // which vegetable to price
-    private final double quantityKg;  // how many kg the client wants
+    private String vegetableId; // which vegetable to price
+    private double quantityKg;  // how many kg the client wants
 
     /**
      * @param vegetableId the vegetable to look up
@@ -32,40 +44,58 @@ public class CalVegetableCost implements Task<String> {
         this.quantityKg  = quantityKg;
     }
 
+    /** For deserialization only. */
+    public CalVegetableCost() { }
+
     /**
      * Execute: look up the price and compute total cost.
      * @return formatted cost breakdown string
      */
     @Override
     public String execute() {
-        VegetablePriceTable table = VegetablePriceTable.getInstance();
-        VegetablePrice vp = table.find(vegetableId);
+        VegetablePrice vp = VegetablePriceTable.getInstance().find(vegetableId);
 
         if (vp == null) {
             return "FAILED: No vegetable found with ID '" + vegetableId + "'.";
         }
 
-        double totalCost = vp.getPricePerKg() * quantityKg;
+        long unitCents  = vp.getPriceCents();
+        long totalCents = PricingEngine.lineTotalCents(unitCents, quantityKg);
+        return render(vp, unitCents, totalCents);
+    }
 
-        return String.format(
-                "COST CALCULATION:\n"
-                + "  Vegetable  : %s (ID: %s)\n"
-                + "  Unit Price : KES %.2f per kg\n"
-                + "  Quantity   : %.2f kg\n"
-                + "  ------------------------------------\n"
-                + "  TOTAL COST : KES %.2f",
-                vp.getName(), vp.getId(),
-                vp.getPricePerKg(),
-                quantityKg,
-                totalCost
-        );
+    /**
+     * Total cost in cents without building any text.
+     * @return total in cents, or PricingEngine.NOT_FOUND
+     */
+    public long computeTotalCents() {
+        return PricingEngine.priceLine(VegetablePriceTable.getInstance().snapshot(), vegetableId, quantityKg);
     }
 
     /** Getter so CalculateCost can reuse the computed total. */
     public double computeTotal() {
-        VegetablePriceTable table = VegetablePriceTable.getInstance();
-        VegetablePrice vp = table.find(vegetableId);
-        if (vp == null) return 0.0;
-        return vp.getPricePerKg() * quantityKg;
+        long cents = computeTotalCents();
+        return cents == PricingEngine.NOT_FOUND ? 0.0 : cents / 100.0;
+    }
+
+    // Build the printable breakdown from already computed numbers
+    private String render(VegetablePrice vp, long unitCents, long totalCents) {
+        return ReceiptRenderer.renderCost(vp, unitCents, quantityKg, totalCents);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        WireFormat.writeString(out, vegetableId);
+        out.writeDouble(quantityKg);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, CalVegetableCost.class);
+        vegetableId = WireFormat.readId(in);
+        quantityKg  = in.readDouble();
+        TaskMetrics.deserialized(CalVegetableCost.class, start);
     }
 }
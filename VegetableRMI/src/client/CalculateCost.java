@@ -1,11 +1,18 @@
 package client;
 
-import common.Task;
-import common.VegetablePrice;
+import common.BasketQuote;
+import common.ReadOnlyTask;
+import common.WireFormat;
+import server.PricingEngine;
+import server.ReceiptRenderer;
+import server.TaskMetrics;
 import server.VegetablePriceTable;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Map;
 
 /**
@@ -23,19 +30,31 @@ import java.util.Map;
  *        so multiple items can appear on one receipt.
  *        The cashier name is passed in the constructor so each
  *        terminal can identify who processed the transaction.
+ *        Day 5 - Items are carried as parallel id/quantity arrays and priced
+ *        by PricingEngine in cents against one table snapshot; the
+ *        receipt text is rendered from the resulting BasketQuote.
+ *        Receipt text is built by ReceiptRenderer instead of String.format.
+ *        Day 6 - Externalizable: line count, IDs, quantities as raw
+ *        doubles, amount given and cashier.
+ *        Day 6 - Items can be SKU handles from ResolveSkus instead of IDs.
  */
-public class CalculateCost implements Task<String> {
+public class CalculateCost implements ReadOnlyTask<String>, Externalizable {
 
     private static final long serialVersionUID = 1L;
 
-    /** Items in this transaction: vegetableId -> quantityKg */
-    private final Map<String, Double> items;
+    /** Items in this transaction, in basket order: vegetableId[i] -> quantityKg[i] */
+    private String[] vegetableIds;
+    private double[] quantitiesKg;
+
+    /** Or by SKU handle: handles[i] -> quantityKg[i], valid in this engine epoch */
+    private int[] handles;
+    private long  epoch;
 
     /** Amount of cash the customer hands over */
-    private final double amountGiven;
+    private double amountGiven;
 
     /** Name of the cashier logged in */
-    private final String cashierName;
+    private String cashierName;
 
     /**
      * @param items       map of vegetableId to quantity in kg
@@ -45,76 +64,99 @@ public class CalculateCost implements Task<String> {
     public CalculateCost(Map<String, Double> items,
                          double amountGiven,
                          String cashierName) {
-        this.items        = items;
+        this.vegetableIds = new String[items.size()];
+        this.quantitiesKg = new double[items.size()];
+        int i = 0;
+        for (Map.Entry<String, Double> entry : items.entrySet()) {
+            vegetableIds[i] = entry.getKey();
+            quantitiesKg[i] = entry.getValue();
+            i++;
+        }
         this.amountGiven  = amountGiven;
         this.cashierName  = cashierName;
     }
 
+    /**
+     * @param epoch        engine epoch the handles were resolved in (SkuHandles.getEpoch())
+     * @param handles      SKU handle per item
+     * @param quantitiesKg quantity in kg per item
+     * @param amountGiven  cash given by the customer (KES)
+     * @param cashierName  name of logged-in cashier
+     */
+    public CalculateCost(long epoch, int[] handles, double[] quantitiesKg,
+                         double amountGiven, String cashierName) {
+        if (handles.length != quantitiesKg.length) {
+            throw new IllegalArgumentException("handles and quantitiesKg must have the same length");
+        }
+        this.epoch        = epoch;
+        this.handles      = handles;
+        this.quantitiesKg = quantitiesKg;
+        this.amountGiven  = amountGiven;
+        this.cashierName  = cashierName;
+    }
+
+    /** For deserialization only. */
+    public CalculateCost() { }
+
     /**
      * Execute: build and return a formatted receipt.
      * @return full receipt as a String
      */
     @Override
     public String execute() {
-        VegetablePriceTable table = VegetablePriceTable.getInstance();
-
-        StringBuilder sb = new StringBuilder();
-        String divider  = "================================================\n";
-        String divider2 = "------------------------------------------------\n";
-
-        // Header
-        sb.append(divider);
-        sb.append("         VEGETABLE MARKET - RECEIPT\n");
-        sb.append(divider);
-        sb.append(String.format("  Date    : %s%n",
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"))));
-        sb.append(String.format("  Cashier : %s%n", cashierName));
-        sb.append(divider2);
-        sb.append(String.format("  %-15s %6s %10s %12s%n",
-                "Item", "Qty(kg)", "Unit(KES)", "Total(KES)"));
-        sb.append(divider2);
-
-        double grandTotal = 0.0;
-        boolean hasError  = false;
-
-        for (Map.Entry<String, Double> entry : items.entrySet()) {
-            String vegId  = entry.getKey();
-            double qty    = entry.getValue();
-
-            VegetablePrice vp = table.find(vegId);
-            if (vp == null) {
-                sb.append(String.format("  %-15s  NOT FOUND (ID: %s)%n", "???", vegId));
-                hasError = true;
-                continue;
-            }
-
-            double lineTotal = vp.getPricePerKg() * qty;
-            grandTotal      += lineTotal;
+        return render(quote());
+    }
 
-            sb.append(String.format("  %-15s %6.2f %10.2f %12.2f%n",
-                    vp.getName(), qty, vp.getPricePerKg(), lineTotal));
+    /**
+     * Price the basket without rendering any text.
+     * @return line and grand totals in cents
+     * @throws common.StaleSkuHandlesException if the handles are from another engine
+     */
+    public BasketQuote quote() {
+        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        if (handles != null) {
+            return PricingEngine.priceBasket(table.handleSnapshot(epoch), table.getSkuDictionary(),
+                    handles, quantitiesKg, new BasketQuote());
         }
+        return PricingEngine.priceBasket(table.snapshot(), vegetableIds, quantitiesKg, new BasketQuote());
+    }
 
-        sb.append(divider2);
-        sb.append(String.format("  %-33s %12.2f%n", "TOTAL (KES):", grandTotal));
+    // Build the printable receipt from an already priced basket
+    private String render(BasketQuote quote) {
+        return ReceiptRenderer.renderReceipt(quote, PricingEngine.toCents(amountGiven),
+                cashierName, LocalDateTime.now());
+    }
 
-        if (amountGiven < grandTotal) {
-            sb.append(String.format("  %-33s %12.2f%n", "Amount Given (KES):", amountGiven));
-            sb.append(String.format("  %-33s %12.2f%n", "INSUFFICIENT FUNDS - SHORT:", grandTotal - amountGiven));
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeInt(quantitiesKg.length);
+        out.writeBoolean(handles != null);
+        if (handles != null) {
+            out.writeLong(epoch);
+            WireFormat.writeInts(out, handles, handles.length);
         } else {
-            double change = amountGiven - grandTotal;
-            sb.append(String.format("  %-33s %12.2f%n", "Amount Given (KES):", amountGiven));
-            sb.append(String.format("  %-33s %12.2f%n", "Change Due  (KES):", change));
+            WireFormat.writeIds(out, vegetableIds, vegetableIds.length);
         }
+        WireFormat.writeDoubles(out, quantitiesKg, quantitiesKg.length);
+        out.writeDouble(amountGiven);
+        WireFormat.writeString(out, cashierName);
+    }
 
-        sb.append(divider);
-        sb.append("         Thank you for shopping with us!\n");
-        sb.append(divider);
-
-        if (hasError) {
-            sb.append("  WARNING: Some items could not be found in the table.\n");
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, CalculateCost.class);
+        int n = WireFormat.readCount(in);
+        if (in.readBoolean()) {
+            epoch   = in.readLong();
+            handles = WireFormat.readInts(in, n);
+        } else {
+            vegetableIds = WireFormat.readIds(in, n);
         }
-
-        return sb.toString();
+        quantitiesKg = WireFormat.readDoubles(in, n);
+        amountGiven  = in.readDouble();
+        cashierName  = WireFormat.readString(in);
+        TaskMetrics.deserialized(CalculateCost.class, start);
     }
 }
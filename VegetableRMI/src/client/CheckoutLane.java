@@ -0,0 +1,91 @@
+package client;
+
+import common.LaneTotals;
+import common.Task;
+
+import java.rmi.RemoteException;
+import java.rmi.ServerException;
+import java.util.function.IntFunction;
+
+/**
+ * CheckoutLane - one lane's checkout, item by item, against an engine
+ * lane session (see server.LaneSessions).
+ *
+ * Usage:
+ *     CheckoutLane lane = new CheckoutLane(ComputeEngineClient.getShared(), "Mary");
+ *     LaneTotals t = lane.scan("V001", 1.25); // running total in t.getTotalCents()
+ *     lane.voidLine(t.getLineNo());           // customer changed their mind
+ *     String receipt = lane.finish(500.00);
+ *
+ * Scans are numbered here. If an answer is lost on the way back, the same
+ * scan is sent again; the engine recognises the number and answers
+ * without adding the item twice. If every attempt fails without an answer
+ * (the engine may or may not have applied it), that scan is sent once
+ * more before the next one, so it ends up applied exactly once and the
+ * next scan gets the next number. Not thread safe: one lane, one thread.
+ *
+ * DIARY: Day 6 - Created for lane sessions.
+ */
+public class CheckoutLane {
+
+    private static final int SEND_ATTEMPTS = 3;
+
+    private final ComputeEngineClient client;
+    private final long sessionId;
+    private int        seq;  // number of the last scan or void sent
+    private LaneTotals last; // latest totals
+    private Task<LaneTotals> unsettled; // sent, but whether it was applied is unknown
+
+    /** Open a new session on the engine. */
+    public CheckoutLane(ComputeEngineClient client, String cashierName) throws RemoteException {
+        this.client    = client;
+        this.last      = client.execute(new OpenLaneSession(cashierName));
+        this.sessionId = last.getSessionId();
+    }
+
+    /** Add a scanned item. The line is not found (nothing added) if the ID is unknown. */
+    public LaneTotals scan(String vegetableId, double quantityKg) throws RemoteException {
+        return sendNext(n -> new ScanItem(sessionId, n, vegetableId, quantityKg));
+    }
+
+    /** Take a line off the receipt (LaneTotals.getLineNo() of its scan). */
+    public LaneTotals voidLine(int lineNo) throws RemoteException {
+        return sendNext(n -> new VoidLaneLine(sessionId, n, lineNo));
+    }
+
+    /** Close the session and return the printed receipt. */
+    public String finish(double amountGiven) throws RemoteException {
+        return client.execute(new FinishLaneSession(sessionId, amountGiven));
+    }
+
+    // Send the call built with the next number, after settling an earlier one
+    private LaneTotals sendNext(IntFunction<Task<LaneTotals>> numbered) throws RemoteException {
+        if (unsettled != null) {
+            Task<LaneTotals> previous = unsettled;
+            unsettled = null;
+            send(previous); // applies it, or gets its answer if it was applied
+        }
+        return send(numbered.apply(seq + 1));
+    }
+
+    // Send a numbered call, resending the same one if the answer was lost
+    private LaneTotals send(Task<LaneTotals> call) throws RemoteException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                last = client.execute(call);
+                seq++;
+                return last;
+            } catch (ServerException e) {
+                throw e; // the engine answered with an error
+            } catch (RemoteException e) {
+                if (attempt >= SEND_ATTEMPTS) {
+                    unsettled = call;
+                    throw e;
+                }
+            }
+        }
+    }
+
+    public long       getSessionId() { return sessionId; }
+    public LaneTotals getTotals()    { return last; }
+}
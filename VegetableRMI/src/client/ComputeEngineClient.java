@@ -0,0 +1,314 @@
+package client;
+
+import common.Compute;
+import common.EngineOverloadedException;
+import common.IdempotentTask;
+import common.ReadOnlyTask;
+import common.ReplicaUnavailableException;
+import common.Task;
+import common.TaskResult;
+import common.TaskTimeoutException;
+import server.VegetableComputeEngine;
+
+import java.rmi.ConnectException;
+import java.rmi.NoSuchObjectException;
+import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.ServerException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ComputeEngineClient - shared, cached connection to the VegetableComputeEngine.
+ *
+ * - Resolves the Compute stub from the RMI registry once and keeps it.
+ * - If the engine was restarted (NoSuchObjectException) or is unreachable
+ *   (ConnectException) the stub is dropped, looked up again after a short
+ *   backoff, and the call is retried. Both exceptions mean the call never
+ *   reached a live engine, so retrying cannot apply a task twice.
+ * - Host, port and registry name come from system properties so servlets
+ *   and clients can point at another machine without code changes:
+ *     -Dvegetable.engine.host=192.168.x.x
+ *     -Dvegetable.engine.port=1099
+ *     -Dvegetable.engine.name=VegetableEngine
+ * - An IdempotentTask with a request ID is also retried when the call may
+ *   have reached the engine: the connection dropped mid-call, or the
+ *   engine's deadline passed. The engine answers a repeated request ID
+ *   with the first result, so the change is applied once.
+ * - executeAsync() returns a CompletableFuture straight away; the
+ *   blocking RMI call is made on a small dedicated I/O pool, so callers
+ *   such as async servlets do not tie up their own threads:
+ *     -Dvegetable.client.ioThreads=64    threads making RMI calls
+ *     -Dvegetable.client.ioQueue=1024    calls allowed to wait for one
+ *
+ * DIARY: Day 5 - Every servlet used to call LocateRegistry.getRegistry()
+ *        and lookup() on each POST, costing an extra registry round trip
+ *        per request. Moved that into this one shared client.
+ *        Day 6 - Added executeAsync() for the async servlets.
+ *        Day 6 - Retries of idempotent tasks after a lost answer.
+ */
+public class ComputeEngineClient {
+
+    public static final String HOST_PROPERTY       = "vegetable.engine.host";
+    public static final String PORT_PROPERTY       = "vegetable.engine.port";
+    public static final String NAME_PROPERTY       = "vegetable.engine.name";
+    public static final String IO_THREADS_PROPERTY = "vegetable.client.ioThreads";
+    public static final String IO_QUEUE_PROPERTY   = "vegetable.client.ioQueue";
+
+    private static final int  MAX_ATTEMPTS       = 4;
+    private static final long INITIAL_BACKOFF_MS = 50;
+    private static final long MAX_BACKOFF_MS     = 2000;
+
+    // Shared instance configured from system properties
+    private static ComputeEngineClient shared;
+
+    private final String host;
+    private final int    port;
+    private final String registryName;
+
+    private volatile Compute stub;                  // null until first lookup
+    private final Object lookupLock = new Object(); // one lookup at a time
+
+    private volatile ThreadPoolExecutor ioPool;     // created on first executeAsync()
+
+    // ── Counters ─────────────────────────────────────────────────────────────
+    private final AtomicLong lookups        = new AtomicLong();
+    private final AtomicLong lookupNanos    = new AtomicLong();
+    private final AtomicLong maxLookupNanos = new AtomicLong();
+    private final AtomicLong reconnects     = new AtomicLong();
+    private final AtomicLong replays        = new AtomicLong(); // idempotent calls resent after a lost answer
+
+    /**
+     * @param host         host running the RMI registry
+     * @param port         registry port
+     * @param registryName name the engine is bound under
+     */
+    public ComputeEngineClient(String host, int port, String registryName) {
+        this.host         = host;
+        this.port         = port;
+        this.registryName = registryName;
+    }
+
+    /** Return the shared client, configured from system properties on first use. */
+    public static synchronized ComputeEngineClient getShared() {
+        if (shared == null) {
+            shared = new ComputeEngineClient(
+                    System.getProperty(HOST_PROPERTY, "localhost"),
+                    Integer.getInteger(PORT_PROPERTY, 1099),
+                    System.getProperty(NAME_PROPERTY, VegetableComputeEngine.REGISTRY_NAME));
+        }
+        return shared;
+    }
+
+    /**
+     * Send a task to the engine, re-resolving the stub and retrying
+     * with exponential backoff if the engine cannot be reached.
+     *
+     * @param task the task to run on the server
+     * @return result produced by the task
+     * @throws RemoteException if the engine is still unreachable after all attempts
+     */
+    public <T> T execute(Task<T> task) throws RemoteException {
+        return call(engine -> engine.executeTask(task), isReplayable(task));
+    }
+
+    /**
+     * Send a task to run once the engine's table has reached minVersion
+     * (see Compute.executeTaskAt). Retried the same way as execute().
+     * @throws ReplicaUnavailableException if a replica cannot serve it
+     */
+    public <T> T executeAt(Task<T> task, long minVersion) throws RemoteException {
+        return call(engine -> engine.executeTaskAt(task, minVersion), isReplayable(task));
+    }
+
+    /**
+     * Send several tasks in one round trip (see Compute.executeBatch).
+     * Retried the same way as execute().
+     */
+    public <T> List<TaskResult<T>> executeBatch(List<? extends Task<? extends T>> tasks, boolean parallel)
+            throws RemoteException {
+        boolean replayable = true; // reads are harmless to repeat alongside deduplicated writes
+        for (Task<?> task : tasks) replayable &= isReplayable(task) || task instanceof ReadOnlyTask;
+        return call(engine -> engine.executeBatch(tasks, parallel), replayable);
+    }
+
+    /**
+     * Send a task without blocking the caller.
+     * The call (with the same retries as execute()) runs on the client's
+     * I/O pool. The future completes with the result, or exceptionally
+     * with the exception execute() would have thrown. If the I/O pool and
+     * its queue are full, the future fails at once with
+     * EngineOverloadedException and the task is not sent.
+     */
+    public <T> CompletableFuture<T> executeAsync(Task<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        ThreadPoolExecutor pool = ioPool();
+        try {
+            pool.execute(() -> {
+                try {
+                    future.complete(execute(task));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new EngineOverloadedException("Client busy: "
+                    + pool.getQueue().size() + " calls already waiting for the engine."));
+        }
+        return future;
+    }
+
+    private ThreadPoolExecutor ioPool() {
+        ThreadPoolExecutor pool = ioPool;
+        if (pool != null) return pool;
+        synchronized (lookupLock) {
+            if (ioPool == null) {
+                int threads = Integer.getInteger(IO_THREADS_PROPERTY, 64);
+                AtomicInteger threadNo = new AtomicInteger();
+                ThreadPoolExecutor created = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(Integer.getInteger(IO_QUEUE_PROPERTY, 1024)),
+                        r -> {
+                            Thread t = new Thread(r, "engine-client-io-" + threadNo.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        },
+                        new ThreadPoolExecutor.AbortPolicy());
+                created.allowCoreThreadTimeOut(true); // idle clients hold no threads
+                ioPool = created;
+            }
+            return ioPool;
+        }
+    }
+
+    // A single remote call against the current stub
+    private interface RemoteCall<R> {
+        R invoke(Compute engine) throws RemoteException;
+    }
+
+    // True if the engine deduplicates the task (see RequestDedup)
+    private static boolean isReplayable(Task<?> task) {
+        return task instanceof IdempotentTask && ((IdempotentTask<?>) task).getRequestId() != null;
+    }
+
+    private <R> R call(RemoteCall<R> remoteCall, boolean replayable) throws RemoteException {
+        long backoff = INITIAL_BACKOFF_MS;
+        for (int attempt = 1; ; attempt++) {
+            Compute engine = null;
+            try {
+                engine = getEngine();
+                return remoteCall.invoke(engine);
+            } catch (ServerException e) {
+                // RMI wraps RemoteExceptions thrown by the engine; hand the
+                // typed ones (overloaded, timed out, replica) back to the caller as-is
+                if (replayable && e.detail instanceof TaskTimeoutException && attempt < MAX_ATTEMPTS) {
+                    replays.incrementAndGet(); // may still be running; the retry waits for it
+                } else if (e.detail instanceof EngineOverloadedException
+                        || e.detail instanceof TaskTimeoutException
+                        || e.detail instanceof ReplicaUnavailableException) {
+                    throw (RemoteException) e.detail;
+                } else {
+                    throw e;
+                }
+            } catch (NoSuchObjectException | ConnectException e) {
+                // Never reached a live engine
+                invalidate(engine);
+                if (attempt >= MAX_ATTEMPTS) throw e;
+                reconnects.incrementAndGet();
+            } catch (RemoteException e) {
+                // E.g. the connection dropped mid-call: the task may have run
+                if (!replayable || attempt >= MAX_ATTEMPTS) throw e;
+                invalidate(engine);
+                replays.incrementAndGet();
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new RemoteException("Interrupted while retrying the engine call.", ie);
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    /**
+     * Return the cached stub, looking it up in the registry if needed.
+     * @throws RemoteException if the registry cannot be reached or the engine is not bound
+     */
+    public Compute getEngine() throws RemoteException {
+        Compute s = stub;
+        if (s != null) return s;
+        synchronized (lookupLock) {
+            if (stub == null) {
+                stub = lookup();
+            }
+            return stub;
+        }
+    }
+
+    /** Forget the cached stub so the next call looks it up again. */
+    public void invalidate() {
+        stub = null;
+    }
+
+    // Only clear the stub if no other thread has already replaced it
+    private void invalidate(Compute failed) {
+        if (failed != null) {
+            synchronized (lookupLock) {
+                if (stub == failed) stub = null;
+            }
+        }
+    }
+
+    private Compute lookup() throws RemoteException {
+        long start = System.nanoTime();
+        try {
+            Registry registry = LocateRegistry.getRegistry(host, port);
+            return (Compute) registry.lookup(registryName);
+        } catch (NotBoundException e) {
+            throw new RemoteException("Engine '" + registryName + "' is not bound on "
+                    + host + ":" + port, e);
+        } finally {
+            long took = System.nanoTime() - start;
+            lookups.incrementAndGet();
+            lookupNanos.addAndGet(took);
+            maxLookupNanos.accumulateAndGet(took, Math::max);
+        }
+    }
+
+    // ── Getters ──────────────────────────────────────────────────────────────
+
+    public String getHost()            { return host; }
+    public int    getPort()            { return port; }
+    public String getRegistryName()    { return registryName; }
+
+    public long getLookupCount()       { return lookups.get(); }
+    public long getLookupNanos()       { return lookupNanos.get(); }
+    public long getMaxLookupNanos()    { return maxLookupNanos.get(); }
+    public long getReconnectCount()    { return reconnects.get(); }
+    public long getReplayCount()       { return replays.get(); }
+
+    /** executeAsync() calls running or waiting right now. */
+    public int getAsyncInFlight() {
+        ThreadPoolExecutor pool = ioPool;
+        return pool == null ? 0 : pool.getActiveCount() + pool.getQueue().size();
+    }
+
+    /** One-line summary of the lookup and reconnect counters. */
+    public String getStats() {
+        long n = lookups.get();
+        return String.format("ENGINE CLIENT %s:%d/%s | lookups: %d | avg lookup: %.3f ms"
+                        + " | max lookup: %.3f ms | reconnects: %d | replays: %d | async in flight: %d",
+                host, port, registryName, n,
+                n == 0 ? 0.0 : lookupNanos.get() / 1e6 / n,
+                maxLookupNanos.get() / 1e6,
+                reconnects.get(), replays.get(), getAsyncInFlight());
+    }
+}
@@ -0,0 +1,77 @@
+package client;
+
+import common.PriceMutation;
+import common.Task;
+import common.WireFormat;
+import server.ShardDirectory;
+import server.TaskMetrics;
+import server.VegetablePriceTable;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DeletePrices - deletes many vegetables in a single table write
+ * (VegetablePriceTable.applyAll). IDs that are not in the table are
+ * skipped. Meant for rows a rebalance has moved away: it deletes them
+ * even though this shard no longer takes writes to them.
+ *
+ * DIARY: Day 6 - Created for removing moved rows after a shard rebalance.
+ */
+public class DeletePrices implements Task<Integer>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String[] ids;   // vegetable IDs to delete
+    private int      count; // IDs in use
+
+    /**
+     * @param ids   vegetable IDs to delete
+     * @param count number of IDs in use (the array may be longer)
+     */
+    public DeletePrices(String[] ids, int count) {
+        this.ids   = ids;
+        this.count = count;
+    }
+
+    /** For deserialization only. */
+    public DeletePrices() { }
+
+    /**
+     * Execute: delete every listed vegetable in one write.
+     * @return number of vegetables deleted
+     */
+    @Override
+    public Integer execute() {
+        List<PriceMutation> changes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) changes.add(PriceMutation.delete(ids[i]));
+        // The rows now belong to another shard, which refuses other writes to them here
+        boolean[] applied = ShardDirectory.removingMoved(() -> VegetablePriceTable.getInstance().applyAll(changes));
+        int deleted = 0;
+        for (boolean a : applied) {
+            if (a) deleted++;
+        }
+        return deleted;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeInt(count);
+        WireFormat.writeIds(out, ids, count);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, DeletePrices.class);
+        count = WireFormat.readCount(in);
+        ids   = new String[count]; // not interned: each ID is deleted once
+        for (int i = 0; i < count; i++) ids[i] = WireFormat.readString(in);
+        TaskMetrics.deserialized(DeletePrices.class, start);
+    }
+}
@@ -1,9 +1,18 @@
 package client;
 
-import common.Task;
-import common.VegetablePrice;
+import common.IdempotentTask;
+import common.PriceMutation;
+import common.TransactionResult;
+import common.WireFormat;
+import server.TaskMetrics;
 import server.VegetablePriceTable;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Collections;
+
 /**
  * DeleteVegetablePrice - Task 3.
  * Deletes a vegetable-price entity from the price table by ID.
@@ -12,40 +21,69 @@ import server.VegetablePriceTable;
  *        Only the vegetable ID is needed to perform deletion.
  *        execute() calls VegetablePriceTable.delete() and returns
  *        a message confirming which vegetable was removed.
+ *        Day 6 - Externalizable: only the ID goes over the wire.
+ *        Day 6 - Deletes in one applyTransaction() step that also
+ *        returns the removed row (find-then-delete could race).
+ *        Day 6 - Carries a request ID (see RequestDedup).
  */
-public class DeleteVegetablePrice implements Task<String> {
+public class DeleteVegetablePrice implements IdempotentTask<String>, Externalizable {
 
     private static final long serialVersionUID = 1L;
 
-    private final String vegetableId; // ID of the vegetable to delete
+    private String vegetableId; // ID of the vegetable to delete
+    private String requestId; // same on every retry of this request (see RequestDedup)
 
     /**
      * @param vegetableId the ID of the vegetable to remove
+     * @param requestId same on every retry; null to not deduplicate
      */
-    public DeleteVegetablePrice(String vegetableId) {
+    public DeleteVegetablePrice(String vegetableId, String requestId) {
         this.vegetableId = vegetableId;
+        this.requestId = requestId;
     }
 
+    /** With a new random request ID, so resending this same object is safe. */
+    public DeleteVegetablePrice(String vegetableId) {
+        this(vegetableId, IdempotentTask.newRequestId());
+    }
+
+    /** For deserialization only. */
+    public DeleteVegetablePrice() { }
+
     /**
      * Execute: remove the vegetable from the price table.
      * @return success or failure message
      */
     @Override
     public String execute() {
-        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        // One atomic step, so the row reported is the one actually removed
+        TransactionResult result = VegetablePriceTable.getInstance().applyTransaction(
+                Collections.singletonList(PriceMutation.delete(vegetableId)), null);
 
-        // Retrieve the entry first so we can confirm what was deleted
-        VegetablePrice existing = table.find(vegetableId);
-        if (existing == null) {
+        if (!result.isCommitted()) {
             return "FAILED: No vegetable found with ID '" + vegetableId + "'.";
         }
+        return "SUCCESS: Deleted vegetable -> " + result.getPrevious(0).toString();
+    }
 
-        boolean deleted = table.delete(vegetableId);
+    @Override
+    public String getRequestId() {
+        return requestId;
+    }
 
-        if (deleted) {
-            return "SUCCESS: Deleted vegetable -> " + existing.toString();
-        } else {
-            return "FAILED: Could not delete vegetable with ID '" + vegetableId + "'.";
-        }
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        WireFormat.writeString(out, vegetableId);
+        WireFormat.writeString(out, requestId);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, DeleteVegetablePrice.class);
+        vegetableId = WireFormat.readId(in);
+        requestId = WireFormat.readString(in);
+        TaskMetrics.deserialized(DeleteVegetablePrice.class, start);
     }
 }
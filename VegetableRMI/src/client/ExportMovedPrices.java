@@ -0,0 +1,126 @@
+package client;
+
+import common.ExportPage;
+import common.ReadOnlyTask;
+import common.ShardRing;
+import common.VegetablePrice;
+import common.WireFormat;
+import server.TaskMetrics;
+import server.VegetablePriceTable;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+/**
+ * ExportMovedPrices - reads the rows of this engine's table that belong
+ * to another shard under a new ShardRing, for rebalancing.
+ *
+ * Returns only the rows the ring gives to a shard other than self, so
+ * rows that stay put never cross the network: up to limit of them, in
+ * ID order, after the given ID (as ExportPrices does for replicas). Start
+ * with "" and pass page.getLastId() until page.isLast(). Paging by ID
+ * rather than by position means a row deleted between pages cannot make
+ * the next page skip one.
+ *
+ * DIARY: Day 6 - Created for moving key ranges when a shard joins or leaves.
+ *        Day 6 - Pages by ID instead of by offset.
+ */
+public class ExportMovedPrices implements ReadOnlyTask<ExportPage>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String[] shards;       // shard names of the new ring
+    private int      virtualNodes;
+    private String   self;         // this engine's shard name
+    private String   afterId;      // last ID of the previous page, "" for the first
+    private int      limit;        // maximum rows to return
+
+    /**
+     * @param ring    the ring after the change
+     * @param self    name of the shard this task is sent to
+     * @param afterId return IDs after this one ("" for the first page)
+     * @param limit   maximum rows in this page
+     */
+    public ExportMovedPrices(ShardRing ring, String self, String afterId, int limit) {
+        if (afterId == null || limit <= 0) throw new IllegalArgumentException("afterId and limit > 0 required");
+        this.shards       = ring.getShards().toArray(new String[0]);
+        this.virtualNodes = ring.getVirtualNodes();
+        this.self         = self;
+        this.afterId      = afterId;
+        this.limit        = limit;
+    }
+
+    /** For deserialization only. */
+    public ExportMovedPrices() { }
+
+    /**
+     * Execute: scan the table and keep the first moving rows after afterId.
+     * @return the moving rows in ID order; isLast() if there are no more
+     */
+    @Override
+    public ExportPage execute() {
+        ShardRing ring = new ShardRing(Arrays.asList(shards), virtualNodes);
+        VegetablePriceTable.Snapshot snap = VegetablePriceTable.getInstance().snapshot();
+
+        // The limit smallest moving IDs after afterId; one pass, keeping them in a max-heap
+        Comparator<VegetablePrice> byIdDesc = Comparator.comparing(VegetablePrice::getId).reversed();
+        PriorityQueue<VegetablePrice> smallest = new PriorityQueue<>(Math.min(limit, 1024), byIdDesc);
+        boolean more = false;
+        for (VegetablePrice vp : snap.getAll()) {
+            if (vp.getId().compareTo(afterId) <= 0 || ring.ownerNameOf(vp.getId()).equals(self)) continue;
+            if (smallest.size() < limit) {
+                smallest.add(vp);
+            } else {
+                more = true;
+                if (vp.getId().compareTo(smallest.peek().getId()) < 0) {
+                    smallest.poll();
+                    smallest.add(vp);
+                }
+            }
+        }
+
+        VegetablePrice[] rows = smallest.toArray(new VegetablePrice[0]);
+        Arrays.sort(rows, Comparator.comparing(VegetablePrice::getId));
+        int n = rows.length;
+        String[] ids    = new String[n];
+        String[] names  = new String[n];
+        double[] prices = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i]    = rows[i].getId();
+            names[i]  = rows[i].getName();
+            prices[i] = rows[i].getPricePerKg();
+        }
+        return new ExportPage(ids, names, prices, n, snap.getVersion(), more ? 0 : -1);
+    }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeInt(shards.length);
+        for (String shard : shards) WireFormat.writeString(out, shard);
+        out.writeInt(virtualNodes);
+        WireFormat.writeString(out, self);
+        WireFormat.writeString(out, afterId);
+        out.writeInt(limit);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, ExportMovedPrices.class);
+        shards = new String[WireFormat.readCount(in)];
+        for (int i = 0; i < shards.length; i++) shards[i] = WireFormat.readString(in);
+        virtualNodes = in.readInt();
+        self         = WireFormat.readString(in);
+        afterId      = WireFormat.readString(in);
+        limit        = in.readInt();
+        TaskMetrics.deserialized(ExportMovedPrices.class, start);
+    }
+}
@@ -0,0 +1,153 @@
+package client;
+
+import common.ExportPage;
+import common.ReadOnlyTask;
+import common.VegetablePrice;
+import common.WireFormat;
+import server.TaskMetrics;
+import server.VegetablePriceTable;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+/**
+ * ExportPrices - reads one page of the price table, in table order.
+ * Start at offset 0 and pass page.getNextOffset() until page.isLast().
+ *
+ * Each page is read from one snapshot. If the table changes between
+ * pages, later pages come from the newer version; callers can compare
+ * page.getVersion() to notice. By offset, a row deleted from an earlier
+ * page moves every later row back by one, so the row at the page
+ * boundary is skipped.
+ *
+ * By ID (new ExportPrices(afterId, limit)) pages come in ID order
+ * instead, each starting after the last ID of the one before
+ * (page.getLastId()). A row that is in the table all along is read
+ * exactly once whatever changes between pages. Each page scans the
+ * whole table, so this is slower than by offset.
+ *
+ * DIARY: Day 6 - Created for the bulk export endpoint.
+ *        Day 6 - Paging by ID, for replicas copying a changing table.
+ */
+public class ExportPrices implements ReadOnlyTask<ExportPage>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private int     offset;  // first row of the page (by offset)
+    private int     limit;   // maximum rows in the page
+    private boolean byId;    // page in ID order, after afterId
+    private String  afterId; // last ID of the previous page, "" for the first
+
+    /**
+     * @param offset first row to return (0 for the start of the table)
+     * @param limit  maximum rows to return
+     */
+    public ExportPrices(int offset, int limit) {
+        if (offset < 0 || limit <= 0) throw new IllegalArgumentException("offset >= 0 and limit > 0 required");
+        this.offset = offset;
+        this.limit  = limit;
+    }
+
+    /**
+     * Page in ID order.
+     * @param afterId last ID of the previous page (page.getLastId()),
+     *                or null for the first page
+     * @param limit   maximum rows to return
+     */
+    public ExportPrices(String afterId, int limit) {
+        if (limit <= 0) throw new IllegalArgumentException("limit > 0 required");
+        this.byId    = true;
+        this.afterId = afterId == null ? "" : afterId;
+        this.limit   = limit;
+    }
+
+    /** For deserialization only. */
+    public ExportPrices() { }
+
+    /**
+     * Execute: copy up to limit rows starting at offset.
+     * @return the rows plus the offset of the next page
+     */
+    @Override
+    public ExportPage execute() {
+        VegetablePriceTable.Snapshot snap = VegetablePriceTable.getInstance().snapshot();
+        if (byId) return pageById(snap);
+        int n = Math.max(0, Math.min(limit, snap.size() - offset));
+        String[] ids    = new String[n];
+        String[] names  = new String[n];
+        double[] prices = new double[n];
+
+        Iterator<VegetablePrice> it = snap.getAll().iterator();
+        for (int skip = 0; skip < offset && it.hasNext(); skip++) it.next();
+        int count = 0;
+        while (count < n && it.hasNext()) {
+            VegetablePrice vp = it.next();
+            ids[count]    = vp.getId();
+            names[count]  = vp.getName();
+            prices[count] = vp.getPricePerKg();
+            count++;
+        }
+        int next = it.hasNext() ? offset + count : -1;
+        return new ExportPage(ids, names, prices, count, snap.getVersion(), next);
+    }
+
+    // The limit smallest IDs after afterId; one pass, keeping them in a max-heap
+    private ExportPage pageById(VegetablePriceTable.Snapshot snap) {
+        Comparator<VegetablePrice> byIdDesc = Comparator.comparing(VegetablePrice::getId).reversed();
+        PriorityQueue<VegetablePrice> smallest = new PriorityQueue<>(Math.min(limit, 1024), byIdDesc);
+        boolean more = false;
+        for (VegetablePrice vp : snap.getAll()) {
+            if (vp.getId().compareTo(afterId) <= 0) continue;
+            if (smallest.size() < limit) {
+                smallest.add(vp);
+            } else {
+                more = true;
+                if (vp.getId().compareTo(smallest.peek().getId()) < 0) {
+                    smallest.poll();
+                    smallest.add(vp);
+                }
+            }
+        }
+
+        VegetablePrice[] rows = smallest.toArray(new VegetablePrice[0]);
+        Arrays.sort(rows, Comparator.comparing(VegetablePrice::getId));
+        int n = rows.length;
+        String[] ids    = new String[n];
+        String[] names  = new String[n];
+        double[] prices = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i]    = rows[i].getId();
+            names[i]  = rows[i].getName();
+            prices[i] = rows[i].getPricePerKg();
+        }
+        return new ExportPage(ids, names, prices, n, snap.getVersion(), more ? 0 : -1);
+    }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeInt(offset);
+        out.writeInt(limit);
+        out.writeBoolean(byId);
+        if (byId) WireFormat.writeString(out, afterId);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, ExportPrices.class);
+        offset = in.readInt();
+        limit  = in.readInt();
+        byId   = in.readBoolean();
+        if (byId) afterId = WireFormat.readString(in);
+        TaskMetrics.deserialized(ExportPrices.class, start);
+    }
+}
@@ -0,0 +1,78 @@
+package client;
+
+import common.QueryPage;
+import common.ReadOnlyTask;
+import common.WireFormat;
+import server.PriceIndex;
+import server.TaskMetrics;
+import server.VegetablePriceTable;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * FindVegetablesByName - one page of vegetables whose name starts with
+ * (or, if exact, equals) the given text, ignoring case, ordered by name.
+ * Pass page.getNextCursor() to the next call until page.isLast().
+ *
+ * DIARY: Day 6 - Created with PriceIndex.
+ */
+public class FindVegetablesByName implements ReadOnlyTask<QueryPage>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String  name;   // prefix or whole name
+    private boolean exact;  // whole name only
+    private String  cursor; // where the previous page stopped, null for the first
+    private int     limit;  // rows per page, at most PriceIndex.MAX_PAGE
+
+    /**
+     * @param name   prefix (or whole name, if exact) to look for
+     * @param exact  true to match the whole name only
+     * @param cursor getNextCursor() of the previous page, or null for the first page
+     * @param limit  maximum rows to return (capped at PriceIndex.MAX_PAGE)
+     */
+    public FindVegetablesByName(String name, boolean exact, String cursor, int limit) {
+        if (name == null || name.trim().isEmpty()) throw new IllegalArgumentException("name required");
+        if (limit <= 0) throw new IllegalArgumentException("limit must be > 0");
+        this.name   = name.trim();
+        this.exact  = exact;
+        this.cursor = cursor;
+        this.limit  = Math.min(limit, PriceIndex.MAX_PAGE);
+    }
+
+    /** For deserialization only. */
+    public FindVegetablesByName() { }
+
+    /**
+     * Execute: read one page from the name index.
+     * @return matching rows plus the cursor for the next page
+     */
+    @Override
+    public QueryPage execute() {
+        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        return table.getIndex().byName(table.snapshot(), name, exact, cursor, limit);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        WireFormat.writeString(out, name);
+        out.writeBoolean(exact);
+        WireFormat.writeString(out, cursor);
+        out.writeInt(limit);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, FindVegetablesByName.class);
+        name   = WireFormat.readString(in);
+        exact  = in.readBoolean();
+        cursor = WireFormat.readString(in);
+        limit  = Math.max(1, Math.min(in.readInt(), PriceIndex.MAX_PAGE));
+        TaskMetrics.deserialized(FindVegetablesByName.class, start);
+    }
+}
@@ -0,0 +1,80 @@
+package client;
+
+import common.QueryPage;
+import common.ReadOnlyTask;
+import common.WireFormat;
+import server.PriceIndex;
+import server.PricingEngine;
+import server.TaskMetrics;
+import server.VegetablePriceTable;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * FindVegetablesByPrice - one page of vegetables priced between two
+ * amounts per kg (inclusive, compared in cents), cheapest first.
+ * Pass page.getNextCursor() to the next call until page.isLast().
+ *
+ * DIARY: Day 6 - Created with PriceIndex.
+ */
+public class FindVegetablesByPrice implements ReadOnlyTask<QueryPage>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private double minPrice; // KES per kg
+    private double maxPrice;
+    private String cursor;   // where the previous page stopped, null for the first
+    private int    limit;    // rows per page, at most PriceIndex.MAX_PAGE
+
+    /**
+     * @param minPrice lowest price per kg to include (KES)
+     * @param maxPrice highest price per kg to include (KES)
+     * @param cursor   getNextCursor() of the previous page, or null for the first page
+     * @param limit    maximum rows to return (capped at PriceIndex.MAX_PAGE)
+     */
+    public FindVegetablesByPrice(double minPrice, double maxPrice, String cursor, int limit) {
+        if (!(minPrice <= maxPrice)) throw new IllegalArgumentException("minPrice must not exceed maxPrice");
+        if (limit <= 0) throw new IllegalArgumentException("limit must be > 0");
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.cursor   = cursor;
+        this.limit    = Math.min(limit, PriceIndex.MAX_PAGE);
+    }
+
+    /** For deserialization only. */
+    public FindVegetablesByPrice() { }
+
+    /**
+     * Execute: read one page from the price index.
+     * @return matching rows plus the cursor for the next page
+     */
+    @Override
+    public QueryPage execute() {
+        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        return table.getIndex().byPrice(table.snapshot(),
+                PricingEngine.toCents(minPrice), PricingEngine.toCents(maxPrice), cursor, limit);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeDouble(minPrice);
+        out.writeDouble(maxPrice);
+        WireFormat.writeString(out, cursor);
+        out.writeInt(limit);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, FindVegetablesByPrice.class);
+        minPrice = in.readDouble();
+        maxPrice = in.readDouble();
+        cursor   = WireFormat.readString(in);
+        limit    = Math.max(1, Math.min(in.readInt(), PriceIndex.MAX_PAGE));
+        TaskMetrics.deserialized(FindVegetablesByPrice.class, start);
+    }
+}
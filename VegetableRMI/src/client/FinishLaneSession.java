@@ -0,0 +1,73 @@
+package client;
+
+import common.IdempotentTask;
+import common.WireFormat;
+import server.LaneSessions;
+import server.PricingEngine;
+import server.TaskMetrics;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * FinishLaneSession - closes a lane session and returns its receipt, in
+ * the same layout as CalculateCost, with the prices the items were
+ * scanned at.
+ *
+ * DIARY: Day 6 - Created for lane sessions.
+ */
+public class FinishLaneSession implements IdempotentTask<String>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long   sessionId;   // from OpenLaneSession
+    private double amountGiven; // cash handed over (KES)
+    private String requestId;   // a resent finish returns the same receipt
+
+    /**
+     * @param sessionId   session from OpenLaneSession
+     * @param amountGiven cash given by the customer (KES)
+     */
+    public FinishLaneSession(long sessionId, double amountGiven) {
+        this.sessionId   = sessionId;
+        this.amountGiven = amountGiven;
+        this.requestId   = IdempotentTask.newRequestId();
+    }
+
+    /** For deserialization only. */
+    public FinishLaneSession() { }
+
+    /**
+     * Execute: close the session and render the receipt.
+     * @return full receipt as a String
+     */
+    @Override
+    public String execute() {
+        return LaneSessions.getInstance().finish(sessionId, PricingEngine.toCents(amountGiven));
+    }
+
+    @Override
+    public String getRequestId() {
+        return requestId;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeLong(sessionId);
+        out.writeDouble(amountGiven);
+        WireFormat.writeString(out, requestId);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, FinishLaneSession.class);
+        sessionId   = in.readLong();
+        amountGiven = in.readDouble();
+        requestId   = WireFormat.readString(in);
+        TaskMetrics.deserialized(FinishLaneSession.class, start);
+    }
+}
@@ -0,0 +1,47 @@
+package client;
+
+import common.ReadOnlyTask;
+import server.EngineExecutor;
+import server.LaneSessions;
+import server.PriceJournal;
+import server.ReplicaSync;
+import server.RequestDedup;
+import server.TaskMetrics;
+import server.VegetablePriceTable;
+
+/**
+ * GetEngineMetrics - returns the engine's load and timing counters.
+ * Lets an operator see queue wait versus execute time from any client.
+ *
+ * DIARY: Day 5 - Added so the worker pool can be sized from real numbers.
+ *        Day 6 - Also returns the per task class latency histograms.
+ *        Day 6 - And the price change feed counters, and replication lag
+ *        when the engine is a replica, and the search index stats once built.
+ *        Day 6 - And the request ID dedup and lane session counters, and
+ *        the SKU handle stats once handles are in use, and the off-heap
+ *        store when the table has one.
+ */
+public class GetEngineMetrics implements ReadOnlyTask<String> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Execute: read the executor counters on the server.
+     * @return formatted metrics report
+     */
+    @Override
+    public String execute() {
+        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        String stats = EngineExecutor.getInstance().getStats()
+                + "\n" + TaskMetrics.getInstance().getReport()
+                + table.getFeed().getStats()
+                + RequestDedup.getInstance().getStats()
+                + LaneSessions.getInstance().getStats();
+        if (ReplicaSync.getInstance() != null) stats += ReplicaSync.getInstance().getStats();
+        if (table.getIndexStats() != null) stats += table.getIndexStats();
+        if (table.getHandleStats() != null) stats += table.getHandleStats();
+        if (table.getStoreStats() != null) stats += table.getStoreStats();
+        PriceJournal journal = table.getJournal();
+        return journal == null ? stats : stats + journal.getStats();
+    }
+}
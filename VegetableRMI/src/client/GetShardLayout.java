@@ -0,0 +1,25 @@
+package client;
+
+import common.ReadOnlyTask;
+import common.ShardLayout;
+import server.ShardDirectory;
+
+/**
+ * GetShardLayout - returns the newest shard layout published to the
+ * engine, or null if none was (no rebalance since it started).
+ *
+ * DIARY: Day 6 - Created with ShardLayout.
+ */
+public class GetShardLayout implements ReadOnlyTask<ShardLayout> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Execute: read the layout held by the engine.
+     * @return the layout, or null
+     */
+    @Override
+    public ShardLayout execute() {
+        return ShardDirectory.getInstance().get();
+    }
+}
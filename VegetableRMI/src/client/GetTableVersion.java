@@ -0,0 +1,26 @@
+package client;
+
+import common.ReadOnlyTask;
+import server.VegetablePriceTable;
+
+/**
+ * GetTableVersion - returns the price table's version number, which
+ * goes up by one on every add, update or delete. A client holding
+ * prices read at version v knows they are still current while this
+ * returns v.
+ *
+ * DIARY: Day 6 - Created for the client-side PriceCache.
+ */
+public class GetTableVersion implements ReadOnlyTask<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Execute: read the current version on the server.
+     * @return table version
+     */
+    @Override
+    public Long execute() {
+        return VegetablePriceTable.getInstance().getVersion();
+    }
+}
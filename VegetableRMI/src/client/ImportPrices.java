@@ -0,0 +1,158 @@
+package client;
+
+import common.IdempotentTask;
+import common.ImportResult;
+import common.PriceMutation;
+import common.VegetablePrice;
+import common.WireFormat;
+import server.TaskMetrics;
+import server.VegetablePriceTable;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ImportPrices - applies one chunk of a bulk price list in a single
+ * table write (VegetablePriceTable.applyAll).
+ *
+ * Each row is added, updated or upserted depending on the mode. Rows
+ * that are invalid (blank ID or name, negative or non-numeric price)
+ * or do not fit the mode (ADD of an existing ID, UPDATE of a missing
+ * one) are skipped and reported back in the ImportResult; the other
+ * rows are still applied.
+ *
+ * DIARY: Day 6 - A daily price list used to take one add/update call
+ *        (and one table copy) per SKU.
+ *        Day 6 - Carries a request ID, so resending a chunk whose answer
+ *        was lost does not report its rows as "already exists".
+ */
+public class ImportPrices implements IdempotentTask<ImportResult>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private PriceMutation.Op mode;   // ADD, UPDATE or UPSERT
+    private String[] ids;            // rows as parallel arrays
+    private String[] names;
+    private double[] prices;
+    private int      count;          // rows in use
+    private String   requestId;      // same on every retry (see RequestDedup)
+
+    /**
+     * @param mode   ADD, UPDATE or UPSERT
+     * @param ids    vegetable ID per row
+     * @param names  vegetable name per row
+     * @param prices price per kg per row
+     * @param count  number of rows in use (arrays may be longer)
+     * @param requestId same on every retry; null to not deduplicate
+     */
+    public ImportPrices(PriceMutation.Op mode, String[] ids, String[] names, double[] prices, int count,
+                        String requestId) {
+        if (mode == PriceMutation.Op.DELETE) {
+            throw new IllegalArgumentException("Import mode must be ADD, UPDATE or UPSERT");
+        }
+        this.mode   = mode;
+        this.ids    = ids;
+        this.names  = names;
+        this.prices = prices;
+        this.count  = count;
+        this.requestId = requestId;
+    }
+
+    /** With a new random request ID, so resending this same object is safe. */
+    public ImportPrices(PriceMutation.Op mode, String[] ids, String[] names, double[] prices, int count) {
+        this(mode, ids, names, prices, count, IdempotentTask.newRequestId());
+    }
+
+    /** For deserialization only. */
+    public ImportPrices() { }
+
+    /**
+     * Execute: validate the rows and apply the valid ones in one write.
+     * @return number applied plus the rejected rows with reasons
+     */
+    @Override
+    public ImportResult execute() {
+        List<PriceMutation> changes = new ArrayList<>(count);
+        int[] rowOfChange = new int[count];
+        List<Integer> rejectedRows = new ArrayList<>();
+        List<String>  reasons      = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            String problem = validate(i);
+            if (problem != null) {
+                rejectedRows.add(i);
+                reasons.add(problem);
+                continue;
+            }
+            VegetablePrice vp = new VegetablePrice(ids[i].trim(), names[i].trim(), prices[i]);
+            rowOfChange[changes.size()] = i;
+            changes.add(mode == PriceMutation.Op.ADD ? PriceMutation.add(vp)
+                    : mode == PriceMutation.Op.UPDATE ? PriceMutation.update(vp)
+                    : PriceMutation.upsert(vp));
+        }
+
+        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        boolean[] applied = table.applyAll(changes);
+        int appliedCount = 0;
+        for (int c = 0; c < applied.length; c++) {
+            if (applied[c]) {
+                appliedCount++;
+            } else {
+                rejectedRows.add(rowOfChange[c]);
+                reasons.add(mode == PriceMutation.Op.ADD ? "ID already exists" : "ID not found");
+            }
+        }
+
+        int[] rows = new int[rejectedRows.size()];
+        for (int r = 0; r < rows.length; r++) rows[r] = rejectedRows.get(r);
+        return new ImportResult(appliedCount, rows, reasons.toArray(new String[0]), table.getVersion());
+    }
+
+    private String validate(int i) {
+        if (ids[i] == null || ids[i].trim().isEmpty())     return "missing id";
+        if (names[i] == null || names[i].trim().isEmpty()) return "missing name";
+        if (Double.isNaN(prices[i]) || Double.isInfinite(prices[i])) return "price is not a number";
+        if (prices[i] < 0)                                 return "price is negative";
+        return null;
+    }
+
+    @Override
+    public String getRequestId() {
+        return requestId;
+    }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeByte(mode.ordinal());
+        out.writeInt(count);
+        WireFormat.writeIds(out, ids, count);
+        for (int i = 0; i < count; i++) WireFormat.writeString(out, names[i]);
+        WireFormat.writeDoubles(out, prices, count);
+        WireFormat.writeString(out, requestId);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, ImportPrices.class);
+        int op = in.readByte();
+        if (op < 0 || op >= PriceMutation.Op.values().length) throw new InvalidObjectException("Bad import mode " + op);
+        mode  = PriceMutation.Op.values()[op];
+        count = WireFormat.readCount(in);
+        ids   = new String[count]; // not interned: a bulk import passes most IDs once
+        names = new String[count];
+        for (int i = 0; i < count; i++) ids[i]   = WireFormat.readString(in);
+        for (int i = 0; i < count; i++) names[i] = WireFormat.readString(in);
+        prices = WireFormat.readDoubles(in, count);
+        requestId = WireFormat.readString(in);
+        TaskMetrics.deserialized(ImportPrices.class, start);
+    }
+}
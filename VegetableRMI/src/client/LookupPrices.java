@@ -0,0 +1,71 @@
+package client;
+
+import common.PriceLookup;
+import common.ReadOnlyTask;
+import common.VegetablePrice;
+import common.WireFormat;
+import server.TaskMetrics;
+import server.VegetablePriceTable;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * LookupPrices - fetches the current prices of several vegetables,
+ * all from one snapshot, together with that snapshot's version.
+ *
+ * DIARY: Day 6 - Created for the client-side PriceCache, which sends
+ *        all of a basket's cache misses in one call.
+ *        Day 6 - Also returns each entry's version stamp (see PriceTransaction).
+ */
+public class LookupPrices implements ReadOnlyTask<PriceLookup>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String[] ids; // vegetables to look up
+
+    /** @param ids vegetable IDs to look up */
+    public LookupPrices(String... ids) {
+        this.ids = ids;
+    }
+
+    /** For deserialization only. */
+    public LookupPrices() { }
+
+    /**
+     * Execute: read every ID from the same snapshot.
+     * @return prices (null where not found), their stamps and the snapshot version
+     */
+    @Override
+    public PriceLookup execute() {
+        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        VegetablePriceTable.Snapshot snap = table.snapshot();
+        VegetablePrice[] prices = new VegetablePrice[ids.length];
+        long[] stamps = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            prices[i] = snap.find(ids[i]);
+            stamps[i] = table.stampOf(snap, ids[i]);
+        }
+        return new PriceLookup(prices, stamps, snap.getVersion());
+    }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeInt(ids.length);
+        WireFormat.writeIds(out, ids, ids.length);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, LookupPrices.class);
+        int n = WireFormat.readCount(in);
+        ids = WireFormat.readIds(in, n);
+        TaskMetrics.deserialized(LookupPrices.class, start);
+    }
+}
@@ -0,0 +1,66 @@
+package client;
+
+import common.IdempotentTask;
+import common.LaneTotals;
+import common.WireFormat;
+import server.LaneSessions;
+import server.TaskMetrics;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * OpenLaneSession - starts a checkout lane session on the engine (see
+ * server.LaneSessions). Items are then sent one by one with ScanItem and
+ * the receipt comes from FinishLaneSession. CheckoutLane wraps all three.
+ *
+ * DIARY: Day 6 - Created for lane sessions.
+ */
+public class OpenLaneSession implements IdempotentTask<LaneTotals>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String cashierName; // printed on the receipt
+    private String requestId;   // a resent open returns the same session
+
+    /** @param cashierName name of the cashier logged in at the lane */
+    public OpenLaneSession(String cashierName) {
+        this.cashierName = cashierName;
+        this.requestId   = IdempotentTask.newRequestId();
+    }
+
+    /** For deserialization only. */
+    public OpenLaneSession() { }
+
+    /**
+     * Execute: open a new, empty session.
+     * @return totals of the empty session, with its session ID
+     */
+    @Override
+    public LaneTotals execute() {
+        return LaneSessions.getInstance().open(cashierName);
+    }
+
+    @Override
+    public String getRequestId() {
+        return requestId;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        WireFormat.writeString(out, cashierName);
+        WireFormat.writeString(out, requestId);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, OpenLaneSession.class);
+        cashierName = WireFormat.readString(in);
+        requestId   = WireFormat.readString(in);
+        TaskMetrics.deserialized(OpenLaneSession.class, start);
+    }
+}
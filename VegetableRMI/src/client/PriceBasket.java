@@ -0,0 +1,109 @@
+package client;
+
+import common.BasketQuote;
+import common.ReadOnlyTask;
+import common.WireFormat;
+import server.PricingEngine;
+import server.TaskMetrics;
+import server.VegetablePriceTable;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * PriceBasket - prices a basket and returns only the numbers.
+ * Same pricing as CalculateCost, but returns a BasketQuote (cents per
+ * line and grand total) instead of a rendered receipt, for clients that
+ * do their own display.
+ *
+ * Lines can be vegetable IDs or SKU handles from ResolveSkus; handles
+ * are only valid on the engine that gave them out.
+ *
+ * DIARY: Day 5 - Added alongside PricingEngine.
+ *        Day 6 - Externalizable, same line layout as CalculateCost.
+ *        Day 6 - Lines by SKU handle.
+ */
+public class PriceBasket implements ReadOnlyTask<BasketQuote>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String[] vegetableIds; // vegetable ID per line, or null when by handle
+    private int[]    handles;      // SKU handle per line, or null when by ID
+    private long     epoch;        // engine epoch of the handles
+    private double[] quantitiesKg; // quantity in kg per line
+
+    /**
+     * @param vegetableIds vegetable ID per line
+     * @param quantitiesKg quantity in kg per line (same length as vegetableIds)
+     */
+    public PriceBasket(String[] vegetableIds, double[] quantitiesKg) {
+        if (vegetableIds.length != quantitiesKg.length) {
+            throw new IllegalArgumentException("vegetableIds and quantitiesKg must have the same length");
+        }
+        this.vegetableIds = vegetableIds;
+        this.quantitiesKg = quantitiesKg;
+    }
+
+    /**
+     * @param epoch        engine epoch the handles were resolved in (SkuHandles.getEpoch())
+     * @param handles      SKU handle per line
+     * @param quantitiesKg quantity in kg per line (same length as handles)
+     */
+    public PriceBasket(long epoch, int[] handles, double[] quantitiesKg) {
+        if (handles.length != quantitiesKg.length) {
+            throw new IllegalArgumentException("handles and quantitiesKg must have the same length");
+        }
+        this.epoch        = epoch;
+        this.handles      = handles;
+        this.quantitiesKg = quantitiesKg;
+    }
+
+    /** For deserialization only. */
+    public PriceBasket() { }
+
+    /**
+     * Execute: price every line against one snapshot of the table.
+     * @return line and grand totals in cents
+     * @throws common.StaleSkuHandlesException if the handles are from another engine
+     */
+    @Override
+    public BasketQuote execute() {
+        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        if (handles != null) {
+            return PricingEngine.priceBasket(table.handleSnapshot(epoch), table.getSkuDictionary(),
+                    handles, quantitiesKg, new BasketQuote());
+        }
+        return PricingEngine.priceBasket(table.snapshot(), vegetableIds, quantitiesKg, new BasketQuote());
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeInt(quantitiesKg.length);
+        out.writeBoolean(handles != null);
+        if (handles != null) {
+            out.writeLong(epoch);
+            WireFormat.writeInts(out, handles, handles.length);
+        } else {
+            WireFormat.writeIds(out, vegetableIds, vegetableIds.length);
+        }
+        WireFormat.writeDoubles(out, quantitiesKg, quantitiesKg.length);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, PriceBasket.class);
+        int n = WireFormat.readCount(in);
+        if (in.readBoolean()) {
+            epoch   = in.readLong();
+            handles = WireFormat.readInts(in, n);
+        } else {
+            vegetableIds = WireFormat.readIds(in, n);
+        }
+        quantitiesKg = WireFormat.readDoubles(in, n);
+        TaskMetrics.deserialized(PriceBasket.class, start);
+    }
+}
@@ -0,0 +1,266 @@
+package client;
+
+import common.BasketQuote;
+import common.PriceLookup;
+import common.VegetablePrice;
+import server.LatencyHistogram;
+import server.PricingEngine;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PriceCache - optional client-side cache of vegetable prices, so a
+ * cashier can price the same few SKUs without a round trip per line
+ * and only send the final receipt (CalculateCost) to the engine.
+ *
+ * - Each thread has its own small LRU map (ID -> price), so lookups
+ *   never contend; a till is usually one thread pricing its own basket.
+ * - Every cached price is stamped with the table version it was read
+ *   at. It is served only while the engine's table is still at that
+ *   version. The version is checked with GetTableVersion at most once
+ *   per maxStaleMillis (one thread checks, the others keep going), so
+ *   a price can be served up to about maxStaleMillis after it changed.
+ * - Any change to the table makes all cached prices stale; they are
+ *   fetched again (a basket's misses in one LookupPrices call). Prices
+ *   change rarely, so this stays cheap.
+ * - Vegetables that are not in the table are cached too.
+ *
+ * Configured with system properties (defaults in brackets):
+ *   -Dvegetable.cache.size=N            [256 entries per thread]
+ *   -Dvegetable.cache.maxStaleMillis=N  [200]
+ *
+ * getStats() reports hit rate, version checks and staleness: how old
+ * the version check behind each hit was, and how many hits were served
+ * between the last check that confirmed a version and the check that
+ * found it outdated (an upper bound on the hits that were stale).
+ *
+ * DIARY: Day 6 - Cashiers price the same tomatoes and onions all day,
+ *        and every CalVegetableCost was a round trip to read a price
+ *        that had not changed since the morning.
+ */
+public class PriceCache {
+
+    public static final String SIZE_PROPERTY      = "vegetable.cache.size";
+    public static final String MAX_STALE_PROPERTY = "vegetable.cache.maxStaleMillis";
+
+    // Cached in place of a price for IDs the table does not have
+    private static final VegetablePrice MISSING = new VegetablePrice("", "", 0.0);
+
+    // Shared instance configured from system properties
+    private static PriceCache shared;
+
+    private final ComputeEngineClient client;
+    private final int  capacity;      // entries per thread
+    private final long maxStaleNanos; // how long a version check is trusted
+
+    private final ThreadLocal<Map<String, Entry>> local = ThreadLocal.withInitial(this::newMap);
+
+    // ── Version state ────────────────────────────────────────────────────────
+    private volatile long knownVersion = -1;  // latest table version seen
+    private volatile long checkedAtNanos;     // when knownVersion was last confirmed
+    private volatile long epoch;              // changed by invalidateAll()
+    private final AtomicBoolean checking = new AtomicBoolean();
+
+    // ── Counters ─────────────────────────────────────────────────────────────
+    private final LongAdder hits           = new LongAdder();
+    private final LongAdder misses         = new LongAdder(); // not cached at all
+    private final LongAdder staleMisses    = new LongAdder(); // cached at an older version
+    private final LongAdder fetches        = new LongAdder(); // LookupPrices calls
+    private final LongAdder versionChecks  = new LongAdder(); // GetTableVersion calls
+    private final LongAdder versionChanges = new LongAdder();
+    private final LongAdder hitsSinceCheck = new LongAdder();
+    private final LongAdder staleHits      = new LongAdder(); // possibly stale, see getStats()
+    private final LatencyHistogram hitAge  = new LatencyHistogram();
+
+    /**
+     * @param client         engine connection used on a miss
+     * @param capacity       maximum entries per thread
+     * @param maxStaleMillis how long a version check is trusted before asking again
+     */
+    public PriceCache(ComputeEngineClient client, int capacity, long maxStaleMillis) {
+        this.client        = client;
+        this.capacity      = Math.max(1, capacity);
+        this.maxStaleNanos = Math.max(0L, maxStaleMillis) * 1_000_000L;
+    }
+
+    /** Return the shared cache, configured from system properties on first use. */
+    public static synchronized PriceCache getShared() {
+        if (shared == null) {
+            shared = new PriceCache(ComputeEngineClient.getShared(),
+                    Integer.getInteger(SIZE_PROPERTY, 256),
+                    Long.getLong(MAX_STALE_PROPERTY, 200L));
+        }
+        return shared;
+    }
+
+    // ── Lookups ──────────────────────────────────────────────────────────────
+
+    /**
+     * Current price of one vegetable, from the cache when still valid.
+     * @return the price, or null if the vegetable is not in the table
+     */
+    public VegetablePrice get(String id) throws RemoteException {
+        return getAll(id)[0];
+    }
+
+    /**
+     * Current prices of several vegetables. All misses are fetched in
+     * one call, so a basket costs at most one round trip.
+     * @return price per ID (null where not in the table)
+     */
+    public VegetablePrice[] getAll(String... ids) throws RemoteException {
+        long version = currentVersion();
+        long now = System.nanoTime();
+        Map<String, Entry> map = local.get();
+        VegetablePrice[] result = new VegetablePrice[ids.length];
+        List<Integer> missing = null;
+
+        for (int i = 0; i < ids.length; i++) {
+            Entry e = map.get(ids[i]);
+            if (e != null && e.version == version && e.epoch == epoch) {
+                result[i] = e.price == MISSING ? null : e.price;
+                hits.increment();
+                hitsSinceCheck.increment();
+                hitAge.record(now - checkedAtNanos);
+                continue;
+            }
+            if (e == null) misses.increment(); else staleMisses.increment();
+            if (missing == null) missing = new ArrayList<>();
+            missing.add(i);
+        }
+        if (missing == null) return result;
+
+        String[] fetch = new String[missing.size()];
+        for (int m = 0; m < fetch.length; m++) fetch[m] = ids[missing.get(m)];
+        long fetchEpoch = epoch;
+        PriceLookup lookup = client.execute(new LookupPrices(fetch));
+        fetches.increment();
+        observe(lookup.getVersion(), System.nanoTime());
+
+        for (int m = 0; m < fetch.length; m++) {
+            VegetablePrice vp = lookup.getPrice(m);
+            result[missing.get(m)] = vp;
+            map.put(fetch[m], new Entry(vp == null ? MISSING : vp, lookup.getVersion(), fetchEpoch));
+        }
+        return result;
+    }
+
+    /**
+     * Price one line locally.
+     * @return line total in cents, or PricingEngine.NOT_FOUND
+     */
+    public long priceLine(String id, double quantityKg) throws RemoteException {
+        VegetablePrice vp = get(id);
+        if (vp == null) return PricingEngine.NOT_FOUND;
+        return PricingEngine.lineTotalCents(vp.getPriceCents(), quantityKg);
+    }
+
+    /**
+     * Price a whole basket locally, with the same arithmetic as the
+     * engine's PriceBasket task.
+     * @param into quote to fill (reused if its arrays are large enough)
+     */
+    public BasketQuote priceBasket(String[] ids, double[] quantities, BasketQuote into) throws RemoteException {
+        VegetablePrice[] prices = getAll(ids);
+        into.reset(ids, quantities);
+        for (int i = 0; i < ids.length; i++) {
+            if (prices[i] == null) {
+                into.setMissing(i);
+            } else {
+                long unit = prices[i].getPriceCents();
+                into.setLine(i, prices[i], unit, PricingEngine.lineTotalCents(unit, quantities[i]));
+            }
+        }
+        return into;
+    }
+
+    /** Drop every cached price on every thread (they are refetched on next use). */
+    public synchronized void invalidateAll() {
+        epoch++;
+        checkedAtNanos = System.nanoTime() - maxStaleNanos - 1; // check again on next use
+    }
+
+    // ── Version checks ───────────────────────────────────────────────────────
+
+    // Latest known table version, asking the engine if the last check is too old
+    private long currentVersion() throws RemoteException {
+        long now = System.nanoTime();
+        boolean due = knownVersion < 0 || now - checkedAtNanos > maxStaleNanos;
+        if (due && checking.compareAndSet(false, true)) {
+            try {
+                long version = client.execute(new GetTableVersion());
+                versionChecks.increment();
+                observe(version, System.nanoTime());
+            } finally {
+                checking.set(false);
+            }
+        }
+        return knownVersion;
+    }
+
+    // Record a version read from the engine at the given time
+    private synchronized void observe(long version, long atNanos) {
+        if (version > knownVersion) {
+            if (knownVersion >= 0) {
+                versionChanges.increment();
+                staleHits.add(hitsSinceCheck.sumThenReset()); // some may predate the change
+            }
+            knownVersion = version;
+        } else if (version == knownVersion) {
+            hitsSinceCheck.reset();
+        }
+        if (version >= knownVersion && atNanos - checkedAtNanos > 0) checkedAtNanos = atNanos;
+    }
+
+    private Map<String, Entry> newMap() {
+        return new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    // ── Metrics ──────────────────────────────────────────────────────────────
+
+    public long getHits()      { return hits.sum(); }
+    public long getMisses()    { return misses.sum() + staleMisses.sum(); }
+    public long getStaleHits() { return staleHits.sum(); }
+
+    /** Fraction of lookups answered from the cache (0 when there were none). */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + getMisses();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /** Summary line for logs and the client menu. */
+    public String getStats() {
+        return String.format("PRICE CACHE | hits: %d | misses: %d (stale %d) | hit rate: %.1f%%"
+                        + " | fetches: %d | version checks: %d | version changes: %d"
+                        + " | hit age p50/p99/max: %.1f/%.1f/%.1f ms | possibly stale hits: %d",
+                hits.sum(), getMisses(), staleMisses.sum(), getHitRate() * 100.0,
+                fetches.sum(), versionChecks.sum(), versionChanges.sum(),
+                hitAge.getPercentileNanos(50) / 1e6, hitAge.getPercentileNanos(99) / 1e6,
+                hitAge.getMaxNanos() / 1e6, staleHits.sum());
+    }
+
+    // One cached price and the table version it was read at
+    private static final class Entry {
+        final VegetablePrice price;
+        final long version;
+        final long epoch;
+
+        Entry(VegetablePrice price, long version, long epoch) {
+            this.price   = price;
+            this.version = version;
+            this.epoch   = epoch;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package client;
+
+import common.PriceChangeBatch;
+import common.PriceChangeListener;
+import common.VegetablePrice;
+import server.PriceChangeFeed;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * PriceFeedSubscriber - follows the engine's price change feed and hands
+ * each batch of changes to a callback, in version order.
+ *
+ * - start() exports this object as an RMI callback and subscribes it
+ *   with SubscribePriceChanges. The engine must be able to connect back
+ *   to this JVM (set -Djava.rmi.server.hostname if it has several
+ *   addresses).
+ * - It remembers the last version received. If no batch or heartbeat
+ *   arrives for three heartbeat periods (the engine was restarted or
+ *   the network dropped), it subscribes again from that version, so no
+ *   change is missed as long as the engine still has it.
+ * - Duplicate batches are ignored. If the engine cannot continue from
+ *   the last version, the callback gets a reset batch and should reload.
+ *
+ * Configured with the same -Dvegetable.feed.heartbeatMillis as the engine [5000].
+ *
+ * DIARY: Day 6 - Created for the price change feed.
+ */
+public class PriceFeedSubscriber implements PriceChangeListener, AutoCloseable {
+
+    private final ComputeEngineClient client;
+    private final Consumer<PriceChangeBatch> handler;
+    private final long heartbeatMillis = Math.max(1L, Long.getLong(PriceChangeFeed.HEARTBEAT_PROPERTY, 5000L));
+
+    private PriceChangeListener stub;           // exported callback; null until start()
+    private long lastVersion = -1;              // newest version handed to the handler
+    private volatile long lastHeardNanos;       // last batch or heartbeat
+    private ScheduledExecutorService watchdog;
+
+    /**
+     * @param client  engine to subscribe to
+     * @param handler called with each batch (never with heartbeats), one at a time
+     */
+    public PriceFeedSubscriber(ComputeEngineClient client, Consumer<PriceChangeBatch> handler) {
+        this.client  = client;
+        this.handler = handler;
+    }
+
+    /**
+     * Export the callback and subscribe.
+     * @param fromVersion last version the caller already has, or -1 for "from now"
+     * @return version the feed continues from
+     */
+    public synchronized long start(long fromVersion) throws RemoteException {
+        if (stub != null) throw new IllegalStateException("Already started");
+        stub = (PriceChangeListener) UnicastRemoteObject.exportObject(this, 0);
+        lastVersion = fromVersion;
+        try {
+            subscribe();
+        } catch (RemoteException | RuntimeException e) {
+            unexport();
+            throw e;
+        }
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "price-feed-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        watchdog.scheduleWithFixedDelay(this::checkAlive, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        return lastVersion;
+    }
+
+    /** Newest version handed to the handler (-1 before the first one). */
+    public synchronized long getLastVersion() {
+        return lastVersion;
+    }
+
+    @Override
+    public synchronized void pricesChanged(PriceChangeBatch batch) {
+        lastHeardNanos = System.nanoTime();
+        if (batch.isHeartbeat()) return;
+        if (!batch.isReset() && batch.getToVersion() <= lastVersion) return; // already have it
+        lastVersion = batch.getToVersion();
+        handler.accept(batch);
+    }
+
+    /** Unsubscribe and stop receiving callbacks. */
+    @Override
+    public synchronized void close() {
+        if (stub == null) return;
+        watchdog.shutdownNow();
+        try {
+            client.execute(new UnsubscribePriceChanges(stub));
+        } catch (RemoteException e) {
+            // engine gone; it will drop us after failing to call back
+        }
+        unexport();
+    }
+
+    // ── Internals ────────────────────────────────────────────────────────────
+
+    // Caller holds this
+    private void subscribe() throws RemoteException {
+        long from = client.execute(new SubscribePriceChanges(stub, lastVersion));
+        lastHeardNanos = System.nanoTime();
+        if (lastVersion >= 0 && from != lastVersion) {
+            // Engine cannot continue where we were (e.g. restarted without its journal)
+            long previous = lastVersion;
+            lastVersion = from;
+            handler.accept(new PriceChangeBatch(previous, from, true, new String[0], new VegetablePrice[0], 0));
+        }
+        lastVersion = from;
+    }
+
+    private void checkAlive() {
+        if (System.nanoTime() - lastHeardNanos < 3 * heartbeatMillis * 1_000_000L) return;
+        synchronized (this) {
+            if (stub == null) return;
+            try {
+                subscribe();
+            } catch (RemoteException | RuntimeException e) {
+                // still unreachable; try again on the next check
+            }
+        }
+    }
+
+    private void unexport() {
+        try {
+            UnicastRemoteObject.unexportObject(this, true);
+        } catch (NoSuchObjectException e) {
+            // not exported
+        }
+        stub = null;
+    }
+}
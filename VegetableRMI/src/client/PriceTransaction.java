@@ -0,0 +1,127 @@
+package client;
+
+import common.IdempotentTask;
+import common.PriceMutation;
+import common.TransactionResult;
+import common.VegetablePrice;
+import common.WireFormat;
+import server.TaskMetrics;
+import server.VegetablePriceTable;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * PriceTransaction - applies several adds, updates and deletes as one
+ * atomic change (VegetablePriceTable.applyTransaction): readers see all
+ * of them or none, and if one cannot apply nothing is applied.
+ *
+ * Each change may carry the version stamp its entry was read at (from
+ * LookupPrices); the transaction then only commits if none of those
+ * entries has changed since. On a CONFLICT the caller reads again and
+ * retries - TransactionRunner does this. The request ID makes resending
+ * the same transaction object (e.g. after a timeout) safe.
+ *
+ * DIARY: Day 6 - Repricing a whole category took one update per item,
+ *        and two updaters could overwrite each other's changes unseen.
+ */
+public class PriceTransaction implements IdempotentTask<TransactionResult>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Expected stamp for a change that should apply whatever the entry's version. */
+    public static final long ANY_STAMP = VegetablePriceTable.ANY_STAMP;
+
+    private List<PriceMutation> changes;        // applied in order
+    private long[]              expectedStamps; // per change, or ANY_STAMP
+    private String              requestId;      // same on every retry (see RequestDedup)
+
+    /**
+     * @param changes        changes to apply together, in order
+     * @param expectedStamps per change, the stamp its entry was read at,
+     *                       or ANY_STAMP; null to check none
+     * @param requestId      same on every retry; null to not deduplicate
+     */
+    public PriceTransaction(List<PriceMutation> changes, long[] expectedStamps, String requestId) {
+        if (expectedStamps == null) {
+            expectedStamps = new long[changes.size()];
+            Arrays.fill(expectedStamps, ANY_STAMP);
+        } else if (expectedStamps.length != changes.size()) {
+            throw new IllegalArgumentException("Need one stamp per change");
+        }
+        this.changes        = changes;
+        this.expectedStamps = expectedStamps;
+        this.requestId      = requestId;
+    }
+
+    /** With a new random request ID, so resending this same object is safe. */
+    public PriceTransaction(List<PriceMutation> changes, long[] expectedStamps) {
+        this(changes, expectedStamps, IdempotentTask.newRequestId());
+    }
+
+    /** For deserialization only. */
+    public PriceTransaction() { }
+
+    /**
+     * Execute: check every stamp and apply every change, or nothing.
+     * @return COMMITTED with the rows replaced, or why nothing was applied
+     */
+    @Override
+    public TransactionResult execute() {
+        return VegetablePriceTable.getInstance().applyTransaction(changes, expectedStamps);
+    }
+
+    @Override
+    public String getRequestId() {
+        return requestId;
+    }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeInt(changes.size());
+        for (int i = 0; i < changes.size(); i++) {
+            PriceMutation change = changes.get(i);
+            out.writeByte(change.getOp().ordinal());
+            WireFormat.writeString(out, change.getId());
+            WireFormat.writePrice(out, change.getPrice());
+            out.writeLong(expectedStamps[i]);
+        }
+        WireFormat.writeString(out, requestId);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, PriceTransaction.class);
+        int n = WireFormat.readCount(in);
+        changes        = new ArrayList<>(n);
+        expectedStamps = new long[n];
+        for (int i = 0; i < n; i++) {
+            int op = in.readByte();
+            if (op < 0 || op >= PriceMutation.Op.values().length) throw new InvalidObjectException("Bad change " + op);
+            String id = WireFormat.readId(in);
+            VegetablePrice vp = WireFormat.readPrice(in);
+            if (op != PriceMutation.Op.DELETE.ordinal() && (vp == null || !id.equals(vp.getId()))) {
+                throw new InvalidObjectException("Change " + i + " has no vegetable for ID " + id);
+            }
+            switch (PriceMutation.Op.values()[op]) {
+                case ADD:    changes.add(PriceMutation.add(vp));    break;
+                case UPDATE: changes.add(PriceMutation.update(vp)); break;
+                case UPSERT: changes.add(PriceMutation.upsert(vp)); break;
+                default:     changes.add(PriceMutation.delete(id));
+            }
+            expectedStamps[i] = in.readLong();
+        }
+        requestId = WireFormat.readString(in);
+        TaskMetrics.deserialized(PriceTransaction.class, start);
+    }
+}
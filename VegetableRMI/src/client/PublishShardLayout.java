@@ -0,0 +1,32 @@
+package client;
+
+import common.ShardLayout;
+import common.Task;
+import server.ShardDirectory;
+
+/**
+ * PublishShardLayout - tells an engine the shard layout after a
+ * rebalance (see ShardDirectory). Sent by ShardedEngineClient.rebalance()
+ * to every shard; a layout older than the one held is ignored.
+ *
+ * DIARY: Day 6 - Created with ShardLayout.
+ */
+public class PublishShardLayout implements Task<Boolean> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ShardLayout layout;
+
+    public PublishShardLayout(ShardLayout layout) {
+        this.layout = layout;
+    }
+
+    /**
+     * Execute: keep the layout if it is the newest seen.
+     * @return true if kept, false if the engine already had a newer one
+     */
+    @Override
+    public Boolean execute() {
+        return ShardDirectory.getInstance().publish(layout);
+    }
+}
@@ -0,0 +1,197 @@
+package client;
+
+import common.EngineOverloadedException;
+import common.ReadOnlyTask;
+import common.ReplicaUnavailableException;
+import common.Task;
+import common.TaskResult;
+import common.TaskTimeoutException;
+import server.VegetableComputeEngine;
+
+import java.rmi.RemoteException;
+import java.rmi.ServerException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ReplicatedEngineClient - sends writes to the primary engine and reads
+ * (ReadOnlyTask) to its read replicas, round robin.
+ *
+ * - A read that a replica refuses (still copying, behind the session's
+ *   version) or cannot be reached for goes to the next replica, and
+ *   finally to the primary. An unreachable replica is skipped for a few
+ *   seconds before it is tried again.
+ * - Read-your-writes: a Session remembers the newest table version it
+ *   wrote (its token). Its reads go out with executeTaskAt(token), so a
+ *   replica only answers once it has that change. Tokens are plain
+ *   longs and can be handed between processes (e.g. a servlet could keep
+ *   one per HTTP session).
+ * - Each write is sent together with GetTableVersion in one sequential
+ *   batch, so learning the token costs no extra round trip.
+ *
+ * Configured with system properties:
+ *   -Dvegetable.engine.host / .port   the primary, as for ComputeEngineClient
+ *   -Dvegetable.engine.replicas=host:port,host:port   [none: everything to the primary]
+ *
+ * DIARY: Day 6 - Added with read replicas.
+ */
+public class ReplicatedEngineClient {
+
+    public static final String REPLICAS_PROPERTY = "vegetable.engine.replicas";
+
+    private static final long DOWN_MILLIS = 3000; // skip an unreachable replica this long
+
+    // Shared instance configured from system properties
+    private static ReplicatedEngineClient shared;
+
+    private final ComputeEngineClient primary;
+    private final List<ComputeEngineClient> replicas;
+    private final AtomicLongArray downUntil;         // per replica, System.nanoTime() deadline
+    private final AtomicInteger next = new AtomicInteger();
+
+    // ── Counters ─────────────────────────────────────────────────────────────
+    private final LongAdder replicaReads  = new LongAdder();
+    private final LongAdder primaryReads  = new LongAdder();
+    private final LongAdder refusedReads  = new LongAdder(); // replica behind or syncing
+    private final LongAdder failedReads   = new LongAdder(); // replica unreachable
+    private final LongAdder writes        = new LongAdder();
+
+    /**
+     * @param primary  engine that takes writes
+     * @param replicas read replicas of it (may be empty)
+     */
+    public ReplicatedEngineClient(ComputeEngineClient primary, List<ComputeEngineClient> replicas) {
+        this.primary   = primary;
+        this.replicas  = Collections.unmodifiableList(new ArrayList<>(replicas));
+        this.downUntil = new AtomicLongArray(replicas.size());
+    }
+
+    /** Return the shared client, configured from system properties on first use. */
+    public static synchronized ReplicatedEngineClient getShared() {
+        if (shared == null) {
+            List<ComputeEngineClient> replicas = new ArrayList<>();
+            String list = System.getProperty(REPLICAS_PROPERTY, "").trim();
+            for (String address : list.isEmpty() ? new String[0] : list.split(",")) {
+                replicas.add(parse(address.trim()));
+            }
+            shared = new ReplicatedEngineClient(ComputeEngineClient.getShared(), replicas);
+        }
+        return shared;
+    }
+
+    private static ComputeEngineClient parse(String address) {
+        int colon = address.lastIndexOf(':');
+        String host = colon < 0 ? address : address.substring(0, colon);
+        int port = colon < 0 ? 1099 : Integer.parseInt(address.substring(colon + 1));
+        return new ComputeEngineClient(host, port, VegetableComputeEngine.REGISTRY_NAME);
+    }
+
+    /** Start a session with its own read-your-writes token. */
+    public Session newSession() {
+        return new Session(-1L);
+    }
+
+    /** Continue a session from a token handed over by another process. */
+    public Session resumeSession(long token) {
+        return new Session(token);
+    }
+
+    /** Run a task outside any session (reads may not see recent writes). */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(Task<T> task) throws RemoteException {
+        if (task instanceof ReadOnlyTask) return read(task, -1L);
+        return (T) write(task)[0];
+    }
+
+    // ── Routing ──────────────────────────────────────────────────────────────
+
+    private <T> T read(Task<T> task, long minVersion) throws RemoteException {
+        int n = replicas.size();
+        int first = n == 0 ? 0 : Math.floorMod(next.getAndIncrement(), n);
+        for (int k = 0; k < n; k++) {
+            int i = (first + k) % n;
+            if (System.nanoTime() - downUntil.get(i) < 0) continue;
+            try {
+                T result = replicas.get(i).executeAt(task, minVersion);
+                replicaReads.increment();
+                return result;
+            } catch (ReplicaUnavailableException | EngineOverloadedException e) {
+                refusedReads.increment();
+            } catch (ServerException | TaskTimeoutException e) {
+                throw e; // the replica ran the task; another node would do the same
+            } catch (RemoteException e) {
+                failedReads.increment(); // unreachable or not bound
+                downUntil.set(i, System.nanoTime() + DOWN_MILLIS * 1_000_000L);
+            }
+        }
+        primaryReads.increment();
+        return primary.executeAt(task, minVersion);
+    }
+
+    // Returns {result, version after the write}
+    private Object[] write(Task<?> task) throws RemoteException {
+        List<Task<?>> batch = Arrays.asList(task, new GetTableVersion());
+        List<TaskResult<Object>> results = primary.executeBatch(batch, false);
+        writes.increment();
+        TaskResult<Object> result = results.get(0);
+        if (!result.isSuccess()) {
+            Throwable error = result.getError();
+            if (error instanceof RemoteException) throw (RemoteException) error;
+            if (error instanceof RuntimeException) throw (RuntimeException) error;
+            throw new RemoteException("Task failed.", error);
+        }
+        TaskResult<Object> version = results.get(1);
+        return new Object[] { result.getValue(), version.isSuccess() ? version.getValue() : null };
+    }
+
+    // ── Stats ────────────────────────────────────────────────────────────────
+
+    public List<ComputeEngineClient> getReplicas() { return replicas; }
+    public ComputeEngineClient getPrimary()        { return primary; }
+
+    public String getStats() {
+        return String.format("REPLICATED CLIENT | replicas: %d | reads on replicas: %d | reads on primary: %d"
+                        + " | refused by replica: %d | replica unreachable: %d | writes: %d",
+                replicas.size(), replicaReads.sum(), primaryReads.sum(),
+                refusedReads.sum(), failedReads.sum(), writes.sum());
+    }
+
+    // ── Session ──────────────────────────────────────────────────────────────
+
+    /**
+     * A sequence of calls that must see its own writes. Thread-safe; the
+     * token only moves forward.
+     */
+    public final class Session {
+
+        private volatile long token; // newest version this session wrote, -1 if none
+
+        private Session(long token) {
+            this.token = token;
+        }
+
+        /** Send the task: writes to the primary, reads to a replica that has the session's writes. */
+        @SuppressWarnings("unchecked")
+        public <T> T execute(Task<T> task) throws RemoteException {
+            if (task instanceof ReadOnlyTask) return read(task, token);
+            Object[] outcome = write(task);
+            if (outcome[1] instanceof Long) observe((Long) outcome[1]);
+            return (T) outcome[0];
+        }
+
+        /** Newest version this session has written (pass to resumeSession elsewhere). */
+        public long getToken() {
+            return token;
+        }
+
+        /** Raise the token, e.g. with one received from another process. */
+        public synchronized void observe(long version) {
+            if (version > token) token = version;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package client;
+
+import common.ReadOnlyTask;
+import common.SkuHandles;
+import common.WireFormat;
+import server.SkuDictionary;
+import server.TaskMetrics;
+import server.VegetablePriceTable;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * ResolveSkus - looks up the int SKU handles of vegetable IDs, to send in
+ * later tasks (PriceBasket, CalculateCost, ScanItem) instead of the IDs.
+ * The engine then prices each line with two array reads instead of a
+ * hash lookup by String, and each line is 4 bytes on the wire.
+ *
+ * Handles are only valid on the engine that gave them out, until it
+ * restarts: a task with handles from elsewhere fails with
+ * StaleSkuHandlesException. Resolve and use them through one
+ * ComputeEngineClient (SkuHandleCache does this); a ReplicatedEngineClient
+ * spreads reads over several engines, so keep using IDs with it.
+ *
+ * DIARY: Day 6 - Created for int SKU handles.
+ */
+public class ResolveSkus implements ReadOnlyTask<SkuHandles>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String[] ids; // vegetables to resolve
+
+    /** @param ids vegetable IDs to resolve */
+    public ResolveSkus(String... ids) {
+        this.ids = ids;
+    }
+
+    /** For deserialization only. */
+    public ResolveSkus() { }
+
+    /**
+     * Execute: look up each ID's handle (the first call on an engine
+     * builds its prices by handle).
+     * @return handle per ID (NO_HANDLE where never in the table) and the epoch
+     */
+    @Override
+    public SkuHandles execute() {
+        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        SkuDictionary skus = table.getSkuDictionary();
+        table.handleSnapshot(skus.getEpoch()); // every ID in the table now has a handle
+        int[] handles = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) handles[i] = skus.handleOf(ids[i]);
+        return new SkuHandles(skus.getEpoch(), handles);
+    }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeInt(ids.length);
+        WireFormat.writeIds(out, ids, ids.length);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, ResolveSkus.class);
+        int n = WireFormat.readCount(in);
+        ids = WireFormat.readIds(in, n);
+        TaskMetrics.deserialized(ResolveSkus.class, start);
+    }
+}
@@ -0,0 +1,110 @@
+package client;
+
+import common.LaneTotals;
+import common.Task;
+import common.WireFormat;
+import server.LaneSessions;
+import server.TaskMetrics;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * ScanItem - adds one scanned item to an open lane session and returns
+ * the running totals. Only the one item travels; the engine prices it and
+ * adds it to the session's total.
+ *
+ * Scans are numbered 1, 2, 3... per session. Resending a scan with the
+ * same number (its answer was lost) returns the same totals without
+ * adding the item again.
+ *
+ * The item is a vegetable ID, or a SKU handle from ResolveSkus.
+ *
+ * DIARY: Day 6 - Created for lane sessions.
+ *        Day 6 - Items by SKU handle.
+ */
+public class ScanItem implements Task<LaneTotals>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long   sessionId;   // from OpenLaneSession
+    private int    seq;         // this scan's number in the session
+    private String vegetableId; // item scanned, or null when by handle
+    private int    handle;      // SKU handle of the item scanned
+    private long   epoch;       // engine epoch of the handle
+    private double quantityKg;  // weight on the scale
+
+    /**
+     * @param sessionId   session from OpenLaneSession
+     * @param seq         one more than the previous scan (or void) in this session
+     * @param vegetableId vegetable scanned
+     * @param quantityKg  quantity in kg
+     */
+    public ScanItem(long sessionId, int seq, String vegetableId, double quantityKg) {
+        this.sessionId   = sessionId;
+        this.seq         = seq;
+        this.vegetableId = vegetableId;
+        this.quantityKg  = quantityKg;
+    }
+
+    /**
+     * @param sessionId  session from OpenLaneSession
+     * @param seq        one more than the previous scan (or void) in this session
+     * @param epoch      engine epoch the handle was resolved in (SkuHandles.getEpoch())
+     * @param handle     SKU handle of the vegetable scanned
+     * @param quantityKg quantity in kg
+     */
+    public ScanItem(long sessionId, int seq, long epoch, int handle, double quantityKg) {
+        this.sessionId  = sessionId;
+        this.seq        = seq;
+        this.epoch      = epoch;
+        this.handle     = handle;
+        this.quantityKg = quantityKg;
+    }
+
+    /** For deserialization only. */
+    public ScanItem() { }
+
+    /**
+     * Execute: price the item and add it to the session.
+     * @return running totals, with the line just added
+     */
+    @Override
+    public LaneTotals execute() {
+        if (vegetableId == null) return LaneSessions.getInstance().scan(sessionId, seq, epoch, handle, quantityKg);
+        return LaneSessions.getInstance().scan(sessionId, seq, vegetableId, quantityKg);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeLong(sessionId);
+        out.writeInt(seq);
+        out.writeBoolean(vegetableId == null);
+        if (vegetableId == null) {
+            out.writeLong(epoch);
+            out.writeInt(handle);
+        } else {
+            WireFormat.writeString(out, vegetableId);
+        }
+        out.writeDouble(quantityKg);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, ScanItem.class);
+        sessionId   = in.readLong();
+        seq         = in.readInt();
+        if (in.readBoolean()) {
+            epoch  = in.readLong();
+            handle = in.readInt();
+        } else {
+            vegetableId = WireFormat.readId(in);
+        }
+        quantityKg  = in.readDouble();
+        TaskMetrics.deserialized(ScanItem.class, start);
+    }
+}
@@ -0,0 +1,41 @@
+package client;
+
+import common.ShardLayout;
+import common.Task;
+import server.ShardDirectory;
+
+/**
+ * SetShardOwnership - tells an engine which IDs it takes writes for from
+ * now on: those the layout's ring gives to it (see ShardDirectory). Sent
+ * by ShardedEngineClient.rebalance() to every shard before any row is
+ * copied, so no write lands on a row after it was copied away.
+ *
+ * DIARY: Day 6 - Created so writes cannot be lost during a rebalance.
+ */
+public class SetShardOwnership implements Task<Boolean> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final ShardLayout owned;
+    private final String      self;  // the engine's name in the layout
+
+    /**
+     * @param owned the ring the engine's writes are checked against
+     * @param self  name of the shard this task is sent to
+     */
+    public SetShardOwnership(ShardLayout owned, String self) {
+        this.owned = owned;
+        this.self  = self;
+    }
+
+    /**
+     * Execute: refuse writes to IDs another shard owns; returns once the
+     * writes already under way are in the table.
+     * @return true
+     */
+    @Override
+    public Boolean execute() {
+        ShardDirectory.getInstance().setOwnership(owned, self);
+        return Boolean.TRUE;
+    }
+}
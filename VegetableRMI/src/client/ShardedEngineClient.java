@@ -0,0 +1,513 @@
+package client;
+
+import common.BasketQuote;
+import common.ExportPage;
+import common.ImportResult;
+import common.PriceMutation;
+import common.ShardLayout;
+import common.ShardMovedException;
+import common.ShardRing;
+import common.Task;
+import common.VegetablePrice;
+import server.EngineLog;
+import server.PricingEngine;
+import server.ReceiptRenderer;
+import server.VegetableComputeEngine;
+
+import java.rmi.RemoteException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ShardedEngineClient - spreads the price table over several engines
+ * (shards) and routes every call to the shard that owns its IDs.
+ *
+ * - Ownership is decided by a ShardRing (consistent hashing on the
+ *   vegetable ID). Every engine is an ordinary VegetableComputeEngine
+ *   that simply holds its share of the table.
+ * - Single-ID calls (add, update, delete, cost of one line) go to the
+ *   owning shard.
+ * - A basket is split by owner and each part is priced (PriceBasket) on
+ *   its shard in parallel; the line totals are put back in basket order
+ *   and the receipt is rendered here. Each shard prices from its own
+ *   snapshot, so a basket is consistent per shard, not across shards.
+ * - addShard()/removeShard() move only the rows whose owner changes:
+ *   every shard is first told which IDs it owns under the new ring
+ *   (SetShardOwnership) and from then on refuses writes to the others;
+ *   each shard then sends just the moving rows, page by page in ID order
+ *   (ExportMovedPrices), they are upserted on their new owner, the new
+ *   ring is published to every shard (PublishShardLayout) and switched
+ *   to, and then, after two ring checks' time, they are deleted from the
+ *   old one.
+ * - Every client checks a shard for a newer layout (GetShardLayout) when
+ *   it routes a call and its last check is ringCheckMillis old: in the
+ *   background, or before routing if it is two checks old (the client
+ *   was idle through a possible rebalance). So other clients - including
+ *   ones started later with the old -Dvegetable.engine.shards - switch
+ *   to the new ring before the old copies are deleted, and reads find
+ *   every row throughout.
+ * - A write refused with ShardMovedException did not happen: the client
+ *   refreshes its ring and resends it to the new owner, waiting while
+ *   the rows are still being copied (at most moveWaitMillis). So no
+ *   write to a moving row is lost, though it waits for the copy.
+ * - Layouts live in the engines' memory: if every shard restarts, start
+ *   the clients with the new shard list.
+ *
+ * Configured with system properties (defaults in brackets):
+ *   -Dvegetable.engine.shards=host:port,host:port   [required for getShared()]
+ *   -Dvegetable.shard.virtualNodes=N               [128 ring points per shard]
+ *   -Dvegetable.shard.ringCheckMillis=N            [1000]
+ *   -Dvegetable.shard.moveWaitMillis=N             [60000]
+ *
+ * DIARY: Day 6 - For multi-market catalogs even a replicated table got
+ *        too big for one engine; the table is now split by ID.
+ *        Day 6 - Rebalances are published to the shards, so every client
+ *        follows them, not just the one that ran it.
+ *        Day 6 - Writes to moving rows are refused and resent instead
+ *        of lost; moving rows are paged by ID.
+ */
+public class ShardedEngineClient {
+
+    public static final String SHARDS_PROPERTY        = "vegetable.engine.shards";
+    public static final String VIRTUAL_NODES_PROPERTY = "vegetable.shard.virtualNodes";
+    public static final String RING_CHECK_PROPERTY    = "vegetable.shard.ringCheckMillis";
+    public static final String MOVE_WAIT_PROPERTY     = "vegetable.shard.moveWaitMillis";
+
+    private static final int MOVE_PAGE_SIZE = 50_000; // rows scanned / upserted per call
+
+    // Shared instance configured from system properties
+    private static ShardedEngineClient shared;
+
+    private volatile ShardRing ring;
+    private volatile long generation;     // of the ring's ShardLayout, 0 = from the shard list
+    private final Object ringLock = new Object(); // guards switching ring and generation together
+    private final Map<String, ComputeEngineClient> clients = new ConcurrentHashMap<>();
+
+    // ── Ring checks ──────────────────────────────────────────────────────────
+    private final long ringCheckNanos = Math.max(1L, Long.getLong(RING_CHECK_PROPERTY, 1000L)) * 1_000_000L;
+    private volatile long lastRingCheck;  // System.nanoTime() of the last check started
+    private final AtomicBoolean checking = new AtomicBoolean();
+    private int checks;                   // which shard to ask next (round robin)
+    private final long moveWaitNanos = Math.max(0L, Long.getLong(MOVE_WAIT_PROPERTY, 60_000L)) * 1_000_000L;
+
+    // ── Counters ─────────────────────────────────────────────────────────────
+    private final LongAdder baskets       = new LongAdder();
+    private final LongAdder shardRequests = new LongAdder(); // basket parts sent
+    private final LongAdder routedCalls   = new LongAdder(); // single-ID calls
+    private final LongAdder rowsMoved     = new LongAdder();
+    private final LongAdder rebalances    = new LongAdder();
+
+    /**
+     * @param shards       shard addresses ("host:port")
+     * @param virtualNodes ring points per shard
+     */
+    public ShardedEngineClient(List<String> shards, int virtualNodes) {
+        List<String> names = new ArrayList<>();
+        for (String address : shards) names.add(normalize(address));
+        this.ring = new ShardRing(names, virtualNodes);
+        this.lastRingCheck = System.nanoTime() - ringCheckNanos; // check on first use
+    }
+
+    /** Return the shared client, configured from system properties on first use. */
+    public static synchronized ShardedEngineClient getShared() {
+        if (shared == null) {
+            String list = System.getProperty(SHARDS_PROPERTY, "").trim();
+            if (list.isEmpty()) throw new IllegalStateException("-D" + SHARDS_PROPERTY + " is not set");
+            shared = new ShardedEngineClient(Arrays.asList(list.split(",")),
+                    Integer.getInteger(VIRTUAL_NODES_PROPERTY, 128));
+        }
+        return shared;
+    }
+
+    // ── Routing ──────────────────────────────────────────────────────────────
+
+    /** Engine connection for the shard that owns the ID. */
+    public ComputeEngineClient shardFor(String id) {
+        checkRing();
+        return client(ring.ownerNameOf(id));
+    }
+
+    /**
+     * Run a task on the shard that owns the ID it is about.
+     * @param id vegetable ID the task reads or changes
+     */
+    public <T> T executeFor(String id, Task<T> task) throws RemoteException {
+        routedCalls.increment();
+        long deadline = System.nanoTime() + moveWaitNanos;
+        while (true) {
+            try {
+                return shardFor(id).execute(task);
+            } catch (ShardMovedException e) {
+                // Not done: the row has moved, or a rebalance is still copying it
+                if (System.nanoTime() - deadline >= 0) throw e;
+                if (!refreshRing()) pause(ringCheckNanos);
+            }
+        }
+    }
+
+    public String add(VegetablePrice vp) throws RemoteException {
+        return executeFor(vp.getId(), new AddVegetablePrice(vp));
+    }
+
+    public String update(VegetablePrice vp) throws RemoteException {
+        return executeFor(vp.getId(), new UpdateVegetablePrice(vp));
+    }
+
+    public String delete(String id) throws RemoteException {
+        return executeFor(id, new DeleteVegetablePrice(id));
+    }
+
+    // ── Scatter / gather ─────────────────────────────────────────────────────
+
+    /**
+     * Price a basket whose lines may live on different shards. Each
+     * shard's lines are priced there, all shards in parallel.
+     * @return line and grand totals in cents, lines in basket order
+     */
+    public BasketQuote priceBasket(String[] ids, double[] quantities) throws RemoteException {
+        if (ids.length != quantities.length) {
+            throw new IllegalArgumentException("ids and quantities must have the same length");
+        }
+        baskets.increment();
+        checkRing();
+        ShardRing r = ring;
+
+        // Group line numbers by owning shard
+        int[] owner = new int[ids.length];
+        int[] linesPerShard = new int[r.size()];
+        for (int i = 0; i < ids.length; i++) {
+            owner[i] = r.ownerOf(ids[i]);
+            linesPerShard[owner[i]]++;
+        }
+        int[][] lines = new int[r.size()][];
+        for (int s = 0; s < lines.length; s++) lines[s] = new int[linesPerShard[s]];
+        int[] filled = new int[r.size()];
+        for (int i = 0; i < ids.length; i++) lines[owner[i]][filled[owner[i]]++] = i;
+
+        // Scatter: one PriceBasket per shard that has lines
+        List<CompletableFuture<BasketQuote>> parts = new ArrayList<>(r.size());
+        for (int s = 0; s < lines.length; s++) {
+            if (lines[s].length == 0) {
+                parts.add(null);
+                continue;
+            }
+            String[] partIds = new String[lines[s].length];
+            double[] partQty = new double[lines[s].length];
+            for (int k = 0; k < partIds.length; k++) {
+                partIds[k] = ids[lines[s][k]];
+                partQty[k] = quantities[lines[s][k]];
+            }
+            parts.add(client(r.getShards().get(s)).executeAsync(new PriceBasket(partIds, partQty)));
+            shardRequests.increment();
+        }
+
+        // Gather: copy each part's lines back to their basket position
+        BasketQuote quote = new BasketQuote();
+        quote.reset(ids, quantities);
+        for (int s = 0; s < lines.length; s++) {
+            if (parts.get(s) == null) continue;
+            BasketQuote part = join(parts.get(s));
+            for (int k = 0; k < lines[s].length; k++) {
+                int i = lines[s][k];
+                if (part.isFound(k)) {
+                    quote.setLine(i, part.getEntry(k), part.getUnitCents(k), part.getLineCents(k));
+                } else {
+                    quote.setMissing(i);
+                }
+            }
+        }
+        return quote;
+    }
+
+    /**
+     * Sharded equivalent of CalculateCost: prices the basket across the
+     * shards and renders the same receipt.
+     */
+    public String calculateCost(Map<String, Double> items, double amountGiven, String cashierName)
+            throws RemoteException {
+        String[] ids = new String[items.size()];
+        double[] quantities = new double[items.size()];
+        int i = 0;
+        for (Map.Entry<String, Double> entry : items.entrySet()) {
+            ids[i] = entry.getKey();
+            quantities[i] = entry.getValue();
+            i++;
+        }
+        return ReceiptRenderer.renderReceipt(priceBasket(ids, quantities),
+                PricingEngine.toCents(amountGiven), cashierName, LocalDateTime.now());
+    }
+
+    // ── Rebalancing ──────────────────────────────────────────────────────────
+
+    /**
+     * Add a shard and move to it the rows it now owns.
+     * @return number of rows moved
+     */
+    public int addShard(String address) throws RemoteException {
+        return rebalance(ring.withShard(normalize(address)));
+    }
+
+    /**
+     * Move a shard's rows to the remaining shards and stop using it.
+     * @return number of rows moved
+     */
+    public int removeShard(String address) throws RemoteException {
+        ShardRing current = ring;
+        if (current.size() == 1) throw new IllegalStateException("Cannot remove the last shard");
+        return rebalance(current.withoutShard(normalize(address)));
+    }
+
+    /**
+     * Switch to a new ring, moving only the rows whose owner changes.
+     * Blocks for about two ringCheckMillis between publishing the ring
+     * and deleting the moved rows, so other clients switch first.
+     * @return number of rows moved
+     */
+    public synchronized int rebalance(ShardRing next) throws RemoteException {
+        ShardRing previous = ring;
+        if (next.getShards().equals(previous.getShards())
+                && next.getVirtualNodes() == previous.getVirtualNodes()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        ShardLayout layout = new ShardLayout(generation + 1, next);
+        List<String> shards = shardsOf(previous, next);
+
+        // 1. Every shard refuses writes to the IDs it will not own, so none lands after its copy
+        setOwnership(layout, shards);
+
+        // 2. Copy every moving row to its new owner (the old copies stay readable)
+        Map<String, List<String>> movedFrom = new LinkedHashMap<>();
+        int moved = 0;
+        try {
+            for (String source : previous.getShards()) {
+                List<String> ids = new ArrayList<>();
+                String after = "";
+                while (true) {
+                    ExportPage page = client(source).execute(new ExportMovedPrices(next, source, after, MOVE_PAGE_SIZE));
+                    copyToOwners(next, page);
+                    for (int i = 0; i < page.size(); i++) ids.add(page.getId(i));
+                    if (page.isLast()) break;
+                    after = page.getLastId();
+                }
+                movedFrom.put(source, ids);
+                moved += ids.size();
+            }
+        } catch (RemoteException | RuntimeException e) {
+            // Nothing has switched: take writes under the old ring again
+            try {
+                setOwnership(new ShardLayout(generation, previous), shards);
+            } catch (RemoteException | RuntimeException again) {
+                e.addSuppressed(again);
+            }
+            throw e;
+        }
+
+        // 3. Route to the new owners from now on, here and, once they check, in every other client
+        publish(layout, shards);
+        adopt(layout);
+        awaitRingChecks();
+
+        // 4. Remove the moved rows from where they were
+        for (Map.Entry<String, List<String>> e : movedFrom.entrySet()) {
+            List<String> ids = e.getValue();
+            for (int from = 0; from < ids.size(); from += MOVE_PAGE_SIZE) {
+                String[] chunk = ids.subList(from, Math.min(ids.size(), from + MOVE_PAGE_SIZE)).toArray(new String[0]);
+                client(e.getKey()).execute(new DeletePrices(chunk, chunk.length));
+            }
+        }
+        for (String gone : previous.getShards()) {
+            if (!next.getShards().contains(gone)) clients.remove(gone);
+        }
+
+        rowsMoved.add(moved);
+        rebalances.increment();
+        EngineLog.info("shards.rebalanced", "from", previous.getShards(), "to", next.getShards(),
+                "generation", layout.getGeneration(), "rowsMoved", moved,
+                "ms", (System.nanoTime() - start) / 1_000_000);
+        return moved;
+    }
+
+    // Every shard of both rings
+    private static List<String> shardsOf(ShardRing previous, ShardRing next) {
+        List<String> shards = new ArrayList<>(next.getShards());
+        for (String shard : previous.getShards()) {
+            if (!shards.contains(shard)) shards.add(shard);
+        }
+        return shards;
+    }
+
+    // Tell each shard which IDs it takes writes for under the layout's ring
+    private void setOwnership(ShardLayout owned, List<String> shards) throws RemoteException {
+        List<CompletableFuture<Boolean>> sent = new ArrayList<>(shards.size());
+        for (String shard : shards) sent.add(client(shard).executeAsync(new SetShardOwnership(owned, shard)));
+        for (CompletableFuture<Boolean> s : sent) join(s);
+    }
+
+    // Send the layout to every shard of both rings, so any of them can tell a client
+    private void publish(ShardLayout layout, List<String> shards) throws RemoteException {
+        List<CompletableFuture<Boolean>> sent = new ArrayList<>(shards.size());
+        for (String shard : shards) sent.add(client(shard).executeAsync(new PublishShardLayout(layout)));
+        for (CompletableFuture<Boolean> s : sent) join(s);
+    }
+
+    // Give the other clients two checks to pick up the new ring before its rows move away
+    private void awaitRingChecks() throws RemoteException {
+        try {
+            Thread.sleep(2 * ringCheckNanos / 1_000_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted before removing moved rows; the new ring is already in use.");
+        }
+    }
+
+    // Wait before resending a write refused while its row is being moved
+    private static void pause(long nanos) throws RemoteException {
+        try {
+            Thread.sleep(nanos / 1_000_000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while waiting for a moving row's new owner.");
+        }
+    }
+
+    /**
+     * Ask the shards for a newer ring now, and switch to it if there is one.
+     * Normally done in the background every ringCheckMillis.
+     * @return true if the ring changed
+     */
+    public boolean refreshRing() throws RemoteException {
+        RemoteException last = null;
+        for (String shard : ring.getShards()) {
+            try {
+                return adopt(client(shard).execute(new GetShardLayout()));
+            } catch (RemoteException e) {
+                last = e; // that shard is down or gone; ask the next
+            }
+        }
+        throw last;
+    }
+
+    // Check one shard for a newer ring if the last check is ringCheckMillis old: in the
+    // background, or first if it is two checks old, as rows may have moved away meanwhile
+    private void checkRing() {
+        long idle = System.nanoTime() - lastRingCheck;
+        if (idle < ringCheckNanos) return;
+        if (idle >= 2 * ringCheckNanos) {
+            lastRingCheck = System.nanoTime();
+            try {
+                refreshRing();
+            } catch (RemoteException e) {
+                EngineLog.warn("shards.ringCheckFailed", "error", e); // keep the ring we have
+            }
+            return;
+        }
+        if (!checking.compareAndSet(false, true)) return;
+        lastRingCheck = System.nanoTime();
+        List<String> shards = ring.getShards();
+        String shard = shards.get(Math.floorMod(checks++, shards.size()));
+        client(shard).executeAsync(new GetShardLayout()).whenComplete((layout, error) -> {
+            try {
+                if (error == null) adopt(layout);
+            } finally {
+                checking.set(false);
+            }
+        });
+    }
+
+    // Switch to the layout if it is newer than the ring in use
+    private boolean adopt(ShardLayout layout) {
+        if (layout == null) return false;
+        ShardRing next = layout.toRing();
+        ShardRing previous;
+        synchronized (ringLock) {
+            if (layout.getGeneration() <= generation) return false;
+            previous = ring;
+            ring = next;
+            generation = layout.getGeneration();
+        }
+        EngineLog.info("shards.ringChanged", "from", previous.getShards(), "to", next.getShards(),
+                "generation", layout.getGeneration());
+        return true;
+    }
+
+    // Upsert a page of moving rows on their owners under the new ring
+    private void copyToOwners(ShardRing next, ExportPage page) throws RemoteException {
+        int n = page.size();
+        if (n == 0) return;
+        int[] owner = new int[n];
+        int[] count = new int[next.size()];
+        for (int i = 0; i < n; i++) {
+            owner[i] = next.ownerOf(page.getId(i));
+            count[owner[i]]++;
+        }
+        List<CompletableFuture<ImportResult>> writes = new ArrayList<>();
+        for (int s = 0; s < count.length; s++) {
+            if (count[s] == 0) continue;
+            String[] ids = new String[count[s]];
+            String[] names = new String[count[s]];
+            double[] prices = new double[count[s]];
+            int k = 0;
+            for (int i = 0; i < n; i++) {
+                if (owner[i] != s) continue;
+                ids[k] = page.getId(i);
+                names[k] = page.getName(i);
+                prices[k] = page.getPrice(i);
+                k++;
+            }
+            writes.add(client(next.getShards().get(s))
+                    .executeAsync(new ImportPrices(PriceMutation.Op.UPSERT, ids, names, prices, k)));
+        }
+        for (CompletableFuture<ImportResult> write : writes) join(write);
+    }
+
+    // ── Internals ────────────────────────────────────────────────────────────
+
+    private ComputeEngineClient client(String name) {
+        return clients.computeIfAbsent(name, address -> {
+            int colon = address.lastIndexOf(':');
+            return new ComputeEngineClient(address.substring(0, colon),
+                    Integer.parseInt(address.substring(colon + 1)), VegetableComputeEngine.REGISTRY_NAME);
+        });
+    }
+
+    // "host" or "host:port" -> "host:port"
+    private static String normalize(String address) {
+        String a = address.trim();
+        return a.lastIndexOf(':') < 0 ? a + ":1099" : a;
+    }
+
+    // Wait for a call made with executeAsync and rethrow its failure as execute() would
+    private static <T> T join(CompletableFuture<T> future) throws RemoteException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RemoteException) throw (RemoteException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RemoteException("Shard call failed.", cause);
+        }
+    }
+
+    // ── Stats ────────────────────────────────────────────────────────────────
+
+    public ShardRing getRing() { return ring; }
+
+    public String getStats() {
+        long b = baskets.sum();
+        return String.format("SHARDS      | shards: %s | baskets: %d | shards per basket: %.2f"
+                        + " | single-ID calls: %d | rebalances: %d | rows moved: %d",
+                ring.getShards(), b, b == 0 ? 0.0 : (double) shardRequests.sum() / b,
+                routedCalls.sum(), rebalances.sum(), rowsMoved.sum());
+    }
+}
@@ -0,0 +1,145 @@
+package client;
+
+import common.BasketQuote;
+import common.SkuHandles;
+import common.StaleSkuHandlesException;
+import common.Task;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * SkuHandleCache - remembers the SKU handle of each vegetable ID on one
+ * engine, so baskets can be sent by handle (4 bytes a line, priced by
+ * array index) without resolving the IDs every time.
+ *
+ * - Handles never change while the engine runs, so cached handles need
+ *   no version checks, unlike cached prices (PriceCache).
+ * - All of a basket's unknown IDs are resolved in one ResolveSkus call.
+ *   IDs the engine has never had are not cached; they are asked about
+ *   again next time, in case they have been added since.
+ * - If the engine restarted (or the client now points at another engine)
+ *   the task fails with StaleSkuHandlesException: the cache is cleared,
+ *   the IDs resolved again and the task resent once.
+ *
+ * Usage:
+ *     SkuHandleCache skus = new SkuHandleCache(client);
+ *     BasketQuote quote = skus.priceBasket(ids, quantities);
+ *     String receipt = skus.execute(ids, h -> new CalculateCost(h.getEpoch(),
+ *             h.getHandles(), quantities, 500.0, "Alice"));
+ *
+ * DIARY: Day 6 - Created for int SKU handles.
+ */
+public class SkuHandleCache {
+
+    private final ComputeEngineClient client;
+
+    private final Map<String, Integer> handles = new ConcurrentHashMap<>();
+    private volatile long epoch; // epoch of the cached handles, 0 before the first resolve
+
+    // ── Counters ─────────────────────────────────────────────────────────────
+    private final LongAdder hits     = new LongAdder();
+    private final LongAdder misses   = new LongAdder();
+    private final LongAdder resolves = new LongAdder(); // ResolveSkus calls
+    private final LongAdder stale    = new LongAdder(); // StaleSkuHandlesException retries
+
+    /** @param client connection to the one engine the handles are used on */
+    public SkuHandleCache(ComputeEngineClient client) {
+        this.client = client;
+    }
+
+    /**
+     * The handles of several IDs, from the cache where known; the rest
+     * are resolved in one call.
+     * @return handle per ID (NO_HANDLE where the engine never had it)
+     */
+    public SkuHandles resolve(String... ids) throws RemoteException {
+        long known = epoch;
+        int[] result = new int[ids.length];
+        List<Integer> missing = null;
+        for (int i = 0; i < ids.length; i++) {
+            Integer h = handles.get(ids[i]);
+            if (h != null) {
+                result[i] = h;
+                hits.increment();
+                continue;
+            }
+            misses.increment();
+            if (missing == null) missing = new ArrayList<>();
+            missing.add(i);
+        }
+        if (missing == null) return new SkuHandles(known, result);
+
+        String[] fetch = new String[missing.size()];
+        for (int m = 0; m < fetch.length; m++) fetch[m] = ids[missing.get(m)];
+        SkuHandles fetched = client.execute(new ResolveSkus(fetch));
+        resolves.increment();
+        if (fetched.getEpoch() != known) {
+            // Another engine (or a restart): what is cached is from the old one
+            synchronized (this) {
+                if (epoch != fetched.getEpoch()) {
+                    handles.clear();
+                    epoch = fetched.getEpoch();
+                }
+            }
+            if (missing.size() < ids.length) return resolveAll(ids);
+        }
+        for (int m = 0; m < fetch.length; m++) {
+            int h = fetched.getHandle(m);
+            result[missing.get(m)] = h;
+            if (h != SkuHandles.NO_HANDLE) handles.put(fetch[m], h);
+        }
+        return new SkuHandles(fetched.getEpoch(), result);
+    }
+
+    // Resolve every ID afresh and cache them
+    private SkuHandles resolveAll(String[] ids) throws RemoteException {
+        SkuHandles fetched = client.execute(new ResolveSkus(ids));
+        resolves.increment();
+        if (fetched.getEpoch() == epoch) {
+            for (int i = 0; i < ids.length; i++) {
+                if (fetched.getHandle(i) != SkuHandles.NO_HANDLE) handles.put(ids[i], fetched.getHandle(i));
+            }
+        }
+        return fetched;
+    }
+
+    /**
+     * Resolve the IDs and run the task built from their handles; if the
+     * engine refuses them as stale, resolve again and run it once more.
+     * @param task builds the task from the handles, in the order of ids
+     */
+    public <T> T execute(String[] ids, Function<SkuHandles, Task<T>> task) throws RemoteException {
+        try {
+            return client.execute(task.apply(resolve(ids)));
+        } catch (StaleSkuHandlesException e) {
+            stale.increment();
+            invalidateAll();
+            return client.execute(task.apply(resolve(ids)));
+        }
+    }
+
+    /** Price a basket on the engine by handle (PriceBasket). */
+    public BasketQuote priceBasket(String[] ids, double[] quantities) throws RemoteException {
+        return execute(ids, h -> new PriceBasket(h.getEpoch(), h.getHandles(), quantities));
+    }
+
+    /** Forget every cached handle (they are resolved again on next use). */
+    public synchronized void invalidateAll() {
+        handles.clear();
+        epoch = 0L;
+    }
+
+    // ── Stats ────────────────────────────────────────────────────────────────
+
+    public String getStats() {
+        long h = hits.sum(), m = misses.sum();
+        return String.format("SKU CACHE   | handles: %d | hit rate: %.1f%% (%d/%d) | resolves: %d | stale: %d%n",
+                handles.size(), h + m == 0 ? 0.0 : 100.0 * h / (h + m), h, h + m, resolves.sum(), stale.sum());
+    }
+}
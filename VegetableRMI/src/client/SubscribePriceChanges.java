@@ -0,0 +1,41 @@
+package client;
+
+import common.PriceChangeListener;
+import common.Task;
+import server.VegetablePriceTable;
+
+/**
+ * SubscribePriceChanges - registers a remote PriceChangeListener with the
+ * engine's price change feed. The listener must already be exported
+ * (e.g. with UnicastRemoteObject.exportObject) so that RMI sends its
+ * stub; the engine then calls it back with each batch of changes.
+ *
+ * Usually used through PriceFeedSubscriber rather than directly.
+ *
+ * DIARY: Day 6 - Created for the price change feed.
+ */
+public class SubscribePriceChanges implements Task<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final PriceChangeListener listener; // callback stub
+    private final long fromVersion;             // last version the caller has, or -1
+
+    /**
+     * @param listener    exported callback to send batches to
+     * @param fromVersion last table version the caller already has, or -1 for "from now"
+     */
+    public SubscribePriceChanges(PriceChangeListener listener, long fromVersion) {
+        this.listener    = listener;
+        this.fromVersion = fromVersion;
+    }
+
+    /**
+     * Execute: add (or replace) the subscription on the server.
+     * @return version the feed continues from
+     */
+    @Override
+    public Long execute() {
+        return VegetablePriceTable.getInstance().getFeed().subscribe(listener, fromVersion);
+    }
+}
@@ -0,0 +1,146 @@
+package client;
+
+import common.Task;
+import common.TaskResult;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TaskAutoBatcher - coalesces tasks submitted within a short window
+ * into a single Compute.executeBatch() call.
+ *
+ * - submit() returns immediately with a CompletableFuture.
+ * - The first task of a batch starts the window timer; the batch is sent
+ *   when the window ends or when maxBatchSize tasks are waiting.
+ * - Batches are sent one at a time from a single thread, so tasks reach
+ *   the engine in the order they were submitted.
+ *
+ * DIARY: Day 5 - Pricing a 40-item basket line by line cost 40 round
+ *        trips. With the batcher the checkout code can keep calling
+ *        submit() per line and still pay for roughly one round trip.
+ */
+public class TaskAutoBatcher implements AutoCloseable {
+
+    private final ComputeEngineClient client;
+    private final long    windowMillis; // how long to wait for more tasks
+    private final int     maxBatchSize; // send early once this many are waiting
+    private final boolean parallel;     // let the server run a batch concurrently
+
+    // Tasks waiting for the next flush (guarded by this)
+    private List<Pending<?>> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "task-auto-batcher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param client       engine connection to send batches through
+     * @param windowMillis how long to collect tasks before sending
+     * @param maxBatchSize maximum tasks per remote call
+     * @param parallel     true if submitted tasks are independent and may run concurrently
+     */
+    public TaskAutoBatcher(ComputeEngineClient client, long windowMillis, int maxBatchSize, boolean parallel) {
+        this.client       = client;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.parallel     = parallel;
+    }
+
+    /** Batcher with a 2 ms window and sequential execution on the server. */
+    public TaskAutoBatcher(ComputeEngineClient client) {
+        this(client, 2, 64, false);
+    }
+
+    /**
+     * Queue a task for the next batch.
+     * @return future completed with the task result, or exceptionally with
+     *         the task's exception or the RemoteException of the batch call
+     */
+    public synchronized <T> CompletableFuture<T> submit(Task<T> task) {
+        Pending<T> p = new Pending<>(task);
+        pending.add(p);
+        if (pending.size() >= maxBatchSize) {
+            cancelScheduledFlush();
+            flusher.execute(this::flush);
+        } else if (scheduledFlush == null) {
+            scheduledFlush = flusher.schedule(this::flush, windowMillis, TimeUnit.MILLISECONDS);
+        }
+        return p.future;
+    }
+
+    /** Send whatever is waiting, then stop the flusher thread. */
+    @Override
+    public void close() {
+        flusher.execute(this::flush);
+        flusher.shutdown();
+    }
+
+    // ── Flushing (runs on the flusher thread only) ───────────────────────────
+
+    private void flush() {
+        List<Pending<?>> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) return;
+            if (pending.size() <= maxBatchSize) {
+                batch = pending;
+                pending = new ArrayList<>();
+                cancelScheduledFlush();
+            } else {
+                // Send a full batch now and leave the rest for the next flush
+                List<Pending<?>> head = pending.subList(0, maxBatchSize);
+                batch = new ArrayList<>(head);
+                head.clear();
+                flusher.execute(this::flush);
+            }
+        }
+
+        List<Task<?>> tasks = new ArrayList<>(batch.size());
+        for (Pending<?> p : batch) tasks.add(p.task);
+
+        try {
+            List<TaskResult<Object>> results = client.executeBatch(tasks, parallel);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).complete(results.get(i));
+            }
+        } catch (RemoteException | RuntimeException e) {
+            for (Pending<?> p : batch) p.future.completeExceptionally(e);
+        }
+    }
+
+    // Must be called while holding this
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+
+    // A submitted task and the future its caller is waiting on
+    private static final class Pending<T> {
+        final Task<T> task;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Pending(Task<T> task) {
+            this.task = task;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(TaskResult<Object> result) {
+            if (result.isSuccess()) {
+                future.complete((T) result.getValue());
+            } else {
+                future.completeExceptionally(result.getError());
+            }
+        }
+    }
+}
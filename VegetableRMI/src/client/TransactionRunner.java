@@ -0,0 +1,125 @@
+package client;
+
+import common.PriceLookup;
+import common.PriceMutation;
+import common.TransactionResult;
+import common.VegetablePrice;
+
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TransactionRunner - read, change, commit; and again if someone else
+ * changed the same vegetables in between (optimistic concurrency).
+ *
+ * run() reads the given IDs with their version stamps (LookupPrices),
+ * asks the Body which changes to make, and sends them as one
+ * PriceTransaction that only commits if none of those entries changed
+ * since they were read. On a CONFLICT it waits a short random time
+ * (doubling each attempt) and starts over with fresh prices, up to
+ * -Dvegetable.txn.maxAttempts times (5 by default).
+ *
+ * Usage - raise every listed price by 10%:
+ *     new TransactionRunner(client).run(ids, current -> {
+ *         List<PriceMutation> changes = new ArrayList<>();
+ *         for (int i = 0; i < current.size(); i++) {
+ *             VegetablePrice vp = current.getPrice(i);
+ *             if (vp != null) changes.add(PriceMutation.update(
+ *                     new VegetablePrice(vp.getId(), vp.getName(), vp.getPricePerKg() * 1.1)));
+ *         }
+ *         return changes;
+ *     });
+ *
+ * DIARY: Day 6 - Created with PriceTransaction for category repricing.
+ */
+public class TransactionRunner {
+
+    public static final String MAX_ATTEMPTS_PROPERTY = "vegetable.txn.maxAttempts";
+
+    private static final long MAX_BACKOFF_MILLIS = 200;
+
+    /** Decides the changes to make from the current prices. */
+    @FunctionalInterface
+    public interface Body {
+        /**
+         * @param current prices of the IDs passed to run(), in that order
+         *                (null where absent); may be called several times
+         * @return changes to apply together; empty for none
+         */
+        List<PriceMutation> changes(PriceLookup current);
+    }
+
+    private final ComputeEngineClient client;
+    private final int maxAttempts = Math.max(1, Integer.getInteger(MAX_ATTEMPTS_PROPERTY, 5));
+
+    // ── Counters ─────────────────────────────────────────────────────────────
+    private final LongAdder commits   = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder failures  = new LongAdder(); // rejected, or out of attempts
+
+    public TransactionRunner(ComputeEngineClient client) {
+        this.client = client;
+    }
+
+    /**
+     * Read the IDs, apply the Body's changes atomically, retrying on conflict.
+     * A change to an ID not in ids is applied without a stamp check.
+     * @return the committed result, or the last failure (REJECTED, or
+     *         CONFLICT if every attempt conflicted)
+     */
+    public TransactionResult run(String[] ids, Body body) throws RemoteException {
+        TransactionResult result = null;
+        for (int attempt = 0; attempt < maxAttempts; attempt++) {
+            if (attempt > 0) backoff(attempt);
+            PriceLookup current = client.execute(new LookupPrices(ids));
+            List<PriceMutation> changes = body.changes(current);
+            if (changes.isEmpty()) {
+                commits.increment();
+                return TransactionResult.committed(new VegetablePrice[0], current.getVersion());
+            }
+            result = client.execute(new PriceTransaction(changes, expectedStamps(ids, current, changes)));
+            if (result.isCommitted()) {
+                commits.increment();
+                return result;
+            }
+            if (!result.isConflict()) break; // retrying cannot help
+            conflicts.increment();
+        }
+        failures.increment();
+        return result;
+    }
+
+    // The stamp each changed ID was read at, or ANY_STAMP if it was not read
+    private static long[] expectedStamps(String[] ids, PriceLookup current, List<PriceMutation> changes) {
+        Map<String, Long> readAt = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) readAt.putIfAbsent(ids[i], current.getStamp(i));
+        long[] stamps = new long[changes.size()];
+        Arrays.fill(stamps, PriceTransaction.ANY_STAMP);
+        for (int c = 0; c < stamps.length; c++) {
+            Long stamp = readAt.get(changes.get(c).getId());
+            if (stamp != null) stamps[c] = stamp;
+        }
+        return stamps;
+    }
+
+    // Random wait up to 2^attempt ms (capped), so conflicting writers spread out
+    private static void backoff(int attempt) throws RemoteException {
+        long bound = Math.min(MAX_BACKOFF_MILLIS, 1L << Math.min(attempt, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while retrying a price transaction", e);
+        }
+    }
+
+    public String getStats() {
+        return String.format("TRANSACTIONS | committed: %d | conflicts (retried): %d | failed: %d%n",
+                commits.sum(), conflicts.sum(), failures.sum());
+    }
+}
@@ -0,0 +1,31 @@
+package client;
+
+import common.PriceChangeListener;
+import common.Task;
+import server.VegetablePriceTable;
+
+/**
+ * UnsubscribePriceChanges - removes a listener from the price change feed.
+ *
+ * DIARY: Day 6 - Created for the price change feed.
+ */
+public class UnsubscribePriceChanges implements Task<Boolean> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final PriceChangeListener listener; // callback stub to remove
+
+    /** @param listener the callback passed to SubscribePriceChanges */
+    public UnsubscribePriceChanges(PriceChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Execute: drop the subscription on the server.
+     * @return false if the listener was not subscribed
+     */
+    @Override
+    public Boolean execute() {
+        return VegetablePriceTable.getInstance().getFeed().unsubscribe(listener);
+    }
+}
@@ -1,9 +1,19 @@
 package client;
 
-import common.Task;
+import common.IdempotentTask;
+import common.PriceMutation;
+import common.TransactionResult;
 import common.VegetablePrice;
+import common.WireFormat;
+import server.TaskMetrics;
 import server.VegetablePriceTable;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Collections;
+
 /**
  * UpdateVegetablePrice - Task 2.
  * Updates an existing vegetable-price entity in the price table.
@@ -12,44 +22,74 @@ import server.VegetablePriceTable;
  *        The task carries the updated VegetablePrice object.
  *        execute() calls VegetablePriceTable.update() which replaces
  *        the existing entry if the ID is found.
+ *        Day 6 - Externalizable: the vegetable is written inline.
+ *        Day 6 - Find and update were two steps, so a concurrent update
+ *        could slip in between and OLD showed the wrong row. Now one
+ *        applyTransaction() call returns the row it replaced.
+ *        Day 6 - Carries a request ID, so a late retry cannot
+ *        overwrite a newer price (see RequestDedup).
  */
-public class UpdateVegetablePrice implements Task<String> {
+public class UpdateVegetablePrice implements IdempotentTask<String>, Externalizable {
 
     private static final long serialVersionUID = 1L;
 
-    private final VegetablePrice updatedVegetable; // updated data
+    private VegetablePrice updatedVegetable; // updated data
+    private String requestId; // same on every retry of this request (see RequestDedup)
 
     /**
      * @param updatedVegetable the vegetable with updated fields (ID must exist)
+     * @param requestId same on every retry; null to not deduplicate
      */
-    public UpdateVegetablePrice(VegetablePrice updatedVegetable) {
+    public UpdateVegetablePrice(VegetablePrice updatedVegetable, String requestId) {
         this.updatedVegetable = updatedVegetable;
+        this.requestId = requestId;
     }
 
+    /** With a new random request ID, so resending this same object is safe. */
+    public UpdateVegetablePrice(VegetablePrice updatedVegetable) {
+        this(updatedVegetable, IdempotentTask.newRequestId());
+    }
+
+    /** For deserialization only. */
+    public UpdateVegetablePrice() { }
+
     /**
      * Execute: replace the existing entry with the updated vegetable.
      * @return success or failure message
      */
     @Override
     public String execute() {
-        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        // One atomic step, so OLD is exactly the row this update replaced
+        TransactionResult result = VegetablePriceTable.getInstance().applyTransaction(
+                Collections.singletonList(PriceMutation.update(updatedVegetable)), null);
 
-        // Check if vegetable exists before updating
-        VegetablePrice existing = table.find(updatedVegetable.getId());
-        if (existing == null) {
+        if (!result.isCommitted()) {
             return "FAILED: No vegetable found with ID '" + updatedVegetable.getId()
                     + "'. Use Add instead.";
         }
+        return "SUCCESS: Updated vegetable.\n"
+                + "  OLD: " + result.getPrevious(0).toString() + "\n"
+                + "  NEW: " + updatedVegetable.toString();
+    }
 
-        String oldDetails = existing.toString();
-        boolean updated = table.update(updatedVegetable);
+    @Override
+    public String getRequestId() {
+        return requestId;
+    }
 
-        if (updated) {
-            return "SUCCESS: Updated vegetable.\n"
-                    + "  OLD: " + oldDetails + "\n"
-                    + "  NEW: " + updatedVegetable.toString();
-        } else {
-            return "FAILED: Update operation failed for ID '" + updatedVegetable.getId() + "'.";
-        }
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        WireFormat.writePrice(out, updatedVegetable);
+        WireFormat.writeString(out, requestId);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, UpdateVegetablePrice.class);
+        updatedVegetable = WireFormat.readPrice(in);
+        requestId = WireFormat.readString(in);
+        TaskMetrics.deserialized(UpdateVegetablePrice.class, start);
     }
 }
@@ -1,17 +1,17 @@
 package client;
 
-import common.Compute;
+import common.BasketQuote;
 import common.Task;
 import common.VegetablePrice;
-import server.VegetableComputeEngine;
 
-import java.rmi.NotBoundException;
 import java.rmi.RemoteException;
-import java.rmi.registry.LocateRegistry;
-import java.rmi.registry.Registry;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * VegetableComputeTaskRegistry - the RMI client.
@@ -25,20 +25,25 @@ import java.util.Scanner;
  *        registry.lookup(name) returns the remote stub.
  *        We cast the stub to Compute and call executeTask().
  *        Added a simple menu so all 5 tasks can be tested interactively.
+ *        Day 5 - Connection now goes through the shared ComputeEngineClient,
+ *        so host/port come from -Dvegetable.engine.host / .port and a
+ *        restarted server is picked up again automatically.
+ *        Day 6 - Added a menu entry for the client-side PriceCache.
  */
 public class VegetableComputeTaskRegistry {
 
-    private static Compute engine; // remote stub
+    private static ComputeEngineClient engine; // cached remote stub
 
     public static void main(String[] args) {
         System.out.println("=== Vegetable Service Engine - Client ===");
 
         // ── Step 1: Connect to RMI registry ──────────────────────────────────
+        engine = ComputeEngineClient.getShared();
         try {
-            Registry registry = LocateRegistry.getRegistry("localhost", 1099);
-            engine = (Compute) registry.lookup(VegetableComputeEngine.REGISTRY_NAME);
-            System.out.println("[Client] Connected to VegetableComputeEngine on localhost:1099\n");
-        } catch (RemoteException | NotBoundException e) {
+            engine.getEngine();
+            System.out.println("[Client] Connected to VegetableComputeEngine on "
+                    + engine.getHost() + ":" + engine.getPort() + "\n");
+        } catch (RemoteException e) {
             System.err.println("[Client] Could not connect to server: " + e.getMessage());
             System.err.println("[Client] Make sure VegetableComputeEngine.main() is running first.");
             return;
@@ -56,6 +61,9 @@ public class VegetableComputeTaskRegistry {
             System.out.println("4. Calculate vegetable cost");
             System.out.println("5. Print receipt");
             System.out.println("6. Run all demo tasks automatically");
+            System.out.println("7. Price a basket line by line (auto-batched)");
+            System.out.println("8. Show engine metrics");
+            System.out.println("9. Price a basket from the client price cache");
             System.out.println("0. Exit");
             System.out.print("Choose: ");
 
@@ -68,6 +76,9 @@ public class VegetableComputeTaskRegistry {
                 case "4" -> runCalCostTask(sc);
                 case "5" -> runReceiptTask(sc);
                 case "6" -> runAllDemoTasks();
+                case "7" -> runBatchedCostDemo();
+                case "8" -> runTask(new GetEngineMetrics());
+                case "9" -> runCachedBasketDemo();
                 case "0" -> running = false;
                 default  -> System.out.println("Invalid choice. Try again.");
             }
@@ -175,11 +186,58 @@ public class VegetableComputeTaskRegistry {
         runTask(new CalculateCost(cart, 500.00, "Alice"));
     }
 
+    // ── Demo: price each basket line separately, sent as one batch ────────────
+
+    private static void runBatchedCostDemo() {
+        System.out.println("\n--- DEMO: Pricing 5 lines through the auto-batcher ---\n");
+
+        // All five submits land inside one batching window -> one RMI call
+        List<CompletableFuture<String>> lines = new ArrayList<>();
+        try (TaskAutoBatcher batcher = new TaskAutoBatcher(engine)) {
+            for (String id : new String[] {"V001", "V002", "V003", "V004", "V005"}) {
+                lines.add(batcher.submit(new CalVegetableCost(id, 1.0)));
+            }
+        }
+
+        for (CompletableFuture<String> line : lines) {
+            try {
+                System.out.println("\n[RESULT]\n" + line.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                System.err.println("[ERROR] Batched task failed: " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    // ── Demo: price locally from the client cache, send only the receipt ──────
+
+    private static void runCachedBasketDemo() {
+        System.out.println("\n--- DEMO: Pricing a basket 1000 times from the client cache ---\n");
+
+        String[] ids        = {"V001", "V002", "V004"};
+        double[] quantities = {2.0, 1.5, 1.0};
+        PriceCache cache = PriceCache.getShared();
+        BasketQuote quote = new BasketQuote();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                cache.priceBasket(ids, quantities, quote);
+            }
+        } catch (RemoteException e) {
+            System.err.println("[ERROR] RMI call failed: " + e.getMessage());
+            return;
+        }
+        System.out.printf("[RESULT] Basket total: KES %.2f (%d lines not found)%n",
+                quote.getTotalCents() / 100.0, quote.getMissingCount());
+        System.out.println(cache.getStats());
+    }
+
     // ── Helper: send task to server and print result ──────────────────────────
 
     private static <T> void runTask(Task<T> task) {
         try {
-            T result = engine.executeTask(task);
+            T result = engine.execute(task);
             System.out.println("\n[RESULT]\n" + result);
         } catch (RemoteException e) {
             System.err.println("[ERROR] RMI call failed: " + e.getMessage());
@@ -0,0 +1,68 @@
+package client;
+
+import common.LaneTotals;
+import common.Task;
+import common.WireFormat;
+import server.LaneSessions;
+import server.TaskMetrics;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * VoidLaneLine - takes a scanned line off an open lane session's receipt.
+ * Numbered like a ScanItem, so it can be resent the same way.
+ *
+ * DIARY: Day 6 - Created for lane sessions.
+ */
+public class VoidLaneLine implements Task<LaneTotals>, Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long sessionId; // from OpenLaneSession
+    private int  seq;       // this call's number in the session
+    private int  lineNo;    // line to void, as returned by ScanItem
+
+    /**
+     * @param sessionId session from OpenLaneSession
+     * @param seq       one more than the previous scan (or void) in this session
+     * @param lineNo    LaneTotals.getLineNo() of the scan to take back
+     */
+    public VoidLaneLine(long sessionId, int seq, int lineNo) {
+        this.sessionId = sessionId;
+        this.seq       = seq;
+        this.lineNo    = lineNo;
+    }
+
+    /** For deserialization only. */
+    public VoidLaneLine() { }
+
+    /**
+     * Execute: remove the line from the session's total.
+     * @return running totals, with the voided line as a negative amount
+     */
+    @Override
+    public LaneTotals execute() {
+        return LaneSessions.getInstance().voidLine(sessionId, seq, lineNo);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeLong(sessionId);
+        out.writeInt(seq);
+        out.writeInt(lineNo);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        long start = System.nanoTime();
+        WireFormat.readFormat(in, VoidLaneLine.class);
+        sessionId = in.readLong();
+        seq       = in.readInt();
+        lineNo    = in.readInt();
+        TaskMetrics.deserialized(VoidLaneLine.class, start);
+    }
+}
@@ -0,0 +1,141 @@
+package common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * BasketQuote - the numbers behind a receipt, with no text attached.
+ *
+ * One slot per basket line, held in parallel primitive arrays:
+ *   - the vegetable ID and quantity that were asked for,
+ *   - the matching VegetablePrice (null if the ID was not found),
+ *   - unit price and line total in cents.
+ * Money is kept in long cents so totals add up exactly.
+ *
+ * A quote can be reused: reset() keeps the arrays when they are big enough,
+ * so pricing a basket into an existing quote allocates nothing.
+ *
+ * DIARY: Day 5 - Split out of CalculateCost so a basket can be priced
+ *        without also paying for String.format.
+ *        Day 6 - Externalizable: only the lines in use are written, as
+ *        primitive values with each found VegetablePrice inline.
+ *        Day 6 - putLine()/setTotals() so large baskets can be filled in parallel.
+ */
+public final class BasketQuote implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String[]         ids        = new String[0];
+    private double[]         quantities = new double[0];
+    private VegetablePrice[] entries    = new VegetablePrice[0];
+    private long[]           unitCents  = new long[0];
+    private long[]           lineCents  = new long[0];
+
+    private int  size;         // number of lines in use
+    private long totalCents;   // sum of line totals of found items
+    private int  missingCount; // lines whose ID was not in the table
+
+    /**
+     * Prepare the quote for a new basket of the given lines.
+     * The arrays are referenced, not copied.
+     */
+    public void reset(String[] ids, double[] quantities) {
+        int n = ids.length;
+        this.ids        = ids;
+        this.quantities = quantities;
+        if (entries.length < n) {
+            entries   = new VegetablePrice[n];
+            unitCents = new long[n];
+            lineCents = new long[n];
+        }
+        this.size         = n;
+        this.totalCents   = 0L;
+        this.missingCount = 0;
+    }
+
+    /** Record a priced line. */
+    public void setLine(int i, VegetablePrice entry, long unit, long line) {
+        entries[i]   = entry;
+        unitCents[i] = unit;
+        lineCents[i] = line;
+        totalCents  += line;
+    }
+
+    /** Record a line whose vegetable ID was not found. */
+    public void setMissing(int i) {
+        entries[i]   = null;
+        unitCents[i] = 0L;
+        lineCents[i] = 0L;
+        missingCount++;
+    }
+
+    /**
+     * Record a priced line without touching the totals. Lines with
+     * different indexes can be filled from different threads; call
+     * setTotals() once they are all done.
+     */
+    public void putLine(int i, VegetablePrice entry, long unit, long line) {
+        entries[i]   = entry;
+        unitCents[i] = unit;
+        lineCents[i] = line;
+    }
+
+    /** Record a missing line without touching the totals (see putLine()). */
+    public void putMissing(int i) {
+        entries[i]   = null;
+        unitCents[i] = 0L;
+        lineCents[i] = 0L;
+    }
+
+    /** Set the totals of lines filled with putLine()/putMissing(). */
+    public void setTotals(long totalCents, int missingCount) {
+        this.totalCents   = totalCents;
+        this.missingCount = missingCount;
+    }
+
+    // ── Getters ──────────────────────────────────────────────────────────────
+
+    public int            size()               { return size; }
+    public String         getId(int i)         { return ids[i]; }
+    public double         getQuantity(int i)   { return quantities[i]; }
+    public VegetablePrice getEntry(int i)      { return entries[i]; }
+    public boolean        isFound(int i)       { return entries[i] != null; }
+    public long           getUnitCents(int i)  { return unitCents[i]; }
+    public long           getLineCents(int i)  { return lineCents[i]; }
+    public long           getTotalCents()      { return totalCents; }
+    public int            getMissingCount()    { return missingCount; }
+    public boolean        hasMissing()         { return missingCount > 0; }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeInt(size);
+        WireFormat.writeIds(out, ids, size);
+        WireFormat.writeDoubles(out, quantities, size);
+        for (int i = 0; i < size; i++) {
+            WireFormat.writePrice(out, entries[i]);
+            out.writeLong(unitCents[i]);
+            out.writeLong(lineCents[i]);
+        }
+        out.writeLong(totalCents);
+        out.writeInt(missingCount);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readFormat(in, BasketQuote.class);
+        int n = WireFormat.readCount(in);
+        reset(WireFormat.readIds(in, n), WireFormat.readDoubles(in, n));
+        for (int i = 0; i < n; i++) {
+            entries[i]   = WireFormat.readPrice(in);
+            unitCents[i] = in.readLong();
+            lineCents[i] = in.readLong();
+        }
+        totalCents   = in.readLong();
+        missingCount = in.readInt();
+    }
+}
@@ -2,6 +2,7 @@ package common;
 
 import java.rmi.Remote;
 import java.rmi.RemoteException;
+import java.util.List;
 
 /**
  * Compute interface - defines the remote method that the server exposes.
@@ -10,6 +11,9 @@ import java.rmi.RemoteException;
  * DIARY: Day 1 - Created the RMI remote interface.
  *        This extends Remote so Java RMI knows it is a remote object.
  *        All methods must declare RemoteException.
+ *        Day 5 - Added executeBatch() so a whole basket can be priced
+ *        in one round trip instead of one call per line.
+ *        Day 6 - Added executeTaskAt() for read-your-writes on replicas.
  */
 public interface Compute extends Remote {
 
@@ -20,4 +24,32 @@ public interface Compute extends Remote {
      * @throws RemoteException if RMI communication fails
      */
     <T> T executeTask(Task<T> task) throws RemoteException;
+
+    /**
+     * Execute a task once this engine's price table has reached at least
+     * the given version, e.g. one the caller has just written on the
+     * primary. A replica that is behind waits briefly for it.
+     *
+     * @param task       task to run (replicas only accept ReadOnlyTask)
+     * @param minVersion lowest acceptable table version; -1 for any
+     * @return result produced by the task
+     * @throws ReplicaUnavailableException if this replica cannot run the
+     *         task at that version; the task did not run
+     * @throws RemoteException if RMI communication fails
+     */
+    <T> T executeTaskAt(Task<T> task, long minVersion) throws RemoteException;
+
+    /**
+     * Execute several tasks in one remote call.
+     * Each task is isolated: if one throws, its slot holds the exception
+     * and the remaining tasks still run.
+     *
+     * @param tasks    tasks to run
+     * @param parallel true to run the tasks concurrently on the server;
+     *                 only use this when the tasks do not depend on each other
+     * @return one result per task, in the same order as the input list
+     * @throws RemoteException if RMI communication fails
+     */
+    <T> List<TaskResult<T>> executeBatch(List<? extends Task<? extends T>> tasks, boolean parallel)
+            throws RemoteException;
 }
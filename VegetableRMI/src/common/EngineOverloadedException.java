@@ -0,0 +1,19 @@
+package common;
+
+import java.rmi.RemoteException;
+
+/**
+ * EngineOverloadedException - thrown by the engine when its work queue is
+ * full and the task was rejected without running.
+ * The task had no effect, so the client may safely retry it later.
+ *
+ * DIARY: Day 5 - Added with the engine's bounded worker pool.
+ */
+public class EngineOverloadedException extends RemoteException {
+
+    private static final long serialVersionUID = 1L;
+
+    public EngineOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,76 @@
+package common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * ExportPage - one page of the price table for a bulk export.
+ * Rows are held in parallel arrays (id, name, price) and sent in the
+ * WireFormat layout, so a large page costs no per-row objects on the wire.
+ *
+ * DIARY: Day 6 - Created for the bulk export endpoint.
+ */
+public final class ExportPage implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String[] ids    = new String[0];
+    private String[] names  = new String[0];
+    private double[] prices = new double[0];
+    private int  count;      // rows in this page
+    private long version;    // table version the page was read from
+    private int  nextOffset; // offset of the next page, or -1 if this was the last (0 when paged by ID)
+
+    /** For deserialization only. */
+    public ExportPage() { }
+
+    public ExportPage(String[] ids, String[] names, double[] prices, int count, long version, int nextOffset) {
+        this.ids        = ids;
+        this.names      = names;
+        this.prices     = prices;
+        this.count      = count;
+        this.version    = version;
+        this.nextOffset = nextOffset;
+    }
+
+    public int     size()            { return count; }
+    public String  getId(int i)      { return ids[i]; }
+    public String  getName(int i)    { return names[i]; }
+    public double  getPrice(int i)   { return prices[i]; }
+    public long    getVersion()      { return version; }
+    public int     getNextOffset()   { return nextOffset; }
+    public boolean isLast()          { return nextOffset < 0; }
+
+    /** ID of the last row, where a page by ID continues; null if empty. */
+    public String getLastId() {
+        return count == 0 ? null : ids[count - 1];
+    }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeInt(count);
+        WireFormat.writeIds(out, ids, count);
+        for (int i = 0; i < count; i++) WireFormat.writeString(out, names[i]);
+        WireFormat.writeDoubles(out, prices, count);
+        out.writeLong(version);
+        out.writeInt(nextOffset);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readFormat(in, ExportPage.class);
+        count = WireFormat.readCount(in);
+        ids   = new String[count]; // not interned: an export passes every ID once
+        names = new String[count];
+        for (int i = 0; i < count; i++) ids[i]   = WireFormat.readString(in);
+        for (int i = 0; i < count; i++) names[i] = WireFormat.readString(in);
+        prices     = WireFormat.readDoubles(in, count);
+        version    = in.readLong();
+        nextOffset = in.readInt();
+    }
+}
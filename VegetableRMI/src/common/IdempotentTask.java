@@ -0,0 +1,29 @@
+package common;
+
+import java.util.UUID;
+
+/**
+ * IdempotentTask - a task that changes the table and carries a request ID
+ * chosen by the client. The engine remembers the result of each request
+ * ID for a while (server.RequestDedup); sending the same request again,
+ * e.g. after a timeout left the caller unsure whether it ran, returns the
+ * first result instead of applying the change twice.
+ *
+ * DIARY: Day 6 - Added so clients can retry writes after network blips.
+ */
+public interface IdempotentTask<T> extends Task<T> {
+
+    /** Longest request ID the engine accepts (they are held in memory). */
+    int MAX_REQUEST_ID_LENGTH = 128;
+
+    /**
+     * The ID shared by every retry of this request, or null if the task
+     * should not be deduplicated.
+     */
+    String getRequestId();
+
+    /** A new random request ID. */
+    static String newRequestId() {
+        return UUID.randomUUID().toString();
+    }
+}
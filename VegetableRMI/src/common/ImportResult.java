@@ -0,0 +1,33 @@
+package common;
+
+import java.io.Serializable;
+
+/**
+ * ImportResult - outcome of one chunk of a bulk import.
+ * Rows are numbered from 0 within the chunk; only rejected rows are
+ * listed, each with the reason it was not applied.
+ *
+ * DIARY: Day 6 - Created for the bulk import endpoint.
+ */
+public final class ImportResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int      applied;      // rows that changed the table
+    private final int[]    rejectedRows; // row index within the chunk
+    private final String[] reasons;      // same order as rejectedRows
+    private final long     version;      // table version after the chunk
+
+    public ImportResult(int applied, int[] rejectedRows, String[] reasons, long version) {
+        this.applied      = applied;
+        this.rejectedRows = rejectedRows;
+        this.reasons      = reasons;
+        this.version      = version;
+    }
+
+    public int    getApplied()          { return applied; }
+    public int    getRejectedCount()    { return rejectedRows.length; }
+    public int    getRejectedRow(int i) { return rejectedRows[i]; }
+    public String getReason(int i)      { return reasons[i]; }
+    public long   getVersion()          { return version; }
+}
@@ -0,0 +1,91 @@
+package common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * LaneTotals - a checkout lane session's running totals after a scan,
+ * plus the line just scanned (or voided) so the lane display can show it.
+ *
+ * DIARY: Day 6 - Created for lane sessions (OpenLaneSession, ScanItem).
+ */
+public final class LaneTotals implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long   sessionId;
+    private int    seq;         // last scan applied (0 right after opening)
+    private int    lineNo;      // line this scan added or voided, -1 if none
+    private String name;        // vegetable name of that line, null if not found
+    private long   unitCents;   // its price per kg
+    private long   lineCents;   // its line total (negative when voided)
+    private int    lineCount;   // lines on the receipt so far (voided ones excluded)
+    private int    missing;     // scans whose ID was not found
+    private long   totalCents;  // running total
+
+    /** For deserialization only. */
+    public LaneTotals() { }
+
+    public LaneTotals(long sessionId, int seq, int lineNo, String name, long unitCents, long lineCents,
+                      int lineCount, int missing, long totalCents) {
+        this.sessionId  = sessionId;
+        this.seq        = seq;
+        this.lineNo     = lineNo;
+        this.name       = name;
+        this.unitCents  = unitCents;
+        this.lineCents  = lineCents;
+        this.lineCount  = lineCount;
+        this.missing    = missing;
+        this.totalCents = totalCents;
+    }
+
+    public long    getSessionId()  { return sessionId; }
+    public int     getSeq()        { return seq; }
+    public int     getLineNo()     { return lineNo; }
+    public boolean isFound()       { return name != null; }
+    public String  getName()       { return name; }
+    public long    getUnitCents()  { return unitCents; }
+    public long    getLineCents()  { return lineCents; }
+    public int     getLineCount()  { return lineCount; }
+    public int     getMissing()    { return missing; }
+    public long    getTotalCents() { return totalCents; }
+
+    @Override
+    public String toString() {
+        return String.format("Lane %d #%d: %s %.2f | %d lines | TOTAL KES %.2f",
+                sessionId, seq, name == null ? "NOT FOUND" : name, lineCents / 100.0,
+                lineCount, totalCents / 100.0);
+    }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeLong(sessionId);
+        out.writeInt(seq);
+        out.writeInt(lineNo);
+        WireFormat.writeString(out, name);
+        out.writeLong(unitCents);
+        out.writeLong(lineCents);
+        out.writeInt(lineCount);
+        out.writeInt(missing);
+        out.writeLong(totalCents);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readFormat(in, LaneTotals.class);
+        sessionId  = in.readLong();
+        seq        = in.readInt();
+        lineNo     = in.readInt();
+        name       = WireFormat.readString(in);
+        unitCents  = in.readLong();
+        lineCents  = in.readLong();
+        lineCount  = in.readInt();
+        missing    = in.readInt();
+        totalCents = in.readLong();
+    }
+}
@@ -0,0 +1,104 @@
+package common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * PriceChangeBatch - the price table changes from one version to another,
+ * as sent by the engine's change feed.
+ *
+ * - Versions are the table's own version numbers, so they double as
+ *   sequence numbers: a batch covers (getFromVersion(), getToVersion()]
+ *   and the next batch starts where this one ended.
+ * - Changes are coalesced per vegetable: each ID appears once, with its
+ *   price as of getToVersion(), or null if it was deleted by then. Apply
+ *   them as "set this ID to this value", not as add/update/delete.
+ * - isReset(): the subscriber fell too far behind and the changes in
+ *   between are gone. It should reload whatever it keeps (or simply
+ *   drop its cache); the feed carries on from getToVersion().
+ * - An empty batch with from == to is a heartbeat, sent while nothing
+ *   changes so a subscriber can tell the engine is still there.
+ * - getHeadVersion() and getSentAtMillis() say how far the sender was
+ *   and when, so a subscriber can measure how far behind it is.
+ *
+ * DIARY: Day 6 - Created for the price change feed.
+ */
+public final class PriceChangeBatch implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long fromVersion;  // exclusive
+    private long toVersion;    // inclusive
+    private long headVersion;  // sender's newest version when the batch was built
+    private long sentAtMillis; // sender's clock when the batch was built
+    private boolean reset;
+    private String[]         ids    = new String[0];
+    private VegetablePrice[] prices = new VegetablePrice[0]; // null = deleted
+    private int count;
+
+    /** For deserialization only. */
+    public PriceChangeBatch() { }
+
+    public PriceChangeBatch(long fromVersion, long toVersion, boolean reset,
+                            String[] ids, VegetablePrice[] prices, int count) {
+        this(fromVersion, toVersion, toVersion, reset, ids, prices, count);
+    }
+
+    public PriceChangeBatch(long fromVersion, long toVersion, long headVersion, boolean reset,
+                            String[] ids, VegetablePrice[] prices, int count) {
+        this.fromVersion  = fromVersion;
+        this.toVersion    = toVersion;
+        this.headVersion  = headVersion;
+        this.sentAtMillis = System.currentTimeMillis();
+        this.reset        = reset;
+        this.ids          = ids;
+        this.prices       = prices;
+        this.count        = count;
+    }
+
+    public long           getFromVersion()  { return fromVersion; }
+    public long           getToVersion()    { return toVersion; }
+    public long           getHeadVersion()  { return headVersion; }
+    public long           getSentAtMillis() { return sentAtMillis; }
+    public boolean        isReset()         { return reset; }
+    public boolean        isHeartbeat()     { return !reset && count == 0 && fromVersion == toVersion; }
+    public int            size()            { return count; }
+    public String         getId(int i)      { return ids[i]; }
+    public VegetablePrice getPrice(int i)   { return prices[i]; }
+
+    @Override
+    public String toString() {
+        return (reset ? "RESET " : "") + "changes " + fromVersion + ".." + toVersion + " (" + count + " IDs)";
+    }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeLong(fromVersion);
+        out.writeLong(toVersion);
+        out.writeLong(headVersion);
+        out.writeLong(sentAtMillis);
+        out.writeBoolean(reset);
+        out.writeInt(count);
+        WireFormat.writeIds(out, ids, count);
+        for (int i = 0; i < count; i++) WireFormat.writePrice(out, prices[i]);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readFormat(in, PriceChangeBatch.class);
+        fromVersion  = in.readLong();
+        toVersion    = in.readLong();
+        headVersion  = in.readLong();
+        sentAtMillis = in.readLong();
+        reset        = in.readBoolean();
+        count        = WireFormat.readCount(in);
+        ids          = WireFormat.readIds(in, count);
+        prices       = new VegetablePrice[count];
+        for (int i = 0; i < count; i++) prices[i] = WireFormat.readPrice(in);
+    }
+}
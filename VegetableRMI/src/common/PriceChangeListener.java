@@ -0,0 +1,22 @@
+package common;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+
+/**
+ * PriceChangeListener - remote callback for the engine's price change feed.
+ * A client exports an object implementing this and subscribes it with
+ * the SubscribePriceChanges task; the engine then calls it with batches
+ * of changes in version order, one call at a time.
+ *
+ * DIARY: Day 6 - Created for the price change feed.
+ */
+public interface PriceChangeListener extends Remote {
+
+    /**
+     * Receive the next batch of changes. Should return quickly; the
+     * engine will not send this listener another batch until it does.
+     * @throws RemoteException if the listener cannot be reached
+     */
+    void pricesChanged(PriceChangeBatch batch) throws RemoteException;
+}
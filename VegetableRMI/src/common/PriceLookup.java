@@ -0,0 +1,59 @@
+package common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * PriceLookup - prices for a list of IDs, all read from one table version.
+ * getPrice(i) is null when the i-th ID is not in the table.
+ * getStamp(i) is the i-th entry's version stamp, to send back with a
+ * PriceTransaction that must only apply if the entry is unchanged.
+ *
+ * DIARY: Day 6 - Created for the client-side PriceCache.
+ *        Day 6 - Carries version stamps for optimistic transactions.
+ */
+public final class PriceLookup implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private VegetablePrice[] prices = new VegetablePrice[0];
+    private long[] stamps = new long[0]; // per ID, version it last changed at (or later)
+    private long version; // table version the prices were read from
+
+    /** For deserialization only. */
+    public PriceLookup() { }
+
+    public PriceLookup(VegetablePrice[] prices, long[] stamps, long version) {
+        this.prices  = prices;
+        this.stamps  = stamps;
+        this.version = version;
+    }
+
+    public int            size()          { return prices.length; }
+    public VegetablePrice getPrice(int i) { return prices[i]; }
+    public long           getStamp(int i) { return stamps[i]; }
+    public long           getVersion()    { return version; }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeLong(version);
+        out.writeInt(prices.length);
+        for (VegetablePrice vp : prices) WireFormat.writePrice(out, vp);
+        for (long stamp : stamps) out.writeLong(stamp);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readFormat(in, PriceLookup.class);
+        version = in.readLong();
+        prices  = new VegetablePrice[WireFormat.readCount(in)];
+        for (int i = 0; i < prices.length; i++) prices[i] = WireFormat.readPrice(in);
+        stamps  = new long[prices.length];
+        for (int i = 0; i < stamps.length; i++) stamps[i] = in.readLong();
+    }
+}
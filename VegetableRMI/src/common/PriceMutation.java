@@ -0,0 +1,46 @@
+package common;
+
+import java.io.Serializable;
+
+/**
+ * PriceMutation - one change to the price table (add, update or delete).
+ * Used wherever a change has to be recorded or shipped rather than
+ * applied straight away, e.g. the server's write-ahead log.
+ *
+ * DIARY: Day 6 - Created for the durable price journal.
+ *        Day 6 - Also the unit of work for bulk imports (UPSERT added).
+ */
+public final class PriceMutation implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Kind of change. UPSERT adds or updates, whichever applies; it is
+     * written to the journal as the ADD or UPDATE it turned into.
+     */
+    public enum Op { ADD, UPDATE, DELETE, UPSERT }
+
+    private final Op             op;
+    private final String         id;    // vegetable ID the change applies to
+    private final VegetablePrice price; // new row for ADD/UPDATE, null for DELETE
+
+    private PriceMutation(Op op, String id, VegetablePrice price) {
+        this.op    = op;
+        this.id    = id;
+        this.price = price;
+    }
+
+    public static PriceMutation add(VegetablePrice vp)    { return new PriceMutation(Op.ADD, vp.getId(), vp); }
+    public static PriceMutation update(VegetablePrice vp) { return new PriceMutation(Op.UPDATE, vp.getId(), vp); }
+    public static PriceMutation delete(String id)         { return new PriceMutation(Op.DELETE, id, null); }
+    public static PriceMutation upsert(VegetablePrice vp) { return new PriceMutation(Op.UPSERT, vp.getId(), vp); }
+
+    public Op             getOp()    { return op; }
+    public String         getId()    { return id; }
+    public VegetablePrice getPrice() { return price; }
+
+    @Override
+    public String toString() {
+        return op == Op.DELETE ? "DELETE " + id : op + " " + price;
+    }
+}
@@ -0,0 +1,71 @@
+package common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * QueryPage - one page of a name or price-range search.
+ * Rows are held in parallel arrays like ExportPage. The next page is
+ * asked for with getNextCursor(), an opaque string that marks where this
+ * page stopped in the index (null when there are no more rows).
+ *
+ * DIARY: Day 6 - Created for the secondary index queries.
+ */
+public final class QueryPage implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String[] ids    = new String[0];
+    private String[] names  = new String[0];
+    private double[] prices = new double[0];
+    private int    count;      // rows in this page
+    private long   version;    // table version the rows were read from
+    private String nextCursor; // null if this was the last page
+
+    /** For deserialization only. */
+    public QueryPage() { }
+
+    public QueryPage(String[] ids, String[] names, double[] prices, int count, long version, String nextCursor) {
+        this.ids        = ids;
+        this.names      = names;
+        this.prices     = prices;
+        this.count      = count;
+        this.version    = version;
+        this.nextCursor = nextCursor;
+    }
+
+    public int     size()            { return count; }
+    public String  getId(int i)      { return ids[i]; }
+    public String  getName(int i)    { return names[i]; }
+    public double  getPrice(int i)   { return prices[i]; }
+    public long    getVersion()      { return version; }
+    public String  getNextCursor()   { return nextCursor; }
+    public boolean isLast()          { return nextCursor == null; }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeInt(count);
+        WireFormat.writeIds(out, ids, count);
+        for (int i = 0; i < count; i++) WireFormat.writeString(out, names[i]);
+        WireFormat.writeDoubles(out, prices, count);
+        out.writeLong(version);
+        WireFormat.writeString(out, nextCursor);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readFormat(in, QueryPage.class);
+        count  = WireFormat.readCount(in);
+        ids    = WireFormat.readIds(in, count);
+        names  = new String[count];
+        for (int i = 0; i < count; i++) names[i] = WireFormat.readString(in);
+        prices     = WireFormat.readDoubles(in, count);
+        version    = in.readLong();
+        nextCursor = WireFormat.readString(in);
+    }
+}
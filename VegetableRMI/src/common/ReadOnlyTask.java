@@ -0,0 +1,10 @@
+package common;
+
+/**
+ * ReadOnlyTask - a task that only reads the price table.
+ * Read replicas run only these; every other task must go to the primary.
+ *
+ * DIARY: Day 6 - Added with read replicas.
+ */
+public interface ReadOnlyTask<T> extends Task<T> {
+}
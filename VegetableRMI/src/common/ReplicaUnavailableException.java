@@ -0,0 +1,21 @@
+package common;
+
+import java.rmi.RemoteException;
+
+/**
+ * ReplicaUnavailableException - thrown by a read replica when it cannot
+ * run a task: the task is not read-only, the replica is still loading
+ * its copy of the table, or it has not yet caught up to the version the
+ * caller asked for. The task did not run; send it to another replica
+ * or to the primary.
+ *
+ * DIARY: Day 6 - Added with read replicas.
+ */
+public class ReplicaUnavailableException extends RemoteException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ReplicaUnavailableException(String message) {
+        super(message);
+    }
+}
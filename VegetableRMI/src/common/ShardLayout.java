@@ -0,0 +1,68 @@
+package common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
+
+/**
+ * ShardLayout - a ShardRing as published to the shards after a
+ * rebalance, with a generation number so the newest one wins.
+ *
+ * Generation 0 is the ring a client builds from -Dvegetable.engine.shards;
+ * each rebalance publishes the next generation to every shard, old and
+ * new, and other clients pick it up from there (ShardedEngineClient).
+ *
+ * DIARY: Day 6 - Created so a rebalance reaches every sharded client,
+ *        not just the one that ran it.
+ */
+public final class ShardLayout implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private long     generation;
+    private String[] shards = new String[0]; // shard names, as in ShardRing.getShards()
+    private int      virtualNodes;
+
+    /** For deserialization only. */
+    public ShardLayout() { }
+
+    public ShardLayout(long generation, ShardRing ring) {
+        this.generation   = generation;
+        this.shards       = ring.getShards().toArray(new String[0]);
+        this.virtualNodes = ring.getVirtualNodes();
+    }
+
+    public long getGeneration() { return generation; }
+
+    /** The ring this layout describes. */
+    public ShardRing toRing() {
+        return new ShardRing(Arrays.asList(shards), virtualNodes);
+    }
+
+    @Override
+    public String toString() {
+        return "ShardLayout #" + generation + " " + Arrays.toString(shards) + " x" + virtualNodes;
+    }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeLong(generation);
+        out.writeInt(shards.length);
+        for (String shard : shards) WireFormat.writeString(out, shard);
+        out.writeInt(virtualNodes);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readFormat(in, ShardLayout.class);
+        generation = in.readLong();
+        shards = new String[WireFormat.readCount(in)];
+        for (int i = 0; i < shards.length; i++) shards[i] = WireFormat.readString(in);
+        virtualNodes = in.readInt();
+    }
+}
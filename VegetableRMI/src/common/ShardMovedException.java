@@ -0,0 +1,20 @@
+package common;
+
+/**
+ * ShardMovedException - thrown by a shard for a write to a vegetable ID
+ * it does not own: the ID has moved to another shard, or is being moved
+ * by a rebalance that has not published its new ring yet. The write did
+ * not happen; refresh the shard ring and resend it to the owner
+ * (ShardedEngineClient does this itself).
+ *
+ * DIARY: Day 6 - Added so writes cannot be lost while a rebalance
+ *        moves their rows.
+ */
+public class ShardMovedException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public ShardMovedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,120 @@
+package common;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * ShardRing - decides which engine (shard) owns a vegetable ID, by
+ * consistent hashing.
+ *
+ * Each shard is placed on a 64-bit hash ring at virtualNodes points
+ * (hashes of "name#0", "name#1", ...). An ID belongs to the shard at the
+ * first point at or after the ID's hash, wrapping around. Adding or
+ * removing a shard therefore only moves the IDs in the ranges next to
+ * that shard's points (about 1/N of the table), and the virtual nodes
+ * spread those ranges evenly over the other shards.
+ *
+ * Shards are named by their address ("host:port"), so every client
+ * that lists the same shards builds the same ring, in any order.
+ * Immutable; withShard()/withoutShard() return a new ring.
+ *
+ * DIARY: Day 6 - Created for the sharded price table.
+ */
+public final class ShardRing {
+
+    private final List<String> shards;   // shard names, sorted
+    private final int          virtualNodes;
+    private final long[]       points;   // ring positions, sorted
+    private final int[]        owners;   // shard index per point
+
+    /**
+     * @param shards       shard names ("host:port"); duplicates are ignored
+     * @param virtualNodes points per shard on the ring (more = more even spread)
+     */
+    public ShardRing(List<String> shards, int virtualNodes) {
+        if (shards.isEmpty()) throw new IllegalArgumentException("At least one shard required");
+        if (virtualNodes <= 0) throw new IllegalArgumentException("virtualNodes must be > 0");
+        List<String> sorted = new ArrayList<>(new TreeSet<>(shards));
+        this.shards       = Collections.unmodifiableList(sorted);
+        this.virtualNodes = virtualNodes;
+
+        int n = sorted.size() * virtualNodes;
+        long[] keys = new long[n];
+        for (int s = 0, p = 0; s < sorted.size(); s++) {
+            for (int v = 0; v < virtualNodes; v++, p++) {
+                keys[p] = hash(sorted.get(s) + "#" + v);
+            }
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        // Ties (practically never) go to the lower shard, the same on every client
+        Arrays.sort(order, (a, b) -> keys[a] != keys[b] ? Long.compare(keys[a], keys[b])
+                                                         : Integer.compare(a, b));
+        this.points = new long[n];
+        this.owners = new int[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = keys[order[i]];
+            owners[i] = order[i] / virtualNodes;
+        }
+    }
+
+    /** Index (into getShards()) of the shard that owns the ID. */
+    public int ownerOf(String id) {
+        long h = hash(id);
+        int i = Arrays.binarySearch(points, h);
+        if (i < 0) i = -i - 1;        // first point after h
+        if (i == points.length) i = 0; // wrap around
+        return owners[i];
+    }
+
+    /** Name of the shard that owns the ID. */
+    public String ownerNameOf(String id) {
+        return shards.get(ownerOf(id));
+    }
+
+    /** Ring with one more shard (the same ring if it is already there). */
+    public ShardRing withShard(String name) {
+        if (shards.contains(name)) return this;
+        List<String> next = new ArrayList<>(shards);
+        next.add(name);
+        return new ShardRing(next, virtualNodes);
+    }
+
+    /** Ring without the shard. */
+    public ShardRing withoutShard(String name) {
+        List<String> next = new ArrayList<>(shards);
+        if (!next.remove(name)) return this;
+        return new ShardRing(next, virtualNodes);
+    }
+
+    public List<String> getShards()       { return shards; }
+    public int          size()            { return shards.size(); }
+    public int          getVirtualNodes() { return virtualNodes; }
+
+    /**
+     * 64-bit hash of a string: FNV-1a over the UTF-16 chars, then a
+     * murmur-style final mix so similar IDs (VEG001, VEG002) land far apart.
+     * Fixed forever: changing it would move every ID to another shard.
+     */
+    public static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return "ShardRing" + shards + " x" + virtualNodes;
+    }
+}
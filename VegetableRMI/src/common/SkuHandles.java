@@ -0,0 +1,58 @@
+package common;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * SkuHandles - the int handles of a list of vegetable IDs on one engine
+ * (see ResolveSkus), and the engine epoch they are valid in.
+ * getHandle(i) is NO_HANDLE when the i-th ID is not in the table.
+ *
+ * DIARY: Day 6 - Created for int SKU handles.
+ */
+public final class SkuHandles implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Handle of an ID the engine does not have. */
+    public static final int NO_HANDLE = -1;
+
+    private long  epoch;                // engine epoch; send it back with the handles
+    private int[] handles = new int[0]; // per ID
+
+    /** For deserialization only. */
+    public SkuHandles() { }
+
+    public SkuHandles(long epoch, int[] handles) {
+        this.epoch   = epoch;
+        this.handles = handles;
+    }
+
+    public long getEpoch()       { return epoch; }
+    public int  size()           { return handles.length; }
+    public int  getHandle(int i) { return handles[i]; }
+
+    /** The handles in order (a copy). */
+    public int[] getHandles() {
+        return handles.clone();
+    }
+
+    // ── Wire format ──────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        out.writeLong(epoch);
+        out.writeInt(handles.length);
+        WireFormat.writeInts(out, handles, handles.length);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readFormat(in, SkuHandles.class);
+        epoch   = in.readLong();
+        handles = WireFormat.readInts(in, WireFormat.readCount(in));
+    }
+}
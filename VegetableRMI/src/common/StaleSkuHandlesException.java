@@ -0,0 +1,18 @@
+package common;
+
+/**
+ * StaleSkuHandlesException - thrown by a task that was given SKU handles
+ * from another engine, or from before the engine restarted (the epoch
+ * does not match). The task did not run; resolve the IDs again with
+ * ResolveSkus and resend it.
+ *
+ * DIARY: Day 6 - Added with int SKU handles.
+ */
+public class StaleSkuHandlesException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    public StaleSkuHandlesException(String message) {
+        super(message);
+    }
+}
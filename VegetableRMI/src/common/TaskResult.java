@@ -0,0 +1,40 @@
+package common;
+
+import java.io.Serializable;
+
+/**
+ * TaskResult - outcome of one task inside a batch.
+ * Holds either the value returned by the task or the exception it threw,
+ * so one failing task does not lose the results of the others.
+ *
+ * DIARY: Day 5 - Created for Compute.executeBatch().
+ */
+public final class TaskResult<T> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final T value;         // result when the task succeeded
+    private final Throwable error; // exception when the task failed, else null
+
+    private TaskResult(T value, Throwable error) {
+        this.value = value;
+        this.error = error;
+    }
+
+    public static <T> TaskResult<T> success(T value) {
+        return new TaskResult<>(value, null);
+    }
+
+    public static <T> TaskResult<T> failure(Throwable error) {
+        return new TaskResult<>(null, error);
+    }
+
+    public boolean   isSuccess() { return error == null; }
+    public T         getValue()  { return value; }
+    public Throwable getError()  { return error; }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? String.valueOf(value) : "FAILED: " + error;
+    }
+}
@@ -0,0 +1,19 @@
+package common;
+
+import java.rmi.RemoteException;
+
+/**
+ * TaskTimeoutException - thrown by the engine when a task did not finish
+ * within the server's per-task deadline.
+ * The task may still have completed on the server after the deadline.
+ *
+ * DIARY: Day 5 - Added with the engine's bounded worker pool.
+ */
+public class TaskTimeoutException extends RemoteException {
+
+    private static final long serialVersionUID = 1L;
+
+    public TaskTimeoutException(String message) {
+        super(message);
+    }
+}
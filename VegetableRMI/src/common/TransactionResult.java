@@ -0,0 +1,61 @@
+package common;
+
+import java.io.Serializable;
+
+/**
+ * TransactionResult - outcome of a PriceTransaction.
+ * Either every change was applied (COMMITTED) or none was: CONFLICT means
+ * an entry changed after the stamp the caller read it at, so reading it
+ * again and retrying may succeed; REJECTED means a change could not apply
+ * (adding an ID that exists, updating or deleting one that does not).
+ *
+ * DIARY: Day 6 - Created for atomic multi-item price updates.
+ */
+public final class TransactionResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Status { COMMITTED, CONFLICT, REJECTED }
+
+    private final Status           status;
+    private final int              failedChange; // index of the change that failed, -1 if committed
+    private final String           reason;       // why it failed, null if committed
+    private final VegetablePrice[] previous;     // per change, the row it replaced (null if none)
+    private final long             version;      // table version after the commit (or when it failed)
+
+    private TransactionResult(Status status, int failedChange, String reason,
+                              VegetablePrice[] previous, long version) {
+        this.status       = status;
+        this.failedChange = failedChange;
+        this.reason       = reason;
+        this.previous     = previous;
+        this.version      = version;
+    }
+
+    public static TransactionResult committed(VegetablePrice[] previous, long version) {
+        return new TransactionResult(Status.COMMITTED, -1, null, previous, version);
+    }
+
+    public static TransactionResult failed(Status status, int failedChange, String reason, long version) {
+        return new TransactionResult(status, failedChange, reason, new VegetablePrice[0], version);
+    }
+
+    public Status  getStatus()       { return status; }
+    public boolean isCommitted()     { return status == Status.COMMITTED; }
+    public boolean isConflict()      { return status == Status.CONFLICT; }
+    public int     getFailedChange() { return failedChange; }
+    public String  getReason()       { return reason; }
+    public long    getVersion()      { return version; }
+
+    /** The row the i-th change replaced or deleted; null for an add (or if not committed). */
+    public VegetablePrice getPrevious(int i) {
+        return i < previous.length ? previous[i] : null;
+    }
+
+    @Override
+    public String toString() {
+        return isCommitted()
+                ? "COMMITTED " + previous.length + " change(s) at version " + version
+                : status + " at change " + failedChange + ": " + reason;
+    }
+}
@@ -1,6 +1,9 @@
 package common;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 /**
  * VegetablePrice - model object representing one row in the price table.
@@ -8,8 +11,10 @@ import java.io.Serializable;
  *
  * DIARY: Day 1 - Created the data model.
  *        Fields: id, name, pricePerKg (price in KES per kilogram).
+ *        Day 6 - Externalizable with a fixed layout (see WireFormat):
+ *        format byte, id, name, pricePerKg.
  */
-public class VegetablePrice implements Serializable {
+public class VegetablePrice implements Externalizable {
 
     private static final long serialVersionUID = 1L;
 
@@ -23,6 +28,9 @@ public class VegetablePrice implements Serializable {
         this.pricePerKg = pricePerKg;
     }
 
+    /** For deserialization only. */
+    public VegetablePrice() { }
+
     // ── Getters & Setters ───────────────────────────────────────────────────
 
     public String getId()                        { return id; }
@@ -34,6 +42,27 @@ public class VegetablePrice implements Serializable {
     public double getPricePerKg()                { return pricePerKg; }
     public void   setPricePerKg(double price)    { this.pricePerKg = price; }
 
+    /** Price per kg in cents (KES minor units), rounded half up. */
+    public long   getPriceCents()                { return Math.round(pricePerKg * 100.0); }
+
+    // ── Wire format ─────────────────────────────────────────────────────────
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        WireFormat.writeFormat(out);
+        WireFormat.writeString(out, id);
+        WireFormat.writeString(out, name);
+        out.writeDouble(pricePerKg);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        WireFormat.readFormat(in, VegetablePrice.class);
+        id         = WireFormat.readId(in);
+        name       = WireFormat.readString(in);
+        pricePerKg = in.readDouble();
+    }
+
     @Override
     public String toString() {
         return String.format("ID: %-6s | Name: %-15s | Price: KES %.2f/kg", id, name, pricePerKg);
@@ -0,0 +1,177 @@
+package common;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WireFormat - helpers for the hand-written Externalizable encodings of
+ * the tasks, VegetablePrice and BasketQuote.
+ *
+ * Every encoding starts with a format byte so it can evolve later, then
+ * writes its fields in a fixed order: strings as UTF, basket lines as a
+ * count followed by primitive values, nested VegetablePrices inline
+ * (no class descriptor). Vegetable IDs read from the wire are interned,
+ * so the same ID arriving in many tasks is held in memory only once.
+ *
+ * Interning is bounded (-Dvegetable.wire.internLimit, default 65536
+ * distinct IDs); once full, new IDs are simply not interned.
+ *
+ * Lengths read from the wire are checked before anything is allocated
+ * for them: at most -Dvegetable.wire.maxCount lines (default 1000000)
+ * and -Dvegetable.wire.maxStringBytes per string (default 1 MB), so a
+ * corrupt or hostile stream is refused with InvalidObjectException
+ * instead of running the reader out of memory.
+ *
+ * DIARY: Day 6 - Default serialization sent class descriptors and boxed
+ *        Doubles with every call and read them back by reflection.
+ */
+public final class WireFormat {
+
+    /** Current layout version written by all encodings. */
+    public static final byte FORMAT = 1;
+
+    public static final String INTERN_LIMIT_PROPERTY     = "vegetable.wire.internLimit";
+    public static final String MAX_COUNT_PROPERTY        = "vegetable.wire.maxCount";
+    public static final String MAX_STRING_BYTES_PROPERTY = "vegetable.wire.maxStringBytes";
+
+    private static final int INTERN_LIMIT     = Integer.getInteger(INTERN_LIMIT_PROPERTY, 65_536);
+    private static final int MAX_COUNT        = Math.max(0, Integer.getInteger(MAX_COUNT_PROPERTY, 1_000_000));
+    private static final int MAX_STRING_BYTES = Math.max(0, Integer.getInteger(MAX_STRING_BYTES_PROPERTY, 1 << 20));
+    private static final ConcurrentHashMap<String, String> IDS = new ConcurrentHashMap<>();
+
+    // String tags
+    private static final byte NULL  = 0;
+    private static final byte SHORT = 1; // writeUTF (up to 65535 bytes)
+    private static final byte LONG  = 2; // int length + UTF-8 bytes
+
+    private WireFormat() { }
+
+    // ── Format byte ──────────────────────────────────────────────────────────
+
+    public static void writeFormat(ObjectOutput out) throws IOException {
+        out.writeByte(FORMAT);
+    }
+
+    /** Read the format byte and reject layouts this version does not know. */
+    public static void readFormat(ObjectInput in, Class<?> type) throws IOException {
+        byte format = in.readByte();
+        if (format != FORMAT) {
+            throw new InvalidObjectException("Unsupported " + type.getSimpleName() + " wire format " + format);
+        }
+    }
+
+    // ── Strings ──────────────────────────────────────────────────────────────
+
+    /** Write a string, which may be null. */
+    public static void writeString(ObjectOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeByte(NULL);
+        } else if (s.length() <= 65_535 / 3) { // fits writeUTF whatever the characters
+            out.writeByte(SHORT);
+            out.writeUTF(s);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeByte(LONG);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    public static String readString(ObjectInput in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:  return null;
+            case SHORT: return in.readUTF();
+            case LONG: {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_STRING_BYTES) {
+                    throw new InvalidObjectException("String length " + length + " outside 0.." + MAX_STRING_BYTES
+                            + " (-D" + MAX_STRING_BYTES_PROPERTY + ")");
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+            default: throw new InvalidObjectException("Bad string tag " + tag);
+        }
+    }
+
+    /** Read a vegetable ID and return the shared instance for it. */
+    public static String readId(ObjectInput in) throws IOException {
+        return intern(readString(in));
+    }
+
+    /** Shared instance of the given ID (or the ID itself once the pool is full). */
+    public static String intern(String id) {
+        if (id == null) return null;
+        String shared = IDS.get(id);
+        if (shared != null) return shared;
+        if (IDS.size() >= INTERN_LIMIT) return id;
+        shared = IDS.putIfAbsent(id, id);
+        return shared != null ? shared : id;
+    }
+
+    // ── Basket lines ─────────────────────────────────────────────────────────
+
+    /** Write the first n IDs (n is written by the caller). */
+    public static void writeIds(ObjectOutput out, String[] ids, int n) throws IOException {
+        for (int i = 0; i < n; i++) writeString(out, ids[i]);
+    }
+
+    public static String[] readIds(ObjectInput in, int n) throws IOException {
+        String[] ids = new String[n];
+        for (int i = 0; i < n; i++) ids[i] = readId(in);
+        return ids;
+    }
+
+    /** Write the first n values (n is written by the caller). */
+    public static void writeDoubles(ObjectOutput out, double[] values, int n) throws IOException {
+        for (int i = 0; i < n; i++) out.writeDouble(values[i]);
+    }
+
+    public static double[] readDoubles(ObjectInput in, int n) throws IOException {
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) values[i] = in.readDouble();
+        return values;
+    }
+
+    /** Write the first n values (n is written by the caller). */
+    public static void writeInts(ObjectOutput out, int[] values, int n) throws IOException {
+        for (int i = 0; i < n; i++) out.writeInt(values[i]);
+    }
+
+    public static int[] readInts(ObjectInput in, int n) throws IOException {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) values[i] = in.readInt();
+        return values;
+    }
+
+    /** Read a line count written with writeInt and check it is sane. */
+    public static int readCount(ObjectInput in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) throw new InvalidObjectException("Negative line count " + n);
+        if (n > MAX_COUNT) {
+            throw new InvalidObjectException("Line count " + n + " over " + MAX_COUNT + " (-D" + MAX_COUNT_PROPERTY + ")");
+        }
+        return n;
+    }
+
+    // ── Nested VegetablePrice ────────────────────────────────────────────────
+
+    /** Write a VegetablePrice (may be null) inline, without a class descriptor. */
+    public static void writePrice(ObjectOutput out, VegetablePrice vp) throws IOException {
+        out.writeBoolean(vp != null);
+        if (vp != null) vp.writeExternal(out);
+    }
+
+    public static VegetablePrice readPrice(ObjectInput in) throws IOException {
+        if (!in.readBoolean()) return null;
+        VegetablePrice vp = new VegetablePrice();
+        vp.readExternal(in);
+        return vp;
+    }
+}
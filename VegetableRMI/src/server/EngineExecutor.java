@@ -0,0 +1,210 @@
+package server;
+
+import common.EngineOverloadedException;
+import common.IdempotentTask;
+import common.Task;
+import common.TaskTimeoutException;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * EngineExecutor - bounded worker pool that runs tasks for the engine.
+ *
+ * - A fixed number of worker threads execute tasks; RMI transport
+ *   threads only hand work over and wait for the result.
+ * - The work queue has a fixed depth. When it is full the task is
+ *   rejected immediately with EngineOverloadedException instead of
+ *   piling up behind a load spike.
+ * - Each task has a deadline. If it is missed the caller gets a
+ *   TaskTimeoutException and the worker is interrupted.
+ * - Queue wait and execute time are recorded separately so the pool
+ *   can be sized from real numbers, in total and per task class.
+ *
+ * Configured with system properties (defaults in brackets):
+ *   -Dvegetable.engine.workers=N        [2 x CPU cores]
+ *   -Dvegetable.engine.queueDepth=N     [256]
+ *   -Dvegetable.engine.taskTimeoutMs=N  [5000, 0 = no deadline]
+ *
+ * DIARY: Day 5 - executeTask() used to run every task directly on the
+ *        RMI connection thread with no limit at all.
+ *        Day 6 - Tasks with a request ID run through RequestDedup.
+ */
+public class EngineExecutor {
+
+    public static final String WORKERS_PROPERTY = "vegetable.engine.workers";
+    public static final String QUEUE_PROPERTY   = "vegetable.engine.queueDepth";
+    public static final String TIMEOUT_PROPERTY = "vegetable.engine.taskTimeoutMs";
+
+    // Singleton instance
+    private static EngineExecutor instance;
+
+    private final ThreadPoolExecutor pool;
+    private final int  queueDepth;
+    private final long timeoutMillis;
+
+    // ── Metrics ──────────────────────────────────────────────────────────────
+    private final LongAdder  submitted      = new LongAdder();
+    private final LongAdder  completed      = new LongAdder();
+    private final LongAdder  rejected       = new LongAdder();
+    private final LongAdder  timedOut       = new LongAdder();
+    private final LongAdder  queueWaitNanos = new LongAdder();
+    private final LongAdder  executeNanos   = new LongAdder();
+    private final AtomicLong maxQueueWait   = new AtomicLong();
+    private final AtomicLong maxExecute     = new AtomicLong();
+
+    // Per task class histograms (see TaskMetrics)
+    private final TaskMetrics metrics = TaskMetrics.getInstance();
+
+    /**
+     * @param workers       number of worker threads
+     * @param queueDepth    tasks allowed to wait for a worker
+     * @param timeoutMillis per-task deadline, 0 for none
+     */
+    public EngineExecutor(int workers, int queueDepth, long timeoutMillis) {
+        this.queueDepth    = queueDepth;
+        this.timeoutMillis = timeoutMillis;
+
+        AtomicInteger threadNo = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueDepth),
+                r -> {
+                    Thread t = new Thread(r, "engine-worker-" + threadNo.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /** Return the shared executor, configured from system properties on first use. */
+    public static synchronized EngineExecutor getInstance() {
+        if (instance == null) {
+            instance = new EngineExecutor(
+                    Integer.getInteger(WORKERS_PROPERTY, Runtime.getRuntime().availableProcessors() * 2),
+                    Integer.getInteger(QUEUE_PROPERTY, 256),
+                    Long.getLong(TIMEOUT_PROPERTY, 5000L));
+        }
+        return instance;
+    }
+
+    /**
+     * Queue a task without waiting for it.
+     * @throws EngineOverloadedException if the work queue is full
+     */
+    public <T> Future<T> submit(Task<T> task) throws EngineOverloadedException {
+        long enqueuedAt = System.nanoTime();
+        try {
+            Future<T> future = pool.submit(() -> runTimed(task, enqueuedAt));
+            submitted.increment();
+            return future;
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            if (EngineLog.isEnabled(EngineLog.Level.WARN)) {
+                EngineLog.warn("task.rejected", "task", task.getClass().getSimpleName(), "queueDepth", queueDepth);
+            }
+            throw new EngineOverloadedException("Engine busy: " + queueDepth
+                    + " tasks already queued. Try again shortly.");
+        }
+    }
+
+    /**
+     * Wait for a queued task, enforcing the per-task deadline.
+     * Exceptions thrown by the task itself are rethrown unchanged.
+     */
+    public <T> T await(Future<? extends T> future) throws RemoteException {
+        try {
+            return timeoutMillis > 0
+                    ? future.get(timeoutMillis, TimeUnit.MILLISECONDS)
+                    : future.get();
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            if (EngineLog.isEnabled(EngineLog.Level.WARN)) {
+                EngineLog.warn("task.timeout", "deadlineMs", timeoutMillis);
+            }
+            throw new TaskTimeoutException("Task did not finish within " + timeoutMillis + " ms.");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while waiting for task.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RemoteException)  throw (RemoteException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new RemoteException("Task failed.", cause);
+        }
+    }
+
+    /** Submit a task and wait for its result. */
+    public <T> T run(Task<T> task) throws RemoteException {
+        return await(submit(task));
+    }
+
+    // Runs on a worker thread; a retried request gets its first result (RequestDedup)
+    private <T> T runTimed(Task<T> task, long enqueuedAt) {
+        long start = System.nanoTime();
+        record(queueWaitNanos, maxQueueWait, start - enqueuedAt);
+        metrics.record(task.getClass(), TaskMetrics.Phase.QUEUE, start - enqueuedAt);
+        try {
+            return task instanceof IdempotentTask
+                    ? RequestDedup.getInstance().execute((IdempotentTask<T>) task)
+                    : task.execute();
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            record(executeNanos, maxExecute, elapsed);
+            metrics.record(task.getClass(), TaskMetrics.Phase.EXECUTE, elapsed);
+            completed.increment();
+        }
+    }
+
+    private static void record(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        if (nanos > max.get()) max.accumulateAndGet(nanos, Math::max);
+    }
+
+    // ── Getters ──────────────────────────────────────────────────────────────
+
+    public int  getWorkers()           { return pool.getMaximumPoolSize(); }
+    public int  getQueueDepth()        { return queueDepth; }
+    public int  getQueued()            { return pool.getQueue().size(); }
+    public int  getActive()            { return pool.getActiveCount(); }
+    public long getTimeoutMillis()     { return timeoutMillis; }
+
+    public long getSubmitted()         { return submitted.sum(); }
+    public long getCompleted()         { return completed.sum(); }
+    public long getRejected()          { return rejected.sum(); }
+    public long getTimedOut()          { return timedOut.sum(); }
+    public long getQueueWaitNanos()    { return queueWaitNanos.sum(); }
+    public long getExecuteNanos()      { return executeNanos.sum(); }
+    public long getMaxQueueWaitNanos() { return maxQueueWait.get(); }
+    public long getMaxExecuteNanos()   { return maxExecute.get(); }
+
+    /** Multi-line summary of pool size, load and timings. */
+    public String getStats() {
+        long n = completed.sum();
+        return String.format(
+                "ENGINE EXECUTOR:\n"
+                + "  Workers     : %d (%d busy)\n"
+                + "  Queue       : %d / %d\n"
+                + "  Completed   : %d\n"
+                + "  Rejected    : %d\n"
+                + "  Timed out   : %d (deadline %d ms)\n"
+                + "  Queue wait  : avg %.3f ms | max %.3f ms\n"
+                + "  Execute     : avg %.3f ms | max %.3f ms",
+                getWorkers(), getActive(),
+                getQueued(), queueDepth,
+                n, rejected.sum(), timedOut.sum(), timeoutMillis,
+                n == 0 ? 0.0 : queueWaitNanos.sum() / 1e6 / n, maxQueueWait.get() / 1e6,
+                n == 0 ? 0.0 : executeNanos.sum() / 1e6 / n, maxExecute.get() / 1e6);
+    }
+}
@@ -0,0 +1,193 @@
+package server;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * EngineLog - structured, asynchronous event log for the engine.
+ *
+ * - Callers publish small events (a name plus key/value fields) into a
+ *   fixed-size ring buffer and return straight away; a background thread
+ *   formats them and writes them to stdout.
+ * - If the buffer is full the event is dropped and counted, so a slow
+ *   console can never stall a worker thread.
+ * - Level-gated: below the configured level nothing is allocated or
+ *   formatted. Guard calls that build values with isEnabled()/sampled().
+ * - Sampling: high-volume events can be logged 1 in N times.
+ *
+ * Configured with system properties (defaults in brackets):
+ *   -Dvegetable.log.level=OFF|ERROR|WARN|INFO|DEBUG  [INFO]
+ *   -Dvegetable.log.sampleEvery=N                     [1 = every event]
+ *   -Dvegetable.log.bufferSize=N                      [8192, power of two]
+ *
+ * DIARY: Day 5 - executeTask() printed two lines per task with
+ *        System.out.println, including the whole receipt. Under load the
+ *        workers spent their time waiting on the console lock.
+ */
+public final class EngineLog {
+
+    /** Severity of an event; OFF disables logging entirely. */
+    public enum Level { OFF, ERROR, WARN, INFO, DEBUG }
+
+    public static final String LEVEL_PROPERTY  = "vegetable.log.level";
+    public static final String SAMPLE_PROPERTY = "vegetable.log.sampleEvery";
+    public static final String BUFFER_PROPERTY = "vegetable.log.bufferSize";
+
+    private static final DateTimeFormatter TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+
+    private static volatile Level level =
+            Level.valueOf(System.getProperty(LEVEL_PROPERTY, "INFO").trim().toUpperCase());
+    private static volatile int sampleEvery = Math.max(1, Integer.getInteger(SAMPLE_PROPERTY, 1));
+
+    // ── Ring buffer (many producers, one consumer) ───────────────────────────
+    private static final int capacity = roundUpToPowerOfTwo(Integer.getInteger(BUFFER_PROPERTY, 8192));
+    private static final int mask     = capacity - 1;
+    private static final AtomicReferenceArray<Event> slots = new AtomicReferenceArray<>(capacity);
+    private static final AtomicLong tail = new AtomicLong(); // next slot to claim (producers)
+    private static volatile long    head;                    // next slot to drain (consumer only)
+
+    private static final LongAdder published = new LongAdder();
+    private static final LongAdder dropped   = new LongAdder();
+
+    private static volatile Thread drainer; // started on first event
+    private static final PrintStream out = System.out;
+
+    private EngineLog() { }
+
+    // ── Configuration ────────────────────────────────────────────────────────
+
+    /** True if events at this level would be recorded. */
+    public static boolean isEnabled(Level l) {
+        return l != Level.OFF && l.ordinal() <= level.ordinal();
+    }
+
+    /** True if this event is enabled and falls inside the sample (1 in N). */
+    public static boolean sampled(Level l) {
+        if (!isEnabled(l)) return false;
+        int n = sampleEvery;
+        return n == 1 || ThreadLocalRandom.current().nextInt(n) == 0;
+    }
+
+    public static Level getLevel()            { return level; }
+    public static void  setLevel(Level l)     { level = l; }
+    public static int   getSampleEvery()      { return sampleEvery; }
+    public static void  setSampleEvery(int n) { sampleEvery = Math.max(1, n); }
+    public static long  getPublished()        { return published.sum(); }
+    public static long  getDropped()          { return dropped.sum(); }
+
+    // ── Publishing ───────────────────────────────────────────────────────────
+
+    public static void error(String event, Object... fields) { log(Level.ERROR, event, fields); }
+    public static void warn(String event, Object... fields)  { log(Level.WARN,  event, fields); }
+    public static void info(String event, Object... fields)  { log(Level.INFO,  event, fields); }
+    public static void debug(String event, Object... fields) { log(Level.DEBUG, event, fields); }
+
+    /**
+     * Publish an event.
+     * @param l      severity
+     * @param event  short dotted name, e.g. "task.completed"
+     * @param fields alternating keys and values, e.g. "task", "CalculateCost"
+     */
+    public static void log(Level l, String event, Object... fields) {
+        if (!isEnabled(l)) return;
+        Event e = new Event(System.currentTimeMillis(), l, Thread.currentThread().getName(), event, fields);
+
+        long t;
+        do {
+            t = tail.get();
+            if (t - head >= capacity) {
+                dropped.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(t, t + 1));
+        slots.lazySet((int) (t & mask), e);
+        published.increment();
+
+        if (drainer == null) startDrainer();
+    }
+
+    // ── Draining (background thread) ─────────────────────────────────────────
+
+    private static synchronized void startDrainer() {
+        if (drainer != null) return;
+        Thread t = new Thread(EngineLog::drainLoop, "engine-log");
+        t.setDaemon(true);
+        t.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(EngineLog::drain, "engine-log-flush"));
+        drainer = t;
+    }
+
+    private static void drainLoop() {
+        while (true) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(5_000_000L); // nothing to do; check again in 5 ms
+            }
+        }
+    }
+
+    // Write out everything published so far; returns the number of events written
+    private static synchronized int drain() {
+        StringBuilder sb = new StringBuilder(256);
+        int written = 0;
+        long h = head;
+        while (h < tail.get()) {
+            int slot = (int) (h & mask);
+            Event e = slots.get(slot);
+            if (e == null) {
+                Thread.onSpinWait(); // slot claimed but not yet filled in
+                continue;
+            }
+            slots.lazySet(slot, null);
+            head = ++h;
+
+            sb.setLength(0);
+            e.appendTo(sb);
+            out.println(sb);
+            written++;
+        }
+        if (written > 0) out.flush();
+        return written;
+    }
+
+    private static int roundUpToPowerOfTwo(int n) {
+        int c = Integer.highestOneBit(Math.max(2, n));
+        return c == n ? c : c << 1;
+    }
+
+    // ── Event ────────────────────────────────────────────────────────────────
+
+    private static final class Event {
+        final long     timeMillis;
+        final Level    level;
+        final String   thread;
+        final String   name;
+        final Object[] fields;
+
+        Event(long timeMillis, Level level, String thread, String name, Object[] fields) {
+            this.timeMillis = timeMillis;
+            this.level      = level;
+            this.thread     = thread;
+            this.name       = name;
+            this.fields     = fields;
+        }
+
+        // e.g. 2024-05-01 10:15:00.123 DEBUG [engine-worker-1] task.completed task=CalculateCost
+        void appendTo(StringBuilder sb) {
+            sb.append(TIME_FORMAT.format(Instant.ofEpochMilli(timeMillis))).append(' ');
+            sb.append(level);
+            for (int pad = level.name().length(); pad < 5; pad++) sb.append(' ');
+            sb.append(" [").append(thread).append("] ").append(name);
+            for (int i = 0; i + 1 < fields.length; i += 2) {
+                sb.append(' ').append(fields[i]).append('=').append(fields[i + 1]);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package server;
+
+import common.VegetablePrice;
+
+import java.util.Arrays;
+
+/**
+ * HandlePrices - one snapshot's prices indexed by SKU handle (see
+ * SkuDictionary): the price in cents in a long[] and the row itself, so a
+ * handle lookup is two array reads with no hashing.
+ *
+ * - Immutable once built, like the Snapshot that holds it.
+ * - The arrays are split into chunks of CHUNK handles. A change copies
+ *   only the chunk it touches (and the short arrays of chunk references),
+ *   so a write costs a few KB whatever the size of the table; chunks
+ *   nothing changed are shared with the previous snapshot.
+ * - A handle past the end, or in a chunk never filled, is absent.
+ *
+ * DIARY: Day 6 - Created for int SKU handles.
+ */
+final class HandlePrices {
+
+    /** centsOf() for a handle with no vegetable (never given out, or deleted). */
+    static final long ABSENT = PricingEngine.NOT_FOUND;
+
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK      = 1 << CHUNK_BITS;
+    private static final int MASK       = CHUNK - 1;
+
+    static final HandlePrices EMPTY = new HandlePrices(new long[0][], new VegetablePrice[0][]);
+
+    private final long[][]           cents; // per chunk, ABSENT-filled; null chunk = all absent
+    private final VegetablePrice[][] rows;  // per chunk, parallel to cents
+
+    private HandlePrices(long[][] cents, VegetablePrice[][] rows) {
+        this.cents = cents;
+        this.rows  = rows;
+    }
+
+    /** Price in cents of the vegetable with this handle, or ABSENT. */
+    long centsOf(int handle) {
+        int c = handle >>> CHUNK_BITS;
+        if (c >= cents.length) return ABSENT; // also a negative handle (huge after >>>)
+        long[] chunk = cents[c];
+        return chunk == null ? ABSENT : chunk[handle & MASK];
+    }
+
+    /** The vegetable with this handle, or null. */
+    VegetablePrice rowOf(int handle) {
+        int c = handle >>> CHUNK_BITS;
+        if (c >= rows.length) return null;
+        VegetablePrice[] chunk = rows[c];
+        return chunk == null ? null : chunk[handle & MASK];
+    }
+
+    /** A copy to change; only the chunks actually changed are copied. */
+    Editor edit() {
+        return new Editor(this);
+    }
+
+    // ── Editor ───────────────────────────────────────────────────────────────
+
+    /** Collects changes for the next snapshot; one thread, one build. */
+    static final class Editor {
+        private long[][]           cents;
+        private VegetablePrice[][] rows;
+        private boolean[]          copied; // chunks already copied by this editor
+
+        private Editor(HandlePrices from) {
+            cents  = from.cents.clone();
+            rows   = from.rows.clone();
+            copied = new boolean[cents.length];
+        }
+
+        /** Set the vegetable with this handle; null to delete it. */
+        Editor set(int handle, VegetablePrice vp) {
+            int c = handle >>> CHUNK_BITS;
+            if (c >= cents.length) {
+                if (vp == null) return this; // already absent
+                int n = Math.max(c + 1, cents.length * 2);
+                cents  = Arrays.copyOf(cents, n);
+                rows   = Arrays.copyOf(rows, n);
+                copied = Arrays.copyOf(copied, n);
+            }
+            if (!copied[c]) {
+                if (cents[c] == null) {
+                    cents[c] = new long[CHUNK];
+                    Arrays.fill(cents[c], ABSENT);
+                    rows[c] = new VegetablePrice[CHUNK];
+                } else {
+                    cents[c] = cents[c].clone();
+                    rows[c]  = rows[c].clone();
+                }
+                copied[c] = true;
+            }
+            cents[c][handle & MASK] = vp == null ? ABSENT : vp.getPriceCents();
+            rows[c][handle & MASK]  = vp;
+            return this;
+        }
+
+        /** The changed prices; the editor must not be used after this. */
+        HandlePrices build() {
+            return new HandlePrices(cents, rows);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package server;
+
+import common.VegetablePrice;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * HeapPriceStore - read-only prices kept in an ordinary map on the heap.
+ *
+ * What an in-memory table (no data directory, -Dvegetable.store=heap)
+ * sits on. Its snapshots copy their overlay on every change, so the rows
+ * are not kept there: the overlay is folded into a new HeapPriceStore
+ * every -Dvegetable.store.foldAfter changes (see VegetablePriceTable),
+ * which keeps a write from costing the size of the whole table.
+ *
+ * Immutable once built; the VegetablePrice objects are shared, not copied.
+ *
+ * DIARY: Day 6 - Single-row writes copied every row of an in-memory table.
+ */
+public final class HeapPriceStore implements PriceStore {
+
+    private final Map<String, VegetablePrice> rows; // insertion ordered, never modified
+    private final Collection<VegetablePrice> values;
+    private final long version;
+
+    private HeapPriceStore(Map<String, VegetablePrice> rows, long version) {
+        this.rows    = rows;
+        this.values  = Collections.unmodifiableCollection(rows.values());
+        this.version = version;
+    }
+
+    /**
+     * Copy the rows into a new store, in iteration order.
+     * @param version table version the rows belong to
+     */
+    public static HeapPriceStore build(Collection<VegetablePrice> rows, long version) {
+        Map<String, VegetablePrice> copy = new LinkedHashMap<>(Math.max(16, (int) (rows.size() / 0.75f) + 1));
+        for (VegetablePrice vp : rows) copy.put(vp.getId(), vp);
+        return new HeapPriceStore(copy, version);
+    }
+
+    // ── Lookups ──────────────────────────────────────────────────────────────
+
+    @Override
+    public VegetablePrice find(String id) {
+        return rows.get(id);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return rows.containsKey(id);
+    }
+
+    @Override
+    public Collection<VegetablePrice> entries() {
+        return values;
+    }
+
+    // ── Getters ──────────────────────────────────────────────────────────────
+
+    @Override
+    public int  size()       { return rows.size(); }
+    @Override
+    public long getVersion() { return version; }
+}
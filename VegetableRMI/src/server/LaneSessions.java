@@ -0,0 +1,323 @@
+package server;
+
+import common.BasketQuote;
+import common.LaneTotals;
+import common.VegetablePrice;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LaneSessions - open checkout lane sessions on this engine.
+ *
+ * A lane opens a session, sends each item as it is scanned and gets the
+ * running total back, then finishes the session for the printed receipt.
+ * Each scan looks up one vegetable and adds one line, so its cost does not
+ * grow with the basket, and only that one item goes over the wire (not
+ * the whole basket every time, as with CalculateCost).
+ *
+ * - A session keeps its lines in parallel primitive arrays (price entry,
+ *   quantity, unit and line cents), grown by doubling, and the running
+ *   total as long cents. The price is fixed when the item is scanned.
+ * - Scans are numbered by the lane (1, 2, 3...). A scan with the number
+ *   just applied is a retry and gets the same answer again, so a lane can
+ *   resend a scan whose answer was lost without adding the item twice.
+ *   The retry must be for the same item (ID or handle, quantity, or line
+ *   voided); a different item under that number is refused, rather than
+ *   answered with the old result and silently dropped.
+ * - Bounded: at most -Dvegetable.lane.maxSessions open sessions (10000)
+ *   of -Dvegetable.lane.maxLines lines each (1000). A session unused for
+ *   -Dvegetable.lane.idleMillis (15 minutes) is dropped.
+ * - Sessions live in this engine's memory only; lanes must send every
+ *   call to the same (primary) engine.
+ *
+ * DIARY: Day 6 - Lanes resent the whole basket as a Map on every scan to
+ *        show the running total, and the engine priced it all again.
+ */
+public final class LaneSessions {
+
+    public static final String MAX_SESSIONS_PROPERTY = "vegetable.lane.maxSessions";
+    public static final String MAX_LINES_PROPERTY    = "vegetable.lane.maxLines";
+    public static final String IDLE_PROPERTY         = "vegetable.lane.idleMillis";
+
+    private static final int INITIAL_LINES = 16;
+
+    // Singleton instance
+    private static LaneSessions instance;
+
+    private final int  maxSessions;
+    private final int  maxLines;
+    private final long idleNanos;
+
+    private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+    private volatile long nextSweepAt; // System.nanoTime() of the next idle sweep
+
+    // ── Counters ─────────────────────────────────────────────────────────────
+    private final LongAdder opened   = new LongAdder();
+    private final LongAdder scans    = new LongAdder();
+    private final LongAdder finished = new LongAdder();
+    private final LongAdder expired  = new LongAdder();
+
+    /**
+     * @param maxSessions most sessions open at once
+     * @param maxLines    most lines per session
+     * @param idleMillis  how long an unused session is kept
+     */
+    public LaneSessions(int maxSessions, int maxLines, long idleMillis) {
+        this.maxSessions = Math.max(1, maxSessions);
+        this.maxLines    = Math.max(1, maxLines);
+        this.idleNanos   = idleMillis * 1_000_000L;
+        this.nextSweepAt = System.nanoTime() + sweepEvery();
+    }
+
+    /** Return the shared sessions, configured from system properties on first use. */
+    public static synchronized LaneSessions getInstance() {
+        if (instance == null) {
+            instance = new LaneSessions(
+                    Integer.getInteger(MAX_SESSIONS_PROPERTY, 10_000),
+                    Integer.getInteger(MAX_LINES_PROPERTY, 1_000),
+                    Long.getLong(IDLE_PROPERTY, 900_000L));
+        }
+        return instance;
+    }
+
+    // ── Lane calls ───────────────────────────────────────────────────────────
+
+    /**
+     * Open a session for a cashier.
+     * @throws IllegalStateException if maxSessions are already open
+     */
+    public LaneTotals open(String cashierName) {
+        long now = System.nanoTime();
+        if (now - nextSweepAt >= 0 || sessions.size() >= maxSessions) sweep(now);
+        if (sessions.size() >= maxSessions) {
+            throw new IllegalStateException("Too many open lane sessions (" + maxSessions + "). Try again shortly.");
+        }
+        Session session;
+        do {
+            session = new Session(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, cashierName, now);
+        } while (session.id == 0 || sessions.putIfAbsent(session.id, session) != null);
+        opened.increment();
+        return session.totals(-1, null, 0L, 0L);
+    }
+
+    /**
+     * Add a scanned item to the session.
+     * @param seq this scan's number: one more than the last one applied,
+     *            or the same number again to repeat a lost answer
+     * @return running totals; the line is not found (and not added) if
+     *         the vegetable ID is not in the table
+     */
+    public LaneTotals scan(long sessionId, int seq, String vegetableId, double quantityKg) {
+        return scan(sessionId, seq, vegetableId, 0L, SkuDictionary.NO_HANDLE, quantityKg);
+    }
+
+    /**
+     * Add a scanned item given by SKU handle (see ResolveSkus); otherwise
+     * the same as scan() by ID.
+     * @throws common.StaleSkuHandlesException if the handle is from another engine
+     */
+    public LaneTotals scan(long sessionId, int seq, long epoch, int handle, double quantityKg) {
+        return scan(sessionId, seq, null, epoch, handle, quantityKg);
+    }
+
+    // By ID, or by handle when vegetableId is null
+    private LaneTotals scan(long sessionId, int seq, String vegetableId, long epoch, int handle, double quantityKg) {
+        if (!(quantityKg > 0)) throw new IllegalArgumentException("Quantity must be more than 0 kg.");
+        Session session = get(sessionId);
+        String request = vegetableId != null ? "scan " + vegetableId + " x " + quantityKg
+                : "scan #" + handle + "@" + Long.toHexString(epoch) + " x " + quantityKg;
+        synchronized (session) {
+            LaneTotals replay = session.replay(seq, request);
+            if (replay != null) return replay;
+            VegetablePriceTable table = VegetablePriceTable.getInstance();
+            VegetablePrice vp = vegetableId != null ? table.find(vegetableId)
+                    : table.handleSnapshot(epoch).findByHandle(handle);
+            scans.increment();
+            if (vp == null) {
+                session.missing++;
+                return session.applied(seq, request, -1, null, 0L, 0L);
+            }
+            if (session.size == maxLines) {
+                throw new IllegalStateException("Lane session " + sessionId + " is full (" + maxLines + " lines).");
+            }
+            long unit = vp.getPriceCents();
+            long line = PricingEngine.lineTotalCents(unit, quantityKg);
+            int lineNo = session.add(vp, quantityKg, unit, line);
+            return session.applied(seq, request, lineNo, vp.getName(), unit, line);
+        }
+    }
+
+    /**
+     * Take a line off the receipt (e.g. the customer put it back).
+     * Numbered like a scan; voiding a line twice changes nothing.
+     */
+    public LaneTotals voidLine(long sessionId, int seq, int lineNo) {
+        Session session = get(sessionId);
+        String request = "void line " + lineNo;
+        synchronized (session) {
+            LaneTotals replay = session.replay(seq, request);
+            if (replay != null) return replay;
+            if (lineNo < 0 || lineNo >= session.size) {
+                throw new IllegalArgumentException("Lane session " + sessionId + " has no line " + lineNo + ".");
+            }
+            VegetablePrice vp = session.entries[lineNo];
+            long line = 0L;
+            if (!session.voided[lineNo]) {
+                session.voided[lineNo] = true;
+                session.active--;
+                line = -session.lineCents[lineNo];
+                session.totalCents += line;
+            }
+            return session.applied(seq, request, lineNo, vp.getName(), session.unitCents[lineNo], line);
+        }
+    }
+
+    /**
+     * Close the session and render its receipt from the scanned lines,
+     * at the prices they were scanned at.
+     */
+    public String finish(long sessionId, long amountGivenCents) {
+        Session session = get(sessionId);
+        synchronized (session) {
+            if (!sessions.remove(sessionId, session)) throw notOpen(sessionId);
+            finished.increment();
+            return ReceiptRenderer.renderReceipt(session.toQuote(), amountGivenCents,
+                    session.cashierName, LocalDateTime.now());
+        }
+    }
+
+    private Session get(long sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) throw notOpen(sessionId);
+        session.lastUsed = System.nanoTime();
+        return session;
+    }
+
+    private IllegalStateException notOpen(long sessionId) {
+        return new IllegalStateException("Lane session " + sessionId + " is not open (finished, or idle for more than "
+                + idleNanos / 1_000_000_000L + " s).");
+    }
+
+    // Drop sessions idle for longer than idleNanos
+    private void sweep(long now) {
+        nextSweepAt = now + sweepEvery();
+        for (Iterator<Session> it = sessions.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().lastUsed > idleNanos) {
+                it.remove();
+                expired.increment();
+            }
+        }
+    }
+
+    private long sweepEvery() {
+        return Math.max(1_000_000_000L, idleNanos / 4);
+    }
+
+    // ── Session ──────────────────────────────────────────────────────────────
+
+    // One lane's basket; guarded by its own monitor
+    private static final class Session {
+        final long   id;
+        final String cashierName;
+        volatile long lastUsed; // System.nanoTime()
+
+        VegetablePrice[] entries    = new VegetablePrice[INITIAL_LINES];
+        double[]         quantities = new double[INITIAL_LINES];
+        long[]           unitCents  = new long[INITIAL_LINES];
+        long[]           lineCents  = new long[INITIAL_LINES];
+        boolean[]        voided     = new boolean[INITIAL_LINES];
+
+        int        size;        // lines scanned, voided ones included
+        int        active;      // lines not voided
+        int        missing;     // scans of unknown IDs
+        long       totalCents;  // sum of lines not voided
+        int        seq;         // last scan applied
+        String     lastRequest; // what it was: item and quantity, or line voided
+        LaneTotals last;        // its answer, for a repeated scan
+
+        Session(long id, String cashierName, long now) {
+            this.id          = id;
+            this.cashierName = cashierName;
+            this.lastUsed    = now;
+        }
+
+        // The answer to a repeated scan, or null if seq is the next one
+        LaneTotals replay(int seq, String request) {
+            if (seq == this.seq && last != null) {
+                if (!request.equals(lastRequest)) {
+                    throw new IllegalArgumentException("Lane session " + id + " scan " + seq + " was "
+                            + lastRequest + ", not " + request + "; number the next scan " + (seq + 1) + ".");
+                }
+                return last;
+            }
+            if (seq != this.seq + 1) {
+                throw new IllegalArgumentException("Lane session " + id + " expected scan " + (this.seq + 1)
+                        + ", got " + seq + ".");
+            }
+            return null;
+        }
+
+        int add(VegetablePrice vp, double quantityKg, long unit, long line) {
+            if (size == entries.length) {
+                int n = size * 2;
+                entries    = Arrays.copyOf(entries, n);
+                quantities = Arrays.copyOf(quantities, n);
+                unitCents  = Arrays.copyOf(unitCents, n);
+                lineCents  = Arrays.copyOf(lineCents, n);
+                voided     = Arrays.copyOf(voided, n);
+            }
+            entries[size]    = vp;
+            quantities[size] = quantityKg;
+            unitCents[size]  = unit;
+            lineCents[size]  = line;
+            active++;
+            totalCents += line;
+            return size++;
+        }
+
+        LaneTotals applied(int seq, String request, int lineNo, String name, long unit, long line) {
+            this.seq         = seq;
+            this.lastRequest = request;
+            this.last        = totals(lineNo, name, unit, line);
+            return last;
+        }
+
+        LaneTotals totals(int lineNo, String name, long unit, long line) {
+            return new LaneTotals(id, seq, lineNo, name, unit, line, active, missing, totalCents);
+        }
+
+        // The lines not voided, in scan order, as a priced basket
+        BasketQuote toQuote() {
+            String[] ids = new String[active];
+            double[] qty = new double[active];
+            for (int i = 0, j = 0; i < size; i++) {
+                if (voided[i]) continue;
+                ids[j] = entries[i].getId();
+                qty[j++] = quantities[i];
+            }
+            BasketQuote quote = new BasketQuote();
+            quote.reset(ids, qty);
+            for (int i = 0, j = 0; i < size; i++) {
+                if (!voided[i]) quote.setLine(j++, entries[i], unitCents[i], lineCents[i]);
+            }
+            return quote;
+        }
+    }
+
+    // ── Stats ────────────────────────────────────────────────────────────────
+
+    public int getOpenCount() {
+        return sessions.size();
+    }
+
+    public String getStats() {
+        return String.format("LANES       | open: %d (max %d) | opened: %d | scans: %d | finished: %d | expired: %d%n",
+                sessions.size(), maxSessions, opened.sum(), scans.sum(), finished.sum(), expired.sum());
+    }
+}
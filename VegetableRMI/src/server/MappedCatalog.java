@@ -0,0 +1,268 @@
+package server;
+
+import common.VegetablePrice;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MappedCatalog - read-only price table stored in a compact binary file
+ * and memory-mapped with FileChannel.map().
+ *
+ * Opening a catalog only maps the file and reads the header, so startup
+ * takes the same time for 5 or 5 million vegetables. Lookups probe an
+ * open-addressing hash index inside the mapped region and compare the ID
+ * bytes in place; a VegetablePrice object is only created (and then
+ * cached) for entries that are actually looked up.
+ *
+ * File layout (all big-endian):
+ *   header  int magic "VEGC" | int format (1) | long table version
+ *           int entry count  | int slot count (power of two) | long data offset
+ *   index   slot count x long: (id hash &lt;&lt; 32) | record offset, 0 = empty
+ *   data    per entry, in table order:
+ *           short idLen | id UTF-8 | short nameLen | name UTF-8 | double pricePerKg
+ *
+ * DIARY: Day 6 - With large catalogs, building the LinkedHashMap at boot
+ *        meant parsing and allocating one object per SKU before the
+ *        server could answer anything.
+ *        Day 6 - Implements PriceStore, like OffHeapPriceStore.
+ */
+public final class MappedCatalog implements PriceStore {
+
+    private static final int MAGIC       = 0x56454743; // "VEGC"
+    private static final int FORMAT      = 1;
+    private static final int HEADER_SIZE = 32;
+
+    private final MappedByteBuffer buf; // only absolute reads, safe to share
+    private final long version;
+    private final int  count;
+    private final int  mask;            // slot count - 1
+    private final int  dataOffset;
+
+    // Entries that have been looked up at least once
+    private final ConcurrentHashMap<String, VegetablePrice> materialized = new ConcurrentHashMap<>();
+
+    private MappedCatalog(MappedByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.capacity() < HEADER_SIZE || buf.getInt(0) != MAGIC) {
+            throw new IOException("Not a vegetable catalog file");
+        }
+        if (buf.getInt(4) != FORMAT) {
+            throw new IOException("Unsupported catalog format " + buf.getInt(4));
+        }
+        this.version    = buf.getLong(8);
+        this.count      = buf.getInt(16);
+        this.mask       = buf.getInt(20) - 1;
+        this.dataOffset = (int) buf.getLong(24);
+    }
+
+    /** Map a catalog file. Cost does not depend on the number of entries. */
+    public static MappedCatalog open(Path path) throws IOException {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedCatalog(ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        }
+    }
+
+    /**
+     * Write a catalog file holding the given entries in iteration order.
+     * @param version table version the entries belong to
+     */
+    public static void write(Path path, Collection<VegetablePrice> entries, long version) throws IOException {
+        int n = entries.size();
+        int slots = Integer.highestOneBit(Math.max(2, n * 2 - 1)) << 1; // load factor <= 0.5
+        long[] index = new long[slots];
+
+        // First pass: encode each record and work out where it will live
+        byte[][] ids   = new byte[n][];
+        byte[][] names = new byte[n][];
+        double[] prices = new double[n];
+        long dataOffset = HEADER_SIZE + (long) slots * 8;
+        long offset = dataOffset;
+        int i = 0;
+        for (VegetablePrice vp : entries) {
+            ids[i]    = utf8(vp.getId());
+            names[i]  = utf8(vp.getName());
+            prices[i] = vp.getPricePerKg();
+            if (offset > Integer.MAX_VALUE) throw new IOException("Catalog larger than 2 GB");
+
+            int h = hash(vp.getId());
+            int slot = h & (slots - 1);
+            while (index[slot] != 0) slot = (slot + 1) & (slots - 1);
+            index[slot] = ((long) h << 32) | offset;
+
+            offset += 2 + ids[i].length + 2 + names[i].length + 8;
+            i++;
+        }
+
+        // Second pass: write header, index and data in one sequential stream
+        try (FileOutputStream file = new FileOutputStream(path.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(version);
+            out.writeInt(n);
+            out.writeInt(slots);
+            out.writeLong(dataOffset);
+            for (long slot : index) out.writeLong(slot);
+            for (int k = 0; k < n; k++) {
+                out.writeShort(ids[k].length);
+                out.write(ids[k]);
+                out.writeShort(names[k].length);
+                out.write(names[k]);
+                out.writeDouble(prices[k]);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+    }
+
+    // ── Lookups ──────────────────────────────────────────────────────────────
+
+    /** Find a vegetable by ID. Returns null if not in the catalog. */
+    @Override
+    public VegetablePrice find(String id) {
+        VegetablePrice cached = materialized.get(id);
+        if (cached != null) return cached;
+
+        int offset = locate(id);
+        if (offset < 0) return null;
+        VegetablePrice vp = read(offset);
+        VegetablePrice raced = materialized.putIfAbsent(id, vp);
+        return raced != null ? raced : vp;
+    }
+
+    /** True if the ID is in the catalog (does not materialize the entry). */
+    @Override
+    public boolean contains(String id) {
+        return materialized.containsKey(id) || locate(id) >= 0;
+    }
+
+    // Record offset of the ID, or -1
+    private int locate(String id) {
+        int h = hash(id);
+        int slot = h & mask;
+        while (true) {
+            long e = buf.getLong(HEADER_SIZE + slot * 8);
+            if (e == 0) return -1;
+            if ((int) (e >>> 32) == h && idEquals((int) e, id)) return (int) e;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Compare the stored ID bytes with the String without decoding them
+    private boolean idEquals(int offset, String id) {
+        int len = buf.getShort(offset) & 0xFFFF;
+        int pos = offset + 2;
+        if (len == id.length()) {
+            boolean ascii = true;
+            for (int i = 0; i < len; i++) {
+                char c = id.charAt(i);
+                if (c >= 0x80) { ascii = false; break; }
+                if (buf.get(pos + i) != (byte) c) return false;
+            }
+            if (ascii) return true;
+        }
+        byte[] wanted = utf8(id);
+        if (wanted.length != len) return false;
+        for (int i = 0; i < len; i++) {
+            if (buf.get(pos + i) != wanted[i]) return false;
+        }
+        return true;
+    }
+
+    // Decode the record at offset into a VegetablePrice
+    private VegetablePrice read(int offset) {
+        int idLen = buf.getShort(offset) & 0xFFFF;
+        String id = string(offset + 2, idLen);
+        int nameAt = offset + 2 + idLen;
+        int nameLen = buf.getShort(nameAt) & 0xFFFF;
+        String name = string(nameAt + 2, nameLen);
+        double price = buf.getDouble(nameAt + 2 + nameLen);
+        return new VegetablePrice(id, name, price);
+    }
+
+    private String string(int offset, int len) {
+        byte[] bytes = new byte[len];
+        buf.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * All entries in file order. Iterating creates the VegetablePrice
+     * objects on the fly; they are not added to the lookup cache.
+     */
+    @Override
+    public Collection<VegetablePrice> entries() {
+        return new AbstractCollection<VegetablePrice>() {
+            @Override
+            public Iterator<VegetablePrice> iterator() {
+                return new Iterator<VegetablePrice>() {
+                    int remaining = count;
+                    int offset = dataOffset;
+
+                    @Override
+                    public boolean hasNext() {
+                        return remaining > 0;
+                    }
+
+                    @Override
+                    public VegetablePrice next() {
+                        if (remaining == 0) throw new NoSuchElementException();
+                        VegetablePrice vp = read(offset);
+                        int idLen = buf.getShort(offset) & 0xFFFF;
+                        int nameLen = buf.getShort(offset + 2 + idLen) & 0xFFFF;
+                        offset += 2 + idLen + 2 + nameLen + 8;
+                        remaining--;
+                        return vp;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    // ── Getters ──────────────────────────────────────────────────────────────
+
+    /** Table version the catalog was written at. */
+    @Override
+    public long getVersion()      { return version; }
+    @Override
+    public int  size()            { return count; }
+    /** Number of entries turned into VegetablePrice objects so far. */
+    public int  getMaterialized() { return materialized.size(); }
+
+    // ── Helpers ──────────────────────────────────────────────────────────────
+
+    // String.hashCode is fixed by the Java spec, so files stay valid across JVMs
+    static int hash(String id) {
+        int h = id.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static byte[] utf8(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        if (b.length > 0xFFFF) throw new IllegalArgumentException("Value too long for catalog: " + s);
+        return b;
+    }
+}
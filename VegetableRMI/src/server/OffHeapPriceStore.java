@@ -0,0 +1,257 @@
+package server;
+
+import common.VegetablePrice;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * OffHeapPriceStore - read-only prices kept in direct memory
+ * (ByteBuffer.allocateDirect), outside the Java heap.
+ *
+ * A million vegetables on the heap are a million VegetablePrice objects,
+ * two million Strings and their byte arrays, plus the map entries, which
+ * every full GC has to walk. Here they are three buffers the GC never
+ * looks into, so the heap, and the pause to collect it, stays the same
+ * size whatever the size of the catalog.
+ *
+ * - index   open addressing, slot count a power of two, load factor
+ *           at most 0.5: per slot a long (id hash &lt;&lt; 32) | entry + 1,
+ *           0 = empty. A lookup compares the hash, then the ID bytes in
+ *           place; no object is created unless find() returns one.
+ * - entries 24 bytes each, in table order: int idAt | int nameAt |
+ *           short idLen | short nameLen | 4 unused | double pricePerKg
+ * - arena   the IDs and names as UTF-8, packed one after the other
+ *
+ * Immutable once built, like MappedCatalog; the table puts its changes
+ * in the snapshot overlay and builds a new store now and then (see
+ * VegetablePriceTable). The memory is given back when the store is
+ * garbage collected; it counts against -XX:MaxDirectMemorySize (by
+ * default the same as -Xmx), so raise that for large catalogs.
+ *
+ * DIARY: Day 6 - Multi-million SKU tables made the heap, and the full GC
+ *        pauses, grow with the catalog.
+ */
+public final class OffHeapPriceStore implements PriceStore {
+
+    private static final int ENTRY_SIZE = 24;
+    private static final int ID_AT      = 0;
+    private static final int NAME_AT    = 4;
+    private static final int ID_LEN     = 8;
+    private static final int NAME_LEN   = 10;
+    private static final int PRICE      = 16;
+
+    private final ByteBuffer index;   // only absolute reads after build, safe to share
+    private final ByteBuffer entries;
+    private final ByteBuffer arena;
+    private final int  count;
+    private final int  mask;          // slot count - 1
+    private final long version;
+
+    private OffHeapPriceStore(ByteBuffer index, ByteBuffer entries, ByteBuffer arena, int count, long version) {
+        this.index   = index;
+        this.entries = entries;
+        this.arena   = arena;
+        this.count   = count;
+        this.mask    = index.capacity() / 8 - 1;
+        this.version = version;
+    }
+
+    /**
+     * Copy the rows into a new store, in iteration order.
+     * @param version table version the rows belong to
+     * @throws IllegalArgumentException if an ID or name is over 65535
+     *         bytes, or the IDs and names come to more than 2 GB
+     */
+    public static OffHeapPriceStore build(Collection<VegetablePrice> rows, long version) {
+        int n = rows.size();
+        int slots = Integer.highestOneBit(Math.max(2, n * 2 - 1)) << 1; // load factor <= 0.5
+        if (slots <= 0 || slots > Integer.MAX_VALUE / 8 || n > Integer.MAX_VALUE / ENTRY_SIZE) {
+            throw new IllegalArgumentException("Too many vegetables for an off-heap store: " + n);
+        }
+
+        // First pass: size the arena exactly
+        long arenaSize = 0;
+        for (VegetablePrice vp : rows) arenaSize += utf8Length(vp.getId()) + utf8Length(vp.getName());
+        if (arenaSize > Integer.MAX_VALUE) throw new IllegalArgumentException("Names larger than 2 GB");
+
+        ByteBuffer index   = ByteBuffer.allocateDirect(slots * 8);
+        ByteBuffer entries = ByteBuffer.allocateDirect(n * ENTRY_SIZE);
+        ByteBuffer arena   = ByteBuffer.allocateDirect((int) arenaSize);
+
+        // Second pass: names into the arena, one entry each, then index it
+        int e = 0;
+        for (VegetablePrice vp : rows) {
+            if (e == n) throw new IllegalArgumentException("Rows changed while being copied");
+            int at = e * ENTRY_SIZE;
+            int idAt = arena.position();
+            int idLen = put(arena, vp.getId());
+            int nameAt = arena.position();
+            int nameLen = put(arena, vp.getName());
+            entries.putInt(at + ID_AT, idAt);
+            entries.putInt(at + NAME_AT, nameAt);
+            entries.putShort(at + ID_LEN, (short) idLen);
+            entries.putShort(at + NAME_LEN, (short) nameLen);
+            entries.putDouble(at + PRICE, vp.getPricePerKg());
+
+            int h = MappedCatalog.hash(vp.getId());
+            int slot = h & (slots - 1);
+            while (index.getLong(slot * 8) != 0) slot = (slot + 1) & (slots - 1);
+            index.putLong(slot * 8, ((long) h << 32) | (e + 1));
+            e++;
+        }
+        if (e != n) throw new IllegalArgumentException("Rows changed while being copied");
+        return new OffHeapPriceStore(index, entries, arena, n, version);
+    }
+
+    // ── Lookups ──────────────────────────────────────────────────────────────
+
+    /** Find a vegetable by ID. Returns a new object each time, or null. */
+    @Override
+    public VegetablePrice find(String id) {
+        int e = locate(id);
+        return e < 0 ? null : read(e);
+    }
+
+    @Override
+    public boolean contains(String id) {
+        return locate(id) >= 0;
+    }
+
+    /** Price in cents per kg, or PricingEngine.NOT_FOUND; creates no objects. */
+    @Override
+    public long priceCents(String id) {
+        int e = locate(id);
+        return e < 0 ? PricingEngine.NOT_FOUND : Math.round(entries.getDouble(e * ENTRY_SIZE + PRICE) * 100.0);
+    }
+
+    // Entry number of the ID, or -1
+    private int locate(String id) {
+        int h = MappedCatalog.hash(id);
+        int slot = h & mask;
+        while (true) {
+            long s = index.getLong(slot * 8);
+            if (s == 0) return -1;
+            int e = (int) s - 1;
+            if ((int) (s >>> 32) == h && idEquals(e, id)) return e;
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Compare the stored ID bytes with the String without decoding them
+    private boolean idEquals(int e, String id) {
+        int at  = entries.getInt(e * ENTRY_SIZE + ID_AT);
+        int len = entries.getShort(e * ENTRY_SIZE + ID_LEN) & 0xFFFF;
+        if (len == id.length()) {
+            boolean ascii = true;
+            for (int i = 0; i < len; i++) {
+                char c = id.charAt(i);
+                if (c >= 0x80) { ascii = false; break; }
+                if (arena.get(at + i) != (byte) c) return false;
+            }
+            if (ascii) return true;
+        }
+        byte[] wanted = id.getBytes(StandardCharsets.UTF_8);
+        if (wanted.length != len) return false;
+        for (int i = 0; i < len; i++) {
+            if (arena.get(at + i) != wanted[i]) return false;
+        }
+        return true;
+    }
+
+    private VegetablePrice read(int e) {
+        int at = e * ENTRY_SIZE;
+        String id   = string(entries.getInt(at + ID_AT), entries.getShort(at + ID_LEN) & 0xFFFF);
+        String name = string(entries.getInt(at + NAME_AT), entries.getShort(at + NAME_LEN) & 0xFFFF);
+        return new VegetablePrice(id, name, entries.getDouble(at + PRICE));
+    }
+
+    private String string(int at, int len) {
+        byte[] bytes = new byte[len];
+        arena.get(at, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * All entries in table order. Iterating creates the VegetablePrice
+     * objects on the fly.
+     */
+    @Override
+    public Collection<VegetablePrice> entries() {
+        return new AbstractCollection<VegetablePrice>() {
+            @Override
+            public Iterator<VegetablePrice> iterator() {
+                return new Iterator<VegetablePrice>() {
+                    int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < count;
+                    }
+
+                    @Override
+                    public VegetablePrice next() {
+                        if (next == count) throw new NoSuchElementException();
+                        return read(next++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    // ── Getters ──────────────────────────────────────────────────────────────
+
+    @Override
+    public int  size()       { return count; }
+    @Override
+    public long getVersion() { return version; }
+
+    /** Direct memory held by this store, in bytes. */
+    public long getOffHeapBytes() {
+        return (long) index.capacity() + entries.capacity() + arena.capacity();
+    }
+
+    // ── Helpers ──────────────────────────────────────────────────────────────
+
+    // Write s as UTF-8 at the arena's position; returns the byte count
+    private static int put(ByteBuffer arena, String s) {
+        int len = s.length();
+        boolean ascii = true;
+        for (int i = 0; i < len && ascii; i++) ascii = s.charAt(i) < 0x80;
+        if (ascii) {
+            for (int i = 0; i < len; i++) arena.put((byte) s.charAt(i));
+            return len;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        arena.put(b);
+        return b.length;
+    }
+
+    private static int utf8Length(String s) {
+        int len = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                len += 1;
+            } else if (c < 0x800) {
+                len += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                len += 4;
+                i++;
+            } else {
+                len += 3;
+            }
+        }
+        if (len > 0xFFFF) throw new IllegalArgumentException("Value too long for an off-heap store: " + s);
+        return len;
+    }
+}
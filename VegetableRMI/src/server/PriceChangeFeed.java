@@ -0,0 +1,266 @@
+package server;
+
+import common.PriceChangeBatch;
+import common.PriceChangeListener;
+import common.VegetablePrice;
+
+import java.rmi.RemoteException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * PriceChangeFeed - pushes price table changes to remote subscribers
+ * (PriceChangeListener callbacks), so caches and replicas stay current
+ * without polling.
+ *
+ * - Writers only record the change in a fixed ring buffer, indexed by
+ *   table version: two array stores and a volatile write, under the
+ *   table's write lock they already hold. They never wait for, or even
+ *   look at, a subscriber.
+ * - Every batchMillis a ticker hands each subscriber that is behind to
+ *   the delivery pool. One batch per subscriber is in flight at a time,
+ *   so batches arrive in version order and a slow subscriber only
+ *   delays itself.
+ * - A batch covers everything the subscriber has not seen yet (up to
+ *   maxBatch versions), coalesced to the latest value per vegetable.
+ * - A subscriber that falls more than the ring's capacity behind gets
+ *   a reset batch and continues from the newest version.
+ * - While nothing changes, subscribers get an empty heartbeat batch
+ *   every heartbeatMillis. A subscriber whose callback fails maxFailures
+ *   times in a row is dropped.
+ *
+ * Configured with system properties (defaults in brackets):
+ *   -Dvegetable.feed.capacity=N         [65536 versions kept, power of two]
+ *   -Dvegetable.feed.batchMillis=N      [20]
+ *   -Dvegetable.feed.maxBatch=N         [10000 versions per batch]
+ *   -Dvegetable.feed.heartbeatMillis=N  [5000]
+ *   -Dvegetable.feed.maxFailures=N      [3]
+ *
+ * DIARY: Day 6 - Clients could only notice a price change by asking
+ *        again; now they can subscribe.
+ */
+public final class PriceChangeFeed {
+
+    public static final String CAPACITY_PROPERTY     = "vegetable.feed.capacity";
+    public static final String BATCH_MILLIS_PROPERTY = "vegetable.feed.batchMillis";
+    public static final String MAX_BATCH_PROPERTY    = "vegetable.feed.maxBatch";
+    public static final String HEARTBEAT_PROPERTY    = "vegetable.feed.heartbeatMillis";
+    public static final String MAX_FAILURES_PROPERTY = "vegetable.feed.maxFailures";
+
+    private final int  capacity       = roundUpToPowerOfTwo(Integer.getInteger(CAPACITY_PROPERTY, 65536));
+    private final int  mask           = capacity - 1;
+    private final long batchMillis    = Math.max(1L, Long.getLong(BATCH_MILLIS_PROPERTY, 20L));
+    private final int  maxBatch       = Math.max(1, Integer.getInteger(MAX_BATCH_PROPERTY, 10_000));
+    private final long heartbeatNanos = Math.max(1L, Long.getLong(HEARTBEAT_PROPERTY, 5000L)) * 1_000_000L;
+    private final int  maxFailures    = Math.max(1, Integer.getInteger(MAX_FAILURES_PROPERTY, 3));
+
+    // ── Ring buffer (one writer: the table, under its write lock) ────────────
+    private final String[]         ids    = new String[capacity];
+    private final VegetablePrice[] prices = new VegetablePrice[capacity]; // null = deleted
+    private final long     firstVersion;  // table version when the feed started
+    private volatile long  head;          // newest version recorded
+
+    private final Map<PriceChangeListener, Subscription> subscribers = new ConcurrentHashMap<>();
+    private ScheduledExecutorService ticker;  // started on first subscribe
+    private ExecutorService delivery;
+
+    // ── Counters ─────────────────────────────────────────────────────────────
+    private final LongAdder batches   = new LongAdder();
+    private final LongAdder sent      = new LongAdder(); // IDs sent
+    private final LongAdder coalesced = new LongAdder(); // versions folded into a later one
+    private final LongAdder resets    = new LongAdder();
+    private final LongAdder dropped   = new LongAdder();
+
+    /** @param version current table version; the feed starts after it */
+    PriceChangeFeed(long version) {
+        this.firstVersion = version;
+        this.head         = version;
+    }
+
+    // ── Writer side ──────────────────────────────────────────────────────────
+
+    /**
+     * Record the change that produced this version. Called by the table,
+     * under its write lock, with consecutive versions.
+     * @param price the new row, or null if the vegetable was deleted
+     */
+    void published(long version, String id, VegetablePrice price) {
+        int slot = (int) version & mask;
+        ids[slot]    = id;
+        prices[slot] = price;
+        head = version; // publishes the slot to readers
+    }
+
+    /** Newest version recorded. */
+    public long getVersion() {
+        return head;
+    }
+
+    /**
+     * Hand over the IDs changed after version 'from' up to the newest one,
+     * oldest first (an ID may repeat). Called by the table under its write
+     * lock, so nothing is recorded meanwhile.
+     * @return false if those versions are not all in the ring any more
+     */
+    boolean changedSince(long from, long to, Consumer<String> action) {
+        if (to != head || from > to || from < oldestAvailable(to)) return false;
+        for (long v = from + 1; v <= to; v++) action.accept(ids[(int) v & mask]);
+        return true;
+    }
+
+    // ── Subscriptions ────────────────────────────────────────────────────────
+
+    /**
+     * Start sending changes after the given version to the listener.
+     * Subscribing a listener again replaces its old subscription.
+     *
+     * @param fromVersion last version the subscriber already has, or a
+     *                    negative number to start from the newest one
+     * @return the version the feed continues from (a version older than
+     *         the ring holds is answered with a reset batch first)
+     */
+    public long subscribe(PriceChangeListener listener, long fromVersion) {
+        long now = head;
+        long from = fromVersion < 0 || fromVersion > now ? now : fromVersion;
+        subscribers.put(listener, new Subscription(listener, from));
+        startTicker();
+        EngineLog.info("feed.subscribed", "fromVersion", from, "subscribers", subscribers.size());
+        return from;
+    }
+
+    /** Stop sending to the listener. Returns false if it was not subscribed. */
+    public boolean unsubscribe(PriceChangeListener listener) {
+        boolean removed = subscribers.remove(listener) != null;
+        if (removed) EngineLog.info("feed.unsubscribed", "subscribers", subscribers.size());
+        return removed;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    private synchronized void startTicker() {
+        if (ticker != null) return;
+        AtomicInteger n = new AtomicInteger();
+        delivery = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "price-feed-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "price-feed-ticker");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Hand every subscriber that is behind (or due a heartbeat) to the delivery pool
+    private void tick() {
+        long now = System.nanoTime();
+        long newest = head;
+        for (Subscription sub : subscribers.values()) {
+            boolean due = sub.delivered < newest || now - sub.lastSentNanos > heartbeatNanos;
+            if (due && sub.busy.compareAndSet(false, true)) {
+                delivery.execute(() -> deliver(sub));
+            }
+        }
+    }
+
+    // ── Delivery ─────────────────────────────────────────────────────────────
+
+    private void deliver(Subscription sub) {
+        try {
+            PriceChangeBatch batch = nextBatch(sub.delivered);
+            sub.listener.pricesChanged(batch);
+            sub.delivered     = batch.getToVersion();
+            sub.lastSentNanos = System.nanoTime();
+            sub.failures      = 0;
+            batches.increment();
+            sent.add(batch.size());
+            if (batch.isReset()) resets.increment();
+        } catch (RemoteException | RuntimeException e) {
+            if (++sub.failures >= maxFailures && subscribers.remove(sub.listener, sub)) {
+                dropped.increment();
+                EngineLog.warn("feed.subscriberDropped", "failures", sub.failures, "error", e);
+            }
+        } finally {
+            sub.busy.set(false);
+        }
+    }
+
+    // Changes after 'from', coalesced per ID; a reset if they are no longer in the ring
+    private PriceChangeBatch nextBatch(long from) {
+        long to = Math.min(head, from + maxBatch);
+        if (from < oldestAvailable(to)) return reset(from);
+
+        Map<String, VegetablePrice> latest = new LinkedHashMap<>();
+        for (long v = from + 1; v <= to; v++) {
+            int slot = (int) v & mask;
+            String id = ids[slot];
+            latest.remove(id); // keep IDs in order of their last change
+            latest.put(id, prices[slot]);
+        }
+        // Overwritten while copying? published() fills the slot of head + 1 before it moves
+        // head, so a slot one lap behind head + 1 may already hold a newer ID or price
+        if (from < oldestAvailable(head + 1)) return reset(from);
+
+        int n = latest.size();
+        String[] batchIds = new String[n];
+        VegetablePrice[] batchPrices = new VegetablePrice[n];
+        int i = 0;
+        for (Map.Entry<String, VegetablePrice> e : latest.entrySet()) {
+            batchIds[i]    = e.getKey();
+            batchPrices[i] = e.getValue();
+            i++;
+        }
+        coalesced.add((to - from) - n);
+        return new PriceChangeBatch(from, to, head, false, batchIds, batchPrices, n);
+    }
+
+    private PriceChangeBatch reset(long from) {
+        return new PriceChangeBatch(from, head, true, new String[0], new VegetablePrice[0], 0);
+    }
+
+    // Oldest 'from' whose next version is still in the ring when head is 'newest'
+    private long oldestAvailable(long newest) {
+        return Math.max(firstVersion, newest - capacity);
+    }
+
+    // ── Stats ────────────────────────────────────────────────────────────────
+
+    public String getStats() {
+        return String.format("PRICE FEED  | version: %d | subscribers: %d | batches: %d | IDs sent: %d"
+                        + " | coalesced: %d | resets: %d | dropped subscribers: %d%n",
+                head, subscribers.size(), batches.sum(), sent.sum(),
+                coalesced.sum(), resets.sum(), dropped.sum());
+    }
+
+    private static int roundUpToPowerOfTwo(int n) {
+        int c = Integer.highestOneBit(Math.max(2, n));
+        return c == n ? c : c << 1;
+    }
+
+    // One subscriber's position in the feed
+    private static final class Subscription {
+        final PriceChangeListener listener;
+        final AtomicBoolean busy = new AtomicBoolean(); // a delivery is in flight
+        volatile long delivered;                        // last version it has
+        volatile long lastSentNanos = System.nanoTime();
+        volatile int  failures;                         // consecutive failed calls
+
+        Subscription(PriceChangeListener listener, long from) {
+            this.listener  = listener;
+            this.delivered = from;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package server;
+
+import common.QueryPage;
+import common.VegetablePrice;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * PriceIndex - secondary indexes over the price table, for searching by
+ * name (exact or prefix, ignoring case) and by price range.
+ *
+ * - Two ConcurrentSkipListSets hold every row: one ordered by price in
+ *   cents, one by name ignoring case (both then by ID, so keys are
+ *   unique). Searches seek straight to the first match and read forward,
+ *   so a page costs O(log n + page size) whatever the table size.
+ * - The table keeps the index up to date: every change calls changed()
+ *   under the table's write lock. Searches never lock.
+ * - Each row found is checked against the snapshot the search reads, and
+ *   returned with that snapshot's values. A row changed while a search is
+ *   running may be left out of that page.
+ * - Pages continue from a cursor (the last key returned), not an offset,
+ *   so reading page 1000 is as fast as page 1.
+ *
+ * Built on the first search (VegetablePriceTable.getIndex()) from one
+ * snapshot, while writers carry on. It keeps one VegetablePrice per row
+ * on the heap, so a table that is never searched pays nothing.
+ *
+ * DIARY: Day 6 - Apps wanted "everything called tomato" and "all items
+ *        between 20 and 50 KES/kg", which meant pulling getAll() over RMI.
+ */
+public final class PriceIndex {
+
+    /** Largest page a search returns. */
+    public static final int MAX_PAGE = 1000;
+
+    private static final Comparator<VegetablePrice> BY_PRICE =
+            Comparator.comparingLong(VegetablePrice::getPriceCents).thenComparing(VegetablePrice::getId);
+    private static final Comparator<VegetablePrice> BY_NAME =
+            Comparator.comparing(VegetablePrice::getName, String.CASE_INSENSITIVE_ORDER)
+                      .thenComparing(VegetablePrice::getId);
+
+    private final ConcurrentSkipListSet<VegetablePrice> byPrice = new ConcurrentSkipListSet<>(BY_PRICE);
+    private final ConcurrentSkipListSet<VegetablePrice> byName  = new ConcurrentSkipListSet<>(BY_NAME);
+    private final long buildMillis;
+
+    // ── Counters ─────────────────────────────────────────────────────────────
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder skipped = new LongAdder(); // index rows that did not match the snapshot
+    private final LatencyHistogram queryTime = new LatencyHistogram();
+
+    /** Index every row of an immutable collection (e.g. a snapshot). */
+    PriceIndex(Collection<VegetablePrice> rows) {
+        long start = System.nanoTime();
+        // Inserting in key order keeps each skip list search short and cache friendly
+        VegetablePrice[] sorted = rows.toArray(new VegetablePrice[0]);
+        Arrays.parallelSort(sorted, BY_PRICE);
+        for (VegetablePrice vp : sorted) byPrice.add(vp);
+        Arrays.parallelSort(sorted, BY_NAME);
+        for (VegetablePrice vp : sorted) byName.add(vp);
+        buildMillis = (System.nanoTime() - start) / 1_000_000;
+        EngineLog.info("index.built", "rows", byPrice.size(), "ms", buildMillis);
+    }
+
+    /**
+     * Record one change. Called by the table under its write lock.
+     * @param before the row before the change, null if it was added
+     * @param after  the row after the change, null if it was deleted
+     */
+    void changed(VegetablePrice before, VegetablePrice after) {
+        if (before != null) {
+            byPrice.remove(before);
+            byName.remove(before);
+        }
+        if (after != null) {
+            byPrice.add(after);
+            byName.add(after);
+        }
+    }
+
+    // ── Searches ─────────────────────────────────────────────────────────────
+
+    /**
+     * Rows whose name starts with the prefix (or equals it, if exact),
+     * ignoring case, ordered by name then ID.
+     */
+    public QueryPage byName(VegetablePriceTable.Snapshot snap, String prefix, boolean exact,
+                            String cursor, int limit) {
+        long start = System.nanoTime();
+        VegetablePrice from = cursor != null ? decodeCursor(cursor) : new VegetablePrice("", prefix, 0.0);
+        Iterator<VegetablePrice> it = byName.tailSet(from, cursor == null).iterator();
+        List<VegetablePrice> rows = new ArrayList<>(Math.min(limit, 64));
+        VegetablePrice last = null;
+        boolean more = false;
+        while (it.hasNext()) {
+            VegetablePrice key = it.next();
+            String name = key.getName();
+            if (exact ? !name.equalsIgnoreCase(prefix) : !name.regionMatches(true, 0, prefix, 0, prefix.length())) {
+                break; // past the last match
+            }
+            if (rows.size() == limit) {
+                more = true;
+                break;
+            }
+            last = key;
+            VegetablePrice row = current(snap, key);
+            if (row != null) rows.add(row);
+        }
+        return page(snap, rows, more ? last : null, start);
+    }
+
+    /** Rows priced from minCents to maxCents per kg (inclusive), cheapest first. */
+    public QueryPage byPrice(VegetablePriceTable.Snapshot snap, long minCents, long maxCents,
+                             String cursor, int limit) {
+        long start = System.nanoTime();
+        VegetablePrice from = cursor != null ? decodeCursor(cursor) : new VegetablePrice("", "", minCents / 100.0);
+        Iterator<VegetablePrice> it = byPrice.tailSet(from, cursor == null).iterator();
+        List<VegetablePrice> rows = new ArrayList<>(Math.min(limit, 64));
+        VegetablePrice last = null;
+        boolean more = false;
+        while (it.hasNext()) {
+            VegetablePrice key = it.next();
+            if (key.getPriceCents() > maxCents) break;
+            if (rows.size() == limit) {
+                more = true;
+                break;
+            }
+            last = key;
+            VegetablePrice row = current(snap, key);
+            if (row != null) rows.add(row);
+        }
+        return page(snap, rows, more ? last : null, start);
+    }
+
+    // The snapshot's row for an index key, or null if it differs (changed since)
+    private VegetablePrice current(VegetablePriceTable.Snapshot snap, VegetablePrice key) {
+        VegetablePrice row = snap.find(key.getId());
+        if (row == null || !row.getName().equals(key.getName())
+                || Double.compare(row.getPricePerKg(), key.getPricePerKg()) != 0) {
+            skipped.increment();
+            return null;
+        }
+        return row;
+    }
+
+    private QueryPage page(VegetablePriceTable.Snapshot snap, List<VegetablePrice> rows,
+                           VegetablePrice last, long start) {
+        int n = rows.size();
+        String[] ids = new String[n];
+        String[] names = new String[n];
+        double[] prices = new double[n];
+        for (int i = 0; i < n; i++) {
+            VegetablePrice vp = rows.get(i);
+            ids[i]    = vp.getId();
+            names[i]  = vp.getName();
+            prices[i] = vp.getPricePerKg();
+        }
+        queries.increment();
+        queryTime.record(System.nanoTime() - start);
+        return new QueryPage(ids, names, prices, n, snap.getVersion(), last == null ? null : encodeCursor(last));
+    }
+
+    // ── Cursors ──────────────────────────────────────────────────────────────
+
+    // The key a page stopped at, as URL-safe text: base64url of "price \0 name \0 id"
+    private static String encodeCursor(VegetablePrice key) {
+        String raw = key.getPricePerKg() + "\0" + key.getName() + "\0" + key.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static VegetablePrice decodeCursor(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\0", 3);
+            return new VegetablePrice(parts[2], parts[1], Double.parseDouble(parts[0]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Bad cursor: " + cursor);
+        }
+    }
+
+    // ── Stats ────────────────────────────────────────────────────────────────
+
+    public int size() {
+        return byPrice.size();
+    }
+
+    public String getStats() {
+        return String.format("INDEX       | rows: %d | built in: %d ms | queries: %d"
+                        + " | query p50/p99/max: %.1f/%.1f/%.1f us | skipped (changed): %d%n",
+                byPrice.size(), buildMillis, queries.sum(),
+                queryTime.getPercentileNanos(50) / 1e3, queryTime.getPercentileNanos(99) / 1e3,
+                queryTime.getMaxNanos() / 1e3, skipped.sum());
+    }
+}
@@ -0,0 +1,559 @@
+package server;
+
+import common.PriceMutation;
+import common.VegetablePrice;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * PriceJournal - durable storage for the price table.
+ *
+ * - Every committed change is appended to a write-ahead log segment
+ *   (journal-&lt;first version&gt;.log) before the writer is acknowledged.
+ * - Group commit: writers only copy their record into a shared buffer;
+ *   one background thread writes whatever has accumulated and calls
+ *   fsync once for the whole group, then wakes every writer it covered.
+ * - Every snapshotEvery changes the log is rotated (new records go to a
+ *   new segment at once; the flusher writes out and closes the old one,
+ *   so writers never wait for it) and the table is
+ *   written in the background as a {@link MappedCatalog}
+ *   (catalog-&lt;version&gt;.bin); log segments fully covered by it are then
+ *   deleted and the table is told to switch to the new catalog.
+ * - recover() maps the newest catalog (constant time) and replays the
+ *   remaining segments into a small change map on top of it. A torn
+ *   record at the end of a segment (crash mid-write) fails its CRC check
+ *   and is cut off. A snapshot.dat left by older versions is still read.
+ *
+ * Record layout: [int length][int crc32][long version][byte op][UTF id]
+ *                [UTF name][double pricePerKg]   (name/price not for DELETE)
+ *
+ * DIARY: Day 6 - The table lived only in memory, so every price change
+ *        was lost on restart and the five sample vegetables came back.
+ */
+public class PriceJournal {
+
+    public static final String DATA_DIR_PROPERTY       = "vegetable.data.dir";
+    public static final String SNAPSHOT_EVERY_PROPERTY = "vegetable.journal.snapshotEvery";
+
+    private static final String SNAPSHOT_FILE   = "snapshot.dat"; // before catalogs
+    private static final String CATALOG_PREFIX  = "catalog-";
+    private static final String CATALOG_SUFFIX  = ".bin";
+    private static final String SEGMENT_PREFIX  = "journal-";
+    private static final String SEGMENT_SUFFIX  = ".log";
+    private static final int    SNAPSHOT_MAGIC  = 0x56454753; // "VEGS"
+    private static final int    SNAPSHOT_FORMAT = 1;
+    private static final int    MAX_RECORD_SIZE = 1 << 20;
+
+    private final Path dir;
+    private final int  snapshotEvery;
+
+    // ── Append state (guarded by lock) ───────────────────────────────────────
+    private final Object lock = new Object();
+    private FileChannel segment;          // segment currently appended to
+    private RecordBuffer pending = new RecordBuffer();
+    private final ArrayDeque<Rotation> closing = new ArrayDeque<>(); // rotated-away segments the flusher finishes
+    private long appendedVersion;         // last version copied into pending
+    private long durableVersion;          // last version known to be on disk
+    private IOException failure;          // set if the flusher could not write
+    private int  changesSinceSnapshot;
+
+    // Told about each new catalog once it is on disk
+    private volatile Consumer<MappedCatalog> compactionListener;
+
+    private final RecordBuffer     record    = new RecordBuffer();
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private final CRC32            crc       = new CRC32();
+
+    private final ExecutorService snapshotWriter = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "price-snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // ── Metrics ──────────────────────────────────────────────────────────────
+    private final LongAdder records   = new LongAdder();
+    private final LongAdder fsyncs    = new LongAdder();
+    private final LongAdder snapshots = new LongAdder();
+
+    /**
+     * @param dir           directory holding the snapshot and log segments
+     * @param snapshotEvery number of changes between compacted snapshots
+     */
+    public PriceJournal(Path dir, int snapshotEvery) {
+        this.dir           = dir;
+        this.snapshotEvery = Math.max(1, snapshotEvery);
+    }
+
+    // ── Recovery ─────────────────────────────────────────────────────────────
+
+    /** Table contents rebuilt by recover(): a catalog plus later changes. */
+    public static final class Recovered {
+        private final MappedCatalog catalog;
+        private final Map<String, VegetablePrice> changes;
+        private final long    version;
+        private final boolean fresh;
+
+        Recovered(MappedCatalog catalog, Map<String, VegetablePrice> changes, long version, boolean fresh) {
+            this.catalog = catalog;
+            this.changes = changes;
+            this.version = version;
+            this.fresh   = fresh;
+        }
+
+        /** Newest catalog on disk, or null if none was written yet. */
+        public MappedCatalog getCatalog() { return catalog; }
+        /** Entries changed after the catalog, in order; a null value means deleted. */
+        public Map<String, VegetablePrice> getChanges() { return changes; }
+        public long    getVersion() { return version; }
+        /** True if the directory held no snapshot or log at all. */
+        public boolean isFresh()    { return fresh; }
+    }
+
+    /**
+     * Rebuild the table from disk and open a new log segment for appends.
+     * Must be called once, before any append().
+     */
+    public Recovered recover() throws IOException {
+        Files.createDirectories(dir);
+        Map<String, VegetablePrice> changes = new LinkedHashMap<>();
+        MappedCatalog catalog = null;
+        long    version = 0L;
+        boolean fresh   = true;
+
+        List<Path> catalogs = listCatalogs();
+        Path snapshotPath = dir.resolve(SNAPSHOT_FILE);
+        if (!catalogs.isEmpty()) {
+            catalog = MappedCatalog.open(catalogs.get(catalogs.size() - 1));
+            version = catalog.getVersion();
+            fresh = false;
+        } else if (Files.exists(snapshotPath)) {
+            version = readSnapshot(snapshotPath, changes);
+            fresh = false;
+        }
+        for (Path seg : listSegments()) {
+            version = replay(seg, changes, version);
+            fresh = false;
+        }
+
+        synchronized (lock) {
+            appendedVersion = version;
+            durableVersion  = version;
+            segment = openSegment(version + 1);
+        }
+        Thread flusher = new Thread(this::flushLoop, "price-journal");
+        flusher.setDaemon(true);
+        flusher.start();
+        return new Recovered(catalog, changes, version, fresh);
+    }
+
+    // Apply one segment on top of changes; returns the last version applied
+    private long replay(Path seg, Map<String, VegetablePrice> changes, long version) throws IOException {
+        long goodBytes = 0L;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(seg), 1 << 16))) {
+            while (true) {
+                int length, checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD_SIZE) break;
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32 c = new CRC32();
+                c.update(payload, 0, length);
+                if ((int) c.getValue() != checksum) break;
+
+                DataInputStream rec = new DataInputStream(new ByteArrayInputStream(payload));
+                long recVersion = rec.readLong();
+                PriceMutation.Op op = PriceMutation.Op.values()[rec.readByte()];
+                String id = rec.readUTF();
+                if (recVersion > version + 1) {
+                    throw new IOException("Gap in price journal " + seg.getFileName()
+                            + ": expected version " + (version + 1) + " but found " + recVersion);
+                }
+                if (recVersion == version + 1) {
+                    if (op == PriceMutation.Op.DELETE) {
+                        changes.remove(id);     // a later re-add goes to the end,
+                        changes.put(id, null);  // as it did in the live table
+                    } else {
+                        changes.put(id, new VegetablePrice(id, rec.readUTF(), rec.readDouble()));
+                    }
+                    version = recVersion;
+                }
+                goodBytes += 8 + length;
+            }
+        }
+
+        // Anything after the last good record is a torn write; cut it off
+        if (Files.size(seg) > goodBytes) {
+            try (FileChannel ch = FileChannel.open(seg, StandardOpenOption.WRITE)) {
+                ch.truncate(goodBytes);
+                ch.force(true);
+            }
+            EngineLog.warn("journal.truncated", "segment", seg.getFileName(), "validBytes", goodBytes);
+        }
+        return version;
+    }
+
+    // ── Appending (called under the table's write lock) ──────────────────────
+
+    /**
+     * Queue a change for the log. Returns immediately; call awaitDurable()
+     * (after releasing any locks) to wait until it is on disk.
+     */
+    public void append(PriceMutation mutation, long version) {
+        synchronized (lock) {
+            encode(mutation, version);
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Queue several changes at once, numbered firstVersion, firstVersion + 1, ...
+     * Same as calling append() for each, but the log writer is woken once.
+     */
+    public void appendAll(List<PriceMutation> mutations, long firstVersion) {
+        if (mutations.isEmpty()) return;
+        synchronized (lock) {
+            long version = firstVersion;
+            for (PriceMutation mutation : mutations) encode(mutation, version++);
+            lock.notifyAll();
+        }
+    }
+
+    // Frame one change into pending; caller holds lock
+    private void encode(PriceMutation mutation, long version) {
+        try {
+            record.reset();
+            recordOut.writeLong(version);
+            recordOut.writeByte(mutation.getOp().ordinal());
+            recordOut.writeUTF(mutation.getId());
+            if (mutation.getOp() != PriceMutation.Op.DELETE) {
+                recordOut.writeUTF(mutation.getPrice().getName());
+                recordOut.writeDouble(mutation.getPrice().getPricePerKg());
+            }
+            crc.reset();
+            crc.update(record.array(), 0, record.size());
+
+            DataOutputStream out = new DataOutputStream(pending);
+            out.writeInt(record.size());
+            out.writeInt((int) crc.getValue());
+            record.writeTo(pending);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // in-memory streams do not fail
+        }
+        appendedVersion = version;
+        changesSinceSnapshot++;
+        records.increment();
+    }
+
+    /**
+     * Refuse new changes once the flusher has failed: they could never
+     * reach disk, and readers must not see what a restart would lose.
+     * Call under the table's write lock, before publishing.
+     * @throws UncheckedIOException if the log could not be written
+     */
+    public void checkWritable() {
+        synchronized (lock) {
+            if (failure != null) {
+                throw new UncheckedIOException("Price journal write failed; no more changes accepted", failure);
+            }
+        }
+    }
+
+    /**
+     * Block until every change up to the given version is on disk.
+     * Not interruptible: the change is already published, so a writer
+     * interrupted here (e.g. a task past its deadline) must not report it
+     * as failed; the interrupt flag is set again once the wait is over.
+     * @throws UncheckedIOException if the log could not be written
+     */
+    public void awaitDurable(long version) {
+        boolean interrupted = false;
+        try {
+            synchronized (lock) {
+                while (durableVersion < version) {
+                    if (failure != null) {
+                        throw new UncheckedIOException("Price journal write failed", failure);
+                    }
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true; // the flusher finishes soon; keep waiting
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Called under the table's write lock after a change was published.
+     * Every snapshotEvery changes: rotate to a new segment and write the
+     * given (immutable) table version as a catalog in the background.
+     */
+    public void maybeSnapshot(Collection<VegetablePrice> entries, long version) {
+        synchronized (lock) {
+            if (changesSinceSnapshot < snapshotEvery) return;
+            changesSinceSnapshot = 0;
+            try {
+                rotate(version);
+            } catch (IOException e) {
+                EngineLog.error("journal.rotateFailed", "error", e);
+                return;
+            }
+        }
+        snapshotWriter.execute(() -> {
+            try {
+                Path written = writeSnapshot(entries, version);
+                Consumer<MappedCatalog> listener = compactionListener;
+                if (listener != null) listener.accept(MappedCatalog.open(written));
+                deleteSegmentsUpTo(version);
+                deleteCatalogsBefore(version);
+            } catch (IOException e) {
+                EngineLog.error("journal.snapshotFailed", "version", version, "error", e);
+            }
+        });
+    }
+
+    // Must hold lock. Start journal-<version+1> without waiting for the disk:
+    // what is still pending belongs to the old segment, which the flusher
+    // writes, syncs and closes before anything appended from now on
+    private void rotate(long version) throws IOException {
+        FileChannel next = openSegment(version + 1);
+        closing.add(new Rotation(segment, pending, version));
+        segment = next;
+        pending = new RecordBuffer();
+        lock.notifyAll();
+    }
+
+    // A segment rotated away from, with its last unwritten records
+    private static final class Rotation {
+        final FileChannel  channel;
+        final RecordBuffer tail;
+        final long         lastVersion;
+
+        Rotation(FileChannel channel, RecordBuffer tail, long lastVersion) {
+            this.channel     = channel;
+            this.tail        = tail;
+            this.lastVersion = lastVersion;
+        }
+    }
+
+    // ── Group commit (background thread) ─────────────────────────────────────
+
+    private void flushLoop() {
+        RecordBuffer spare = new RecordBuffer();
+        while (true) {
+            RecordBuffer batch;
+            long target;
+            FileChannel ch;
+            Rotation rotated;
+            synchronized (lock) {
+                while (pending.size() == 0 && closing.isEmpty()) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                rotated = closing.poll(); // older records than pending: finish that segment first
+                if (rotated != null) {
+                    batch  = rotated.tail;
+                    target = rotated.lastVersion;
+                    ch     = rotated.channel;
+                } else {
+                    batch   = pending;
+                    pending = spare;
+                    target  = appendedVersion;
+                    ch      = segment;
+                }
+            }
+
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(batch.array(), 0, batch.size());
+                while (bytes.hasRemaining()) ch.write(bytes);
+                ch.force(false);
+                fsyncs.increment();
+                if (rotated != null) ch.close();
+            } catch (IOException e) {
+                EngineLog.error("journal.writeFailed", "error", e);
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+
+            if (rotated == null) {
+                batch.reset();
+                spare = batch;
+            }
+            synchronized (lock) {
+                durableVersion = Math.max(durableVersion, target);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    // ── Snapshots ────────────────────────────────────────────────────────────
+
+    /**
+     * Write the table at the given version as catalog-&lt;version&gt;.bin.
+     * Returns the path of the finished file.
+     */
+    public Path writeSnapshot(Collection<VegetablePrice> entries, long version) throws IOException {
+        Path target = dir.resolve(CATALOG_PREFIX + version + CATALOG_SUFFIX);
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        MappedCatalog.write(tmp, entries, version);
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshots.increment();
+        return target;
+    }
+
+    /**
+     * Register the callback run with each newly written catalog. The
+     * catalog holds the table as it was at its version; the table may
+     * have changed since, and the callback must keep those changes.
+     */
+    public void setCompactionListener(Consumer<MappedCatalog> listener) {
+        this.compactionListener = listener;
+    }
+
+    // Snapshot format used before catalogs; only read, to upgrade old directories
+    private long readSnapshot(Path path, Map<String, VegetablePrice> entries) throws IOException {
+        try (InputStream raw = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_FORMAT) {
+                throw new IOException("Not a price table snapshot: " + path);
+            }
+            long version = in.readLong();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String id = in.readUTF();
+                entries.put(id, new VegetablePrice(id, in.readUTF(), in.readDouble()));
+            }
+            return version;
+        }
+    }
+
+    // ── Segment files ────────────────────────────────────────────────────────
+
+    private FileChannel openSegment(long firstVersion) throws IOException {
+        return FileChannel.open(dir.resolve(SEGMENT_PREFIX + firstVersion + SEGMENT_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Segments sorted by the first version they hold
+    private List<Path> listSegments() throws IOException {
+        List<Path> segs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path p : files) segs.add(p);
+        }
+        segs.sort((a, b) -> Long.compare(firstVersion(a), firstVersion(b)));
+        return segs;
+    }
+
+    // A segment starting at or before the snapshot version is closed and fully covered
+    private void deleteSegmentsUpTo(long version) throws IOException {
+        for (Path seg : listSegments()) {
+            if (firstVersion(seg) <= version) Files.deleteIfExists(seg);
+        }
+    }
+
+    private static long firstVersion(Path seg) {
+        String name = seg.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // Catalogs sorted by the version they hold
+    private List<Path> listCatalogs() throws IOException {
+        List<Path> cats = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, CATALOG_PREFIX + "*" + CATALOG_SUFFIX)) {
+            for (Path p : files) cats.add(p);
+        }
+        cats.sort((a, b) -> Long.compare(catalogVersion(a), catalogVersion(b)));
+        return cats;
+    }
+
+    // Older catalogs (and the old snapshot file) are superseded once a newer one exists.
+    // Some platforms refuse to delete a file that is still mapped; the next compaction retries.
+    private void deleteCatalogsBefore(long version) {
+        List<Path> stale = new ArrayList<>();
+        try {
+            for (Path cat : listCatalogs()) {
+                if (catalogVersion(cat) < version) stale.add(cat);
+            }
+        } catch (IOException e) {
+            EngineLog.warn("journal.cleanupFailed", "error", e);
+            return;
+        }
+        stale.add(dir.resolve(SNAPSHOT_FILE));
+        for (Path p : stale) {
+            try {
+                Files.deleteIfExists(p);
+            } catch (IOException e) {
+                EngineLog.debug("journal.deleteDeferred", "file", p.getFileName(), "error", e);
+            }
+        }
+    }
+
+    private static long catalogVersion(Path cat) {
+        String name = cat.getFileName().toString();
+        return Long.parseLong(name.substring(CATALOG_PREFIX.length(), name.length() - CATALOG_SUFFIX.length()));
+    }
+
+    // ── Getters ──────────────────────────────────────────────────────────────
+
+    public Path getDirectory()   { return dir; }
+    public long getRecords()     { return records.sum(); }
+    public long getFsyncs()      { return fsyncs.sum(); }
+    public long getSnapshots()   { return snapshots.sum(); }
+
+    /** Multi-line summary of log activity. */
+    public String getStats() {
+        long n = records.sum(), f = fsyncs.sum();
+        return String.format(
+                "PRICE JOURNAL (%s):\n"
+                + "  Records     : %d\n"
+                + "  Fsyncs      : %d (%.1f records per fsync)\n"
+                + "  Catalogs    : %d written",
+                dir, n, f, f == 0 ? 0.0 : (double) n / f, snapshots.sum());
+    }
+
+    // ByteArrayOutputStream that exposes its array so it can be written without a copy
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+        RecordBuffer() { super(256); }
+        byte[] array() { return buf; }
+    }
+}
@@ -0,0 +1,49 @@
+package server;
+
+import common.VegetablePrice;
+
+import java.util.Collection;
+
+/**
+ * PriceStore - a read-only set of vegetable prices at one table version.
+ *
+ * Implemented by the table's snapshots and by the stores a snapshot can
+ * sit on: MappedCatalog (a memory-mapped file, with a data directory),
+ * and HeapPriceStore or OffHeapPriceStore (without one, chosen with
+ * -Dvegetable.store).
+ * A snapshot is such a store with the changes made since on top.
+ *
+ * DIARY: Day 6 - Pulled out of Snapshot and MappedCatalog so the table
+ *        can keep its rows off the Java heap.
+ */
+public interface PriceStore {
+
+    /** System property: where the table keeps its rows without a data directory. */
+    String STORE_PROPERTY = "vegetable.store";
+
+    /** Find a vegetable by ID. Returns null if not found. */
+    VegetablePrice find(String id);
+
+    /** True if the ID is in the store; may be cheaper than find(). */
+    default boolean contains(String id) {
+        return find(id) != null;
+    }
+
+    /**
+     * Price in cents per kg, or PricingEngine.NOT_FOUND. Stores that do
+     * not hold VegetablePrice objects answer without creating one.
+     */
+    default long priceCents(String id) {
+        VegetablePrice vp = find(id);
+        return vp == null ? PricingEngine.NOT_FOUND : vp.getPriceCents();
+    }
+
+    /** All vegetables, read-only, in the store's order. */
+    Collection<VegetablePrice> entries();
+
+    /** Number of vegetables. */
+    int size();
+
+    /** Table version the contents belong to. */
+    long getVersion();
+}
@@ -0,0 +1,244 @@
+package server;
+
+import common.BasketQuote;
+import common.VegetablePrice;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * PricingEngine - the arithmetic behind cost and receipt tasks.
+ *
+ * - Prices are handled as long cents (KES minor units), never as double
+ *   totals, so a receipt always adds up to the cent.
+ * - The unit price is rounded to whole cents per kg first (what the
+ *   stores and SKU handles hold), then each line total is rounded once
+ *   (half up) and the grand total is the exact sum of the rounded lines.
+ *   This is not what the old double arithmetic printed in two cases, and
+ *   ReceiptRendererGoldenTest pins both: a sub-cent unit price is
+ *   rounded before it is multiplied (33.333/kg x 3 kg was 100.00, now
+ *   99.99), and sub-cent lines no longer add up to a cent in the total
+ *   (three lines of 0.004 were 0.01, now 0.00).
+ * - Nothing here builds text; rendering is a separate step done by the
+ *   task only when it needs a printable result.
+ * - Baskets of parallelThreshold lines or more are split into chunks of
+ *   chunkLines and priced on a fork-join pool, still against the one
+ *   snapshot. Each line is rounded exactly as in the sequential loop and
+ *   the totals are whole cents added up chunk by chunk, so the quote is
+ *   identical either way, lines in basket order.
+ * - A basket can also name its lines by SKU handle (see SkuDictionary);
+ *   each line is then two array reads instead of a hash lookup by ID.
+ *
+ * Configured with system properties (defaults in brackets):
+ *   -Dvegetable.pricing.parallelThreshold=N  [4096 lines; 0 = never parallel]
+ *   -Dvegetable.pricing.chunkLines=N         [1024 lines per fork-join task]
+ *   -Dvegetable.pricing.parallelism=N        [available processors]
+ * bench.ParallelPricingBenchmark measures where parallel starts to pay.
+ *
+ * DIARY: Day 5 - CalVegetableCost and CalculateCost did the maths and the
+ *        String.format in one pass, and computeTotal() looked the
+ *        vegetable up a second time. Pulled the maths out here.
+ *        Day 6 - Wholesale orders with thousands of lines are priced in parallel.
+ *        Day 6 - Baskets by SKU handle.
+ */
+public final class PricingEngine {
+
+    /** Returned by priceLine() when the vegetable ID is not in the table. */
+    public static final long NOT_FOUND = Long.MIN_VALUE;
+
+    public static final String PARALLEL_THRESHOLD_PROPERTY = "vegetable.pricing.parallelThreshold";
+    public static final String CHUNK_LINES_PROPERTY        = "vegetable.pricing.chunkLines";
+    public static final String PARALLELISM_PROPERTY        = "vegetable.pricing.parallelism";
+
+    private static final int PARALLELISM = Math.max(1,
+            Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors()));
+    private static final int PARALLEL_THRESHOLD = PARALLELISM == 1 ? 0
+            : Math.max(0, Integer.getInteger(PARALLEL_THRESHOLD_PROPERTY, 4096));
+    private static final int CHUNK_LINES = Math.max(64, Integer.getInteger(CHUNK_LINES_PROPERTY, 1024));
+
+    private PricingEngine() { }
+
+    /** Convert a KES amount to cents, rounding half up. */
+    public static long toCents(double kes) {
+        return Math.round(kes * 100.0);
+    }
+
+    /** Line total in cents for a unit price (cents per kg) and a quantity in kg. */
+    public static long lineTotalCents(long unitCents, double quantityKg) {
+        return Math.round(unitCents * quantityKg);
+    }
+
+    /**
+     * Price a single line against one snapshot of the table.
+     * @return line total in cents, or NOT_FOUND
+     */
+    public static long priceLine(VegetablePriceTable.Snapshot snapshot, String id, double quantityKg) {
+        long unit = snapshot.priceCents(id); // an off-heap store answers this without creating a VegetablePrice
+        if (unit == NOT_FOUND) return NOT_FOUND;
+        return lineTotalCents(unit, quantityKg);
+    }
+
+    /**
+     * Price every line of a basket against one snapshot of the table,
+     * so all lines see the same prices.
+     *
+     * @param snapshot   table version to price against
+     * @param ids        vegetable ID per line
+     * @param quantities quantity in kg per line
+     * @param into       quote to fill (reused if its arrays are large enough)
+     * @return the filled quote
+     */
+    public static BasketQuote priceBasket(VegetablePriceTable.Snapshot snapshot,
+                                          String[] ids, double[] quantities, BasketQuote into) {
+        if (PARALLEL_THRESHOLD > 0 && ids.length >= PARALLEL_THRESHOLD) {
+            return priceBasketParallel(snapshot, ids, quantities, into, CHUNK_LINES);
+        }
+        return priceBasketSequential(snapshot, ids, quantities, into);
+    }
+
+    /**
+     * Price a basket whose lines are SKU handles instead of IDs; the
+     * quote is the same as for the IDs the handles stand for.
+     *
+     * @param snapshot   a snapshot from VegetablePriceTable.handleSnapshot()
+     * @param skus       the dictionary the handles come from (for the IDs on the quote)
+     * @param handles    SKU handle per line
+     * @param quantities quantity in kg per line
+     * @param into       quote to fill (reused if its arrays are large enough)
+     * @return the filled quote
+     */
+    public static BasketQuote priceBasket(VegetablePriceTable.Snapshot snapshot, SkuDictionary skus,
+                                          int[] handles, double[] quantities, BasketQuote into) {
+        String[] ids = new String[handles.length];
+        for (int i = 0; i < handles.length; i++) {
+            String id = skus.idOf(handles[i]);
+            ids[i] = id != null ? id : "#" + handles[i];
+        }
+        into.reset(ids, quantities);
+        if (PARALLEL_THRESHOLD > 0 && handles.length >= PARALLEL_THRESHOLD) {
+            return priceParallel(new LineRange(snapshot, ids, handles, quantities, into,
+                    0, handles.length, CHUNK_LINES), into);
+        }
+        for (int i = 0; i < handles.length; i++) {
+            long unit = snapshot.priceCentsByHandle(handles[i]);
+            if (unit == NOT_FOUND) {
+                into.setMissing(i);
+            } else {
+                into.setLine(i, snapshot.findByHandle(handles[i]), unit, lineTotalCents(unit, quantities[i]));
+            }
+        }
+        return into;
+    }
+
+    /** Price a basket on the calling thread (see priceBasket()). */
+    public static BasketQuote priceBasketSequential(VegetablePriceTable.Snapshot snapshot,
+                                                    String[] ids, double[] quantities, BasketQuote into) {
+        into.reset(ids, quantities);
+        for (int i = 0; i < ids.length; i++) {
+            VegetablePrice vp = snapshot.find(ids[i]);
+            if (vp == null) {
+                into.setMissing(i);
+            } else {
+                long unit = vp.getPriceCents();
+                into.setLine(i, vp, unit, lineTotalCents(unit, quantities[i]));
+            }
+        }
+        return into;
+    }
+
+    /**
+     * Price a basket on the fork-join pool, chunkLines lines per task
+     * (see priceBasket()). Gives the same quote as priceBasketSequential().
+     */
+    public static BasketQuote priceBasketParallel(VegetablePriceTable.Snapshot snapshot,
+                                                  String[] ids, double[] quantities,
+                                                  BasketQuote into, int chunkLines) {
+        into.reset(ids, quantities);
+        return priceParallel(new LineRange(snapshot, ids, null, quantities, into,
+                0, ids.length, Math.max(1, chunkLines)), into);
+    }
+
+    // Run the whole-basket range on the fork-join pool and set the totals
+    private static BasketQuote priceParallel(LineRange all, BasketQuote into) {
+        if (ForkJoinTask.inForkJoinPool()) {
+            all.invoke();
+        } else {
+            PricingPool.POOL.invoke(all);
+        }
+        into.setTotals(all.totalCents, all.missingCount);
+        return into;
+    }
+
+    // Lines [from, to) of a basket; splits in halves down to chunkLines
+    private static final class LineRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final VegetablePriceTable.Snapshot snapshot;
+        private final String[] ids;
+        private final int[]    handles; // null when the lines are by ID
+        private final double[] quantities;
+        private final BasketQuote into;
+        private final int from, to, chunkLines;
+
+        long totalCents;  // results, valid after the task completes
+        int  missingCount;
+
+        LineRange(VegetablePriceTable.Snapshot snapshot, String[] ids, int[] handles, double[] quantities,
+                  BasketQuote into, int from, int to, int chunkLines) {
+            this.snapshot   = snapshot;
+            this.ids        = ids;
+            this.handles    = handles;
+            this.quantities = quantities;
+            this.into       = into;
+            this.from       = from;
+            this.to         = to;
+            this.chunkLines = chunkLines;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunkLines) {
+                priceLines();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            LineRange left  = new LineRange(snapshot, ids, handles, quantities, into, from, mid, chunkLines);
+            LineRange right = new LineRange(snapshot, ids, handles, quantities, into, mid, to, chunkLines);
+            invokeAll(left, right);
+            // Fixed order: left then right, whatever finished first
+            totalCents   = left.totalCents + right.totalCents;
+            missingCount = left.missingCount + right.missingCount;
+        }
+
+        private void priceLines() {
+            long total = 0L;
+            int missing = 0;
+            for (int i = from; i < to; i++) {
+                VegetablePrice vp = handles == null ? snapshot.find(ids[i]) : snapshot.findByHandle(handles[i]);
+                if (vp == null) {
+                    into.putMissing(i);
+                    missing++;
+                } else {
+                    long unit = vp.getPriceCents();
+                    long line = lineTotalCents(unit, quantities[i]);
+                    into.putLine(i, vp, unit, line);
+                    total += line;
+                }
+            }
+            totalCents   = total;
+            missingCount = missing;
+        }
+    }
+
+    // Created on the first parallel basket
+    private static final class PricingPool {
+        static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM, pool -> {
+            ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            t.setName("basket-pricing-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+}
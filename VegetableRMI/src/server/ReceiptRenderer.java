@@ -0,0 +1,226 @@
+package server;
+
+import common.BasketQuote;
+import common.VegetablePrice;
+
+import java.text.DecimalFormatSymbols;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+/**
+ * ReceiptRenderer - turns priced results into the printed text layouts.
+ *
+ * Produces exactly the same characters as the original String.format
+ * layout, but builds them by hand:
+ *   - fixed-width columns are padded directly into the buffer,
+ *   - money is written from long cents without going through double,
+ *   - quantities use a fast rounding path and only fall back to
+ *     String.format for values that sit on a rounding boundary,
+ *   - the date formatter is created once and reused,
+ *   - each thread reuses one StringBuilder for the text it renders.
+ * If the default locale does not use '.' and ASCII digits, numbers fall
+ * back to String.format so the output still matches the old layout.
+ *
+ * DIARY: Day 5 - CalculateCost called String.format about ten times per
+ *        receipt plus once per line and built a new DateTimeFormatter
+ *        every time; for large baskets that was most of the server's CPU.
+ */
+public final class ReceiptRenderer {
+
+    private static final String NL       = System.lineSeparator(); // what %n printed
+    private static final String DIVIDER  = "================================================\n";
+    private static final String DIVIDER2 = "------------------------------------------------\n";
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
+    // True when %.2f prints plain ASCII digits with a '.' separator
+    private static final boolean PLAIN_NUMBERS = plainNumbers(Locale.getDefault(Locale.Category.FORMAT));
+
+    // Reused per thread; dropped if one huge receipt made it very large
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+    private ReceiptRenderer() { }
+
+    // ── Layouts ──────────────────────────────────────────────────────────────
+
+    /**
+     * Render the full receipt for a priced basket.
+     *
+     * @param quote            priced basket
+     * @param amountGivenCents cash handed over, in cents
+     * @param cashierName      cashier logged into the terminal
+     * @param when             transaction time printed in the header
+     */
+    public static String renderReceipt(BasketQuote quote, long amountGivenCents,
+                                       String cashierName, LocalDateTime when) {
+        StringBuilder sb = borrowBuffer();
+
+        // Header
+        sb.append(DIVIDER);
+        sb.append("         VEGETABLE MARKET - RECEIPT\n");
+        sb.append(DIVIDER);
+        sb.append("  Date    : ");
+        DATE_FORMAT.formatTo(when, sb);
+        sb.append(NL);
+        sb.append("  Cashier : ").append(cashierName).append(NL);
+        sb.append(DIVIDER2);
+        sb.append("  Item            Qty(kg)  Unit(KES)   Total(KES)").append(NL);
+        sb.append(DIVIDER2);
+
+        for (int i = 0; i < quote.size(); i++) {
+            VegetablePrice vp = quote.getEntry(i);
+            if (vp == null) {
+                sb.append("  ???              NOT FOUND (ID: ").append(quote.getId(i)).append(')').append(NL);
+                continue;
+            }
+            sb.append("  ");
+            appendPadded(sb, vp.getName(), 15);
+            sb.append(' ');
+            appendQuantity(sb, quote.getQuantity(i), 6);
+            sb.append(' ');
+            appendCents(sb, quote.getUnitCents(i), 10);
+            sb.append(' ');
+            appendCents(sb, quote.getLineCents(i), 12);
+            sb.append(NL);
+        }
+
+        long grandTotal = quote.getTotalCents();
+
+        sb.append(DIVIDER2);
+        appendTotalLine(sb, "TOTAL (KES):", grandTotal);
+        appendTotalLine(sb, "Amount Given (KES):", amountGivenCents);
+        if (amountGivenCents < grandTotal) {
+            appendTotalLine(sb, "INSUFFICIENT FUNDS - SHORT:", grandTotal - amountGivenCents);
+        } else {
+            appendTotalLine(sb, "Change Due  (KES):", amountGivenCents - grandTotal);
+        }
+
+        sb.append(DIVIDER);
+        sb.append("         Thank you for shopping with us!\n");
+        sb.append(DIVIDER);
+
+        if (quote.hasMissing()) {
+            sb.append("  WARNING: Some items could not be found in the table.\n");
+        }
+
+        return release(sb);
+    }
+
+    /**
+     * Render the single-vegetable cost breakdown used by CalVegetableCost.
+     *
+     * @param vp         the priced vegetable
+     * @param unitCents  price per kg in cents
+     * @param quantityKg quantity in kg
+     * @param totalCents line total in cents
+     */
+    public static String renderCost(VegetablePrice vp, long unitCents, double quantityKg, long totalCents) {
+        StringBuilder sb = borrowBuffer();
+        sb.append("COST CALCULATION:\n");
+        sb.append("  Vegetable  : ").append(vp.getName()).append(" (ID: ").append(vp.getId()).append(")\n");
+        sb.append("  Unit Price : KES ");
+        appendCents(sb, unitCents, 0);
+        sb.append(" per kg\n");
+        sb.append("  Quantity   : ");
+        appendQuantity(sb, quantityKg, 0);
+        sb.append(" kg\n");
+        sb.append("  ------------------------------------\n");
+        sb.append("  TOTAL COST : KES ");
+        appendCents(sb, totalCents, 0);
+        return release(sb);
+    }
+
+    // ── Buffer pool ──────────────────────────────────────────────────────────
+
+    private static StringBuilder borrowBuffer() {
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        return sb;
+    }
+
+    private static String release(StringBuilder sb) {
+        String text = sb.toString();
+        if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+            BUFFER.set(new StringBuilder(1024));
+        }
+        return text;
+    }
+
+    // ── Field writers ────────────────────────────────────────────────────────
+
+    // Same as "  %-33s %12.2f%n"
+    private static void appendTotalLine(StringBuilder sb, String label, long cents) {
+        sb.append("  ");
+        appendPadded(sb, label, 33);
+        sb.append(' ');
+        appendCents(sb, cents, 12);
+        sb.append(NL);
+    }
+
+    // Same as "%-<width>s": left-aligned, never truncated
+    private static void appendPadded(StringBuilder sb, String s, int width) {
+        String text = String.valueOf(s);
+        sb.append(text);
+        appendSpaces(sb, width - text.length());
+    }
+
+    // Same as "%<width>.2f" of cents / 100.0
+    static void appendCents(StringBuilder sb, long cents, int width) {
+        if (!PLAIN_NUMBERS || cents == Long.MIN_VALUE) {
+            appendFormatted(sb, cents / 100.0, width);
+            return;
+        }
+        boolean negative = cents < 0;
+        long abs   = Math.abs(cents);
+        long whole = abs / 100;
+        int  frac  = (int) (abs % 100);
+
+        appendSpaces(sb, width - (digitCount(whole) + 3 + (negative ? 1 : 0)));
+        if (negative) sb.append('-');
+        sb.append(whole).append('.');
+        if (frac < 10) sb.append('0');
+        sb.append(frac);
+    }
+
+    // Same as "%<width>.2f" of a quantity in kg
+    static void appendQuantity(StringBuilder sb, double value, int width) {
+        // Fast path only where rounding value * 100 is certain to agree with
+        // Formatter: non-negative, moderate size, not close to a .5 boundary
+        if (PLAIN_NUMBERS && value >= 0 && value < 1e6 && Double.doubleToRawLongBits(value) >= 0) {
+            double scaled = value * 100.0;
+            double frac   = scaled - Math.floor(scaled);
+            if (Math.abs(frac - 0.5) > 1e-6) {
+                appendCents(sb, Math.round(scaled), width);
+                return;
+            }
+        }
+        appendFormatted(sb, value, width);
+    }
+
+    private static void appendFormatted(StringBuilder sb, double value, int width) {
+        sb.append(String.format(width > 0 ? "%" + width + ".2f" : "%.2f", value));
+    }
+
+    private static void appendSpaces(StringBuilder sb, int count) {
+        for (int i = 0; i < count; i++) sb.append(' ');
+    }
+
+    private static int digitCount(long n) {
+        int digits = 1;
+        while (n >= 10) {
+            n /= 10;
+            digits++;
+        }
+        return digits;
+    }
+
+    private static boolean plainNumbers(Locale locale) {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+        return symbols.getDecimalSeparator() == '.'
+                && symbols.getZeroDigit() == '0'
+                && symbols.getMinusSign() == '-';
+    }
+}
@@ -0,0 +1,262 @@
+package server;
+
+import client.ComputeEngineClient;
+import client.ExportPrices;
+import client.PriceFeedSubscriber;
+import common.ExportPage;
+import common.PriceChangeBatch;
+import common.VegetablePrice;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ReplicaSync - keeps a read replica's price table in step with the primary.
+ *
+ * Started by VegetableComputeEngine when -Dvegetable.replica.of=host:port
+ * is set. It subscribes to the primary's PriceChangeFeed first, then
+ * copies the whole table with ExportPrices pages and installs it at the
+ * version the subscription started from. Pages go by ID, each after the
+ * last ID of the one before, so a vegetable that does not change during
+ * the copy is read exactly once, even if others are deleted meanwhile
+ * (by offset it could fall between two pages). Anything that does change
+ * is in the batches that arrived while copying, which are then applied on
+ * top; since each batch sets vegetables to their latest values, the
+ * result matches the primary exactly once the replica has reached the
+ * newest version any page was read at. From then on the replica is LIVE
+ * and applies batches as they come.
+ *
+ * A reset batch, a gap in versions or a failed apply sends the replica
+ * back to SYNCING and it copies the table again. While SYNCING the
+ * engine turns reads away with ReplicaUnavailableException, so clients
+ * go to another replica or the primary.
+ *
+ * Lag is measured per applied batch: versions behind the primary's
+ * newest version when the batch was built, and milliseconds from the
+ * primary building the batch to the replica applying it (this needs the
+ * two machines' clocks to agree; on one host they do).
+ *
+ * Configured with system properties (defaults in brackets):
+ *   -Dvegetable.replica.of=host:port         [unset = not a replica]
+ *   -Dvegetable.replica.readWaitMillis=N     [100, see VegetableComputeEngine]
+ *   -Dvegetable.replica.compactAfter=N       [50000 changes]
+ *
+ * DIARY: Day 6 - One engine was both our throughput ceiling and a single
+ *        point of failure. Replicas take the reads.
+ */
+public final class ReplicaSync {
+
+    /** Replica state as seen by the engine and in the stats. */
+    public enum State { SYNCING, LIVE }
+
+    public static final String PRIMARY_PROPERTY       = "vegetable.replica.of";
+    public static final String COMPACT_AFTER_PROPERTY = "vegetable.replica.compactAfter";
+
+    private static final int EXPORT_PAGE_SIZE = 50_000;
+
+    private static volatile ReplicaSync instance; // set once started
+
+    private final VegetablePriceTable table;
+    private final ComputeEngineClient primary;
+    private final String primaryAddress;
+    private final int compactAfter = Math.max(1, Integer.getInteger(COMPACT_AFTER_PROPERTY, 50_000));
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "replica-sync");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // ── Guarded by this ──────────────────────────────────────────────────────
+    private volatile State state = State.SYNCING;
+    private List<PriceChangeBatch> held = new ArrayList<>(); // batches received while copying
+    private boolean copying;
+    private long liveAtVersion;          // LIVE once the table reaches this version
+    private long lastSeenVersion;        // end of the newest batch received
+    private PriceFeedSubscriber subscriber;
+
+    // ── Lag and counters ─────────────────────────────────────────────────────
+    private volatile long primaryVersion;  // newest version the primary reported
+    private volatile long lagVersions;
+    private final LatencyHistogram applyDelay = new LatencyHistogram(); // stored in ms
+    private final LongAdder batchesApplied = new LongAdder();
+    private final LongAdder resyncs        = new LongAdder();
+
+    private ReplicaSync(VegetablePriceTable table, String primaryAddress) {
+        int colon = primaryAddress.lastIndexOf(':');
+        String host = colon < 0 ? primaryAddress : primaryAddress.substring(0, colon);
+        int port = colon < 0 ? 1099 : Integer.parseInt(primaryAddress.substring(colon + 1).trim());
+        this.table          = table;
+        this.primaryAddress = host + ":" + port;
+        this.primary        = new ComputeEngineClient(host, port, VegetableComputeEngine.REGISTRY_NAME);
+    }
+
+    /**
+     * Start following the primary named by -Dvegetable.replica.of.
+     * Returns at once; the first copy of the table is made in the background.
+     */
+    public static synchronized ReplicaSync start(VegetablePriceTable table) {
+        if (instance != null) return instance;
+        ReplicaSync sync = new ReplicaSync(table, System.getProperty(PRIMARY_PROPERTY));
+        instance = sync;
+        sync.worker.execute(sync::resync);
+        return sync;
+    }
+
+    /** The running ReplicaSync, or null if this engine is not a replica. */
+    public static ReplicaSync getInstance() {
+        return instance;
+    }
+
+    public State  getState()          { return state; }
+    public String getPrimaryAddress() { return primaryAddress; }
+
+    // ── Copying the table ────────────────────────────────────────────────────
+
+    // Runs on the worker thread; retries until the primary answers
+    private void resync() {
+        long backoff = 100;
+        while (true) {
+            try {
+                copyTable();
+                return;
+            } catch (IOException | RuntimeException e) {
+                EngineLog.warn("replica.syncFailed", "primary", primaryAddress, "error", e);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, 5000);
+            }
+        }
+    }
+
+    private void copyTable() throws IOException {
+        long start = System.nanoTime();
+        synchronized (this) {
+            state = State.SYNCING;
+            copying = true;
+            held = new ArrayList<>();
+        }
+        resyncs.increment();
+
+        // Subscribe first, so nothing that changes during the copy is missed
+        long from;
+        synchronized (this) {
+            if (subscriber == null) {
+                PriceFeedSubscriber feed = new PriceFeedSubscriber(primary, this::onBatch);
+                lastSeenVersion = feed.start(-1);
+                subscriber = feed;
+            }
+            from = lastSeenVersion; // the held batches continue from here
+        }
+
+        List<VegetablePrice> rows = new ArrayList<>();
+        long newestPage = from;
+        String after = null;
+        ExportPage page;
+        do {
+            page = primary.execute(new ExportPrices(after, EXPORT_PAGE_SIZE));
+            for (int i = 0; i < page.size(); i++) {
+                rows.add(new VegetablePrice(page.getId(i), page.getName(i), page.getPrice(i)));
+            }
+            newestPage = Math.max(newestPage, page.getVersion());
+            after = page.getLastId();
+        } while (!page.isLast());
+        table.installReplica(rows, from);
+
+        synchronized (this) {
+            copying = false;
+            liveAtVersion = newestPage;
+            primaryVersion = Math.max(primaryVersion, newestPage);
+            List<PriceChangeBatch> pending = held;
+            held = new ArrayList<>();
+            for (PriceChangeBatch batch : pending) {
+                if (!apply(batch)) return; // a gap: another resync is already queued
+            }
+            updateState();
+        }
+        EngineLog.info("replica.synced", "primary", primaryAddress, "rows", rows.size(),
+                "version", table.getVersion(), "ms", (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // ── Following the feed ───────────────────────────────────────────────────
+
+    // Called by PriceFeedSubscriber, one batch at a time
+    private synchronized void onBatch(PriceChangeBatch batch) {
+        primaryVersion  = Math.max(primaryVersion, batch.getHeadVersion());
+        lastSeenVersion = batch.getToVersion();
+        if (batch.isReset()) {
+            scheduleResync("reset");
+            return;
+        }
+        if (copying) {
+            held.add(batch);
+            return;
+        }
+        apply(batch);
+        updateState();
+    }
+
+    // Caller holds this. Returns false (and schedules a resync) if the batch cannot be applied.
+    private boolean apply(PriceChangeBatch batch) {
+        if (!table.applyReplicated(batch)) {
+            scheduleResync("gap");
+            return false;
+        }
+        batchesApplied.increment();
+        lagVersions = Math.max(0L, batch.getHeadVersion() - table.getVersion());
+        applyDelay.record(Math.max(0L, System.currentTimeMillis() - batch.getSentAtMillis()));
+        if (table.getOverlaySize() > compactAfter) {
+            worker.execute(this::compact);
+        }
+        return true;
+    }
+
+    private void compact() {
+        try {
+            table.compactReplica();
+        } catch (IOException e) {
+            EngineLog.warn("replica.compactFailed", "error", e);
+        }
+    }
+
+    // Caller holds this
+    private void scheduleResync(String reason) {
+        if (copying) return; // the copy in progress will be followed by held batches
+        state = State.SYNCING;
+        copying = true;      // hold batches until the new copy is installed
+        held = new ArrayList<>();
+        EngineLog.warn("replica.resync", "reason", reason, "version", table.getVersion());
+        worker.execute(this::resync);
+    }
+
+    // Caller holds this
+    private void updateState() {
+        if (state == State.SYNCING && !copying && table.getVersion() >= liveAtVersion) {
+            state = State.LIVE;
+        }
+    }
+
+    // ── Stats ────────────────────────────────────────────────────────────────
+
+    /** Versions behind the primary as of the last applied batch. */
+    public long getLagVersions() {
+        return state == State.LIVE ? lagVersions : Math.max(0L, primaryVersion - table.getVersion());
+    }
+
+    public String getStats() {
+        return String.format("REPLICA     | primary: %s | state: %s | version: %d | primary version: %d"
+                        + " | lag: %d versions | apply delay p50/p99/max: %d/%d/%d ms"
+                        + " | batches: %d | full copies: %d%n",
+                primaryAddress, state, table.getVersion(), primaryVersion, getLagVersions(),
+                applyDelay.getPercentileNanos(50), applyDelay.getPercentileNanos(99), applyDelay.getMaxNanos(),
+                batchesApplied.sum(), resyncs.sum());
+    }
+}
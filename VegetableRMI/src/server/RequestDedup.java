@@ -0,0 +1,211 @@
+package server;
+
+import common.IdempotentTask;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RequestDedup - remembers the result of each recent IdempotentTask by its
+ * request ID, so a retried request gets the original result back instead
+ * of running again.
+ *
+ * - Runs on the worker thread, around task.execute(): the result is kept
+ *   even if the caller already gave up waiting (TaskTimeoutException or a
+ *   dropped connection), which is exactly when a client retries.
+ * - A retry that arrives while the original is still running waits for it.
+ * - A task that throws is forgotten, so a retry runs it again, unless
+ *   it had already published a change (see published()): then the retry
+ *   gets the same exception, as running it again would apply it twice.
+ * - Bounded: results are kept for -Dvegetable.dedup.ttlMillis (10 minutes)
+ *   and at most -Dvegetable.dedup.capacity of them (50000); the oldest
+ *   go first. A retry later than that runs the task again.
+ * - In memory only: an engine restart forgets every request ID.
+ *
+ * DIARY: Day 6 - A servlet that timed out could not tell whether its add
+ *        had run; retrying it answered "already exists", and retrying an
+ *        update could overwrite a newer price.
+ */
+public final class RequestDedup {
+
+    public static final String CAPACITY_PROPERTY = "vegetable.dedup.capacity";
+    public static final String TTL_PROPERTY      = "vegetable.dedup.ttlMillis";
+
+    // Singleton instance
+    private static RequestDedup instance;
+
+    private final int  capacity;
+    private final long ttlNanos;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Entry> oldestFirst = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    // Entry of the request the current worker thread is running, if any
+    private static final ThreadLocal<Entry> running = new ThreadLocal<>();
+
+    // ── Counters ─────────────────────────────────────────────────────────────
+    private final LongAdder executed = new LongAdder(); // first time a request ID was seen
+    private final LongAdder replayed = new LongAdder(); // answered from a stored result
+    private final LongAdder evicted  = new LongAdder(); // dropped for the capacity limit
+
+    /**
+     * @param capacity   most results kept
+     * @param ttlMillis  how long a result is kept
+     */
+    public RequestDedup(int capacity, long ttlMillis) {
+        this.capacity = Math.max(1, capacity);
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    /** Return the shared table, configured from system properties on first use. */
+    public static synchronized RequestDedup getInstance() {
+        if (instance == null) {
+            instance = new RequestDedup(
+                    Integer.getInteger(CAPACITY_PROPERTY, 50_000),
+                    Long.getLong(TTL_PROPERTY, 600_000L));
+        }
+        return instance;
+    }
+
+    /**
+     * Run the task, or return the result it had the first time its
+     * request ID was seen. Call on the thread that would run the task.
+     * @throws IllegalArgumentException if the ID is too long, or was used
+     *         for a different kind of task
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(IdempotentTask<T> task) {
+        String requestId = task.getRequestId();
+        if (requestId == null) return task.execute();
+        if (requestId.length() > IdempotentTask.MAX_REQUEST_ID_LENGTH) {
+            throw new IllegalArgumentException("Request ID longer than "
+                    + IdempotentTask.MAX_REQUEST_ID_LENGTH + " characters.");
+        }
+
+        Entry mine = new Entry(requestId, task.getClass(), System.nanoTime() + ttlNanos);
+        Entry first;
+        while ((first = entries.putIfAbsent(requestId, mine)) != null) {
+            if (first.expiresAt - System.nanoTime() > 0) {
+                if (first.taskClass != task.getClass()) {
+                    throw new IllegalArgumentException("Request ID '" + requestId + "' was already used for "
+                            + first.taskClass.getSimpleName() + ".");
+                }
+                replayed.increment();
+                return (T) first.await();
+            }
+            entries.remove(requestId, first); // expired; make room and try again
+        }
+
+        T result;
+        Entry outer = running.get();
+        running.set(mine);
+        try {
+            result = task.execute();
+        } catch (RuntimeException | Error e) {
+            mine.complete(e, false);
+            if (mine.published) {
+                keep(mine); // the change is in the table; a retry must not apply it again
+            } else {
+                entries.remove(requestId, mine);
+            }
+            throw e;
+        } finally {
+            running.set(outer);
+        }
+        mine.complete(result, true);
+        executed.increment();
+        keep(mine);
+        return result;
+    }
+
+    /**
+     * Called by the table once a change is visible to readers. If the
+     * calling thread is running a request, its entry is kept even if the
+     * task goes on to fail (e.g. waiting for the journal).
+     */
+    static void published() {
+        Entry entry = running.get();
+        if (entry != null) entry.published = true;
+    }
+
+    // Queue a finished entry for expiry
+    private void keep(Entry entry) {
+        oldestFirst.add(entry);
+        queued.incrementAndGet();
+        evict();
+    }
+
+    // Drop expired results, then the oldest ones while over capacity
+    private void evict() {
+        long now = System.nanoTime();
+        Entry head;
+        while ((head = oldestFirst.peek()) != null) {
+            boolean expired = head.expiresAt - now <= 0;
+            if (!expired && queued.get() <= capacity) break;
+            if (!oldestFirst.remove(head)) continue; // another thread took it
+            queued.decrementAndGet();
+            entries.remove(head.requestId, head);
+            if (!expired) evicted.increment();
+        }
+    }
+
+    // ── Entry ────────────────────────────────────────────────────────────────
+
+    // One request ID; its result is set once by the thread that ran the task
+    private static final class Entry {
+        final String   requestId;
+        final Class<?> taskClass;
+        final long     expiresAt; // System.nanoTime() deadline
+
+        private boolean done;
+        private boolean succeeded;
+        private Object  outcome;   // result, or the exception the task threw
+        boolean         published; // the task changed the table (only its own thread sets it)
+
+        Entry(String requestId, Class<?> taskClass, long expiresAt) {
+            this.requestId = requestId;
+            this.taskClass = taskClass;
+            this.expiresAt = expiresAt;
+        }
+
+        synchronized void complete(Object outcome, boolean succeeded) {
+            this.outcome   = outcome;
+            this.succeeded = succeeded;
+            this.done      = true;
+            notifyAll();
+        }
+
+        // Wait for the first run; its exception is rethrown to the retry too
+        synchronized Object await() {
+            boolean interrupted = false;
+            while (!done) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true; // the first run finishes soon; keep waiting
+                }
+            }
+            if (interrupted) Thread.currentThread().interrupt();
+            if (succeeded) return outcome;
+            if (outcome instanceof Error) throw (Error) outcome;
+            throw (RuntimeException) outcome;
+        }
+    }
+
+    // ── Stats ────────────────────────────────────────────────────────────────
+
+    public int size() {
+        return entries.size();
+    }
+
+    public String getStats() {
+        return String.format("DEDUP       | request IDs held: %d (max %d, %d s) | executed: %d"
+                        + " | replayed: %d | evicted early: %d%n",
+                entries.size(), capacity, ttlNanos / 1_000_000_000L,
+                executed.sum(), replayed.sum(), evicted.sum());
+    }
+}
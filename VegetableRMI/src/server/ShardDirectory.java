@@ -0,0 +1,108 @@
+package server;
+
+import common.ShardLayout;
+import common.ShardMovedException;
+import common.ShardRing;
+
+import java.util.function.Supplier;
+
+/**
+ * ShardDirectory - the newest ShardLayout published to this engine, so
+ * sharded clients that did not run a rebalance can learn about it, and
+ * the IDs this engine accepts writes for.
+ *
+ * - Kept in memory only; after a restart the engine knows no layout
+ *   until the next rebalance, and clients keep the one they have.
+ * - An older generation never replaces a newer one.
+ * - Once a rebalance has told the engine its ownership (before copying
+ *   any row away), the table refuses writes to IDs the new ring gives to
+ *   another shard with ShardMovedException, so nothing changes here
+ *   after it was copied. Only DeletePrices, removing the moved copies,
+ *   gets through (see removingMoved()). Until then every write is taken.
+ *
+ * DIARY: Day 6 - Created with ShardLayout.
+ *        Day 6 - Ownership, so writes to moving rows are refused
+ *        instead of lost.
+ */
+public final class ShardDirectory {
+
+    // Singleton instance
+    private static final ShardDirectory instance = new ShardDirectory();
+
+    // Set while moved rows are removed; checkOwned() lets those deletes through
+    private static final ThreadLocal<Boolean> removing = new ThreadLocal<>();
+
+    private ShardLayout layout;           // null until one is published
+    private volatile Ownership ownership; // null = accept writes to any ID
+
+    private ShardDirectory() { }
+
+    public static ShardDirectory getInstance() {
+        return instance;
+    }
+
+    /**
+     * Keep the layout if it is newer than the one held.
+     * @return true if it was kept
+     */
+    public synchronized boolean publish(ShardLayout next) {
+        if (layout != null && layout.getGeneration() >= next.getGeneration()) return false;
+        layout = next;
+        EngineLog.info("shards.layoutPublished", "layout", next);
+        return true;
+    }
+
+    /** The newest layout published here, or null. */
+    public synchronized ShardLayout get() {
+        return layout;
+    }
+
+    // ── Ownership ────────────────────────────────────────────────────────────
+
+    /**
+     * From now on accept writes only to IDs the layout's ring gives to
+     * self (the name rebalancing clients know this engine by). Returns
+     * once every write that got past the check before is published, so a
+     * copy read afterwards has all of them.
+     */
+    public void setOwnership(ShardLayout owned, String self) {
+        ownership = new Ownership(owned.toRing(), self);
+        VegetablePriceTable.getInstance().awaitWriters();
+        EngineLog.info("shards.ownershipSet", "self", self, "layout", owned);
+    }
+
+    /**
+     * Called by the table, under its write lock, for each ID it is about
+     * to change.
+     * @throws ShardMovedException if another shard owns the ID
+     */
+    void checkOwned(String id) {
+        Ownership owned = ownership;
+        if (owned == null) return;
+        String owner = owned.ring.ownerNameOf(id);
+        if (owner.equals(owned.self) || removing.get() != null) return;
+        throw new ShardMovedException("'" + id + "' belongs to shard " + owner + ", not " + owned.self
+                + "; refresh the shard ring and resend.");
+    }
+
+    /** Run the removal of rows that moved to another shard, which checkOwned() lets through. */
+    public static <T> T removingMoved(Supplier<T> removal) {
+        removing.set(Boolean.TRUE);
+        try {
+            return removal.get();
+        } finally {
+            removing.remove();
+        }
+    }
+
+    // The ring and this engine's name in it
+    private static final class Ownership {
+        final ShardRing ring;
+        final String    self;
+
+        Ownership(ShardRing ring, String self) {
+            this.ring = ring;
+            this.self = self;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package server;
+
+import common.SkuHandles;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * SkuDictionary - gives every vegetable ID this engine has seen a small
+ * int handle (0, 1, 2... in order of first use), so hot paths can index
+ * a primitive array instead of hashing and comparing the String ID on
+ * every lookup (see HandlePrices).
+ *
+ * - Append-only: a handle is never reused or renumbered, even after its
+ *   vegetable is deleted, so a handle a client holds stays valid for as
+ *   long as this engine runs. Re-adding a deleted ID gets its old handle.
+ * - Handles are per engine. The epoch is chosen at random when the engine
+ *   starts; a client sends it with its handles and the engine refuses
+ *   handles from another epoch (another engine, or before a restart).
+ * - Lookups by ID are an open-addressing probe over int slots, with no
+ *   lock; new IDs are added by one thread at a time (the table's
+ *   writers, or the first handle build).
+ *
+ * DIARY: Day 6 - Created for int SKU handles (ResolveSkus).
+ */
+public final class SkuDictionary {
+
+    /** Returned by handleOf() for an ID that has no handle. */
+    public static final int NO_HANDLE = SkuHandles.NO_HANDLE;
+
+    private static final int INITIAL_SLOTS = 1024;
+
+    private final long epoch;
+    private volatile State state = new State(INITIAL_SLOTS);
+
+    // Arrays are replaced (never resized in place) when they fill up, so
+    // a reader that read `state` sees every ID added before that write
+    private static final class State {
+        final int[]    slots; // handle + 1 per slot, 0 = empty
+        final String[] ids;   // ID per handle
+        int size;             // handles in use (written under the dictionary lock)
+
+        State(int slotCount) {
+            slots = new int[slotCount];
+            ids   = new String[slotCount / 2];
+        }
+    }
+
+    public SkuDictionary() {
+        long e;
+        do {
+            e = ThreadLocalRandom.current().nextLong();
+        } while (e == 0L);
+        this.epoch = e;
+    }
+
+    /** This engine's epoch; handles are only valid with the same epoch. */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /** The handle of an ID, or NO_HANDLE if it was never interned. */
+    public int handleOf(String id) {
+        State s = state;
+        int mask = s.slots.length - 1;
+        for (int i = mix(id.hashCode()) & mask; ; i = (i + 1) & mask) {
+            int h = s.slots[i] - 1;
+            if (h < 0) return NO_HANDLE;
+            if (id.equals(s.ids[h])) return h;
+        }
+    }
+
+    /** The ID of a handle, or null if the handle was never given out. */
+    public String idOf(int handle) {
+        String[] ids = state.ids;
+        return handle >= 0 && handle < ids.length ? ids[handle] : null;
+    }
+
+    /** Number of handles given out. */
+    public int size() {
+        return state.size;
+    }
+
+    /** The handle of an ID, giving it the next free one if it has none. */
+    public synchronized int intern(String id) {
+        int h = handleOf(id);
+        if (h != NO_HANDLE) return h;
+        State s = state;
+        if (s.size == s.ids.length) {
+            s = grow(s);
+            state = s;
+        }
+        h = s.size;
+        s.ids[h] = id;
+        place(s, id, h);
+        s.size = h + 1;
+        return h;
+    }
+
+    // Twice the slots, every handle re-placed
+    private static State grow(State old) {
+        State s = new State(old.slots.length * 2);
+        System.arraycopy(old.ids, 0, s.ids, 0, old.size);
+        for (int h = 0; h < old.size; h++) place(s, old.ids[h], h);
+        s.size = old.size;
+        return s;
+    }
+
+    // Slots are at most half full, so there is always an empty one
+    private static void place(State s, String id, int h) {
+        int mask = s.slots.length - 1;
+        int i = mix(id.hashCode()) & mask;
+        while (s.slots[i] != 0) i = (i + 1) & mask;
+        s.slots[i] = h + 1;
+    }
+
+    // Spread the bits of String.hashCode(), whose low bits cluster for IDs like "V001"
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return "SkuDictionary[" + size() + " handles, epoch " + Long.toHexString(epoch) + "]";
+    }
+}
@@ -0,0 +1,174 @@
+package server;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * TaskMetrics - latency histograms per Task class, split by phase:
+ *   queue        waiting for a worker thread
+ *   deserialize  decoding the task's fields from the wire (readExternal)
+ *   execute      task.execute() on the worker
+ *   serialize    encoding the result; measured on a sample of calls by
+ *                writing the result to a discarding stream
+ *
+ * Recording is lock-free (see LatencyHistogram) and the per-class lookup
+ * is a ClassValue, so it is cheap enough to leave on. The numbers are
+ * shown by the GetEngineMetrics task, the /vegetable/metrics servlet and
+ * over JMX as vegetable.engine:type=TaskMetrics.
+ *
+ * Configured with system properties (defaults in brackets):
+ *   -Dvegetable.metrics.serializeSampleEvery=N  [100, 0 = never]
+ *
+ * DIARY: Day 6 - The executor only had totals for all tasks together,
+ *        so a slow receipt could not be told apart from a slow delete.
+ */
+public final class TaskMetrics implements TaskMetricsMXBean {
+
+    /** Phases a task's time is split into. */
+    public enum Phase { QUEUE, DESERIALIZE, EXECUTE, SERIALIZE }
+
+    public static final String SERIALIZE_SAMPLE_PROPERTY = "vegetable.metrics.serializeSampleEvery";
+    public static final String OBJECT_NAME               = "vegetable.engine:type=TaskMetrics";
+
+    private static final TaskMetrics INSTANCE = new TaskMetrics();
+
+    private final int serializeSampleEvery = Integer.getInteger(SERIALIZE_SAMPLE_PROPERTY, 100);
+
+    // Every task class seen so far, by fully qualified name (two tasks may
+    // share a simple name in different packages), for reporting
+    private final ConcurrentHashMap<String, Timings> byName = new ConcurrentHashMap<>();
+
+    // Fast per-class lookup on the recording path
+    private final ClassValue<Timings> byClass = new ClassValue<Timings>() {
+        @Override
+        protected Timings computeValue(Class<?> type) {
+            return byName.computeIfAbsent(type.getName(), name -> new Timings());
+        }
+    };
+
+    private TaskMetrics() { }
+
+    /** Return the single shared instance. */
+    public static TaskMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    // ── Recording ────────────────────────────────────────────────────────────
+
+    /** Record time spent in one phase of a task of the given class. */
+    public void record(Class<?> taskType, Phase phase, long nanos) {
+        byClass.get(taskType).histograms[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * Called at the end of a task's readExternal with the time it started.
+     * Usage: long start = System.nanoTime(); ... ; TaskMetrics.deserialized(getClass(), start);
+     */
+    public static void deserialized(Class<?> taskType, long startNanos) {
+        INSTANCE.record(taskType, Phase.DESERIALIZE, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * On a sample of calls, time how long the result takes to serialize.
+     * The bytes are thrown away; RMI still serializes the real reply.
+     */
+    public void sampleSerialization(Class<?> taskType, Object result) {
+        int n = serializeSampleEvery;
+        if (n <= 0 || ThreadLocalRandom.current().nextInt(n) != 0) return;
+        long start = System.nanoTime();
+        try (ObjectOutputStream out = new ObjectOutputStream(DISCARD)) {
+            out.writeObject(result);
+        } catch (IOException e) {
+            return; // not serializable; RMI will report it to the client
+        }
+        record(taskType, Phase.SERIALIZE, System.nanoTime() - start);
+    }
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override public void write(int b) { }
+        @Override public void write(byte[] b, int off, int len) { }
+    };
+
+    // ── JMX ──────────────────────────────────────────────────────────────────
+
+    /** Publish the metrics on the platform MBean server (idempotent). */
+    public void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            EngineLog.warn("metrics.jmxFailed", "error", e);
+        }
+    }
+
+    @Override
+    public List<String> getTaskTypes() {
+        List<String> names = new ArrayList<>(byName.keySet());
+        names.sort(Comparator.naturalOrder());
+        return names;
+    }
+
+    @Override
+    public long getCount(String taskType, String phase) {
+        LatencyHistogram h = histogram(taskType, phase);
+        return h == null ? 0L : h.getCount();
+    }
+
+    @Override
+    public double getPercentileMicros(String taskType, String phase, double percentile) {
+        LatencyHistogram h = histogram(taskType, phase);
+        return h == null ? 0.0 : h.getPercentileNanos(percentile) / 1000.0;
+    }
+
+    @Override
+    public String getReport() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("TASK LATENCY (microseconds):\n");
+        sb.append(String.format("  %-34s %-12s %10s %10s %10s %10s %10s%n",
+                "Task", "Phase", "Count", "p50", "p99", "p99.9", "max"));
+        for (String type : getTaskTypes()) {
+            Timings t = byName.get(type);
+            for (Phase phase : Phase.values()) {
+                LatencyHistogram h = t.histograms[phase.ordinal()];
+                if (h.getCount() == 0) continue;
+                sb.append(String.format("  %-34s %-12s %10d %10.1f %10.1f %10.1f %10.1f%n",
+                        type, phase.name().toLowerCase(), h.getCount(),
+                        h.getPercentileNanos(50) / 1000.0,
+                        h.getPercentileNanos(99) / 1000.0,
+                        h.getPercentileNanos(99.9) / 1000.0,
+                        h.getMaxNanos() / 1000.0));
+            }
+        }
+        return sb.toString();
+    }
+
+    private LatencyHistogram histogram(String taskType, String phase) {
+        Timings t = byName.get(taskType);
+        if (t == null) return null;
+        try {
+            return t.histograms[Phase.valueOf(phase.trim().toUpperCase()).ordinal()];
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // One histogram per phase for one task class
+    private static final class Timings {
+        final LatencyHistogram[] histograms = new LatencyHistogram[Phase.values().length];
+
+        Timings() {
+            for (int i = 0; i < histograms.length; i++) histograms[i] = new LatencyHistogram();
+        }
+    }
+}
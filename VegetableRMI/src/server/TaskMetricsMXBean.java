@@ -0,0 +1,22 @@
+package server;
+
+import java.util.List;
+
+/**
+ * TaskMetricsMXBean - JMX view of TaskMetrics (vegetable.engine:type=TaskMetrics).
+ * Phases are queue, deserialize, execute and serialize.
+ */
+public interface TaskMetricsMXBean {
+
+    /** Fully qualified names of the task classes seen so far (e.g. client.PriceBasket). */
+    List<String> getTaskTypes();
+
+    /** Text table of count, p50, p99, p99.9 and max per task and phase. */
+    String getReport();
+
+    /** Number of recorded values for one task class and phase. */
+    long getCount(String taskType, String phase);
+
+    /** Latency at a percentile (e.g. 99.9) for one task class and phase. */
+    double getPercentileMicros(String taskType, String phase, double percentile);
+}
@@ -1,12 +1,19 @@
 package server;
 
 import common.Compute;
+import common.ReadOnlyTask;
+import common.ReplicaUnavailableException;
 import common.Task;
+import common.TaskResult;
 
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 
 /**
  * VegetableComputeEngine - the RMI server.
@@ -21,6 +28,13 @@ import java.rmi.server.UnicastRemoteObject;
  *        the constructor must call super() which can throw RemoteException.
  *        Used LocateRegistry.createRegistry(1099) so we don't need to
  *        run the external rmiregistry tool separately.
+ *        Day 5 - Tasks now run on the bounded EngineExecutor pool instead
+ *        of the RMI connection thread, with a queue limit and deadline.
+ *        Replaced the per-task println calls with the asynchronous
+ *        EngineLog; the full result is no longer printed.
+ *        Day 6 - Port from -Dvegetable.engine.port, so several engines can
+ *        run on one machine. With -Dvegetable.replica.of=host:port the
+ *        engine is a read-only replica of that primary (see ReplicaSync).
  */
 public class VegetableComputeEngine extends UnicastRemoteObject implements Compute {
 
@@ -29,6 +43,20 @@ public class VegetableComputeEngine extends UnicastRemoteObject implements Compu
     // Name under which the engine is registered in the RMI registry
     public static final String REGISTRY_NAME = "VegetableEngine";
 
+    // Registry port; the same property clients use to find the engine
+    public static final String PORT_PROPERTY = "vegetable.engine.port";
+
+    // How long a replica waits to catch up to a caller's version before refusing
+    public static final String READ_WAIT_PROPERTY = "vegetable.replica.readWaitMillis";
+
+    private static final long READ_WAIT_MILLIS = Long.getLong(READ_WAIT_PROPERTY, 100L);
+
+    // Worker pool that actually runs the tasks
+    private final transient EngineExecutor executor = EngineExecutor.getInstance();
+
+    // Per task class latency histograms
+    private final transient TaskMetrics metrics = TaskMetrics.getInstance();
+
     /**
      * Constructor must call super() to properly export the remote object.
      * @throws RemoteException required by UnicastRemoteObject
@@ -40,20 +68,116 @@ public class VegetableComputeEngine extends UnicastRemoteObject implements Compu
 
     /**
      * Execute any Task sent by a client.
-     * The task object carries all data needed; the engine just calls execute().
+     * The task object carries all data needed; the engine just calls execute()
+     * on one of its worker threads.
      *
      * @param task the client task to run
      * @return result produced by the task
-     * @throws RemoteException if RMI communication fails
+     * @throws RemoteException if RMI communication fails, the engine is
+     *         overloaded (EngineOverloadedException) or the task missed its
+     *         deadline (TaskTimeoutException)
      */
     @Override
     public <T> T executeTask(Task<T> task) throws RemoteException {
-        System.out.println("[Engine] Received task: " + task.getClass().getSimpleName());
-        T result = task.execute();
-        System.out.println("[Engine] Task completed. Result: " + result);
+        checkReplica(task);
+        if (!EngineLog.sampled(EngineLog.Level.DEBUG)) {
+            T result = executor.run(task);
+            metrics.sampleSerialization(task.getClass(), result);
+            return result;
+        }
+        long start = System.nanoTime();
+        T result = executor.run(task);
+        metrics.sampleSerialization(task.getClass(), result);
+        EngineLog.debug("task.completed", "task", task.getClass().getSimpleName(),
+                "micros", (System.nanoTime() - start) / 1000);
         return result;
     }
 
+    /**
+     * Execute a task once the table has reached minVersion (read-your-writes).
+     * A replica that is behind waits up to -Dvegetable.replica.readWaitMillis
+     * on the calling RMI thread, so no worker is held while waiting.
+     */
+    @Override
+    public <T> T executeTaskAt(Task<T> task, long minVersion) throws RemoteException {
+        checkReplica(task);
+        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        try {
+            if (!table.awaitVersion(minVersion, READ_WAIT_MILLIS)) {
+                throw new ReplicaUnavailableException("Engine is at version " + table.getVersion()
+                        + ", caller needs " + minVersion + ".");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Interrupted while waiting for version " + minVersion + ".");
+        }
+        return executeTask(task);
+    }
+
+    // On a replica, refuse writes, and reads while the table is still being copied
+    private static void checkReplica(Task<?> task) throws ReplicaUnavailableException {
+        ReplicaSync sync = ReplicaSync.getInstance();
+        if (sync == null) return;
+        if (!(task instanceof ReadOnlyTask)) {
+            throw new ReplicaUnavailableException("Read-only replica of " + sync.getPrimaryAddress()
+                    + ": send " + task.getClass().getSimpleName() + " to the primary.");
+        }
+        if (sync.getState() != ReplicaSync.State.LIVE) {
+            throw new ReplicaUnavailableException("Replica is still copying the table from "
+                    + sync.getPrimaryAddress() + ".");
+        }
+    }
+
+    /**
+     * Execute a list of tasks in one call, isolating failures per task.
+     * Every task is admitted and timed individually by the executor;
+     * a sequential batch waits for each task before queueing the next,
+     * a parallel batch queues them all at once. Results are always
+     * returned in input order.
+     */
+    @Override
+    public <T> List<TaskResult<T>> executeBatch(List<? extends Task<? extends T>> tasks, boolean parallel)
+            throws RemoteException {
+        if (EngineLog.sampled(EngineLog.Level.DEBUG)) {
+            EngineLog.debug("batch.received", "tasks", tasks.size(), "parallel", parallel);
+        }
+        List<TaskResult<T>> results = new ArrayList<>(tasks.size());
+        if (!parallel) {
+            for (Task<? extends T> task : tasks) {
+                results.add(collect(admit(task)));
+            }
+            return results;
+        }
+
+        List<Future<? extends T>> admitted = new ArrayList<>(tasks.size());
+        for (Task<? extends T> task : tasks) {
+            admitted.add(admit(task));
+        }
+        for (Future<? extends T> future : admitted) {
+            results.add(collect(future));
+        }
+        return results;
+    }
+
+    // Queue one task of a batch; a rejection becomes an already-failed future
+    private <T> Future<T> admit(Task<T> task) {
+        try {
+            checkReplica(task);
+            return executor.submit(task);
+        } catch (RemoteException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // Wait for one task of a batch, isolating any failure
+    private <T> TaskResult<T> collect(Future<? extends T> future) {
+        try {
+            return TaskResult.success(executor.await(future));
+        } catch (RemoteException | RuntimeException e) {
+            return TaskResult.failure(e);
+        }
+    }
+
     // ── Server startup ────────────────────────────────────────────────────────
 
     /**
@@ -62,9 +186,22 @@ public class VegetableComputeEngine extends UnicastRemoteObject implements Compu
      */
     public static void main(String[] args) {
         try {
-            // Create (or reuse) RMI registry on default port 1099
-            Registry registry = LocateRegistry.createRegistry(1099);
-            System.out.println("[Server] RMI Registry started on port 1099.");
+            // Create the RMI registry (port 1099 unless -Dvegetable.engine.port is set)
+            int port = Integer.getInteger(PORT_PROPERTY, 1099);
+            Registry registry = LocateRegistry.createRegistry(port);
+            System.out.println("[Server] RMI Registry started on port " + port + ".");
+
+            // Load the table now (recovering it from disk if configured) and time it
+            long start = System.nanoTime();
+            VegetablePriceTable table = VegetablePriceTable.getInstance();
+            System.out.printf("[Server] Price table ready: %d vegetables, version %d, loaded in %.1f ms.%n",
+                    table.snapshot().size(), table.getVersion(), (System.nanoTime() - start) / 1e6);
+            // A replica must be SYNCING before clients can reach it, not serving its empty table
+            if (table.isReplica()) {
+                ReplicaSync sync = ReplicaSync.start(table);
+                System.out.println("[Server] Read-only replica of " + sync.getPrimaryAddress()
+                        + "; copying its table in the background.");
+            }
 
             // Create the engine instance
             VegetableComputeEngine engine = new VegetableComputeEngine();
@@ -72,9 +209,15 @@ public class VegetableComputeEngine extends UnicastRemoteObject implements Compu
             // Bind the engine in the registry
             registry.rebind(REGISTRY_NAME, engine);
             System.out.println("[Server] VegetableComputeEngine bound as '" + REGISTRY_NAME + "'.");
+            TaskMetrics.getInstance().registerMBean();
+            EngineExecutor executor = EngineExecutor.getInstance();
+            System.out.println("[Server] Worker pool: " + executor.getWorkers() + " threads, queue depth "
+                    + executor.getQueueDepth() + ", task deadline " + executor.getTimeoutMillis() + " ms.");
             System.out.println("[Server] Server is ready and waiting for clients...");
-            System.out.println("[Server] Pre-loaded vegetable table:");
-            System.out.println(VegetablePriceTable.getInstance().printTable());
+            if (table.snapshot().size() <= 50) {
+                System.out.println("[Server] Pre-loaded vegetable table:");
+                System.out.println(table.printTable());
+            }
 
         } catch (RemoteException e) {
             System.err.println("[Server] ERROR: " + e.getMessage());
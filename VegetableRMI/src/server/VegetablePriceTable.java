@@ -1,35 +1,202 @@
 package server;
 
+import common.PriceChangeBatch;
+import common.PriceMutation;
+import common.StaleSkuHandlesException;
+import common.TransactionResult;
 import common.VegetablePrice;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * VegetablePriceTable - acts as the in-memory database on the server.
  * Singleton pattern so all tasks share the same table instance.
  *
+ * Reads never take a lock: the table is published as an immutable
+ * {@link Snapshot} through an AtomicReference. Writers serialise on a
+ * private lock, copy the current snapshot, apply their change and publish
+ * the next version in a single reference swap.
+ *
  * DIARY: Day 1 - Decided to use a static singleton HashMap as the
  *        "database" since the assignment does not require a real DB.
  *        Pre-loaded five vegetables so testing is immediate.
+ *        Day 5 - Replaced the synchronized methods with copy-on-write
+ *        snapshots. Prices are read far more often than they change, so
+ *        lookups no longer queue behind each other or behind updates.
+ *        Day 6 - With -Dvegetable.data.dir set, every change is written to
+ *        a PriceJournal and the table is recovered from it on startup.
+ *        Without it the table stays in memory with the sample data.
+ *        Day 6 - A snapshot is now a read-only {@link MappedCatalog} from
+ *        disk plus a small map of the changes made since it was written,
+ *        so startup no longer loads every vegetable and a write only
+ *        copies the changes, not the whole table.
+ *        Day 6 - Every change is also handed to the PriceChangeFeed.
+ *        Day 6 - On a read replica the table is a plain in-memory copy
+ *        kept up to date from the primary's feed by ReplicaSync.
+ *        Day 6 - Optional PriceIndex for name and price-range searches,
+ *        built on first use and kept up to date by every writer.
+ *        Day 6 - applyTransaction(): several changes applied all or not
+ *        at all, each optionally only if its entry is unchanged since a
+ *        version stamp the caller read (optimistic concurrency).
+ *        Day 6 - Optional prices by int SKU handle (handleSnapshot()),
+ *        built on first use and carried by every later snapshot.
+ *        Day 6 - A snapshot sits on any PriceStore. Without a data
+ *        directory, -Dvegetable.store=offheap keeps the rows in an
+ *        OffHeapPriceStore instead of on the heap (the overlay is folded
+ *        into a new store every -Dvegetable.store.foldAfter changes).
+ *        Day 6 - The in-memory heap table sits on a HeapPriceStore and
+ *        is folded the same way, so a single-row write only copies the
+ *        overlay, not every row.
+ *        Day 6 - On a shard, writes to IDs another shard owns are
+ *        refused (see ShardDirectory).
  */
 public class VegetablePriceTable {
 
+    /** System property: how many per-entry version stamps to remember. */
+    public static final String STAMP_CAPACITY_PROPERTY = "vegetable.txn.stampCapacity";
+
+    /** Expected stamp meaning "apply whatever the entry's version". */
+    public static final long ANY_STAMP = -1L;
+
+    /** System property: overlay size at which an in-memory table builds a new store. */
+    public static final String FOLD_AFTER_PROPERTY = "vegetable.store.foldAfter";
+
     // Singleton instance
     private static VegetablePriceTable instance;
 
-    // The price table: vegetable ID -> VegetablePrice
-    private final Map<String, VegetablePrice> table = new LinkedHashMap<>();
+    // Current published version of the table (never null)
+    private final AtomicReference<Snapshot> current;
+
+    // Serialises writers; readers never touch it
+    private final Object writeLock = new Object();
+
+    // Durable log of changes; null when running in memory only
+    private final PriceJournal journal;
+
+    // Pushes each change to remote subscribers
+    private final PriceChangeFeed feed;
+
+    // True on a read replica: changes only arrive from the primary (ReplicaSync)
+    private final boolean replica;
+
+    // Refuses writes to IDs owned by another shard, once a rebalance has said which
+    private final ShardDirectory shards = ShardDirectory.getInstance();
+
+    // True to keep rows in an OffHeapPriceStore when there is no data directory
+    // (else a HeapPriceStore). Every write copies the overlay, so it is folded
+    // into a new store once it holds foldAfter changes: sooner on the heap,
+    // where a fold is cheap, than off it
+    private final boolean offHeap = offHeapConfigured();
+    private final int foldAfter = Math.max(1, Integer.getInteger(FOLD_AFTER_PROPERTY, offHeap ? 50_000 : 8_192));
+    private final AtomicBoolean folding = new AtomicBoolean();
+    private volatile long foldRetryAt;     // System.nanoTime() before which no fold starts after a failure
+    private long          foldBackoffMillis; // 0 unless the last fold failed; only the fold thread writes it
+
+    // Name and price indexes; null until the first search (see getIndex())
+    private volatile PriceIndex index;
+    private final Object indexBuildLock = new Object();
+
+    // Version each recently changed ID last changed at; older changes count
+    // as stampFloor. Cleared when full, which can only cause extra conflicts
+    private final Map<String, Long> stamps = new ConcurrentHashMap<>();
+    private final int stampCapacity = Math.max(1, Integer.getInteger(STAMP_CAPACITY_PROPERTY, 65_536));
+    private volatile long stampFloor;
+
+    // SKU handles for every ID seen; snapshots carry prices by handle once
+    // handleSnapshot() has been called (see HandlePrices)
+    private final SkuDictionary skus = new SkuDictionary();
+    private final Object handleBuildLock = new Object();
+
+    // Threads in awaitVersion() wait on this
+    private final Object versionSignal = new Object();
+    private volatile int versionWaiters;
 
     // Private constructor - use getInstance()
     private VegetablePriceTable() {
+        String dataDir = System.getProperty(PriceJournal.DATA_DIR_PROPERTY);
+        replica = System.getProperty(ReplicaSync.PRIMARY_PROPERTY) != null;
+        if (replica) {
+            // Empty until ReplicaSync loads the primary's table; a replica keeps no journal
+            journal = null;
+            current = new AtomicReference<>(new Snapshot(null, new LinkedHashMap<>(), 0L, 0, null));
+        } else if (dataDir == null) {
+            journal = null;
+            Map<String, VegetablePrice> samples = sampleData();
+            current = new AtomicReference<>(new Snapshot(buildStore(samples.values(), 0L), new LinkedHashMap<>(),
+                    0L, samples.size(), null));
+        } else {
+            journal = new PriceJournal(Paths.get(dataDir),
+                    Integer.getInteger(PriceJournal.SNAPSHOT_EVERY_PROPERTY, 100_000));
+            current = new AtomicReference<>(recover(journal));
+            journal.setCompactionListener(this::rebase);
+        }
+        feed = new PriceChangeFeed(current.get().getVersion());
+        stampFloor = current.get().getVersion(); // nothing is known about earlier changes
+    }
+
+    private static boolean offHeapConfigured() {
+        String store = System.getProperty(PriceStore.STORE_PROPERTY, "heap");
+        if (store.equalsIgnoreCase("offheap")) return true;
+        if (store.equalsIgnoreCase("heap")) return false;
+        throw new IllegalArgumentException("-D" + PriceStore.STORE_PROPERTY + " must be heap or offheap, not " + store);
+    }
+
+    private static Snapshot recover(PriceJournal journal) {
+        try {
+            PriceJournal.Recovered recovered = journal.recover();
+            if (recovered.isFresh()) {
+                // First start with this data directory: seed it with the samples
+                MappedCatalog catalog = MappedCatalog.open(journal.writeSnapshot(sampleData().values(), 0L));
+                return new Snapshot(catalog, new LinkedHashMap<>(), 0L, catalog.size(), null);
+            }
+
+            // Turn the replayed changes into an overlay on top of the catalog
+            MappedCatalog catalog = recovered.getCatalog();
+            Map<String, VegetablePrice> overlay = new LinkedHashMap<>();
+            int size = catalog == null ? 0 : catalog.size();
+            for (Map.Entry<String, VegetablePrice> e : recovered.getChanges().entrySet()) {
+                boolean inCatalog = catalog != null && catalog.contains(e.getKey());
+                if (e.getValue() != null) {
+                    overlay.put(e.getKey(), e.getValue());
+                    if (!inCatalog) size++;
+                } else if (inCatalog) {
+                    overlay.put(e.getKey(), TOMBSTONE);
+                    size--;
+                }
+            }
+            return new Snapshot(catalog, overlay, recovered.getVersion(), size, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not recover price table from " + journal.getDirectory(), e);
+        }
+    }
+
+    private static Map<String, VegetablePrice> sampleData() {
         // Pre-load sample data
+        Map<String, VegetablePrice> table = new LinkedHashMap<>();
         table.put("V001", new VegetablePrice("V001", "Tomato",    60.00));
         table.put("V002", new VegetablePrice("V002", "Carrot",    45.00));
         table.put("V003", new VegetablePrice("V003", "Spinach",   30.00));
         table.put("V004", new VegetablePrice("V004", "Onion",     50.00));
         table.put("V005", new VegetablePrice("V005", "Cabbage",   25.00));
+        return table;
     }
 
     /** Return the single shared instance. */
@@ -40,51 +207,781 @@ public class VegetablePriceTable {
         return instance;
     }
 
+    // ── Snapshots ────────────────────────────────────────────────────────────
+
+    /**
+     * Return the current point-in-time view of the table.
+     * Callers that need several consistent lookups (e.g. a receipt)
+     * should take one snapshot and read everything from it.
+     */
+    public Snapshot snapshot() {
+        return current.get();
+    }
+
+    /** Version of the current snapshot. Increases by one on every change. */
+    public long getVersion() {
+        return current.get().getVersion();
+    }
+
+    /**
+     * Wait until the table has reached at least the given version.
+     * @return true if it has, false if the timeout passed first
+     */
+    public boolean awaitVersion(long minVersion, long timeoutMillis) throws InterruptedException {
+        if (getVersion() >= minVersion) return true;
+        long deadline = System.nanoTime() + timeoutMillis * 1_000_000L;
+        synchronized (versionSignal) {
+            versionWaiters++;
+            try {
+                while (getVersion() < minVersion) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) return false;
+                    versionSignal.wait(Math.max(1L, left / 1_000_000L));
+                }
+                return true;
+            } finally {
+                versionWaiters--;
+            }
+        }
+    }
+
+    // Wake awaitVersion() callers after a new version was published
+    private void signalVersion() {
+        if (versionWaiters == 0) return;
+        synchronized (versionSignal) {
+            versionSignal.notifyAll();
+        }
+    }
+
+    /** True if this table is a read replica (see ReplicaSync). */
+    public boolean isReplica() {
+        return replica;
+    }
+
+    private void checkWritable() {
+        if (replica) throw new IllegalStateException("This engine is a read-only replica; send changes to the primary.");
+    }
+
     // ── CRUD operations ──────────────────────────────────────────────────────
 
     /** Add a new vegetable. Returns false if ID already exists. */
-    public synchronized boolean add(VegetablePrice vp) {
-        if (table.containsKey(vp.getId())) return false;
-        table.put(vp.getId(), vp);
+    public boolean add(VegetablePrice vp) {
+        checkWritable();
+        long version;
+        synchronized (writeLock) {
+            checkJournal();
+            shards.checkOwned(vp.getId());
+            Snapshot snap = current.get();
+            if (snap.find(vp.getId()) != null) return false;
+            Map<String, VegetablePrice> next = new LinkedHashMap<>(snap.overlay);
+            next.put(vp.getId(), vp);
+            indexChanged(null, vp);
+            version = publish(snap, next, snap.size + 1, PriceMutation.add(vp));
+        }
+        awaitDurable(version);
         return true;
     }
 
     /** Update an existing vegetable. Returns false if not found. */
-    public synchronized boolean update(VegetablePrice vp) {
-        if (!table.containsKey(vp.getId())) return false;
-        table.put(vp.getId(), vp);
+    public boolean update(VegetablePrice vp) {
+        checkWritable();
+        long version;
+        synchronized (writeLock) {
+            checkJournal();
+            shards.checkOwned(vp.getId());
+            Snapshot snap = current.get();
+            VegetablePrice before = snap.find(vp.getId());
+            if (before == null) return false;
+            Map<String, VegetablePrice> next = new LinkedHashMap<>(snap.overlay);
+            next.put(vp.getId(), vp);
+            indexChanged(before, vp);
+            version = publish(snap, next, snap.size, PriceMutation.update(vp));
+        }
+        awaitDurable(version);
         return true;
     }
 
     /** Delete a vegetable by ID. Returns false if not found. */
-    public synchronized boolean delete(String id) {
-        if (!table.containsKey(id)) return false;
-        table.remove(id);
+    public boolean delete(String id) {
+        checkWritable();
+        long version;
+        synchronized (writeLock) {
+            checkJournal();
+            shards.checkOwned(id);
+            Snapshot snap = current.get();
+            VegetablePrice before = snap.find(id);
+            if (before == null) return false;
+            Map<String, VegetablePrice> next = new LinkedHashMap<>(snap.overlay);
+            if (snap.catalog != null && snap.catalog.contains(id)) {
+                next.put(id, TOMBSTONE); // hide the catalog entry
+            } else {
+                next.remove(id);
+            }
+            indexChanged(before, null);
+            version = publish(snap, next, snap.size - 1, PriceMutation.delete(id));
+        }
+        awaitDurable(version);
         return true;
     }
 
+    /**
+     * Apply many changes as one write: the table is copied once, every
+     * change is logged, and readers see all of them appear together.
+     * Each change gets its own version number, as if applied one by one.
+     *
+     * @return per change, true if applied; false for an ADD whose ID
+     *         exists, or an UPDATE/DELETE whose ID does not
+     */
+    public boolean[] applyAll(List<PriceMutation> changes) {
+        return apply(changes, null, false).applied;
+    }
+
+    /**
+     * Apply changes all together or not at all. Like applyAll(), readers
+     * see every change appear at once, but if any change cannot apply,
+     * or any entry has changed since the stamp the caller read it at,
+     * nothing is applied.
+     *
+     * @param expectedStamps per change, the entry's stamp as read with
+     *        stampOf(), or ANY_STAMP to skip the check; null for no checks
+     */
+    public TransactionResult applyTransaction(List<PriceMutation> changes, long[] expectedStamps) {
+        if (expectedStamps != null && expectedStamps.length != changes.size()) {
+            throw new IllegalArgumentException("Need one stamp per change");
+        }
+        Applied result = apply(changes, expectedStamps, true);
+        return result.failedChange >= 0
+                ? TransactionResult.failed(result.status, result.failedChange, result.reason, result.version)
+                : TransactionResult.committed(result.previous, result.version);
+    }
+
+    // Shared by applyAll() and applyTransaction(); allOrNothing stops at the first failure
+    private Applied apply(List<PriceMutation> changes, long[] expectedStamps, boolean allOrNothing) {
+        checkWritable();
+        Applied result = new Applied(changes.size());
+        synchronized (writeLock) {
+            checkJournal();
+            for (PriceMutation change : changes) shards.checkOwned(change.getId());
+            Snapshot snap = current.get();
+            Map<String, VegetablePrice> next = new LinkedHashMap<>(snap.overlay);
+            List<PriceMutation> log = new ArrayList<>(changes.size());
+            List<VegetablePrice> replaced = new ArrayList<>(changes.size()); // row before each logged change
+            boolean wantBefore = allOrNothing || index != null;
+            int size = snap.size;
+            result.version = snap.getVersion();
+
+            for (int i = 0; i < changes.size(); i++) {
+                PriceMutation change = changes.get(i);
+                String id = change.getId();
+                VegetablePrice inOverlay = next.get(id);
+                boolean exists = inOverlay != null
+                        ? inOverlay != TOMBSTONE
+                        : snap.catalog != null && snap.catalog.contains(id);
+
+                if (expectedStamps != null && expectedStamps[i] != ANY_STAMP) {
+                    long changedAt = lastChanged(id);
+                    if (changedAt > expectedStamps[i]) {
+                        result.fail(i, TransactionResult.Status.CONFLICT,
+                                "'" + id + "' changed at version " + changedAt + ", after " + expectedStamps[i]);
+                        if (allOrNothing) return result; // nothing has been published
+                        continue;
+                    }
+                }
+
+                PriceMutation logged = null;
+                switch (change.getOp()) {
+                    case ADD:
+                        if (!exists) logged = change;
+                        break;
+                    case UPDATE:
+                        if (exists) logged = change;
+                        break;
+                    case UPSERT:
+                        logged = exists ? PriceMutation.update(change.getPrice()) : PriceMutation.add(change.getPrice());
+                        break;
+                    default: // DELETE
+                        if (exists) logged = change;
+                }
+                if (logged == null) {
+                    if (allOrNothing) {
+                        result.fail(i, TransactionResult.Status.REJECTED, exists
+                                ? "ID '" + id + "' already exists"
+                                : "No vegetable found with ID '" + id + "'");
+                        return result;
+                    }
+                    continue;
+                }
+
+                VegetablePrice before = wantBefore ? rowOf(snap, inOverlay, id) : null;
+                if (logged.getOp() == PriceMutation.Op.DELETE) {
+                    if (snap.catalog != null && snap.catalog.contains(id)) {
+                        next.put(id, TOMBSTONE);
+                    } else {
+                        next.remove(id);
+                    }
+                    size--;
+                } else {
+                    next.put(id, logged.getPrice());
+                    if (!exists) size++;
+                }
+                log.add(logged);
+                replaced.add(before);
+                result.previous[i] = before;
+                result.applied[i] = true;
+            }
+
+            if (log.isEmpty()) return result; // nothing changed
+            long version = snap.getVersion();
+            HandlePrices.Editor handles = snap.handles == null ? null : snap.handles.edit();
+            for (int j = 0; j < log.size(); j++) {
+                PriceMutation logged = log.get(j);
+                version++;
+                indexChanged(replaced.get(j), logged.getPrice());
+                stamp(logged.getId(), version);
+                if (handles != null) handles.set(skus.intern(logged.getId()), logged.getPrice());
+                feed.published(version, logged.getId(), logged.getPrice());
+            }
+            if (journal != null) journal.appendAll(log, snap.getVersion() + 1);
+            Snapshot published = new Snapshot(snap.catalog, next, version, size,
+                    handles == null ? null : handles.build());
+            current.set(published);
+            RequestDedup.published();
+            maybeFold(published);
+            if (journal != null) journal.maybeSnapshot(published.getAll(), version);
+            result.version = version;
+        }
+        signalVersion();
+        awaitDurable(result.version);
+        return result;
+    }
+
+    // What apply() did, per change
+    private static final class Applied {
+        final boolean[]        applied;
+        final VegetablePrice[] previous;
+        int    failedChange = -1;
+        TransactionResult.Status status;
+        String reason;
+        long   version;
+
+        Applied(int n) {
+            applied  = new boolean[n];
+            previous = new VegetablePrice[n];
+        }
+
+        void fail(int i, TransactionResult.Status status, String reason) {
+            if (failedChange < 0) {
+                failedChange = i;
+                this.status  = status;
+                this.reason  = reason;
+            }
+        }
+    }
+
+    // ── Version stamps ───────────────────────────────────────────────────────
+
+    /**
+     * The entry's stamp as seen in a snapshot: no later than the snapshot
+     * and no earlier than the entry's last change before it. Pass it to
+     * applyTransaction() to change the entry only if it is still as it was
+     * in that snapshot. Works for absent IDs too (to add one that no one
+     * else has added meanwhile).
+     */
+    public long stampOf(Snapshot snap, String id) {
+        return Math.min(lastChanged(id), snap.getVersion());
+    }
+
+    // Version of the entry's last change, or a version after it (never before)
+    private long lastChanged(String id) {
+        Long at = stamps.get(id);
+        return at != null ? at : stampFloor;
+    }
+
+    // Record a change to id at version; caller holds writeLock
+    private void stamp(String id, long version) {
+        if (stamps.size() >= stampCapacity && !stamps.containsKey(id)) {
+            // Forget every stamp: all entries now count as changed at this version
+            stampFloor = version;
+            stamps.clear();
+        }
+        stamps.put(id, version);
+    }
+
     /** Find a vegetable by ID. Returns null if not found. */
-    public synchronized VegetablePrice find(String id) {
-        return table.get(id);
+    public VegetablePrice find(String id) {
+        return current.get().find(id);
     }
 
-    /** Return all vegetables. */
-    public synchronized Collection<VegetablePrice> getAll() {
-        return table.values();
+    /** Return all vegetables as a consistent, read-only view. */
+    public Collection<VegetablePrice> getAll() {
+        return current.get().getAll();
     }
 
     /** Pretty-print the entire table. */
-    public synchronized String printTable() {
+    public String printTable() {
+        Collection<VegetablePrice> all = current.get().getAll();
         StringBuilder sb = new StringBuilder();
         sb.append("\n========== VEGETABLE PRICE TABLE ==========\n");
-        if (table.isEmpty()) {
+        if (all.isEmpty()) {
             sb.append("  (empty)\n");
         } else {
-            for (VegetablePrice vp : table.values()) {
+            for (VegetablePrice vp : all) {
                 sb.append("  ").append(vp).append("\n");
             }
         }
         sb.append("===========================================\n");
         return sb.toString();
     }
+
+    /** The durable change log, or null when running in memory only. */
+    public PriceJournal getJournal() {
+        return journal;
+    }
+
+    /** The feed that pushes changes to subscribers. */
+    public PriceChangeFeed getFeed() {
+        return feed;
+    }
+
+    /**
+     * The name and price indexes, built on the first call. The build reads
+     * one snapshot without holding up writers; the changes made meanwhile
+     * are then taken from the change feed and applied under the write lock.
+     */
+    public PriceIndex getIndex() {
+        PriceIndex idx = index;
+        if (idx != null) return idx;
+        synchronized (indexBuildLock) {
+            if (index != null) return index;
+            Snapshot base = current.get();
+            PriceIndex built = new PriceIndex(base.getAll());
+            synchronized (writeLock) {
+                Snapshot now = current.get();
+                Set<String> changed = new LinkedHashSet<>();
+                if (feed.changedSince(base.getVersion(), now.getVersion(), changed::add)) {
+                    for (String id : changed) built.changed(base.find(id), now.find(id));
+                } else {
+                    built = new PriceIndex(now.getAll()); // too far behind (or a replica): rebuild
+                }
+                index = built;
+                return built;
+            }
+        }
+    }
+
+    /** Index stats, or null if nothing has been searched yet. */
+    public String getIndexStats() {
+        PriceIndex idx = index;
+        return idx == null ? null : idx.getStats();
+    }
+
+    // Keep the index in step with a change; caller holds writeLock
+    private void indexChanged(VegetablePrice before, VegetablePrice after) {
+        PriceIndex idx = index;
+        if (idx != null) idx.changed(before, after);
+    }
+
+    // ── SKU handles ──────────────────────────────────────────────────────────
+
+    /** The dictionary of SKU handles; they are only valid on this engine. */
+    public SkuDictionary getSkuDictionary() {
+        return skus;
+    }
+
+    /**
+     * The current snapshot, readable by SKU handle. The first call builds
+     * the prices by handle like getIndex(): from one snapshot without
+     * holding up writers, then catching up from the change feed under the
+     * write lock. From then on every writer keeps them up to date, which
+     * holds every row on the heap (a catalog is otherwise read from disk).
+     *
+     * @param epoch the epoch the caller's handles were given out in
+     * @throws StaleSkuHandlesException if it is not this engine's epoch
+     */
+    public Snapshot handleSnapshot(long epoch) {
+        if (epoch != skus.getEpoch()) {
+            throw new StaleSkuHandlesException("SKU handles are from another engine or an earlier start;"
+                    + " resolve the IDs again.");
+        }
+        Snapshot snap = current.get();
+        if (snap.handles != null) return snap;
+        synchronized (handleBuildLock) {
+            Snapshot base = current.get();
+            if (base.handles != null) return base;
+            HandlePrices.Editor built = HandlePrices.EMPTY.edit();
+            for (VegetablePrice vp : base.getAll()) built.set(skus.intern(vp.getId()), vp);
+            synchronized (writeLock) {
+                Snapshot now = current.get();
+                Set<String> changed = new LinkedHashSet<>();
+                if (feed.changedSince(base.getVersion(), now.getVersion(), changed::add)) {
+                    for (String id : changed) built.set(skus.intern(id), now.find(id));
+                } else {
+                    built = HandlePrices.EMPTY.edit(); // too far behind (or a replica): rebuild
+                    for (VegetablePrice vp : now.getAll()) built.set(skus.intern(vp.getId()), vp);
+                }
+                // Same contents and version, now with the handle prices
+                Snapshot withHandles = new Snapshot(now.catalog, now.overlay, now.getVersion(), now.size,
+                        built.build());
+                current.set(withHandles);
+                return withHandles;
+            }
+        }
+    }
+
+    /** Handle stats, or null if no snapshot has been read by handle yet. */
+    public String getHandleStats() {
+        if (skus.size() == 0) return null;
+        return String.format("SKU HANDLES | handles: %d | epoch: %016x | built: %s%n",
+                skus.size(), skus.getEpoch(), current.get().handles != null ? "yes" : "no (rebuilt on next use)");
+    }
+
+    // A row as it was in snap, given its overlay entry (null = not in the overlay)
+    private static VegetablePrice rowOf(Snapshot snap, VegetablePrice inOverlay, String id) {
+        if (inOverlay != null) return inOverlay == TOMBSTONE ? null : inOverlay;
+        return snap.catalog == null ? null : snap.catalog.find(id);
+    }
+
+    /**
+     * Log the change and publish the next version.
+     * Must be called while holding writeLock; returns the new version.
+     * The change becomes visible to readers before it is on disk; the
+     * writer is only acknowledged once awaitDurable() returns. Once the
+     * journal has failed nothing more is published (see checkJournal()).
+     */
+    private long publish(Snapshot previous, Map<String, VegetablePrice> next, int size, PriceMutation mutation) {
+        long version = previous.getVersion() + 1;
+        if (journal != null) journal.append(mutation, version);
+        HandlePrices handles = previous.handles == null ? null
+                : previous.handles.edit().set(skus.intern(mutation.getId()), mutation.getPrice()).build();
+        Snapshot snap = new Snapshot(previous.catalog, next, version, size, handles);
+        stamp(mutation.getId(), version);
+        current.set(snap);
+        RequestDedup.published();
+        maybeFold(snap);
+        feed.published(version, mutation.getId(), mutation.getPrice());
+        if (journal != null) journal.maybeSnapshot(snap.getAll(), version);
+        signalVersion();
+        return version;
+    }
+
+    // Returns once every writer inside writeLock now has published (see ShardDirectory.setOwnership())
+    void awaitWriters() {
+        synchronized (writeLock) {
+            // nothing: holding the lock once is enough
+        }
+    }
+
+    // Under writeLock, before anything changes: refuse writes the journal can no longer keep
+    private void checkJournal() {
+        if (journal != null) journal.checkWritable();
+    }
+
+    // Wait (outside writeLock) until the change is on disk, so fsyncs are shared
+    private void awaitDurable(long version) {
+        if (journal != null) journal.awaitDurable(version);
+    }
+
+    // ── Replication (read replicas only) ─────────────────────────────────────
+
+    /**
+     * Replace the whole table with a copy of the primary's, at its version.
+     * The copy is written to a temporary catalog file and mapped, like the
+     * primary's own table (or copied off the heap with -Dvegetable.store=offheap),
+     * so later changes only copy the overlay.
+     */
+    void installReplica(Collection<VegetablePrice> rows, long version) throws IOException {
+        PriceStore catalog = offHeap ? OffHeapPriceStore.build(rows, version) : openTemporaryCatalog(rows, version);
+        synchronized (writeLock) {
+            stampFloor = version;
+            stamps.clear();
+            // Prices by handle are rebuilt on next use; the handles themselves stay valid
+            current.set(new Snapshot(catalog, new LinkedHashMap<>(), version, catalog.size(), null));
+            if (index != null) index = new PriceIndex(catalog.entries());
+        }
+        signalVersion();
+    }
+
+    /**
+     * Apply a batch from the primary's change feed.
+     * @return false if the batch does not start at this table's version
+     *         (changes are missing and the replica must reload)
+     */
+    boolean applyReplicated(PriceChangeBatch batch) {
+        synchronized (writeLock) {
+            Snapshot snap = current.get();
+            if (batch.getToVersion() <= snap.getVersion()) return true;   // already have it
+            if (batch.getFromVersion() != snap.getVersion()) return false; // gap
+            Map<String, VegetablePrice> next = new LinkedHashMap<>(snap.overlay);
+            HandlePrices.Editor handles = snap.handles == null ? null : snap.handles.edit();
+            int size = snap.size;
+            for (int i = 0; i < batch.size(); i++) {
+                String id = batch.getId(i);
+                VegetablePrice vp = batch.getPrice(i);
+                boolean inCatalog = snap.catalog != null && snap.catalog.contains(id);
+                VegetablePrice inOverlay = next.get(id);
+                boolean exists = inOverlay != null ? inOverlay != TOMBSTONE : inCatalog;
+                if (index != null) indexChanged(rowOf(snap, inOverlay, id), vp);
+                stamp(id, batch.getToVersion()); // the batch only keeps each ID's latest change
+                if (handles != null) handles.set(skus.intern(id), vp);
+                if (vp != null) {
+                    next.put(id, vp);
+                    if (!exists) size++;
+                } else if (exists) {
+                    if (inCatalog) next.put(id, TOMBSTONE); else next.remove(id);
+                    size--;
+                }
+            }
+            current.set(new Snapshot(snap.catalog, next, batch.getToVersion(), size,
+                    handles == null ? null : handles.build()));
+        }
+        signalVersion();
+        return true;
+    }
+
+    /** Number of changes held on top of the catalog (it is compacted or folded when this grows). */
+    public int getOverlaySize() {
+        return current.get().overlay.size();
+    }
+
+    /** Fold the overlay into a fresh temporary catalog (replicas, which have no journal). */
+    void compactReplica() throws IOException {
+        Snapshot snap = current.get();
+        rebase(offHeap ? OffHeapPriceStore.build(snap.getAll(), snap.getVersion())
+                : openTemporaryCatalog(snap.getAll(), snap.getVersion()));
+    }
+
+    // An in-memory table has no journal to compact it: once the overlay
+    // is large, build a new store from a snapshot in the background. After
+    // a failure the next attempt waits 1 s, doubling up to a minute, and
+    // only the first failure in a row is logged
+    private void maybeFold(Snapshot snap) {
+        if (journal != null || replica || snap.overlay.size() <= foldAfter) return;
+        if (foldRetryAt != 0 && System.nanoTime() - foldRetryAt < 0) return;
+        if (!folding.compareAndSet(false, true)) return;
+        Thread t = new Thread(() -> {
+            try {
+                Snapshot base = current.get();
+                rebase(buildStore(base.getAll(), base.getVersion()));
+                if (foldBackoffMillis != 0) EngineLog.info("table.foldRecovered");
+                foldBackoffMillis = 0;
+                foldRetryAt = 0;
+            } catch (RuntimeException | OutOfMemoryError e) {
+                if (foldBackoffMillis == 0) EngineLog.warn("table.foldFailed", "error", e);
+                foldBackoffMillis = Math.min(60_000L, Math.max(1_000L, foldBackoffMillis * 2));
+                foldRetryAt = System.nanoTime() + foldBackoffMillis * 1_000_000L;
+            } finally {
+                folding.set(false);
+            }
+        }, "price-store-fold");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private PriceStore buildStore(Collection<VegetablePrice> rows, long version) {
+        return offHeap ? OffHeapPriceStore.build(rows, version) : HeapPriceStore.build(rows, version);
+    }
+
+    /** Off-heap store stats, or null when the rows are not kept off the heap. */
+    public String getStoreStats() {
+        Snapshot snap = current.get();
+        if (!(snap.catalog instanceof OffHeapPriceStore)) return null;
+        OffHeapPriceStore store = (OffHeapPriceStore) snap.catalog;
+        return String.format("STORE       | off-heap rows: %d (%.1f MB direct, version %d) | overlay: %d (fold after %d)%n",
+                store.size(), store.getOffHeapBytes() / 1048576.0, store.getVersion(), snap.overlay.size(), foldAfter);
+    }
+
+    // Write rows to a temporary catalog file and map it; the file is removed once mapped
+    private static MappedCatalog openTemporaryCatalog(Collection<VegetablePrice> rows, long version) throws IOException {
+        Path file = Files.createTempFile("vegetable-replica-", ".bin");
+        try {
+            MappedCatalog.write(file, rows, version);
+            return MappedCatalog.open(file);
+        } finally {
+            try {
+                Files.deleteIfExists(file); // the mapping stays valid
+            } catch (IOException e) {
+                file.toFile().deleteOnExit(); // e.g. Windows will not delete a mapped file
+            }
+        }
+    }
+
+    /**
+     * Switch to a newly written catalog (called by the journal after a
+     * compaction) or a new in-memory store. The store was built from the
+     * table at its own version, in the background, so the changes made
+     * since are looked up in the change feed: an ID the store holds but
+     * the table has deleted since is hidden with a TOMBSTONE, even if it
+     * was never in the old catalog and so is no longer in the overlay.
+     * Only changes the store does not already contain stay in the
+     * overlay; the contents and version of the table are unchanged.
+     */
+    private void rebase(PriceStore catalog) {
+        synchronized (writeLock) {
+            Snapshot snap = current.get();
+            if (catalog.getVersion() > snap.getVersion()) return; // cannot happen; be safe
+            if (snap.catalog != null && catalog.getVersion() < snap.catalog.getVersion()) return; // older store
+
+            Set<String> changed = new LinkedHashSet<>(snap.overlay.keySet());
+            if (!feed.changedSince(catalog.getVersion(), snap.getVersion(), changed::add)) {
+                // Too far behind (or a replica): any row the store has and the table does not was deleted
+                for (VegetablePrice vp : catalog.entries()) {
+                    if (snap.find(vp.getId()) == null) changed.add(vp.getId());
+                }
+            }
+
+            Map<String, VegetablePrice> overlay = new LinkedHashMap<>();
+            for (String id : changed) {
+                VegetablePrice mine = snap.find(id);
+                VegetablePrice stored = catalog.find(id);
+                if (mine == null) {
+                    if (stored != null) overlay.put(id, TOMBSTONE);
+                } else if (stored == null || !sameEntry(stored, mine)) {
+                    overlay.put(id, mine);
+                }
+            }
+            current.set(new Snapshot(catalog, overlay, snap.getVersion(), snap.size, snap.handles));
+        }
+        EngineLog.info("table.rebased", "catalogVersion", catalog.getVersion(), "catalogEntries", catalog.size());
+    }
+
+    private static boolean sameEntry(VegetablePrice a, VegetablePrice b) {
+        return a.getName().equals(b.getName())
+                && Double.compare(a.getPricePerKg(), b.getPricePerKg()) == 0;
+    }
+
+    // ── Snapshot ─────────────────────────────────────────────────────────────
+
+    // Marks a catalog entry as deleted in the overlay
+    private static final VegetablePrice TOMBSTONE = new VegetablePrice("", "", 0.0);
+
+    /**
+     * Immutable version of the table. Never modified after publication,
+     * so any number of threads can read it without synchronisation.
+     *
+     * Contents = catalog (read-only MappedCatalog, OffHeapPriceStore or
+     *            HeapPriceStore; may be null) with the overlay applied on top (changes
+     *            since the catalog was written; TOMBSTONE means deleted).
+     */
+    public static final class Snapshot implements PriceStore {
+
+        private final PriceStore catalog;
+        private final Map<String, VegetablePrice> overlay; // insertion ordered
+        private final Collection<VegetablePrice> values;   // read-only view
+        private final long version;
+        private final int  size;
+        private final HandlePrices handles; // null until handleSnapshot() is first used
+
+        private Snapshot(PriceStore catalog, Map<String, VegetablePrice> overlay, long version, int size,
+                         HandlePrices handles) {
+            this.catalog = catalog;
+            this.overlay = overlay;
+            this.values  = catalog == null
+                    ? Collections.unmodifiableCollection(overlay.values())
+                    : new MergedView();
+            this.version = version;
+            this.size    = size;
+            this.handles = handles;
+        }
+
+        /** Find a vegetable by ID. Returns null if not found. */
+        @Override
+        public VegetablePrice find(String id) {
+            VegetablePrice vp = overlay.get(id);
+            if (vp != null) return vp == TOMBSTONE ? null : vp;
+            return catalog == null ? null : catalog.find(id);
+        }
+
+        @Override
+        public long priceCents(String id) {
+            VegetablePrice vp = overlay.get(id);
+            if (vp != null) return vp == TOMBSTONE ? PricingEngine.NOT_FOUND : vp.getPriceCents();
+            return catalog == null ? PricingEngine.NOT_FOUND : catalog.priceCents(id);
+        }
+
+        /**
+         * All vegetables (read-only): catalog entries in file order, then
+         * vegetables added since, in insertion order.
+         */
+        public Collection<VegetablePrice> getAll() {
+            return values;
+        }
+
+        @Override
+        public Collection<VegetablePrice> entries() {
+            return values;
+        }
+
+        /**
+         * Find a vegetable by SKU handle (see SkuDictionary). Returns null
+         * if not found. Only on a snapshot from handleSnapshot().
+         */
+        public VegetablePrice findByHandle(int handle) {
+            return handles().rowOf(handle);
+        }
+
+        /**
+         * Price in cents per kg of the vegetable with this SKU handle, or
+         * PricingEngine.NOT_FOUND. Only on a snapshot from handleSnapshot().
+         */
+        public long priceCentsByHandle(int handle) {
+            return handles().centsOf(handle);
+        }
+
+        private HandlePrices handles() {
+            if (handles == null) {
+                throw new IllegalStateException("Snapshot " + version + " cannot be read by SKU handle;"
+                        + " take it from handleSnapshot().");
+            }
+            return handles;
+        }
+
+        @Override
+        public int  size()       { return size; }
+        @Override
+        public long getVersion() { return version; }
+
+        // Catalog entries with the overlay applied, then the overlay's own additions
+        private final class MergedView extends AbstractCollection<VegetablePrice> {
+            @Override
+            public Iterator<VegetablePrice> iterator() {
+                Iterator<VegetablePrice> fromCatalog = catalog.entries().iterator();
+                Iterator<Map.Entry<String, VegetablePrice>> fromOverlay = overlay.entrySet().iterator();
+                return new Iterator<VegetablePrice>() {
+                    VegetablePrice next = advance();
+
+                    private VegetablePrice advance() {
+                        while (fromCatalog.hasNext()) {
+                            VegetablePrice vp = fromCatalog.next();
+                            VegetablePrice changed = overlay.get(vp.getId());
+                            if (changed == null) return vp;
+                            if (changed != TOMBSTONE) return changed;
+                        }
+                        while (fromOverlay.hasNext()) {
+                            Map.Entry<String, VegetablePrice> e = fromOverlay.next();
+                            if (e.getValue() != TOMBSTONE && !catalog.contains(e.getKey())) return e.getValue();
+                        }
+                        return null;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != null;
+                    }
+
+                    @Override
+                    public VegetablePrice next() {
+                        if (next == null) throw new NoSuchElementException();
+                        VegetablePrice vp = next;
+                        next = advance();
+                        return vp;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        }
+    }
 }
@@ -1,30 +1,32 @@
 package servlets;
 
 import client.AddVegetablePrice;
-import common.Compute;
 import common.VegetablePrice;
-import server.VegetableComputeEngine;
 
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.*;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.rmi.registry.LocateRegistry;
-import java.rmi.registry.Registry;
 
 /**
  * AddVegetableServlet - receives HTTP POST with vegetable data,
  * creates an AddVegetablePrice task, and sends it to the RMI engine.
  *
  * URL: POST /vegetable/add
- * Params: id, name, price
+ * Params: id, name, price (optional: requestId, or an Idempotency-Key
+ *         header, so the app can safely resend the same add)
  *
  * DIARY: Day 4 - Created the servlet layer.
  *        Each servlet gets a Compute stub from the RMI registry,
  *        builds the appropriate Task, calls executeTask(), and
  *        writes the result back as plain text to the HTTP response.
+ *        Day 5 - The stub now comes from the shared ComputeEngineClient
+ *        instead of a registry lookup on every request.
+ *        Day 6 - Async: the request thread is released while the engine
+ *        works (see AsyncTaskSupport).
+ *        Day 6 - Passes the app's request ID on (see IdempotentTask).
  */
-@WebServlet("/vegetable/add")
+@WebServlet(value = "/vegetable/add", asyncSupported = true)
 public class AddVegetableServlet extends HttpServlet {
 
     @Override
@@ -44,21 +46,16 @@ public class AddVegetableServlet extends HttpServlet {
             return;
         }
 
+        double priceVal;
         try {
-            double priceVal = Double.parseDouble(price);
-            Registry registry = LocateRegistry.getRegistry("localhost", 1099);
-            Compute engine = (Compute) registry.lookup(VegetableComputeEngine.REGISTRY_NAME);
-
-            String result = engine.executeTask(
-                    new AddVegetablePrice(new VegetablePrice(id, name, priceVal)));
-
-            out.println(result);
+            priceVal = Double.parseDouble(price);
         } catch (NumberFormatException e) {
             resp.setStatus(400);
             out.println("ERROR: Price must be a valid number.");
-        } catch (Exception e) {
-            resp.setStatus(500);
-            out.println("ERROR: " + e.getMessage());
+            return;
         }
+
+        AsyncTaskSupport.respond(req, resp,
+                new AddVegetablePrice(new VegetablePrice(id, name, priceVal), AsyncTaskSupport.requestIdOf(req)));
     }
 }
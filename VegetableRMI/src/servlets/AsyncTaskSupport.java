@@ -0,0 +1,146 @@
+package servlets;
+
+import client.ComputeEngineClient;
+import common.EngineOverloadedException;
+import common.IdempotentTask;
+import common.Task;
+import common.TaskTimeoutException;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.*;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * AsyncTaskSupport - runs a servlet's engine call without holding the
+ * container thread.
+ *
+ * respond() switches the request to async mode, hands the task to
+ * ComputeEngineClient.executeAsync() and returns, so Tomcat's request
+ * thread goes straight back to the pool. The response is written when
+ * the engine answers, on the client's I/O thread.
+ *
+ * Status codes: 200 result, 503 engine or client busy, 504 task or
+ * request timed out, 500 anything else.
+ *
+ * Set -Dvegetable.servlet.async=false to make the call on the request
+ * thread instead (the old behaviour, e.g. to compare under load).
+ *
+ * DIARY: Day 6 - Each doPost blocked a Tomcat thread for the whole RMI
+ *        round trip, so a lunch-rush burst used up the container's threads
+ *        while the engine itself was idle.
+ *        Day 6 - requestIdOf() for the changes (see IdempotentTask).
+ */
+final class AsyncTaskSupport {
+
+    static final String ASYNC_PROPERTY = "vegetable.servlet.async";
+
+    // Header (or "requestId" parameter) an app sets to make its own retries of a change safe
+    static final String REQUEST_ID_HEADER = "Idempotency-Key";
+
+    private static final boolean ASYNC = Boolean.parseBoolean(System.getProperty(ASYNC_PROPERTY, "true"));
+
+    // Longer than the engine's own task deadline, so that one normally answers first
+    private static final long TIMEOUT_MS = 30_000L;
+
+    private AsyncTaskSupport() { }
+
+    /**
+     * Request ID for a change: the app's Idempotency-Key header or
+     * requestId parameter if it sent one, so a POST the app retries is
+     * applied once; otherwise a new ID, which still makes the engine
+     * client's own retries safe.
+     */
+    static String requestIdOf(HttpServletRequest req) {
+        String id = req.getHeader(REQUEST_ID_HEADER);
+        if (id == null || id.isEmpty()) id = req.getParameter("requestId");
+        return id == null || id.isEmpty() ? IdempotentTask.newRequestId() : id;
+    }
+
+    /** Send the task and write its result (as text) to the response. */
+    static <T> void respond(HttpServletRequest req, HttpServletResponse resp, Task<T> task) {
+        respond(req, resp, task, String::valueOf);
+    }
+
+    /**
+     * Send the task and write format(result) to the response.
+     * The content type must already be set.
+     */
+    static <T> void respond(HttpServletRequest req, HttpServletResponse resp, Task<T> task,
+                            Function<? super T, String> format) {
+        ComputeEngineClient client = ComputeEngineClient.getShared();
+
+        if (!ASYNC || !req.isAsyncSupported()) {
+            try {
+                write(resp, format.apply(client.execute(task)), null);
+            } catch (Exception e) {
+                write(resp, null, e);
+            }
+            return;
+        }
+
+        AsyncContext ctx = req.startAsync();
+        ctx.setTimeout(TIMEOUT_MS);
+        AtomicBoolean answered = new AtomicBoolean(); // engine reply or timeout, whichever is first
+        ctx.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) {
+                if (answered.compareAndSet(false, true)) {
+                    resp.setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+                    writeLine(resp, "ERROR: No answer from the engine within " + TIMEOUT_MS + " ms.");
+                    ctx.complete();
+                }
+            }
+            @Override public void onComplete(AsyncEvent event)   { }
+            @Override public void onError(AsyncEvent event)      { answered.set(true); }
+            @Override public void onStartAsync(AsyncEvent event) { }
+        });
+
+        client.executeAsync(task).whenComplete((result, error) -> {
+            if (!answered.compareAndSet(false, true)) return; // already timed out
+            try {
+                if (error == null) {
+                    write(resp, format.apply(result), null);
+                } else {
+                    write(resp, null, error);
+                }
+            } catch (RuntimeException e) {
+                write(resp, null, e);
+            } finally {
+                ctx.complete();
+            }
+        });
+    }
+
+    // Write either the text or the error, with the matching status code
+    private static void write(HttpServletResponse resp, String text, Throwable error) {
+        if (error == null) {
+            writeLine(resp, text);
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+        if (cause instanceof EngineOverloadedException) {
+            resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        } else if (cause instanceof TaskTimeoutException) {
+            resp.setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+        } else {
+            resp.setStatus(500);
+        }
+        writeLine(resp, "ERROR: " + cause.getMessage());
+    }
+
+    private static void writeLine(HttpServletResponse resp, String line) {
+        try {
+            PrintWriter out = resp.getWriter();
+            out.println(line);
+        } catch (IOException e) {
+            // client went away; nothing left to tell it
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package servlets;
+
+import client.ComputeEngineClient;
+import client.ExportPrices;
+import common.ExportPage;
+
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.*;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * BulkExportServlet - writes the whole price table.
+ *
+ * URL: GET /vegetable/export?format=csv|ndjson
+ *
+ * The table is fetched in pages of -Dvegetable.export.pageSize rows
+ * [50000] with ExportPrices tasks, and each page is flushed as soon as
+ * it is written, so the response goes out chunked and neither side
+ * holds the full table. The next page is requested while the current
+ * one is being written.
+ *
+ * CSV output has an "id,name,price" header and can be posted back to
+ * /vegetable/import unchanged. If prices change during the export, the
+ * later pages show the newer prices; the last line (a "#" comment in
+ * CSV, ignored by the importer as a bad row) notes that.
+ *
+ * DIARY: Day 6 - Created together with BulkImportServlet.
+ */
+@WebServlet("/vegetable/export")
+public class BulkExportServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String PAGE_SIZE_PROPERTY = "vegetable.export.pageSize";
+
+    private static final int PAGE_SIZE = Math.max(1, Integer.getInteger(PAGE_SIZE_PROPERTY, 50_000));
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws IOException {
+
+        PriceRowParser.Format format = PriceRowParser.formatOf(req.getParameter("format"));
+        if (format == null) {
+            resp.setContentType("text/plain;charset=UTF-8");
+            resp.setStatus(400);
+            resp.getWriter().println("ERROR: format must be csv or ndjson.");
+            return;
+        }
+
+        ComputeEngineClient client = ComputeEngineClient.getShared();
+        ExportPage page;
+        try {
+            page = client.execute(new ExportPrices(0, PAGE_SIZE)); // before committing the status
+        } catch (Exception e) {
+            resp.setContentType("text/plain;charset=UTF-8");
+            resp.setStatus(500);
+            resp.getWriter().println("ERROR: " + e.getMessage());
+            return;
+        }
+
+        resp.setContentType(format == PriceRowParser.Format.CSV
+                ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        PrintWriter out = resp.getWriter();
+        if (format == PriceRowParser.Format.CSV) out.print("id,name,price\n");
+
+        long firstVersion = page.getVersion();
+        long lastVersion = firstVersion;
+        StringBuilder line = new StringBuilder(64);
+        while (true) {
+            CompletableFuture<ExportPage> next = page.isLast() ? null
+                    : client.executeAsync(new ExportPrices(page.getNextOffset(), PAGE_SIZE));
+
+            for (int i = 0; i < page.size(); i++) {
+                line.setLength(0);
+                if (format == PriceRowParser.Format.CSV) {
+                    appendCsv(line, page.getId(i)).append(',');
+                    appendCsv(line, page.getName(i)).append(',');
+                    line.append(page.getPrice(i));
+                } else {
+                    line.append("{\"id\":");
+                    appendJson(line, page.getId(i)).append(",\"name\":");
+                    appendJson(line, page.getName(i)).append(",\"price\":");
+                    line.append(page.getPrice(i)).append('}');
+                }
+                out.append(line).append('\n');
+            }
+            out.flush(); // send this page as a chunk
+
+            if (next == null) break;
+            try {
+                page = next.get();
+            } catch (ExecutionException | InterruptedException e) {
+                if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                out.print("# ERROR: export stopped: " + cause.getMessage() + "\n");
+                return; // status is already sent; the trailing line is all we can do
+            }
+            lastVersion = page.getVersion();
+        }
+
+        if (lastVersion != firstVersion) {
+            String note = "table changed during export (version " + firstVersion + " to " + lastVersion + ")";
+            out.print(format == PriceRowParser.Format.CSV ? "# " + note + "\n" : "{\"note\":\"" + note + "\"}\n");
+        }
+    }
+
+    private static StringBuilder appendCsv(StringBuilder sb, String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+            return sb.append(s);
+        }
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        return sb.append('"');
+    }
+
+    static StringBuilder appendJson(StringBuilder sb, String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n");  break;
+                case '\r': sb.append("\\r");  break;
+                case '\t': sb.append("\\t");  break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+}
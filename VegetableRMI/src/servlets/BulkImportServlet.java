@@ -0,0 +1,167 @@
+package servlets;
+
+import client.ComputeEngineClient;
+import client.ImportPrices;
+import common.EngineOverloadedException;
+import common.ImportResult;
+import common.PriceMutation;
+import common.TaskTimeoutException;
+
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.*;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * BulkImportServlet - loads a whole price list in one request.
+ *
+ * URL: POST /vegetable/import?format=csv|ndjson&mode=upsert|add|update
+ * Body: one price per line (see PriceRowParser), e.g. text/csv
+ *       V001,Tomato,62.50
+ *
+ * The body is read line by line and sent to the engine in chunks of
+ * -Dvegetable.import.batchSize rows [50000], each applied as a single
+ * table write by an ImportPrices task. While the engine applies one
+ * chunk the next one is parsed; chunks are applied in order.
+ *
+ * The answer lists rejected lines ("line 12: price is negative", the
+ * first 1000 of them) and ends with a summary line. Rows that were
+ * fine are applied even if others were rejected. If the engine fails
+ * part way, the chunks already applied stay applied and the answer
+ * says how far it got.
+ *
+ * This servlet reads the body on the request thread, so it is not
+ * async like the single-row servlets.
+ *
+ * DIARY: Day 6 - Loading the morning price list took one POST, one RMI
+ *        call and one table copy per SKU.
+ */
+@WebServlet("/vegetable/import")
+public class BulkImportServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    static final String BATCH_SIZE_PROPERTY = "vegetable.import.batchSize";
+
+    private static final int BATCH_SIZE = Math.max(1, Integer.getInteger(BATCH_SIZE_PROPERTY, 50_000));
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp)
+            throws IOException {
+
+        resp.setContentType("text/plain;charset=UTF-8");
+
+        PriceRowParser.Format format = PriceRowParser.formatOf(req.getParameter("format"));
+        PriceMutation.Op mode = modeOf(req.getParameter("mode"));
+        if (format == null || mode == null) {
+            resp.setStatus(400);
+            resp.getWriter().println("ERROR: format must be csv or ndjson, mode must be upsert, add or update.");
+            return;
+        }
+        if (req.getCharacterEncoding() == null) req.setCharacterEncoding("UTF-8");
+
+        ComputeEngineClient client = ComputeEngineClient.getShared();
+        PriceRowParser parser = new PriceRowParser(req.getReader(), format);
+        List<String> errors = new ArrayList<>();
+        int rows = 0, applied = 0, rejected = 0;
+        long version = -1;
+
+        Chunk chunk = new Chunk();
+        Chunk inFlight = null;              // sent to the engine, answer pending
+        CompletableFuture<ImportResult> pending = null;
+        try {
+            while (true) {
+                boolean more = parser.next();
+                if (more) {
+                    if (parser.isHeader()) continue;
+                    rows++;
+                    if (parser.getError() != null) {
+                        rejected++;
+                        report(errors, parser.getLine(), parser.getError());
+                    } else {
+                        chunk.add(parser);
+                    }
+                }
+                if (chunk.count == BATCH_SIZE || (!more && chunk.count > 0)) {
+                    if (pending != null) { // keep chunks in order: one in flight
+                        ImportResult result = pending.get();
+                        applied += result.getApplied();
+                        rejected += collect(errors, inFlight, result);
+                        version = result.getVersion();
+                    }
+                    pending = client.executeAsync(
+                            new ImportPrices(mode, chunk.ids, chunk.names, chunk.prices, chunk.count));
+                    inFlight = chunk;
+                    chunk = new Chunk();
+                }
+                if (!more) break;
+            }
+            if (pending != null) {
+                ImportResult result = pending.get();
+                applied += result.getApplied();
+                rejected += collect(errors, inFlight, result);
+                version = result.getVersion();
+            }
+        } catch (ExecutionException | InterruptedException e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            resp.setStatus(cause instanceof EngineOverloadedException ? HttpServletResponse.SC_SERVICE_UNAVAILABLE
+                    : cause instanceof TaskTimeoutException ? HttpServletResponse.SC_GATEWAY_TIMEOUT : 500);
+            PrintWriter out = resp.getWriter();
+            errors.forEach(out::println);
+            out.printf("ERROR: %s. %d rows applied before the failure (up to line %d read).%n",
+                    cause.getMessage(), applied, parser.getLine());
+            return;
+        }
+
+        PrintWriter out = resp.getWriter();
+        errors.forEach(out::println);
+        if (rejected > errors.size()) {
+            out.printf("... %d more rejected lines not shown%n", rejected - errors.size());
+        }
+        out.printf("Imported %d of %d rows (%d rejected)%s%n", applied, rows, rejected,
+                version < 0 ? "" : ", table version " + version);
+    }
+
+    private static PriceMutation.Op modeOf(String name) {
+        if (name == null || name.equalsIgnoreCase("upsert")) return PriceMutation.Op.UPSERT;
+        if (name.equalsIgnoreCase("add"))    return PriceMutation.Op.ADD;
+        if (name.equalsIgnoreCase("update")) return PriceMutation.Op.UPDATE;
+        return null;
+    }
+
+    // Turn rows the engine rejected back into line numbers
+    private static int collect(List<String> errors, Chunk chunk, ImportResult result) {
+        for (int i = 0; i < result.getRejectedCount(); i++) {
+            int row = result.getRejectedRow(i);
+            report(errors, chunk.lines[row], result.getReason(i) + " (" + chunk.ids[row] + ")");
+        }
+        return result.getRejectedCount();
+    }
+
+    private static void report(List<String> errors, int line, String reason) {
+        if (errors.size() < MAX_REPORTED_ERRORS) errors.add("line " + line + ": " + reason);
+    }
+
+    // Rows waiting to be sent, as parallel arrays
+    private static final class Chunk {
+        final String[] ids    = new String[BATCH_SIZE];
+        final String[] names  = new String[BATCH_SIZE];
+        final double[] prices = new double[BATCH_SIZE];
+        final int[]    lines  = new int[BATCH_SIZE];
+        int count;
+
+        void add(PriceRowParser row) {
+            ids[count]    = row.getId();
+            names[count]  = row.getName();
+            prices[count] = row.getPrice();
+            lines[count]  = row.getLine();
+            count++;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package servlets;
+
+import client.ComputeEngineClient;
+import client.GetEngineMetrics;
+
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.*;
+import java.io.IOException;
+
+/**
+ * MetricsServlet - GET /vegetable/metrics
+ * Shows the engine's worker pool counters and per-task latency
+ * histograms (fetched with a GetEngineMetrics task), followed by this
+ * web server's own connection statistics.
+ *
+ * DIARY: Day 6 - Added so latency can be checked from a browser
+ *        without attaching a JMX console to the engine.
+ */
+@WebServlet(value = "/vegetable/metrics", asyncSupported = true)
+public class MetricsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws IOException {
+
+        resp.setContentType("text/plain;charset=UTF-8");
+        AsyncTaskSupport.respond(req, resp, new GetEngineMetrics(),
+                report -> report + "\n" + ComputeEngineClient.getShared().getStats());
+    }
+}
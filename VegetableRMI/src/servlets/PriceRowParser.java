@@ -0,0 +1,235 @@
+package servlets;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * PriceRowParser - reads price rows one line at a time from a request
+ * body, so a large upload is never held in memory as a whole.
+ *
+ * Formats:
+ *   csv     id,name,price    fields may be "quoted" ("" inside quotes is
+ *                            a quote); a first line without a numeric
+ *                            price is taken as a header and skipped
+ *   ndjson  one flat JSON object per line: {"id":"V001","name":"Tomato","price":60}
+ *
+ * Blank lines are skipped. A line that cannot be read is reported with
+ * getError() and the parser moves on to the next line.
+ */
+final class PriceRowParser {
+
+    enum Format { CSV, NDJSON }
+
+    private final BufferedReader in;
+    private final Format format;
+
+    private int    lineNo;   // 1-based line of the current row
+    private int    rows;     // non-blank lines read so far
+    private String id;
+    private String name;
+    private double price;
+    private String error;    // null when the current row was read
+
+    PriceRowParser(BufferedReader in, Format format) {
+        this.in = in;
+        this.format = format;
+    }
+
+    /** Parse a format name ("csv" or "ndjson"); null if unknown. */
+    static Format formatOf(String name) {
+        if (name == null || name.equalsIgnoreCase("csv")) return Format.CSV;
+        if (name.equalsIgnoreCase("ndjson") || name.equalsIgnoreCase("jsonl")) return Format.NDJSON;
+        return null;
+    }
+
+    /**
+     * Move to the next non-blank line.
+     * @return false at the end of the body
+     */
+    boolean next() throws IOException {
+        String line;
+        do {
+            line = in.readLine();
+            if (line == null) return false;
+            lineNo++;
+        } while (line.trim().isEmpty());
+        rows++;
+
+        id = null;
+        name = null;
+        price = Double.NaN;
+        error = null;
+        try {
+            if (format == Format.CSV) {
+                parseCsv(line);
+            } else {
+                parseJson(line);
+            }
+        } catch (IllegalArgumentException e) {
+            error = e.getMessage();
+        }
+        return true;
+    }
+
+    int    getLine()  { return lineNo; }
+    String getId()    { return id; }
+    String getName()  { return name; }
+    double getPrice() { return price; }
+    String getError() { return error; }
+
+    // ── CSV ──────────────────────────────────────────────────────────────────
+
+    private void parseCsv(String line) {
+        String[] fields = new String[3];
+        int n = 0;
+        int i = 0;
+        int len = line.length();
+        while (true) {
+            StringBuilder field = new StringBuilder();
+            if (i < len && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= len) throw new IllegalArgumentException("unterminated quote");
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < len && line.charAt(i) == '"') { field.append('"'); i++; }
+                        else break;
+                    } else {
+                        field.append(c);
+                    }
+                }
+                while (i < len && line.charAt(i) != ',') {
+                    if (!Character.isWhitespace(line.charAt(i))) throw new IllegalArgumentException("text after closing quote");
+                    i++;
+                }
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? len : comma;
+                field.append(line, i, end);
+                i = end;
+            }
+            if (n == 3) throw new IllegalArgumentException("expected 3 fields: id,name,price");
+            fields[n++] = field.toString();
+            if (i >= len) break;
+            i++; // skip comma
+        }
+        if (n != 3) throw new IllegalArgumentException("expected 3 fields: id,name,price");
+
+        id = fields[0];
+        name = fields[1];
+        try {
+            price = Double.parseDouble(fields[2].trim());
+        } catch (NumberFormatException e) {
+            if (rows == 1) { // header row
+                id = null;
+                return;
+            }
+            throw new IllegalArgumentException("price is not a number: " + fields[2].trim());
+        }
+    }
+
+    /** True if the current row was a CSV header and should be ignored. */
+    boolean isHeader() {
+        return error == null && id == null && format == Format.CSV;
+    }
+
+    // ── NDJSON ───────────────────────────────────────────────────────────────
+
+    // Flat objects only: string and number values; other keys are ignored
+    private void parseJson(String line) {
+        int[] pos = { skipSpace(line, 0) };
+        expect(line, pos, '{');
+        if (peek(line, pos) != '}') {
+            while (true) {
+                String key = readJsonString(line, pos);
+                expect(line, pos, ':');
+                char c = peek(line, pos);
+                if (c == '"') {
+                    String value = readJsonString(line, pos);
+                    if (key.equals("id"))         id = value;
+                    else if (key.equals("name"))  name = value;
+                    else if (key.equals("price")) price = parsePrice(value);
+                } else {
+                    String value = readJsonLiteral(line, pos);
+                    if (key.equals("price"))      price = parsePrice(value);
+                    else if (key.equals("id") || key.equals("name")) {
+                        if (!value.equals("null")) throw new IllegalArgumentException(key + " must be a string");
+                    }
+                }
+                if (peek(line, pos) == ',') { pos[0]++; continue; }
+                break;
+            }
+        }
+        expect(line, pos, '}');
+        if (skipSpace(line, pos[0]) != line.length()) throw new IllegalArgumentException("text after the object");
+        if (Double.isNaN(price)) throw new IllegalArgumentException("missing price");
+    }
+
+    private static double parsePrice(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("price is not a number: " + value);
+        }
+    }
+
+    private static String readJsonString(String s, int[] pos) {
+        expect(s, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        int i = pos[0];
+        while (true) {
+            if (i >= s.length()) throw new IllegalArgumentException("unterminated string");
+            char c = s.charAt(i++);
+            if (c == '"') break;
+            if (c != '\\') { sb.append(c); continue; }
+            if (i >= s.length()) throw new IllegalArgumentException("unterminated string");
+            char e = s.charAt(i++);
+            switch (e) {
+                case '"': case '\\': case '/': sb.append(e); break;
+                case 'b': sb.append('\b'); break;
+                case 'f': sb.append('\f'); break;
+                case 'n': sb.append('\n'); break;
+                case 'r': sb.append('\r'); break;
+                case 't': sb.append('\t'); break;
+                case 'u':
+                    if (i + 4 > s.length()) throw new IllegalArgumentException("bad \\u escape");
+                    try {
+                        sb.append((char) Integer.parseInt(s.substring(i, i + 4), 16));
+                    } catch (NumberFormatException ex) {
+                        throw new IllegalArgumentException("bad \\u escape");
+                    }
+                    i += 4;
+                    break;
+                default: throw new IllegalArgumentException("bad escape \\" + e);
+            }
+        }
+        pos[0] = i;
+        return sb.toString();
+    }
+
+    // A number, true, false or null
+    private static String readJsonLiteral(String s, int[] pos) {
+        int start = pos[0];
+        int i = start;
+        while (i < s.length() && ",} \t".indexOf(s.charAt(i)) < 0) i++;
+        if (i == start) throw new IllegalArgumentException("missing value");
+        pos[0] = i;
+        return s.substring(start, i);
+    }
+
+    private static void expect(String s, int[] pos, char c) {
+        int i = skipSpace(s, pos[0]);
+        if (i >= s.length() || s.charAt(i) != c) throw new IllegalArgumentException("expected '" + c + "'");
+        pos[0] = i + 1;
+    }
+
+    private static char peek(String s, int[] pos) {
+        pos[0] = skipSpace(s, pos[0]);
+        return pos[0] < s.length() ? s.charAt(pos[0]) : '\0';
+    }
+
+    private static int skipSpace(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i))) i++;
+        return i;
+    }
+}
@@ -2,13 +2,10 @@ package servlets;
 
 import client.CalVegetableCost;
 import client.CalculateCost;
-import common.Compute;
-import server.VegetableComputeEngine;
 
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.*;
 import java.io.*;
-import java.rmi.registry.*;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -16,8 +13,9 @@ import java.util.Map;
  * CalCostServlet - POST /vegetable/cost
  * Params: id, quantity
  * DIARY: Day 4 - Servlet to calculate cost for a single vegetable.
+ *        Day 6 - Async (see AsyncTaskSupport).
  */
-@WebServlet("/vegetable/cost")
+@WebServlet(value = "/vegetable/cost", asyncSupported = true)
 class CalCostServlet extends HttpServlet {
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp)
@@ -28,11 +26,10 @@ class CalCostServlet extends HttpServlet {
         if (id == null || qty == null) {
             resp.setStatus(400); out.println("ERROR: Missing id or quantity"); return;
         }
-        try {
-            Registry reg = LocateRegistry.getRegistry("localhost", 1099);
-            Compute engine = (Compute) reg.lookup(VegetableComputeEngine.REGISTRY_NAME);
-            out.println(engine.executeTask(new CalVegetableCost(id, Double.parseDouble(qty))));
-        } catch (Exception e) { resp.setStatus(500); out.println("ERROR: " + e.getMessage()); }
+        double quantity;
+        try { quantity = Double.parseDouble(qty); }
+        catch (NumberFormatException e) { resp.setStatus(400); out.println("ERROR: " + e.getMessage()); return; }
+        AsyncTaskSupport.respond(req, resp, new CalVegetableCost(id, quantity));
     }
 }
 
@@ -41,8 +38,9 @@ class CalCostServlet extends HttpServlet {
  * Params: cashier, amountGiven, items (format: "V001:2.5,V002:1.0")
  * DIARY: Day 4 - Servlet for full receipt generation.
  *        Items are sent as a comma-separated string of id:qty pairs.
+ *        Day 6 - Async (see AsyncTaskSupport).
  */
-@WebServlet("/vegetable/receipt")
+@WebServlet(value = "/vegetable/receipt", asyncSupported = true)
 class ReceiptServlet extends HttpServlet {
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp)
@@ -59,6 +57,7 @@ class ReceiptServlet extends HttpServlet {
             return;
         }
 
+        CalculateCost task;
         try {
             // Parse items string into map
             Map<String, Double> items = new LinkedHashMap<>();
@@ -66,11 +65,9 @@ class ReceiptServlet extends HttpServlet {
                 String[] kv = pair.split(":");
                 items.put(kv[0].trim(), Double.parseDouble(kv[1].trim()));
             }
+            task = new CalculateCost(items, Double.parseDouble(amountStr), cashier);
+        } catch (Exception e) { resp.setStatus(400); out.println("ERROR: " + e.getMessage()); return; }
 
-            Registry reg = LocateRegistry.getRegistry("localhost", 1099);
-            Compute engine = (Compute) reg.lookup(VegetableComputeEngine.REGISTRY_NAME);
-            out.println(engine.executeTask(
-                    new CalculateCost(items, Double.parseDouble(amountStr), cashier)));
-        } catch (Exception e) { resp.setStatus(500); out.println("ERROR: " + e.getMessage()); }
+        AsyncTaskSupport.respond(req, resp, task);
     }
 }
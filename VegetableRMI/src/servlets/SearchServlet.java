@@ -0,0 +1,75 @@
+package servlets;
+
+import client.FindVegetablesByName;
+import client.FindVegetablesByPrice;
+import common.QueryPage;
+import common.ReadOnlyTask;
+
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.*;
+import java.io.IOException;
+
+/**
+ * SearchServlet - searches the price table through the engine's indexes.
+ *
+ * URL: GET /vegetable/search?name=tom[&exact=true]
+ *      GET /vegetable/search?minPrice=20&maxPrice=50
+ *      optional: &limit=50 (max 1000) &cursor=... (the "next" of the previous page)
+ *
+ * Answers one page as JSON:
+ *   {"version":12,"items":[{"id":"V001","name":"Tomato","price":60.0}],"next":"..."}
+ * "next" is null on the last page.
+ *
+ * DIARY: Day 6 - Created with the name and price indexes.
+ */
+@WebServlet(value = "/vegetable/search", asyncSupported = true)
+public class SearchServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int DEFAULT_LIMIT = 50;
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+            throws IOException {
+
+        String name = req.getParameter("name");
+        String min = req.getParameter("minPrice"), max = req.getParameter("maxPrice");
+        String cursor = req.getParameter("cursor");
+        ReadOnlyTask<QueryPage> task;
+        try {
+            int limit = req.getParameter("limit") == null ? DEFAULT_LIMIT : Integer.parseInt(req.getParameter("limit"));
+            if (name != null && !name.trim().isEmpty()) {
+                task = new FindVegetablesByName(name, Boolean.parseBoolean(req.getParameter("exact")), cursor, limit);
+            } else if (min != null || max != null) {
+                task = new FindVegetablesByPrice(min == null ? 0.0 : Double.parseDouble(min),
+                        max == null ? Double.MAX_VALUE / 100 : Double.parseDouble(max), cursor, limit);
+            } else {
+                throw new IllegalArgumentException("Give name, or minPrice and/or maxPrice");
+            }
+        } catch (IllegalArgumentException e) { // includes NumberFormatException
+            resp.setContentType("text/plain;charset=UTF-8");
+            resp.setStatus(400);
+            resp.getWriter().println("ERROR: " + e.getMessage());
+            return;
+        }
+
+        resp.setContentType("application/json;charset=UTF-8");
+        AsyncTaskSupport.respond(req, resp, task, SearchServlet::toJson);
+    }
+
+    private static String toJson(QueryPage page) {
+        StringBuilder sb = new StringBuilder(64 + page.size() * 64);
+        sb.append("{\"version\":").append(page.getVersion()).append(",\"items\":[");
+        for (int i = 0; i < page.size(); i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"id\":");
+            BulkExportServlet.appendJson(sb, page.getId(i)).append(",\"name\":");
+            BulkExportServlet.appendJson(sb, page.getName(i)).append(",\"price\":");
+            sb.append(page.getPrice(i)).append('}');
+        }
+        sb.append("],\"next\":");
+        if (page.isLast()) sb.append("null"); else BulkExportServlet.appendJson(sb, page.getNextCursor());
+        return sb.append('}').toString();
+    }
+}
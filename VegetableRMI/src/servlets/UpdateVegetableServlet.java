@@ -5,16 +5,14 @@
 package servlets;
 
 import client.UpdateVegetablePrice;
-import common.Compute;
 import common.VegetablePrice;
-import server.VegetableComputeEngine;
 
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.*;
 import java.io.*;
-import java.rmi.registry.*;
 
-@WebServlet("/vegetable/update")
+// Async (see AsyncTaskSupport)
+@WebServlet(value = "/vegetable/update", asyncSupported = true)
 public class UpdateVegetableServlet extends HttpServlet {
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp)
@@ -26,11 +24,11 @@ public class UpdateVegetableServlet extends HttpServlet {
         if (id == null || name == null || price == null) {
             resp.setStatus(400); out.println("ERROR: Missing id, name, or price"); return;
         }
-        try {
-            Registry reg = LocateRegistry.getRegistry("localhost", 1099);
-            Compute engine = (Compute) reg.lookup(VegetableComputeEngine.REGISTRY_NAME);
-            out.println(engine.executeTask(
-                    new UpdateVegetablePrice(new VegetablePrice(id, name, Double.parseDouble(price)))));
-        } catch (Exception e) { resp.setStatus(500); out.println("ERROR: " + e.getMessage()); }
+        double priceVal;
+        try { priceVal = Double.parseDouble(price); }
+        catch (NumberFormatException e) { resp.setStatus(400); out.println("ERROR: " + e.getMessage()); return; }
+        AsyncTaskSupport.respond(req, resp,
+                new UpdateVegetablePrice(new VegetablePrice(id, name, priceVal),
+                        AsyncTaskSupport.requestIdOf(req)));
     }
 }
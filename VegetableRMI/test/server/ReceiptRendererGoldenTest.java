@@ -0,0 +1,287 @@
+package server;
+
+import common.BasketQuote;
+import common.VegetablePrice;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * ReceiptRendererGoldenTest - checks that ReceiptRenderer prints exactly
+ * what the String.format layout it replaced printed.
+ *
+ * The old layout is kept below, as it was in CalculateCost and
+ * CalVegetableCost, and is the golden reference: fixed baskets (missing
+ * items, null names and cashier, short payment, half-cent quantities,
+ * NaN) and a fixed-seed set of random ones must render byte for byte the
+ * same. ReceiptRenderer picks its number path from the default locale
+ * when it loads, so each locale runs in its own JVM.
+ *
+ * Two totals changed on purpose when pricing moved to cents (see
+ * PricingEngine) and are pinned here with both their old and new value:
+ * a sub-cent unit price is rounded before it is multiplied, and sub-cent
+ * lines no longer add up to a cent in the grand total.
+ *
+ * Run: java -cp <VegetableRMI classes>:<test classes> server.ReceiptRendererGoldenTest
+ * Exits with status 1 and prints the first differences if any receipt differs.
+ *
+ * DIARY: Day 6 - Added so the hand-built receipts cannot drift from the
+ *        old layout unnoticed.
+ */
+public class ReceiptRendererGoldenTest {
+
+    private static final List<String> LOCALES = Arrays.asList("en-US", "de-DE");
+    private static final int RANDOM_CASES = 50_000;
+
+    private static final LocalDateTime WHEN = LocalDateTime.of(2024, 3, 9, 14, 5, 7);
+
+    // The first fixed basket in en-US, written out so the reference itself cannot change either
+    private static final String GOLDEN_EN = String.join(System.lineSeparator(),
+            "================================================\n"
+                    + "         VEGETABLE MARKET - RECEIPT\n"
+                    + "================================================\n"
+                    + "  Date    : 09-03-2024 14:05:07",
+            "  Cashier : Alice",
+            "------------------------------------------------\n"
+                    + "  Item            Qty(kg)  Unit(KES)   Total(KES)",
+            "------------------------------------------------\n"
+                    + "  Tomato            1.25      45.50        56.88",
+            "  ???              NOT FOUND (ID: NOPE)",
+            "  Sweet Potatoes Extra   0.13     120.00        15.00",
+            "------------------------------------------------\n"
+                    + "  TOTAL (KES):                             71.88",
+            "  Amount Given (KES):                     100.00",
+            "  Change Due  (KES):                       28.12",
+            "================================================\n"
+                    + "         Thank you for shopping with us!\n"
+                    + "================================================\n"
+                    + "  WARNING: Some items could not be found in the table.\n");
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            System.exit(check(args[0]) ? 0 : 1);
+        }
+        boolean passed = true;
+        for (String locale : LOCALES) {
+            String[] tag = locale.split("-");
+            List<String> cmd = Arrays.asList(
+                    System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                    "-Duser.language=" + tag[0], "-Duser.country=" + tag[1],
+                    "-cp", System.getProperty("java.class.path"),
+                    ReceiptRendererGoldenTest.class.getName(), locale);
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                String line;
+                while ((line = out.readLine()) != null) System.out.println(line);
+            }
+            passed &= p.waitFor() == 0;
+        }
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    // ── One locale, in this JVM ──────────────────────────────────────────────
+
+    private static boolean check(String locale) {
+        int failures = 0;
+        int cases = 0;
+
+        for (BasketQuote quote : fixedBaskets()) {
+            for (long given : new long[] {10_000L, 0L, -2_50L, 1L << 40}) {
+                for (String cashier : new String[] {"Alice", null}) {
+                    failures += compare(legacyReceipt(quote, given, cashier, WHEN),
+                            ReceiptRenderer.renderReceipt(quote, given, cashier, WHEN), failures);
+                    cases++;
+                }
+            }
+            failures += compareCosts(quote, failures);
+            cases++;
+        }
+        failures += checkCentRounding(failures);
+        cases += 2;
+        if (locale.equals("en-US")) {
+            failures += compare(GOLDEN_EN,
+                    ReceiptRenderer.renderReceipt(fixedBaskets()[0], 10_000L, "Alice", WHEN), failures);
+            cases++;
+        }
+
+        Random random = new Random(42);
+        for (int c = 0; c < RANDOM_CASES; c++) {
+            BasketQuote quote = randomBasket(random);
+            long given = random.nextInt(3) == 0 ? -random.nextInt(100_000) : random.nextLong() % 100_000_000_000L;
+            LocalDateTime when = LocalDateTime.of(1 + random.nextInt(9999), 1 + random.nextInt(12),
+                    1 + random.nextInt(28), random.nextInt(24), random.nextInt(60), random.nextInt(60));
+            String cashier = random.nextInt(10) == 0 ? null : "Alice";
+            failures += compare(legacyReceipt(quote, given, cashier, when),
+                    ReceiptRenderer.renderReceipt(quote, given, cashier, when), failures);
+            failures += compareCosts(quote, failures);
+            cases++;
+        }
+
+        System.out.printf("%-6s %d baskets, %d differences%n", locale, cases, failures);
+        return failures == 0;
+    }
+
+    // The two documented differences from the old double arithmetic
+    private static int checkCentRounding(int failures) {
+        int diff = 0;
+
+        // 33.333/kg x 3 kg: the old code printed 99.999 as 100.00; 33.33 x 3 is 99.99
+        VegetablePrice subCent = new VegetablePrice("S1", "Saffron", 33.333);
+        long unit = subCent.getPriceCents();
+        long line = PricingEngine.lineTotalCents(unit, 3);
+        diff += compare(String.format("%.2f", 100.0), String.format("%.2f", 33.333 * 3), failures + diff);
+        diff += compare("3333 x 3 = 9999", unit + " x 3 = " + line, failures + diff);
+        diff += compare(legacyCost(subCent, unit, 3, line), ReceiptRenderer.renderCost(subCent, unit, 3, line),
+                failures + diff);
+
+        // Three lines of 0.004: the old sum 0.012 printed as 0.01; each line is now 0 cents
+        BasketQuote tiny = basket(new String[] {"T1", "T2", "T3"}, new double[] {1, 1, 1});
+        for (int i = 0; i < 3; i++) {
+            line(tiny, i, "Cress", new VegetablePrice(tiny.getId(i), "Cress", 0.004).getPriceCents());
+        }
+        diff += compare(String.format("%.2f", 0.01), String.format("%.2f", 0.004 * 3), failures + diff);
+        diff += compare("total 0", "total " + tiny.getTotalCents(), failures + diff);
+        diff += compare(legacyReceipt(tiny, 0L, "Alice", WHEN), ReceiptRenderer.renderReceipt(tiny, 0L, "Alice", WHEN),
+                failures + diff);
+        return diff;
+    }
+
+    private static int compareCosts(BasketQuote quote, int failures) {
+        int diff = 0;
+        for (int i = 0; i < quote.size(); i++) {
+            VegetablePrice vp = quote.getEntry(i);
+            if (vp == null) continue;
+            diff += compare(legacyCost(vp, quote.getUnitCents(i), quote.getQuantity(i), quote.getLineCents(i)),
+                    ReceiptRenderer.renderCost(vp, quote.getUnitCents(i), quote.getQuantity(i), quote.getLineCents(i)),
+                    failures + diff);
+        }
+        return diff;
+    }
+
+    // 1 if different (the first few are printed), else 0
+    private static int compare(String expected, String actual, int failuresSoFar) {
+        if (expected.equals(actual)) return 0;
+        if (failuresSoFar < 3) {
+            System.out.println("EXPECTED:\n" + expected + "\nACTUAL:\n" + actual + "\n");
+        }
+        return 1;
+    }
+
+    // ── Baskets ──────────────────────────────────────────────────────────────
+
+    private static BasketQuote[] fixedBaskets() {
+        BasketQuote usual = basket(new String[] {"V001", "NOPE", "V002"}, new double[] {1.25, 1, 0.125});
+        line(usual, 0, "Tomato", 45_50L);
+        usual.setMissing(1);
+        line(usual, 2, "Sweet Potatoes Extra", 120_00L); // longer than the column
+
+        double[] edges = {1.005, 0.125, 2.675, 0.015, -0.001, -1.005, -0.0, 0.0, Double.NaN, 1e7, 123456.785, 0.995};
+        String[] ids = new String[edges.length];
+        for (int i = 0; i < ids.length; i++) ids[i] = "E" + i;
+        BasketQuote rounding = basket(ids, edges);
+        for (int i = 0; i < ids.length; i++) line(rounding, i, i % 4 == 0 ? null : (i % 4 == 1 ? "" : "Kale"), 33_33L);
+
+        BasketQuote empty = basket(new String[0], new double[0]);
+        return new BasketQuote[] {usual, rounding, empty};
+    }
+
+    private static BasketQuote randomBasket(Random random) {
+        String[] names = {"Tomato", "Sweet Potatoes Extra Long Name", "", null, "Kale"};
+        double[] special = {1.005, 0.125, 1.115, 2.675, 0.015, -0.001, -1.005, -0.0, 0.0, Double.NaN,
+                1e7, 123456.785, 0.005, 0.995, 99.995};
+        int n = random.nextInt(6);
+        String[] ids = new String[n];
+        double[] quantities = new double[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = "V" + random.nextInt(10);
+            quantities[i] = random.nextInt(4) == 0 ? special[random.nextInt(special.length)]
+                    : random.nextInt(3) == 0 ? random.nextInt(100_000) / 1000.0
+                    : random.nextDouble() * random.nextInt(1000);
+        }
+        BasketQuote quote = basket(ids, quantities);
+        for (int i = 0; i < n; i++) {
+            if (random.nextInt(5) == 0) {
+                quote.setMissing(i);
+            } else {
+                long unit = random.nextInt(3) == 0 ? -random.nextInt(1000) : random.nextInt(10_000_000);
+                line(quote, i, names[random.nextInt(names.length)], unit);
+            }
+        }
+        return quote;
+    }
+
+    private static BasketQuote basket(String[] ids, double[] quantities) {
+        BasketQuote quote = new BasketQuote();
+        quote.reset(ids, quantities);
+        return quote;
+    }
+
+    private static void line(BasketQuote quote, int i, String name, long unitCents) {
+        quote.setLine(i, new VegetablePrice(quote.getId(i), name, unitCents / 100.0), unitCents,
+                PricingEngine.lineTotalCents(unitCents, quote.getQuantity(i)));
+    }
+
+    // ── The old String.format layout (golden reference) ──────────────────────
+
+    private static String legacyReceipt(BasketQuote quote, long given, String cashierName, LocalDateTime when) {
+        StringBuilder sb = new StringBuilder();
+        String divider  = "================================================\n";
+        String divider2 = "------------------------------------------------\n";
+
+        sb.append(divider);
+        sb.append("         VEGETABLE MARKET - RECEIPT\n");
+        sb.append(divider);
+        sb.append(String.format("  Date    : %s%n", when.format(DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss"))));
+        sb.append(String.format("  Cashier : %s%n", cashierName));
+        sb.append(divider2);
+        sb.append(String.format("  %-15s %6s %10s %12s%n", "Item", "Qty(kg)", "Unit(KES)", "Total(KES)"));
+        sb.append(divider2);
+
+        for (int i = 0; i < quote.size(); i++) {
+            VegetablePrice vp = quote.getEntry(i);
+            if (vp == null) {
+                sb.append(String.format("  %-15s  NOT FOUND (ID: %s)%n", "???", quote.getId(i)));
+                continue;
+            }
+            sb.append(String.format("  %-15s %6.2f %10.2f %12.2f%n", vp.getName(), quote.getQuantity(i),
+                    quote.getUnitCents(i) / 100.0, quote.getLineCents(i) / 100.0));
+        }
+
+        long grandTotal = quote.getTotalCents();
+        sb.append(divider2);
+        sb.append(String.format("  %-33s %12.2f%n", "TOTAL (KES):", grandTotal / 100.0));
+        if (given < grandTotal) {
+            sb.append(String.format("  %-33s %12.2f%n", "Amount Given (KES):", given / 100.0));
+            sb.append(String.format("  %-33s %12.2f%n", "INSUFFICIENT FUNDS - SHORT:", (grandTotal - given) / 100.0));
+        } else {
+            long change = given - grandTotal;
+            sb.append(String.format("  %-33s %12.2f%n", "Amount Given (KES):", given / 100.0));
+            sb.append(String.format("  %-33s %12.2f%n", "Change Due  (KES):", change / 100.0));
+        }
+        sb.append(divider);
+        sb.append("         Thank you for shopping with us!\n");
+        sb.append(divider);
+        if (quote.hasMissing()) {
+            sb.append("  WARNING: Some items could not be found in the table.\n");
+        }
+        return sb.toString();
+    }
+
+    private static String legacyCost(VegetablePrice vp, long unitCents, double quantityKg, long totalCents) {
+        return String.format(
+                "COST CALCULATION:\n"
+                + "  Vegetable  : %s (ID: %s)\n"
+                + "  Unit Price : KES %.2f per kg\n"
+                + "  Quantity   : %.2f kg\n"
+                + "  ------------------------------------\n"
+                + "  TOTAL COST : KES %.2f",
+                vp.getName(), vp.getId(), unitCents / 100.0, quantityKg, totalCents / 100.0);
+    }
+}
@@ -0,0 +1,157 @@
+package server;
+
+import common.PriceMutation;
+import common.VegetablePrice;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * VegetablePriceTableFoldTest - checks that rows deleted while the table
+ * builds a new store in the background stay deleted once it switches to
+ * that store.
+ *
+ * Each round adds a batch of rows and then deletes them one by one, with
+ * a fold (heap and off-heap stores) or journal compaction (data
+ * directory) after every 50 changes, so deletes keep landing between the
+ * snapshot a store is built from and the switch to it. After every round
+ * and at the end, no deleted row may be visible and the table's size
+ * must match what it iterates; the data directory is then opened again
+ * and must hold none of them either. The table is a singleton configured
+ * by system properties, so each run has its own JVM.
+ *
+ * Run: java -cp <VegetableRMI classes>:<test classes> server.VegetablePriceTableFoldTest
+ * Exits with status 1 and prints what went wrong if a deleted row came back.
+ *
+ * DIARY: Day 6 - Added after deletes made during a fold came back from
+ *        the new store.
+ */
+public class VegetablePriceTableFoldTest {
+
+    private static final List<String> MODES = Arrays.asList("heap", "offheap", "journal", "reopen");
+    private static final int ROUNDS = 300;
+    private static final int BATCH  = 200;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            System.exit((args[0].equals("reopen") ? checkReopened() : check(args[0])) ? 0 : 1);
+        }
+        Path dataDir = Files.createTempDirectory("vegetable-fold-test-");
+        boolean passed = true;
+        for (String mode : MODES) {
+            List<String> cmd = new ArrayList<>(Arrays.asList(
+                    System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                    "-D" + VegetablePriceTable.FOLD_AFTER_PROPERTY + "=50",
+                    "-D" + EngineLog.LEVEL_PROPERTY + "=WARN",
+                    "-cp", System.getProperty("java.class.path")));
+            if (mode.equals("journal") || mode.equals("reopen")) {
+                cmd.add(1, "-D" + PriceJournal.DATA_DIR_PROPERTY + "=" + dataDir);
+                cmd.add(1, "-D" + PriceJournal.SNAPSHOT_EVERY_PROPERTY + "=50");
+            } else {
+                cmd.add(1, "-D" + PriceStore.STORE_PROPERTY + "=" + mode);
+            }
+            cmd.add(VegetablePriceTableFoldTest.class.getName());
+            cmd.add(mode);
+            Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+            try (BufferedReader out = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+                String line;
+                while ((line = out.readLine()) != null) System.out.println(line);
+            }
+            passed &= p.waitFor() == 0;
+        }
+        deleteAll(dataDir);
+        System.out.println(passed ? "PASSED" : "FAILED");
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static void deleteAll(Path dir) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path f : files) Files.deleteIfExists(f);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    // ── One store, in this JVM ───────────────────────────────────────────────
+
+    private static boolean check(String store) throws InterruptedException {
+        VegetablePriceTable table = VegetablePriceTable.getInstance();
+        Set<String> kept = ids(table.getAll());
+        int failures = 0;
+        int folds = 0;
+
+        for (int round = 0; round < ROUNDS && failures == 0; round++) {
+            List<PriceMutation> adds = new ArrayList<>(BATCH);
+            for (int i = 0; i < BATCH; i++) {
+                adds.add(PriceMutation.add(new VegetablePrice("F" + round + "-" + i, "Fold " + i, 1 + i)));
+            }
+            table.applyAll(adds);
+            int before = table.getOverlaySize();
+            for (int i = 0; i < BATCH; i++) table.delete("F" + round + "-" + i);
+            if (table.getOverlaySize() < before) folds++;
+            for (int i = 0; i < BATCH; i++) {
+                if (table.find("F" + round + "-" + i) != null) {
+                    failures += report(store + ": deleted row F" + round + "-" + i + " found again", failures);
+                }
+            }
+        }
+
+        Thread.sleep(500); // let a fold still running switch over
+        VegetablePriceTable.Snapshot snap = table.snapshot();
+        Set<String> visible = ids(snap.getAll());
+        if (!visible.equals(kept)) {
+            Set<String> back = new HashSet<>(visible);
+            back.removeAll(kept);
+            failures += report(store + ": " + back.size() + " deleted rows visible at the end", failures);
+        }
+        int iterated = countOf(snap.getAll());
+        if (iterated != snap.size()) {
+            failures += report(store + ": size " + snap.size() + " but " + iterated + " rows iterated", failures);
+        }
+        if (folds == 0) failures += report(store + ": no fold ran", failures);
+
+        System.out.printf("%-8s %d rounds, %d folds seen, %d failures%n", store, ROUNDS, folds, failures);
+        return failures == 0;
+    }
+
+    // The data directory written by the "journal" run, recovered from disk
+    private static boolean checkReopened() {
+        VegetablePriceTable.Snapshot snap = VegetablePriceTable.getInstance().snapshot();
+        int failures = 0;
+        for (VegetablePrice vp : snap.getAll()) {
+            if (vp.getId().startsWith("F")) failures += report("reopen: deleted row " + vp.getId() + " recovered", failures);
+        }
+        int iterated = countOf(snap.getAll());
+        if (iterated != snap.size()) {
+            failures += report("reopen: size " + snap.size() + " but " + iterated + " rows iterated", failures);
+        }
+        System.out.printf("%-8s %d rows recovered, %d failures%n", "reopen", iterated, failures);
+        return failures == 0;
+    }
+
+    private static int report(String message, int failuresSoFar) {
+        if (failuresSoFar < 3) System.out.println(message);
+        return 1;
+    }
+
+    private static Set<String> ids(Iterable<VegetablePrice> rows) {
+        Set<String> ids = new HashSet<>();
+        for (VegetablePrice vp : rows) ids.add(vp.getId());
+        return ids;
+    }
+
+    private static int countOf(Iterable<VegetablePrice> rows) {
+        int n = 0;
+        for (VegetablePrice ignored : rows) n++;
+        return n;
+    }
+}